@@ -0,0 +1,165 @@
+/**
+ * @package Showcase-OData-Quarkus
+ *
+ * @file Change event resource
+ * @copyright 2024-present Christoph Kappel <christoph@unexist.dev>
+ * @version $Id$
+ *
+ * This program can be distributed under the terms of the Apache License v2.0.
+ * See the file LICENSE for details.
+ **/
+
+package dev.unexist.showcase.todo.adapter;
+
+import dev.unexist.showcase.todo.domain.ChangeEvent;
+import dev.unexist.showcase.todo.domain.ChangeListener;
+import dev.unexist.showcase.todo.infrastructure.event.ChangeEventBus;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.quarkus.vertx.web.Header;
+import io.quarkus.vertx.web.Param;
+import io.quarkus.vertx.web.ReactiveRoutes;
+import io.quarkus.vertx.web.Route;
+import io.quarkus.vertx.web.RouteBase;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.subscription.BackPressureStrategy;
+import io.vertx.ext.web.handler.HttpException;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import java.util.Map;
+
+/**
+ * Server-sent events of all committed changes
+ *
+ * Clients resume with the Last-Event-ID header or the {@code after} parameter; kept events
+ * are replayed first as fast as the client reads them, otherwise a {@code reset} event tells
+ * the client to read everything again. Clients which cannot keep up with new events overflow
+ * their buffer and are disconnected, so they can resume from their last event instead of
+ * slowing down writers.
+ **/
+
+@ApplicationScoped
+@RouteBase(path = "events")
+public class ChangeEventResource {
+    public static final String EVENT_CHANGE = "change";
+    public static final String EVENT_RESET = "reset";
+
+    @ConfigProperty(name = "todo.events.buffer-size", defaultValue = "256")
+    int bufferSize;
+
+    @Inject
+    ChangeEventBus changeEventBus;
+
+    /**
+     * Server-sent event of the stream
+     **/
+
+    static final class Event implements ReactiveRoutes.ServerSentEvent<Object> {
+        private final String name;
+        private final long id;
+        private final Object data;
+
+        /**
+         * Constructor
+         *
+         * @param  name  Name of the event
+         * @param  id    Id of the event; the sequence number
+         * @param  data  Data of the event
+         **/
+
+        private Event(String name, long id, Object data) {
+            this.name = name;
+            this.id = id;
+            this.data = data;
+        }
+
+        @Override
+        public String event() {
+            return this.name;
+        }
+
+        @Override
+        public long id() {
+            return this.id;
+        }
+
+        @Override
+        public Object data() {
+            return this.data;
+        }
+    }
+
+    @Route(path = "", methods = Route.HttpMethod.GET, produces = ReactiveRoutes.EVENT_STREAM)
+    Multi<Event> streamChanges(@Header("Last-Event-ID") String lastEventId,
+                               @Param("after") String after)
+    {
+        Long afterSequence = parseSequence(null != lastEventId ? lastEventId : after);
+
+        return Multi.createFrom().deferred(() -> {
+            long sequence = this.changeEventBus.getSequence();
+
+            if (null == afterSequence) {
+                return this.streamAfter(sequence);
+            }
+
+            /* Replay on demand, so only new events count against the buffer */
+            Multi<Event> replay = this.changeEventBus.findSince(afterSequence, sequence)
+                    .map(events -> Multi.createFrom().iterable(events)
+                            .map(event -> new Event(EVENT_CHANGE, event.getSequence(), event)))
+                    .orElseGet(() -> Multi.createFrom().item(new Event(EVENT_RESET, sequence,
+                            Map.of("sequence", sequence))));
+
+            return Multi.createBy().concatenating().streams(replay,
+                    this.streamAfter(sequence));
+        });
+    }
+
+    /**
+     * Stream new events after given sequence number
+     *
+     * @param  sequence  Sequence number of the last sent event
+     *
+     * @return A {@link Multi} of the events
+     **/
+
+    private Multi<Event> streamAfter(long sequence) {
+        return Multi.createFrom().<Event>emitter(emitter -> {
+            ChangeEventBus.Subscription subscription = this.changeEventBus.subscribe(
+                    sequence, new ChangeListener() {
+                        @Override
+                        public void onChange(ChangeEvent event) {
+                            emitter.emit(new Event(EVENT_CHANGE, event.getSequence(), event));
+                        }
+
+                        @Override
+                        public void onReset(long sequence) {
+                            emitter.emit(new Event(EVENT_RESET, sequence,
+                                    Map.of("sequence", sequence)));
+                        }
+                    });
+
+            emitter.onTermination(subscription::close);
+        }, BackPressureStrategy.ERROR).onOverflow().buffer(this.bufferSize);
+    }
+
+    /**
+     * Parse sequence number to resume from
+     *
+     * @param  value  Value to parse; might be {@code null}
+     *
+     * @return Either the sequence number; otherwise {@code null} for new events only
+     **/
+
+    private static Long parseSequence(String value) {
+        if (null == value || value.isBlank()) {
+            return null;
+        }
+
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            throw new HttpException(HttpResponseStatus.BAD_REQUEST.code());
+        }
+    }
+}
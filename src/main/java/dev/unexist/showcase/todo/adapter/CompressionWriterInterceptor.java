@@ -0,0 +1,94 @@
+/**
+ * @package Showcase-OData-Quarkus
+ *
+ * @file Compression writer interceptor
+ * @copyright 2024-present Christoph Kappel <christoph@unexist.dev>
+ * @version $Id$
+ *
+ * This program can be distributed under the terms of the Apache License v2.0.
+ * See the file LICENSE for details.
+ **/
+
+package dev.unexist.showcase.todo.adapter;
+
+import dev.unexist.showcase.todo.infrastructure.compression.CompressingOutputStream;
+import dev.unexist.showcase.todo.infrastructure.compression.Compression;
+import dev.unexist.showcase.todo.infrastructure.compression.ContentEncoding;
+
+import javax.annotation.Priority;
+import javax.inject.Inject;
+import javax.ws.rs.Priorities;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.Provider;
+import javax.ws.rs.ext.WriterInterceptor;
+import javax.ws.rs.ext.WriterInterceptorContext;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import static dev.unexist.showcase.todo.infrastructure.compression.Compression.HEADER_ACCEPT_ENCODING;
+import static dev.unexist.showcase.todo.infrastructure.compression.Compression.HEADER_CONTENT_ENCODING;
+import static dev.unexist.showcase.todo.infrastructure.compression.Compression.HEADER_CONTENT_LENGTH;
+import static dev.unexist.showcase.todo.infrastructure.compression.Compression.HEADER_VARY;
+
+/* Wrap the entity stream before any body writer touches it */
+@Provider
+@Priority(Priorities.ENTITY_CODER)
+public class CompressionWriterInterceptor implements WriterInterceptor {
+
+    @Inject
+    Compression compression;
+
+    @Context
+    HttpHeaders httpHeaders;
+
+    /**
+     * Compress REST bodies above the threshold with the negotiated encoding
+     *
+     * Bodies which are already encoded are left alone.
+     **/
+
+    @Override
+    public void aroundWriteTo(WriterInterceptorContext context) throws IOException {
+        MultivaluedMap<String, Object> headers = context.getHeaders();
+
+        if (!this.compression.isEnabled() || headers.containsKey(HEADER_CONTENT_ENCODING)) {
+            context.proceed();
+
+            return;
+        }
+
+        headers.add(HEADER_VARY, HEADER_ACCEPT_ENCODING);
+
+        ContentEncoding encoding = this.compression.negotiate(
+                this.httpHeaders.getHeaderString(HEADER_ACCEPT_ENCODING));
+
+        if (ContentEncoding.IDENTITY == encoding) {
+            context.proceed();
+
+            return;
+        }
+
+        OutputStream out = context.getOutputStream();
+        CompressingOutputStream compressingStream = this.compression.wrap(out, encoding,
+                chosen -> {
+                    if (ContentEncoding.IDENTITY != chosen) {
+                        headers.putSingle(HEADER_CONTENT_ENCODING, chosen.getToken());
+                        headers.remove(HEADER_CONTENT_LENGTH);
+                    }
+
+                    return chosen;
+                });
+
+        context.setOutputStream(compressingStream);
+
+        try {
+            context.proceed();
+
+            compressingStream.finish();
+        } finally {
+            context.setOutputStream(out);
+        }
+    }
+}
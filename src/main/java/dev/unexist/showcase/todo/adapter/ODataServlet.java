@@ -11,34 +11,90 @@
 
 package dev.unexist.showcase.todo.adapter;
 
+import dev.unexist.showcase.todo.adapter.odata.cache.EntityCache;
+import dev.unexist.showcase.todo.adapter.odata.cache.ResultCache;
+import dev.unexist.showcase.todo.adapter.odata.processor.BatchProcessor;
 import dev.unexist.showcase.todo.adapter.odata.processor.EdmProvider;
 import dev.unexist.showcase.todo.adapter.odata.processor.EntityCollectionProcessor;
 import dev.unexist.showcase.todo.adapter.odata.processor.EntityProcessor;
 import dev.unexist.showcase.todo.adapter.odata.processor.PrimitiveProcessor;
 import dev.unexist.showcase.todo.adapter.odata.storage.EntityStorage;
+import dev.unexist.showcase.todo.domain.UnitOfWork;
+import dev.unexist.showcase.todo.infrastructure.compression.CompressingServletResponse;
+import dev.unexist.showcase.todo.infrastructure.compression.Compression;
+import dev.unexist.showcase.todo.infrastructure.concurrent.ParallelScanner;
+import dev.unexist.showcase.todo.infrastructure.concurrent.RequestDispatcher;
+import dev.unexist.showcase.todo.infrastructure.concurrent.WorkerPool;
 import org.apache.olingo.server.api.OData;
+import org.apache.olingo.server.api.ODataHandler;
 import org.apache.olingo.server.api.ODataHttpHandler;
 import org.apache.olingo.server.api.ServiceMetadata;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.inject.Inject;
+import javax.servlet.AsyncContext;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpSession;
+import java.io.IOException;
 import java.util.ArrayList;
 
-@WebServlet(name = "ODataServlet", urlPatterns = "/odata/*")
+@WebServlet(name = "ODataServlet", urlPatterns = "/odata/*", asyncSupported = true)
 public class ODataServlet extends HttpServlet {
     private static final Logger LOGGER = LoggerFactory.getLogger(ODataServlet.class);
 
     @Inject
     EntityStorage storage;
 
+    @Inject
+    ResultCache resultCache;
+
+    @Inject
+    EntityCache entityCache;
+
+    @Inject
+    UnitOfWork unitOfWork;
+
+    @Inject
+    WorkerPool workerPool;
+
+    @Inject
+    RequestDispatcher dispatcher;
+
+    @Inject
+    ParallelScanner scanner;
+
+    @Inject
+    Compression compression;
+
     @Override
     protected void service(HttpServletRequest request, HttpServletResponse response) {
+        if (this.dispatcher.isDispatching()) {
+            AsyncContext asyncContext = request.startAsync();
+
+            this.dispatcher.execute(() -> {
+                try {
+                    processRequest(request, response);
+                } finally {
+                    asyncContext.complete();
+                }
+            });
+        } else {
+            processRequest(request, response);
+        }
+    }
+
+    /**
+     * Process the OData request on the current thread
+     *
+     * @param  request   A {@link HttpServletRequest} to process
+     * @param  response  A {@link HttpServletResponse} to write to
+     **/
+
+    private void processRequest(HttpServletRequest request, HttpServletResponse response) {
         HttpSession session = request.getSession(true);
         EntityStorage storage = (EntityStorage)session.getAttribute(EntityStorage.class.getName());
 
@@ -48,18 +104,49 @@ public class ODataServlet extends HttpServlet {
             session.setAttribute(EntityStorage.class.getName(), storage);
         }
 
+        /* Bodies are compressed while they are written, streamed ones included */
+        CompressingServletResponse compressingResponse = new CompressingServletResponse(response,
+                this.compression, request.getHeader(Compression.HEADER_ACCEPT_ENCODING));
+
         try {
             OData odata = OData.newInstance();
             ServiceMetadata edm = odata.createServiceMetadata(new EdmProvider(), new ArrayList<>());
             ODataHttpHandler handler = odata.createHandler(edm);
+            EntityStorage sessionStorage = storage;
 
-            handler.register(new EntityCollectionProcessor(storage));
-            handler.register(new EntityProcessor(storage));
-            handler.register(new PrimitiveProcessor(storage));
+            registerProcessors(handler, sessionStorage);
 
-            handler.process(request, response);
-        } catch (RuntimeException e) {
+            handler.register(new BatchProcessor(this.unitOfWork, this.workerPool,
+                    batchHandler -> registerProcessors(batchHandler, sessionStorage)));
+
+            /* Reads see one point in time and never hold up concurrent writes */
+            if ("GET".equals(request.getMethod())) {
+                this.unitOfWork.read(() -> {
+                    handler.process(request, compressingResponse);
+
+                    return null;
+                });
+            } else {
+                handler.process(request, compressingResponse);
+            }
+
+            compressingResponse.finish();
+        } catch (RuntimeException | IOException e) {
             LOGGER.error("Server Error occurred in servlet", e);
         }
     }
+
+    /**
+     * Register all entity processors on given handler
+     *
+     * @param  handler  A {@link ODataHandler} to register the processors on
+     * @param  storage  A {@link EntityStorage} for the processors
+     **/
+
+    private void registerProcessors(ODataHandler handler, EntityStorage storage) {
+        handler.register(new EntityCollectionProcessor(storage, this.resultCache, this.scanner,
+                this.entityCache, this.compression));
+        handler.register(new EntityProcessor(storage));
+        handler.register(new PrimitiveProcessor(storage));
+    }
 }
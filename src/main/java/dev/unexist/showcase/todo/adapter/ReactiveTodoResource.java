@@ -0,0 +1,149 @@
+/**
+ * @package Showcase-OData-Quarkus
+ *
+ * @file Todo reactive resource
+ * @copyright 2024-present Christoph Kappel <christoph@unexist.dev>
+ * @version $Id$
+ *
+ * This program can be distributed under the terms of the Apache License v2.0.
+ * See the file LICENSE for details.
+ **/
+
+package dev.unexist.showcase.todo.adapter;
+
+import dev.unexist.showcase.todo.domain.task.Task;
+import dev.unexist.showcase.todo.domain.task.TaskService;
+import dev.unexist.showcase.todo.domain.todo.Todo;
+import dev.unexist.showcase.todo.domain.todo.TodoBase;
+import dev.unexist.showcase.todo.domain.todo.TodoService;
+import io.quarkus.vertx.web.Body;
+import io.quarkus.vertx.web.Param;
+import io.quarkus.vertx.web.ReactiveRoutes;
+import io.quarkus.vertx.web.Route;
+import io.quarkus.vertx.web.RouteBase;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.smallrye.common.annotation.Blocking;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.ext.web.handler.HttpException;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+/**
+ * Non-blocking variant of {@link TodoResource}
+ *
+ * Reads only touch in-memory data and run directly on the event loop; writes may wait for
+ * the repository write lock and are moved to worker threads. Collections are written as JSON
+ * array or ND-JSON depending on the {@code produces} type of the matched route.
+ **/
+
+@ApplicationScoped
+@RouteBase(path = "reactive/todo")
+public class ReactiveTodoResource {
+
+    @Inject
+    TodoService todoService;
+
+    @Inject
+    TaskService taskService;
+
+    @Route(path = "", methods = Route.HttpMethod.POST,
+            consumes = ReactiveRoutes.APPLICATION_JSON, produces = ReactiveRoutes.APPLICATION_JSON)
+    @Blocking
+    Uni<Todo> createTodo(@Body TodoBase todoBase, HttpServerResponse response) {
+        return Uni.createFrom().item(() -> this.todoService.create(todoBase).orElse(null))
+                .onItem().ifNotNull().invoke(todo -> response
+                        .setStatusCode(HttpResponseStatus.CREATED.code())
+                        .putHeader(HttpHeaders.LOCATION, "/reactive/todo/" + todo.getId()));
+    }
+
+    @Route(path = "", methods = Route.HttpMethod.GET, produces = ReactiveRoutes.APPLICATION_JSON,
+            order = 1)
+    Multi<Todo> getAllTodos() {
+        return Multi.createFrom().iterable(this.todoService.getAll());
+    }
+
+    @Route(path = "", methods = Route.HttpMethod.GET, produces = ReactiveRoutes.ND_JSON, order = 2)
+    Multi<Todo> streamAllTodos() {
+        return Multi.createFrom().iterable(this.todoService.getAll());
+    }
+
+    @Route(path = ":todoId", methods = Route.HttpMethod.GET,
+            produces = ReactiveRoutes.APPLICATION_JSON)
+    Uni<Todo> findTodoById(@Param("todoId") String todoId) {
+        int id = parseId(todoId);
+
+        return Uni.createFrom().item(() -> this.todoService.findById(id).orElse(null))
+                .onItem().ifNull().failWith(ReactiveTodoResource::notFound);
+    }
+
+    @Route(path = ":todoId/task", methods = Route.HttpMethod.GET,
+            produces = ReactiveRoutes.APPLICATION_JSON, order = 1)
+    Multi<Task> getAllTasks(@Param("todoId") String todoId) {
+        return findAllTasks(parseId(todoId));
+    }
+
+    @Route(path = ":todoId/task", methods = Route.HttpMethod.GET,
+            produces = ReactiveRoutes.ND_JSON, order = 2)
+    Multi<Task> streamAllTasks(@Param("todoId") String todoId) {
+        return findAllTasks(parseId(todoId));
+    }
+
+    @Route(path = ":todoId/task/:taskId", methods = Route.HttpMethod.GET,
+            produces = ReactiveRoutes.APPLICATION_JSON)
+    Uni<Task> findTaskById(@Param("todoId") String todoId, @Param("taskId") String taskId) {
+        int parentId = parseId(todoId);
+        int id = parseId(taskId);
+
+        return Uni.createFrom().item(() -> this.taskService.findById(id)
+                        .filter(task -> parentId == task.getTodoId())
+                        .orElse(null))
+                .onItem().ifNull().failWith(ReactiveTodoResource::notFound);
+    }
+
+    /**
+     * Create failure for missing entries
+     *
+     * @return A {@link HttpException} with status {@code 404}
+     **/
+
+    private static HttpException notFound() {
+        return new HttpException(HttpResponseStatus.NOT_FOUND.code());
+    }
+
+    /**
+     * Parse id of given path parameter
+     *
+     * Like the int path parameters of {@link TodoResource}, ids which aren't numbers
+     * cannot match any entry.
+     *
+     * @param  id  Value of the path parameter
+     *
+     * @return Parsed id
+     * @throws HttpException with status {@code 404} if not a number
+     **/
+
+    private static int parseId(String id) {
+        try {
+            return Integer.parseInt(id);
+        } catch (NumberFormatException e) {
+            throw notFound();
+        }
+    }
+
+    /**
+     * Find all {@link Task} entries of given {@link Todo}
+     *
+     * @param  todoId  Id of the parent entry
+     *
+     * @return A {@link Multi} of all found entries; might be empty
+     **/
+
+    private Multi<Task> findAllTasks(int todoId) {
+        return Multi.createFrom().iterable(
+                this.taskService.findAllByTodoId(todoId, null, Integer.MAX_VALUE));
+    }
+}
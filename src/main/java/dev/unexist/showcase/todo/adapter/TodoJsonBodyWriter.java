@@ -0,0 +1,69 @@
+/**
+ * @package Showcase-OData-Quarkus
+ *
+ * @file Todo JSON body writer
+ * @copyright 2024-present Christoph Kappel <christoph@unexist.dev>
+ * @version $Id$
+ *
+ * This program can be distributed under the terms of the Apache License v2.0.
+ * See the file LICENSE for details.
+ **/
+
+package dev.unexist.showcase.todo.adapter;
+
+import dev.unexist.showcase.todo.infrastructure.serde.TodoJsonCodec;
+
+import javax.annotation.Priority;
+import javax.ws.rs.Priorities;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.MessageBodyWriter;
+import javax.ws.rs.ext.Provider;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.Collection;
+
+/* Take precedence over the default JSON-B provider */
+@Provider
+@Priority(Priorities.ENTITY_CODER)
+@Produces(MediaType.APPLICATION_JSON)
+public class TodoJsonBodyWriter implements MessageBodyWriter<Object> {
+
+    /**
+     * Whether the entity is a {@link dev.unexist.showcase.todo.domain.todo.Todo},
+     * a {@link dev.unexist.showcase.todo.domain.task.Task} or a {@link Collection} of them
+     *
+     * Collections must carry their element type, e.g. via {@link javax.ws.rs.core.GenericEntity};
+     * everything else is left to the default JSON provider.
+     **/
+
+    @Override
+    public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations,
+                               MediaType mediaType)
+    {
+        boolean retVal = TodoJsonCodec.supports(type);
+
+        if (!retVal && Collection.class.isAssignableFrom(type)
+                && genericType instanceof ParameterizedType)
+        {
+            Type[] typeArgs = ((ParameterizedType) genericType).getActualTypeArguments();
+
+            retVal = 1 == typeArgs.length && typeArgs[0] instanceof Class
+                    && TodoJsonCodec.supports((Class<?>) typeArgs[0]);
+        }
+
+        return retVal;
+    }
+
+    @Override
+    public void writeTo(Object value, Class<?> type, Type genericType, Annotation[] annotations,
+                        MediaType mediaType, MultivaluedMap<String, Object> httpHeaders,
+                        OutputStream entityStream) throws IOException
+    {
+        TodoJsonCodec.write(value, entityStream);
+    }
+}
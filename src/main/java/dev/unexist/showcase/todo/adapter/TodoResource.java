@@ -17,6 +17,7 @@ import dev.unexist.showcase.todo.domain.task.TaskService;
 import dev.unexist.showcase.todo.domain.todo.Todo;
 import dev.unexist.showcase.todo.domain.todo.TodoBase;
 import dev.unexist.showcase.todo.domain.todo.TodoService;
+import dev.unexist.showcase.todo.infrastructure.concurrent.RequestDispatcher;
 import org.eclipse.microprofile.openapi.annotations.Operation;
 import org.eclipse.microprofile.openapi.annotations.enums.SchemaType;
 import org.eclipse.microprofile.openapi.annotations.media.Content;
@@ -26,25 +27,42 @@ import org.eclipse.microprofile.openapi.annotations.responses.APIResponses;
 import org.eclipse.microprofile.openapi.annotations.tags.Tag;
 
 import javax.inject.Inject;
+import javax.validation.Valid;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.DELETE;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
 import javax.ws.rs.POST;
 import javax.ws.rs.PUT;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
-import javax.ws.rs.client.Entity;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Context;
+import javax.ws.rs.core.GenericEntity;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriBuilder;
 import javax.ws.rs.core.UriInfo;
 import java.net.URI;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Path("/todo")
 public class TodoResource {
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final Map<String, Function<Todo, Object>> TODO_FIELDS = Map.of(
+            "id", Todo::getId,
+            "title", Todo::getTitle,
+            "description", Todo::getDescription,
+            "dueDate", Todo::getDueDate);
 
     @Inject
     TodoService todoService;
@@ -52,6 +70,9 @@ public class TodoResource {
     @Inject
     TaskService taskService;
 
+    @Inject
+    RequestDispatcher dispatcher;
+
     @POST
     @Consumes(MediaType.APPLICATION_JSON)
     @Produces(MediaType.APPLICATION_JSON)
@@ -62,46 +83,78 @@ public class TodoResource {
             @APIResponse(responseCode = "406", description = "Bad data"),
             @APIResponse(responseCode = "500", description = "Server error")
     })
-    public Response createTodo(TodoBase todoBase, @Context UriInfo uriInfo) {
-        Response.ResponseBuilder builder;
+    public CompletionStage<Response> createTodo(TodoBase todoBase, @Context UriInfo uriInfo) {
+        /* Request context isn't available on dispatched threads */
+        UriBuilder uriBuilder = uriInfo.getAbsolutePathBuilder();
 
-        Optional<Todo> todo = this.todoService.create(todoBase);
+        return this.dispatcher.dispatch(() -> {
+            Response.ResponseBuilder builder;
 
-        if (todo.isPresent()) {
-            URI uri = uriInfo.getAbsolutePathBuilder()
-                    .path(Integer.toString(todo.get().getId()))
-                    .build();
+            Optional<Todo> todo = this.todoService.create(todoBase);
 
-            builder = Response.created(uri);
-        } else {
-            builder = Response.status(Response.Status.NOT_ACCEPTABLE);
-        }
+            if (todo.isPresent()) {
+                URI uri = uriBuilder
+                        .path(Integer.toString(todo.get().getId()))
+                        .build();
 
-        return builder.build();
+                builder = Response.created(uri);
+            } else {
+                builder = Response.status(Response.Status.NOT_ACCEPTABLE);
+            }
+
+            return builder.build();
+        });
     }
 
     @GET
     @Produces(MediaType.APPLICATION_JSON)
-    @Operation(summary = "Get all todos")
+    @Operation(summary = "Get a page of todos ordered by id")
     @Tag(name = "Todo")
     @APIResponses({
-            @APIResponse(responseCode = "200", description = "List of todo", content =
+            @APIResponse(responseCode = "200", description = "List of todo; a full page has a next link", content =
                 @Content(schema = @Schema(type = SchemaType.ARRAY, implementation = Todo.class))),
             @APIResponse(responseCode = "204", description = "Nothing found"),
+            @APIResponse(responseCode = "400", description = "Bad limit or unknown field"),
             @APIResponse(responseCode = "500", description = "Server error")
     })
-    public Response getAllTodos() {
-        List<Todo> todoList = this.todoService.getAll();
+    public CompletionStage<Response> getAllTodos(@QueryParam("after") Integer afterId,
+                                                 @QueryParam("limit") @DefaultValue("100") int limit,
+                                                 @QueryParam("fields") String fields,
+                                                 @Context UriInfo uriInfo)
+    {
+        Optional<List<String>> fieldList = parseFields(fields);
+
+        if (0 >= limit || MAX_PAGE_SIZE < limit || fieldList.isEmpty()) {
+            return CompletableFuture.completedFuture(
+                    Response.status(Response.Status.BAD_REQUEST).build());
+        }
 
-        Response.ResponseBuilder builder;
+        UriBuilder uriBuilder = uriInfo.getRequestUriBuilder();
 
-        if (todoList.isEmpty()) {
-            builder = Response.noContent();
-        } else {
-            builder = Response.ok(Entity.json(todoList));
-        }
+        return this.dispatcher.dispatch(() -> {
+            List<Todo> todoList = this.todoService.getPage(afterId, limit);
 
-        return builder.build();
+            Response.ResponseBuilder builder;
+
+            if (todoList.isEmpty()) {
+                builder = Response.noContent();
+            } else {
+                if (fieldList.get().isEmpty()) {
+                    builder = Response.ok(new GenericEntity<>(todoList) {});
+                } else {
+                    builder = Response.ok(todoList.stream()
+                            .map(todo -> selectFields(todo, fieldList.get()))
+                            .collect(Collectors.toUnmodifiableList()));
+                }
+
+                if (limit == todoList.size()) {
+                    builder.link(createNextUri(uriBuilder,
+                            todoList.get(todoList.size() - 1).getId(), limit), "next");
+                }
+            }
+
+            return builder.build();
+        });
     }
 
     @GET
@@ -115,18 +168,20 @@ public class TodoResource {
             @APIResponse(responseCode = "404", description = "Todo not found"),
             @APIResponse(responseCode = "500", description = "Server error")
     })
-    public Response findTodoById(@PathParam("todoId") int todoId) {
-        Optional<Todo> result = this.todoService.findById(todoId);
+    public CompletionStage<Response> findTodoById(@PathParam("todoId") int todoId) {
+        return this.dispatcher.dispatch(() -> {
+            Optional<Todo> result = this.todoService.findById(todoId);
 
-        Response.ResponseBuilder builder;
+            Response.ResponseBuilder builder;
 
-        if (result.isPresent()) {
-            builder = Response.ok(Entity.json(result.get()));
-        } else {
-            builder = Response.status(Response.Status.NOT_FOUND);
-        }
+            if (result.isPresent()) {
+                builder = Response.ok(result.get());
+            } else {
+                builder = Response.status(Response.Status.NOT_FOUND);
+            }
 
-        return builder.build();
+            return builder.build();
+        });
     }
 
     @PUT
@@ -140,16 +195,18 @@ public class TodoResource {
             @APIResponse(responseCode = "404", description = "Todo not found"),
             @APIResponse(responseCode = "500", description = "Server error")
     })
-    public Response updateTodo(@PathParam("todoId") int todoId, TodoBase base) {
-        Response.ResponseBuilder builder;
-
-        if (this.todoService.update(todoId, base)) {
-            builder = Response.noContent();
-        } else {
-            builder = Response.status(Response.Status.NOT_FOUND);
-        }
-
-        return builder.build();
+    public CompletionStage<Response> updateTodo(@PathParam("todoId") int todoId, TodoBase base) {
+        return this.dispatcher.dispatch(() -> {
+            Response.ResponseBuilder builder;
+
+            if (this.todoService.update(todoId, base)) {
+                builder = Response.noContent();
+            } else {
+                builder = Response.status(Response.Status.NOT_FOUND);
+            }
+
+            return builder.build();
+        });
     }
 
     @DELETE
@@ -158,16 +215,18 @@ public class TodoResource {
     @Produces(MediaType.APPLICATION_JSON)
     @Operation(summary = "Delete todo by id")
     @Tag(name = "Todo")
-    public Response deleteTodo(@PathParam("todoId") int todoId, TodoBase base) {
-        Response.ResponseBuilder builder;
-
-        if (this.todoService.delete(todoId)) {
-            builder = Response.noContent();
-        } else {
-            builder = Response.status(Response.Status.NOT_FOUND);
-        }
-
-        return builder.build();
+    public CompletionStage<Response> deleteTodo(@PathParam("todoId") int todoId, TodoBase base) {
+        return this.dispatcher.dispatch(() -> {
+            Response.ResponseBuilder builder;
+
+            if (this.todoService.delete(todoId)) {
+                builder = Response.noContent();
+            } else {
+                builder = Response.status(Response.Status.NOT_FOUND);
+            }
+
+            return builder.build();
+        });
     }
 
     @POST
@@ -180,51 +239,123 @@ public class TodoResource {
             @APIResponse(responseCode = "404", description = "Todo not found"),
             @APIResponse(responseCode = "500", description = "Server error")
     })
-    public Response createTask(TaskBase taskBase, @PathParam("todoId") int todoId, @Context UriInfo uriInfo) {
-        Response.ResponseBuilder builder;
+    public CompletionStage<Response> createTask(TaskBase taskBase, @PathParam("todoId") int todoId, @Context UriInfo uriInfo) {
+        UriBuilder uriBuilder = uriInfo.getAbsolutePathBuilder();
 
-        Optional<Todo> todo = this.todoService.findById(todoId);
+        return this.dispatcher.dispatch(() -> {
+            Response.ResponseBuilder builder;
 
-        if (todo.isPresent()) {
-            URI uri = uriInfo.getAbsolutePathBuilder()
-                    .path(Integer.toString(todo.get().getId()))
-                    .build();
+            Optional<Todo> todo = this.todoService.findById(todoId);
 
-            Optional<Task> task = this.taskService.create(taskBase);
+            if (todo.isPresent()) {
+                URI uri = uriBuilder
+                        .path(Integer.toString(todo.get().getId()))
+                        .build();
 
-            task.ifPresent(value -> value.setTodoId(todo.get().getId()));
+                this.taskService.create(todo.get().getId(), taskBase);
 
-            builder = Response.created(uri);
-        } else {
-            builder = Response.status(Response.Status.NOT_FOUND);
-        }
+                builder = Response.created(uri);
+            } else {
+                builder = Response.status(Response.Status.NOT_FOUND);
+            }
+
+            return builder.build();
+        });
+    }
 
-        return builder.build();
+    @POST
+    @Path("{todoId}/task/bulk")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    @Operation(summary = "Create many new tasks to given todo at once")
+    @Tag(name = "Task")
+    @APIResponses({
+            @APIResponse(responseCode = "201", description = "Tasks created", content =
+                @Content(schema = @Schema(type = SchemaType.ARRAY, implementation = Task.class))),
+            @APIResponse(responseCode = "400", description = "Bad data"),
+            @APIResponse(responseCode = "404", description = "Todo not found"),
+            @APIResponse(responseCode = "406", description = "No tasks"),
+            @APIResponse(responseCode = "500", description = "Server error")
+    })
+    public CompletionStage<Response> createTasks(@Valid List<TaskBase> taskBases,
+                                                 @PathParam("todoId") int todoId,
+                                                 @Context UriInfo uriInfo)
+    {
+        UriBuilder uriBuilder = uriInfo.getBaseUriBuilder();
+
+        return this.dispatcher.dispatch(() -> {
+            Response.ResponseBuilder builder;
+
+            if (null == taskBases || taskBases.isEmpty()) {
+                builder = Response.status(Response.Status.NOT_ACCEPTABLE);
+            } else if (this.todoService.findById(todoId).isPresent()) {
+                Optional<List<Task>> tasks = this.taskService.createAll(todoId, taskBases);
+
+                if (tasks.isPresent()) {
+                    URI uri = uriBuilder
+                            .path(TodoResource.class)
+                            .path(Integer.toString(todoId))
+                            .path("task")
+                            .build();
+
+                    builder = Response.created(uri)
+                            .entity(new GenericEntity<>(tasks.get()) {});
+                } else {
+                    builder = Response.status(Response.Status.NOT_ACCEPTABLE);
+                }
+            } else {
+                builder = Response.status(Response.Status.NOT_FOUND);
+            }
+
+            return builder.build();
+        });
     }
 
     @GET
     @Path("{todoId}/task")
     @Produces(MediaType.APPLICATION_JSON)
-    @Operation(summary = "Get all tasks")
+    @Operation(summary = "Get a page of tasks of todo ordered by id")
     @Tag(name = "Task")
     @APIResponses({
-            @APIResponse(responseCode = "200", description = "List of task", content =
+            @APIResponse(responseCode = "200", description = "List of task; a full page has a next link", content =
                 @Content(schema = @Schema(type = SchemaType.ARRAY, implementation = Task.class))),
             @APIResponse(responseCode = "204", description = "Nothing found"),
+            @APIResponse(responseCode = "400", description = "Bad limit"),
+            @APIResponse(responseCode = "404", description = "Todo not found"),
             @APIResponse(responseCode = "500", description = "Server error")
     })
-    public Response getAllTasks(@PathParam("todoId") int todoId) {
-        List<Task> taskList = this.taskService.getAll();
+    public CompletionStage<Response> getAllTasks(@PathParam("todoId") int todoId,
+                                                 @QueryParam("after") Integer afterId,
+                                                 @QueryParam("limit") @DefaultValue("100") int limit,
+                                                 @Context UriInfo uriInfo)
+    {
+        if (0 >= limit || MAX_PAGE_SIZE < limit) {
+            return CompletableFuture.completedFuture(
+                    Response.status(Response.Status.BAD_REQUEST).build());
+        }
 
-        Response.ResponseBuilder builder;
+        UriBuilder uriBuilder = uriInfo.getRequestUriBuilder();
 
-        if (taskList.isEmpty()) {
-            builder = Response.noContent();
-        } else {
-            builder = Response.ok(Entity.json(taskList));
-        }
+        return this.dispatcher.dispatch(() -> {
+            List<Task> taskList = this.taskService.findAllByTodoId(todoId, afterId, limit);
+
+            Response.ResponseBuilder builder;
+
+            /* Only an empty page needs to tell a todo without tasks from an unknown one */
+            if (taskList.isEmpty()) {
+                builder = this.todoService.findById(todoId).isPresent()
+                        ? Response.noContent() : Response.status(Response.Status.NOT_FOUND);
+            } else {
+                builder = Response.ok(new GenericEntity<>(taskList) {});
 
-        return builder.build();
+                if (limit == taskList.size()) {
+                    builder.link(createNextUri(uriBuilder,
+                            taskList.get(taskList.size() - 1).getId(), limit), "next");
+                }
+            }
+
+            return builder.build();
+        });
     }
 
     @GET
@@ -238,18 +369,20 @@ public class TodoResource {
             @APIResponse(responseCode = "404", description = "Task not found"),
             @APIResponse(responseCode = "500", description = "Server error")
     })
-    public Response findTaskById(@PathParam("todoId") int todoId, @PathParam("taskId") int taskId) {
-        Optional<Task> result = this.taskService.findById(taskId);
+    public CompletionStage<Response> findTaskById(@PathParam("todoId") int todoId, @PathParam("taskId") int taskId) {
+        return this.dispatcher.dispatch(() -> {
+            Optional<Task> result = this.taskService.findById(taskId);
 
-        Response.ResponseBuilder builder;
+            Response.ResponseBuilder builder;
 
-        if (result.isPresent()) {
-            builder = Response.ok(Entity.json(result.get()));
-        } else {
-            builder = Response.status(Response.Status.NOT_FOUND);
-        }
+            if (result.isPresent()) {
+                builder = Response.ok(result.get());
+            } else {
+                builder = Response.status(Response.Status.NOT_FOUND);
+            }
 
-        return builder.build();
+            return builder.build();
+        });
     }
 
     @PUT
@@ -263,16 +396,18 @@ public class TodoResource {
             @APIResponse(responseCode = "404", description = "Task not found"),
             @APIResponse(responseCode = "500", description = "Server error")
     })
-    public Response updateTask(@PathParam("todoId") int todoId, @PathParam("taskId") int taskId, TaskBase base) {
-        Response.ResponseBuilder builder;
-
-        if (this.taskService.update(taskId, base)) {
-            builder = Response.noContent();
-        } else {
-            builder = Response.status(Response.Status.NOT_FOUND);
-        }
-
-        return builder.build();
+    public CompletionStage<Response> updateTask(@PathParam("todoId") int todoId, @PathParam("taskId") int taskId, TaskBase base) {
+        return this.dispatcher.dispatch(() -> {
+            Response.ResponseBuilder builder;
+
+            if (this.taskService.update(taskId, base)) {
+                builder = Response.noContent();
+            } else {
+                builder = Response.status(Response.Status.NOT_FOUND);
+            }
+
+            return builder.build();
+        });
     }
 
     @DELETE
@@ -281,15 +416,87 @@ public class TodoResource {
     @Produces(MediaType.APPLICATION_JSON)
     @Operation(summary = "Delete task by id")
     @Tag(name = "Task")
-    public Response deleteTask(@PathParam("todoId") int todoId, @PathParam("taskId") int taskId) {
-        Response.ResponseBuilder builder;
+    public CompletionStage<Response> deleteTask(@PathParam("todoId") int todoId, @PathParam("taskId") int taskId) {
+        return this.dispatcher.dispatch(() -> {
+            Response.ResponseBuilder builder;
+
+            if (this.taskService.delete(taskId)) {
+                builder = Response.noContent();
+            } else {
+                builder = Response.status(Response.Status.NOT_FOUND);
+            }
+
+            return builder.build();
+        });
+    }
+
+    /**
+     * Create link to the page following the given id
+     *
+     * A full page might have a successor, so the client gets the cursor to continue; other
+     * query parameters of the request are kept.
+     *
+     * @param  uriBuilder  A {@link UriBuilder} of the request
+     * @param  lastId      Id of the last entry of the page
+     * @param  limit       Size of the page
+     *
+     * @return A {@link URI} of the next page
+     **/
+
+    private static URI createNextUri(UriBuilder uriBuilder, int lastId, int limit) {
+        return uriBuilder.clone()
+                .replaceQueryParam("after", lastId)
+                .replaceQueryParam("limit", limit)
+                .build();
+    }
+
+    /**
+     * Parse comma separated list of field names
+     *
+     * @param  fields  Field names; might be {@code null}
+     *
+     * @return Either a list of field names, which is empty when all fields are wanted;
+     *         otherwise an empty {@link Optional} when a field is unknown
+     **/
+
+    private static Optional<List<String>> parseFields(String fields) {
+        List<String> fieldList = List.of();
+
+        if (null != fields && !fields.isBlank()) {
+            fieldList = Arrays.stream(fields.split(","))
+                    .map(String::trim)
+                    .filter(field -> !field.isEmpty())
+                    .distinct()
+                    .collect(Collectors.toUnmodifiableList());
+
+            if (!TODO_FIELDS.keySet().containsAll(fieldList)) {
+                return Optional.empty();
+            }
+        }
+
+        return Optional.of(fieldList);
+    }
+
+    /**
+     * Copy the given fields of a {@link Todo}; unset fields are skipped like in the full entry
+     *
+     * @param  todo       A {@link Todo} to copy
+     * @param  fieldList  Names of the fields to copy
+     *
+     * @return A {@link Map} of field name to value in order of the field list
+     **/
+
+    private static Map<String, Object> selectFields(Todo todo, List<String> fieldList) {
+        Map<String, Object> retVal = new LinkedHashMap<>();
+
+        for (String field : fieldList) {
+            Object value = TODO_FIELDS.get(field).apply(todo);
 
-        if (this.taskService.delete(taskId)) {
-            builder = Response.noContent();
-        } else {
-            builder = Response.status(Response.Status.NOT_FOUND);
+            if (null != value) {
+                retVal.put(field, value);
+            }
         }
 
-        return builder.build();
+        return retVal;
     }
 }
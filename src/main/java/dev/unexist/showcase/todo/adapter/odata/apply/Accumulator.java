@@ -0,0 +1,228 @@
+/**
+ * @package Showcase-OData-Quarkus
+ *
+ * @file OData $apply accumulator
+ * @copyright 2024-present Christoph Kappel <christoph@unexist.dev>
+ * @version $Id$
+ *
+ * This program can be distributed under the terms of the Apache License v2.0.
+ * See the file LICENSE for details.
+ **/
+
+package dev.unexist.showcase.todo.adapter.odata.apply;
+
+import org.apache.olingo.commons.api.http.HttpStatusCode;
+import org.apache.olingo.server.api.ODataApplicationException;
+
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+abstract class Accumulator {
+
+    /**
+     * Add value of the next row
+     *
+     * @param  value  Value to add; unset values are ignored except for $count
+     * @throws ODataApplicationException When the value cannot be aggregated
+     **/
+
+    abstract void add(Object value) throws ODataApplicationException;
+
+    /**
+     * Merge partial result of another accumulator of the same kind
+     *
+     * @param  other  A {@link Accumulator} to merge
+     **/
+
+    abstract void merge(Accumulator other);
+
+    /**
+     * Get result of the aggregation
+     *
+     * @return Either the result; otherwise {@code null} when no value was added
+     **/
+
+    abstract Object result();
+
+    /**
+     * Create accumulator for given method
+     *
+     * @param  method  A {@link ApplyPlan.Method} to create the accumulator for
+     *
+     * @return A newly created {@link Accumulator}
+     **/
+
+    static Accumulator create(ApplyPlan.Method method) {
+        Accumulator retVal = null;
+
+        switch (method) {
+            case COUNT:
+                retVal = new Count();
+                break;
+            case SUM:
+                retVal = new Sum(false);
+                break;
+            case AVERAGE:
+                retVal = new Sum(true);
+                break;
+            case MIN:
+                retVal = new MinMax(false);
+                break;
+            case MAX:
+                retVal = new MinMax(true);
+                break;
+            case COUNT_DISTINCT:
+                retVal = new CountDistinct();
+                break;
+        }
+
+        return retVal;
+    }
+
+    private static class Count extends Accumulator {
+        private long count;
+
+        @Override
+        void add(Object value) {
+            this.count++;
+        }
+
+        @Override
+        void merge(Accumulator other) {
+            this.count += ((Count) other).count;
+        }
+
+        @Override
+        Object result() {
+            return this.count;
+        }
+    }
+
+    private static class Sum extends Accumulator {
+        private final boolean isAverage;
+        private long longSum;
+        private double doubleSum;
+        private boolean isDecimal;
+        private long count;
+
+        Sum(boolean isAverage) {
+            this.isAverage = isAverage;
+        }
+
+        @Override
+        void add(Object value) throws ODataApplicationException {
+            if (null == value) {
+                return;
+            }
+
+            if (value instanceof Integer || value instanceof Long) {
+                this.longSum += ((Number) value).longValue();
+            } else if (value instanceof Number) {
+                this.doubleSum += ((Number) value).doubleValue();
+                this.isDecimal = true;
+            } else {
+                throw new ODataApplicationException("Sum and average need a numeric property",
+                        HttpStatusCode.BAD_REQUEST.getStatusCode(), Locale.ENGLISH);
+            }
+
+            this.count++;
+        }
+
+        @Override
+        void merge(Accumulator other) {
+            Sum otherSum = (Sum) other;
+
+            this.longSum += otherSum.longSum;
+            this.doubleSum += otherSum.doubleSum;
+            this.isDecimal |= otherSum.isDecimal;
+            this.count += otherSum.count;
+        }
+
+        @Override
+        Object result() {
+            Object retVal = null;
+
+            if (0 < this.count) {
+                if (this.isAverage) {
+                    retVal = (this.longSum + this.doubleSum) / this.count;
+                } else {
+                    retVal = this.isDecimal ? (Object) (this.longSum + this.doubleSum) : this.longSum;
+                }
+            }
+
+            return retVal;
+        }
+    }
+
+    private static class MinMax extends Accumulator {
+        private final boolean isMax;
+        private Comparable<Object> value;
+
+        MinMax(boolean isMax) {
+            this.isMax = isMax;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        void add(Object value) throws ODataApplicationException {
+            if (null == value) {
+                return;
+            }
+
+            if (!(value instanceof Comparable)) {
+                throw new ODataApplicationException("Min and max need a comparable property",
+                        HttpStatusCode.BAD_REQUEST.getStatusCode(), Locale.ENGLISH);
+            }
+
+            accept((Comparable<Object>) value);
+        }
+
+        @Override
+        void merge(Accumulator other) {
+            Comparable<Object> otherValue = ((MinMax) other).value;
+
+            if (null != otherValue) {
+                accept(otherValue);
+            }
+        }
+
+        @Override
+        Object result() {
+            return this.value;
+        }
+
+        private void accept(Comparable<Object> newValue) {
+            if (null == this.value) {
+                this.value = newValue;
+            } else {
+                int result = newValue.compareTo(this.value);
+
+                if (this.isMax ? 0 < result : 0 > result) {
+                    this.value = newValue;
+                }
+            }
+        }
+    }
+
+    private static class CountDistinct extends Accumulator {
+        private final Set<Object> values = new HashSet<>();
+
+        @Override
+        void add(Object value) {
+            if (null != value) {
+                this.values.add(value);
+            }
+        }
+
+        @Override
+        void merge(Accumulator other) {
+            this.values.addAll(((CountDistinct) other).values);
+        }
+
+        @Override
+        Object result() {
+            return (long) this.values.size();
+        }
+    }
+}
@@ -0,0 +1,380 @@
+/**
+ * @package Showcase-OData-Quarkus
+ *
+ * @file OData $apply aggregation engine
+ * @copyright 2024-present Christoph Kappel <christoph@unexist.dev>
+ * @version $Id$
+ *
+ * This program can be distributed under the terms of the Apache License v2.0.
+ * See the file LICENSE for details.
+ **/
+
+package dev.unexist.showcase.todo.adapter.odata.apply;
+
+import dev.unexist.showcase.todo.adapter.odata.processor.FilterExpressionVisitor;
+import dev.unexist.showcase.todo.infrastructure.collection.IntObjectHashMap;
+import org.apache.olingo.commons.api.http.HttpStatusCode;
+import org.apache.olingo.server.api.ODataApplicationException;
+import org.apache.olingo.server.api.uri.queryoption.expression.Expression;
+import org.apache.olingo.server.api.uri.queryoption.expression.ExpressionVisitException;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import javax.enterprise.context.ApplicationScoped;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BiFunction;
+
+@ApplicationScoped
+public class AggregationEngine {
+    private static final Comparator<Comparable<Object>> VALUE_ORDER =
+            Comparator.nullsFirst(Comparator.naturalOrder());
+
+    @ConfigProperty(name = "todo.odata.apply.parallel-threshold", defaultValue = "65536")
+    int parallelThreshold;
+
+    @ConfigProperty(name = "todo.odata.apply.chunk-size", defaultValue = "16384")
+    int chunkSize;
+
+    /**
+     * Carrier of checked exceptions out of fork-join tasks
+     **/
+
+    private static class AggregationException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        AggregationException(ODataApplicationException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized ODataApplicationException getCause() {
+            return (ODataApplicationException) super.getCause();
+        }
+    }
+
+    /**
+     * Aggregate rows according to given plan
+     *
+     * Rows are read through the accessor and hashed into groups directly, so no entity is
+     * created per row. Integer group keys use a primitive map. Inputs above the configured
+     * threshold are split into chunks which are aggregated on the common fork-join pool and
+     * merged afterwards.
+     *
+     * @param  plan      A {@link ApplyPlan} to execute
+     * @param  rows      A {@link List} of rows to aggregate
+     * @param  accessor  A {@link BiFunction} to read a property value by name from a row
+     * @param  <T>       Type of the rows
+     *
+     * @return A {@link List} of result rows ordered by the grouping properties
+     * @throws ODataApplicationException When a filter or aggregate cannot be evaluated
+     **/
+
+    public <T> List<Map<String, Object>> aggregate(ApplyPlan plan, List<T> rows,
+                                                   BiFunction<T, String, Object> accessor)
+            throws ODataApplicationException
+    {
+        GroupTable table;
+
+        try {
+            if (rows.size() >= this.parallelThreshold
+                    && 1 < ForkJoinPool.getCommonPoolParallelism())
+            {
+                table = ForkJoinPool.commonPool().invoke(new AggregateTask<>(plan, rows,
+                        accessor, 0, rows.size(), Math.max(1, this.chunkSize)));
+            } else {
+                table = aggregateRange(plan, rows, accessor, 0, rows.size());
+            }
+        } catch (AggregationException e) {
+            throw e.getCause();
+        }
+
+        return table.toRows();
+    }
+
+    /**
+     * Aggregate a range of rows into a new table
+     *
+     * @param  plan      A {@link ApplyPlan} to execute
+     * @param  rows      A {@link List} of rows to aggregate
+     * @param  accessor  A {@link BiFunction} to read a property value by name from a row
+     * @param  from      First index, inclusive
+     * @param  to        Last index, exclusive
+     * @param  <T>       Type of the rows
+     *
+     * @return A {@link GroupTable} with the partial result
+     * @throws ODataApplicationException When a filter or aggregate cannot be evaluated
+     **/
+
+    private static <T> GroupTable aggregateRange(ApplyPlan plan, List<T> rows,
+                                                 BiFunction<T, String, Object> accessor,
+                                                 int from, int to)
+            throws ODataApplicationException
+    {
+        GroupTable retVal = new GroupTable(plan);
+        List<Expression> filters = plan.getFilters();
+        List<ApplyPlan.AggregateSpec> aggregates = plan.getAggregates();
+
+        /* One visitor per range; it reads from whatever row is current */
+        List<T> current = Arrays.asList((T) null);
+        FilterExpressionVisitor visitor = new FilterExpressionVisitor(
+                (String name) -> accessor.apply(current.get(0), name), Clock.systemDefaultZone());
+
+        for (int i = from; i < to; i++) {
+            T row = rows.get(i);
+
+            current.set(0, row);
+
+            if (!matchesFilters(filters, visitor)) {
+                continue;
+            }
+
+            Accumulator[] accumulators = retVal.groupOf(row, accessor);
+
+            for (int j = 0; j < accumulators.length; j++) {
+                String propertyName = aggregates.get(j).getPropertyName();
+
+                accumulators[j].add(null != propertyName ? accessor.apply(row, propertyName) : null);
+            }
+        }
+
+        return retVal;
+    }
+
+    private static boolean matchesFilters(List<Expression> filters, FilterExpressionVisitor visitor)
+            throws ODataApplicationException
+    {
+        try {
+            for (Expression filter : filters) {
+                if (!Boolean.TRUE.equals(filter.accept(visitor))) {
+                    return false;
+                }
+            }
+        } catch (ExpressionVisitException e) {
+            throw new ODataApplicationException("Exception in filter evaluation",
+                    HttpStatusCode.INTERNAL_SERVER_ERROR.getStatusCode(), Locale.ENGLISH);
+        }
+
+        return true;
+    }
+
+    /**
+     * Fork-join task which splits its range until it fits into a chunk
+     **/
+
+    private static class AggregateTask<T> extends RecursiveTask<GroupTable> {
+        private static final long serialVersionUID = 1L;
+
+        private final ApplyPlan plan;
+        private final List<T> rows;
+        private final BiFunction<T, String, Object> accessor;
+        private final int from;
+        private final int to;
+        private final int chunkSize;
+
+        AggregateTask(ApplyPlan plan, List<T> rows, BiFunction<T, String, Object> accessor,
+                      int from, int to, int chunkSize)
+        {
+            this.plan = plan;
+            this.rows = rows;
+            this.accessor = accessor;
+            this.from = from;
+            this.to = to;
+            this.chunkSize = chunkSize;
+        }
+
+        @Override
+        protected GroupTable compute() {
+            if (this.to - this.from <= this.chunkSize) {
+                try {
+                    return aggregateRange(this.plan, this.rows, this.accessor, this.from, this.to);
+                } catch (ODataApplicationException e) {
+                    throw new AggregationException(e);
+                }
+            }
+
+            int middle = (this.from + this.to) >>> 1;
+
+            AggregateTask<T> left = new AggregateTask<>(this.plan, this.rows, this.accessor,
+                    this.from, middle, this.chunkSize);
+            AggregateTask<T> right = new AggregateTask<>(this.plan, this.rows, this.accessor,
+                    middle, this.to, this.chunkSize);
+
+            left.fork();
+
+            GroupTable retVal = right.compute();
+
+            retVal.merge(left.join());
+
+            return retVal;
+        }
+    }
+
+    /**
+     * Hash table of groups and their accumulators
+     **/
+
+    private static class GroupTable {
+        private final ApplyPlan plan;
+        private final IntObjectHashMap<Accumulator[]> intGroups;
+        private final Map<List<Object>, Accumulator[]> groups;
+        private final Accumulator[] total;
+
+        GroupTable(ApplyPlan plan) {
+            this.plan = plan;
+            this.intGroups = new IntObjectHashMap<>();
+            this.groups = new HashMap<>();
+
+            /* Without grouping there is exactly one group, even for empty input */
+            this.total = plan.getGroupBy().isEmpty() ? createAccumulators() : null;
+        }
+
+        /**
+         * Get accumulators of the group of given row
+         *
+         * Single integer keys go into the primitive map; everything else is keyed by the
+         * list of grouping values.
+         **/
+
+        <T> Accumulator[] groupOf(T row, BiFunction<T, String, Object> accessor) {
+            List<String> groupBy = this.plan.getGroupBy();
+            Accumulator[] retVal;
+
+            if (null != this.total) {
+                retVal = this.total;
+            } else if (1 == groupBy.size()) {
+                Object key = accessor.apply(row, groupBy.get(0));
+
+                if (key instanceof Integer) {
+                    retVal = this.intGroups.computeIfAbsent((Integer) key,
+                            k -> createAccumulators());
+                } else {
+                    retVal = this.groups.computeIfAbsent(Collections.singletonList(key),
+                            k -> createAccumulators());
+                }
+            } else {
+                Object[] keys = new Object[groupBy.size()];
+
+                for (int i = 0; i < keys.length; i++) {
+                    keys[i] = accessor.apply(row, groupBy.get(i));
+                }
+
+                retVal = this.groups.computeIfAbsent(Arrays.asList(keys),
+                        k -> createAccumulators());
+            }
+
+            return retVal;
+        }
+
+        /**
+         * Merge groups of another table into this one
+         *
+         * @param  other  A {@link GroupTable} to merge
+         **/
+
+        void merge(GroupTable other) {
+            if (null != this.total) {
+                mergeAccumulators(this.total, other.total);
+            }
+
+            other.intGroups.forEach((key, accumulators) -> {
+                Accumulator[] existing = this.intGroups.get(key);
+
+                if (null == existing) {
+                    this.intGroups.put(key, accumulators);
+                } else {
+                    mergeAccumulators(existing, accumulators);
+                }
+            });
+
+            other.groups.forEach((key, accumulators) -> this.groups.merge(key, accumulators,
+                    (existing, added) -> mergeAccumulators(existing, added)));
+        }
+
+        /**
+         * Convert groups to result rows ordered by the grouping properties
+         *
+         * @return A {@link List} of result rows
+         **/
+
+        List<Map<String, Object>> toRows() {
+            List<String> groupBy = this.plan.getGroupBy();
+            List<Map<String, Object>> retVal = new ArrayList<>(
+                    this.intGroups.size() + this.groups.size() + 1);
+
+            if (null != this.total) {
+                retVal.add(toRow(Collections.emptyList(), this.total));
+            }
+
+            this.intGroups.forEach((key, accumulators) ->
+                    retVal.add(toRow(Collections.singletonList(key), accumulators)));
+            this.groups.forEach((key, accumulators) -> retVal.add(toRow(key, accumulators)));
+
+            if (!groupBy.isEmpty()) {
+                retVal.sort(this::compareRows);
+            }
+
+            return retVal;
+        }
+
+        private Map<String, Object> toRow(List<?> keys, Accumulator[] accumulators) {
+            List<String> groupBy = this.plan.getGroupBy();
+            List<ApplyPlan.AggregateSpec> aggregates = this.plan.getAggregates();
+            Map<String, Object> retVal = new LinkedHashMap<>();
+
+            for (int i = 0; i < keys.size(); i++) {
+                retVal.put(groupBy.get(i), keys.get(i));
+            }
+
+            for (int i = 0; i < accumulators.length; i++) {
+                retVal.put(aggregates.get(i).getAlias(), accumulators[i].result());
+            }
+
+            return retVal;
+        }
+
+        @SuppressWarnings("unchecked")
+        private int compareRows(Map<String, Object> left, Map<String, Object> right) {
+            int retVal = 0;
+
+            for (String propertyName : this.plan.getGroupBy()) {
+                retVal = VALUE_ORDER.compare((Comparable<Object>) left.get(propertyName),
+                        (Comparable<Object>) right.get(propertyName));
+
+                if (0 != retVal) {
+                    break;
+                }
+            }
+
+            return retVal;
+        }
+
+        private Accumulator[] createAccumulators() {
+            List<ApplyPlan.AggregateSpec> aggregates = this.plan.getAggregates();
+            Accumulator[] retVal = new Accumulator[aggregates.size()];
+
+            for (int i = 0; i < retVal.length; i++) {
+                retVal[i] = Accumulator.create(aggregates.get(i).getMethod());
+            }
+
+            return retVal;
+        }
+
+        private static Accumulator[] mergeAccumulators(Accumulator[] existing, Accumulator[] added) {
+            for (int i = 0; i < existing.length; i++) {
+                existing[i].merge(added[i]);
+            }
+
+            return existing;
+        }
+    }
+}
@@ -0,0 +1,254 @@
+/**
+ * @package Showcase-OData-Quarkus
+ *
+ * @file OData $apply plan
+ * @copyright 2024-present Christoph Kappel <christoph@unexist.dev>
+ * @version $Id$
+ *
+ * This program can be distributed under the terms of the Apache License v2.0.
+ * See the file LICENSE for details.
+ **/
+
+package dev.unexist.showcase.todo.adapter.odata.apply;
+
+import org.apache.olingo.commons.api.http.HttpStatusCode;
+import org.apache.olingo.server.api.ODataApplicationException;
+import org.apache.olingo.server.api.uri.UriResource;
+import org.apache.olingo.server.api.uri.UriResourceCount;
+import org.apache.olingo.server.api.uri.UriResourcePrimitiveProperty;
+import org.apache.olingo.server.api.uri.queryoption.ApplyItem;
+import org.apache.olingo.server.api.uri.queryoption.ApplyOption;
+import org.apache.olingo.server.api.uri.queryoption.apply.Aggregate;
+import org.apache.olingo.server.api.uri.queryoption.apply.AggregateExpression;
+import org.apache.olingo.server.api.uri.queryoption.apply.Filter;
+import org.apache.olingo.server.api.uri.queryoption.apply.GroupBy;
+import org.apache.olingo.server.api.uri.queryoption.apply.GroupByItem;
+import org.apache.olingo.server.api.uri.queryoption.expression.Expression;
+import org.apache.olingo.server.api.uri.queryoption.expression.Member;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+public class ApplyPlan {
+    private final List<Expression> filters;
+    private final List<String> groupBy;
+    private final List<AggregateSpec> aggregates;
+
+    /**
+     * Aggregation methods
+     **/
+
+    public enum Method {
+        COUNT,
+        SUM,
+        MIN,
+        MAX,
+        AVERAGE,
+        COUNT_DISTINCT
+    }
+
+    /**
+     * Single aggregate of the plan, e.g. {@code ID with max as MaxId}
+     **/
+
+    public static class AggregateSpec {
+        private final String alias;
+        private final Method method;
+        private final String propertyName;
+
+        /**
+         * Constructor
+         *
+         * @param  alias         Name of the result property
+         * @param  method        A {@link Method} to apply
+         * @param  propertyName  Name of the aggregated property; {@code null} for $count
+         **/
+
+        public AggregateSpec(String alias, Method method, String propertyName) {
+            this.alias = alias;
+            this.method = method;
+            this.propertyName = propertyName;
+        }
+
+        public String getAlias() {
+            return this.alias;
+        }
+
+        public Method getMethod() {
+            return this.method;
+        }
+
+        public String getPropertyName() {
+            return this.propertyName;
+        }
+    }
+
+    /**
+     * Constructor
+     *
+     * @param  filters     A {@link List} of filter expressions to apply before grouping
+     * @param  groupBy     A {@link List} of property names to group by; might be empty
+     * @param  aggregates  A {@link List} of {@link AggregateSpec} per group; might be empty
+     **/
+
+    public ApplyPlan(List<Expression> filters, List<String> groupBy, List<AggregateSpec> aggregates) {
+        this.filters = Collections.unmodifiableList(new ArrayList<>(filters));
+        this.groupBy = Collections.unmodifiableList(new ArrayList<>(groupBy));
+        this.aggregates = Collections.unmodifiableList(new ArrayList<>(aggregates));
+    }
+
+    /**
+     * Create plan from given $apply option
+     *
+     * Supported are any number of {@code filter} transformations followed by either
+     * {@code groupby} with an optional nested {@code aggregate} or a single {@code aggregate}.
+     *
+     * @param  applyOption  A {@link ApplyOption} to convert
+     *
+     * @return A newly created {@link ApplyPlan}
+     * @throws ODataApplicationException When a transformation isn't supported
+     **/
+
+    public static ApplyPlan of(ApplyOption applyOption) throws ODataApplicationException {
+        List<Expression> filters = new ArrayList<>();
+        List<String> groupBy = new ArrayList<>();
+        List<AggregateSpec> aggregates = new ArrayList<>();
+        boolean isAggregated = false;
+
+        for (ApplyItem applyItem : applyOption.getApplyItems()) {
+            if (isAggregated) {
+                throw notImplemented("Transformations after groupby or aggregate are not supported");
+            }
+
+            switch (applyItem.getKind()) {
+                case FILTER:
+                    filters.add(((Filter) applyItem).getFilterOption().getExpression());
+                    break;
+                case GROUP_BY:
+                    GroupBy groupByItem = (GroupBy) applyItem;
+
+                    for (GroupByItem item : groupByItem.getGroupByItems()) {
+                        if (item.isRollupAll() || !item.getRollup().isEmpty()) {
+                            throw notImplemented("Rollup is not supported");
+                        }
+
+                        groupBy.add(getPropertyName(item.getPath()));
+                    }
+
+                    if (null != groupByItem.getApplyOption()) {
+                        for (ApplyItem nestedItem : groupByItem.getApplyOption().getApplyItems()) {
+                            if (ApplyItem.Kind.AGGREGATE != nestedItem.getKind()) {
+                                throw notImplemented("Only aggregate is supported within groupby");
+                            }
+
+                            addAggregates((Aggregate) nestedItem, aggregates);
+                        }
+                    }
+
+                    isAggregated = true;
+                    break;
+                case AGGREGATE:
+                    addAggregates((Aggregate) applyItem, aggregates);
+
+                    isAggregated = true;
+                    break;
+                default:
+                    throw notImplemented("Transformation " + applyItem.getKind().name()
+                            + " is not supported");
+            }
+        }
+
+        if (!isAggregated) {
+            throw notImplemented("$apply needs either groupby or aggregate");
+        }
+
+        return new ApplyPlan(filters, groupBy, aggregates);
+    }
+
+    /**
+     * Get filter expressions to apply before grouping
+     *
+     * @return A {@link List} of {@link Expression}; might be empty
+     **/
+
+    public List<Expression> getFilters() {
+        return this.filters;
+    }
+
+    /**
+     * Get names of the properties to group by
+     *
+     * @return A {@link List} of property names; empty for a single group
+     **/
+
+    public List<String> getGroupBy() {
+        return this.groupBy;
+    }
+
+    /**
+     * Get aggregates to compute per group
+     *
+     * @return A {@link List} of {@link AggregateSpec}; might be empty
+     **/
+
+    public List<AggregateSpec> getAggregates() {
+        return this.aggregates;
+    }
+
+    /**
+     * Get names of all result properties in order
+     *
+     * @return A {@link List} of grouping properties followed by aggregate aliases
+     **/
+
+    public List<String> getColumnNames() {
+        List<String> retVal = new ArrayList<>(this.groupBy);
+
+        this.aggregates.forEach(aggregate -> retVal.add(aggregate.getAlias()));
+
+        return retVal;
+    }
+
+    private static void addAggregates(Aggregate aggregate, List<AggregateSpec> aggregates)
+            throws ODataApplicationException
+    {
+        for (AggregateExpression expression : aggregate.getExpressions()) {
+            if (null != expression.getCustomMethod() || null != expression.getInlineAggregateExpression()
+                    || (null != expression.getFrom() && !expression.getFrom().isEmpty()))
+            {
+                throw notImplemented("Only standard aggregation methods are supported");
+            }
+
+            List<UriResource> path = expression.getPath();
+
+            if (1 == path.size() && path.get(0) instanceof UriResourceCount) {
+                aggregates.add(new AggregateSpec(expression.getAlias(), Method.COUNT, null));
+            } else if (null != expression.getStandardMethod()) {
+                String propertyName = expression.getExpression() instanceof Member
+                        ? getPropertyName(((Member) expression.getExpression())
+                            .getResourcePath().getUriResourceParts())
+                        : getPropertyName(path);
+
+                aggregates.add(new AggregateSpec(expression.getAlias(),
+                        Method.valueOf(expression.getStandardMethod().name()), propertyName));
+            } else {
+                throw notImplemented("Aggregate expressions need a standard method");
+            }
+        }
+    }
+
+    private static String getPropertyName(List<UriResource> path) throws ODataApplicationException {
+        if (1 != path.size() || !(path.get(0) instanceof UriResourcePrimitiveProperty)) {
+            throw notImplemented("Only primitive properties are supported in $apply");
+        }
+
+        return ((UriResourcePrimitiveProperty) path.get(0)).getProperty().getName();
+    }
+
+    private static ODataApplicationException notImplemented(String message) {
+        return new ODataApplicationException(message,
+                HttpStatusCode.NOT_IMPLEMENTED.getStatusCode(), Locale.ENGLISH);
+    }
+}
@@ -0,0 +1,407 @@
+/**
+ * @package Showcase-OData-Quarkus
+ *
+ * @file OData entity cache
+ * @copyright 2024-present Christoph Kappel <christoph@unexist.dev>
+ * @version $Id$
+ *
+ * This program can be distributed under the terms of the Apache License v2.0.
+ * See the file LICENSE for details.
+ **/
+
+package dev.unexist.showcase.todo.adapter.odata.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.github.benmanes.caffeine.cache.stats.ConcurrentStatsCounter;
+import com.github.benmanes.caffeine.cache.stats.StatsCounter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.apache.olingo.commons.api.data.Entity;
+import org.apache.olingo.commons.api.data.Property;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+@ApplicationScoped
+public class EntityCache {
+    public static final String CACHE_NAME = "odata-entities";
+
+    /* Rough size of entity, properties, id and bookkeeping without the values */
+    private static final int ENTRY_OVERHEAD = 512;
+    private static final int PROPERTY_OVERHEAD = 64;
+    private static final int FRAGMENT_OVERHEAD = 64;
+
+    /* Serialized shapes per entity; usually the default one and a few common $select */
+    private static final int MAX_FRAGMENTS = 4;
+
+    @ConfigProperty(name = "todo.odata.entity-cache.enabled", defaultValue = "true")
+    boolean enabled;
+
+    @ConfigProperty(name = "todo.odata.entity-cache.max-bytes", defaultValue = "33554432")
+    long maxBytes;
+
+    @ConfigProperty(name = "todo.odata.entity-cache.fragments", defaultValue = "true")
+    boolean fragments;
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    private StatsCounter statsCounter;
+    private Counter fragmentHits;
+    private Counter fragmentMisses;
+    private Cache<Key, Entry> cache;
+
+    /**
+     * Key of a cached entity
+     **/
+
+    private static final class Key {
+        private final String type;
+        private final int id;
+
+        Key(String type, int id) {
+            this.type = type;
+            this.id = id;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+
+            if (!(o instanceof Key)) {
+                return false;
+            }
+
+            Key key = (Key) o;
+
+            return this.id == key.id && this.type.equals(key.type);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * this.type.hashCode() + this.id;
+        }
+    }
+
+    /**
+     * Serialized entity of a single shape
+     **/
+
+    private static final class Fragment {
+        private final String shape;
+        private final byte[] content;
+
+        Fragment(String shape, byte[] content) {
+            this.shape = shape;
+            this.content = content;
+        }
+    }
+
+    /**
+     * Cached entity
+     *
+     * The template is never handed out, so it stays unchanged as long as it is cached.
+     * Fragments are replaced as a whole, so readers never see a partial array.
+     **/
+
+    private static final class Entry {
+        private final Key key;
+        private final long version;
+        private final Object source;
+        private final Entity template;
+        private final int templateWeight;
+        private volatile Fragment[] fragments;
+
+        Entry(Key key, long version, Object source, Entity template) {
+            this.key = key;
+            this.version = version;
+            this.source = source;
+            this.template = template;
+            this.templateWeight = weigh(template);
+            this.fragments = new Fragment[0];
+        }
+
+        int getWeight() {
+            int retVal = this.templateWeight;
+
+            for (Fragment fragment : this.fragments) {
+                retVal += FRAGMENT_OVERHEAD + fragment.content.length;
+            }
+
+            return retVal;
+        }
+    }
+
+    /**
+     * Entity handed out by the cache
+     *
+     * Keeps track of the entry it was copied from, so serialized fragments can be attached
+     * to and found by the entry.
+     **/
+
+    private static final class CachedEntity extends Entity {
+        private final Entry entry;
+
+        CachedEntity(Entry entry) {
+            this.entry = entry;
+        }
+    }
+
+    /**
+     * Create cache and register metrics
+     **/
+
+    @PostConstruct
+    void init() {
+        this.statsCounter = new ConcurrentStatsCounter();
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(this.maxBytes)
+                .weigher((Key key, Entry entry) -> entry.getWeight())
+                .recordStats(() -> this.statsCounter)
+                .build();
+
+        CaffeineCacheMetrics.monitor(this.meterRegistry, this.cache, CACHE_NAME);
+
+        this.fragmentHits = this.meterRegistry.counter("cache.fragment.gets",
+                "cache", CACHE_NAME, "result", "hit");
+        this.fragmentMisses = this.meterRegistry.counter("cache.fragment.gets",
+                "cache", CACHE_NAME, "result", "miss");
+    }
+
+    /**
+     * Whether the cache is enabled
+     *
+     * @return Either {@code true} if enabled; otherwise {@code false}
+     **/
+
+    public boolean isEnabled() {
+        return this.enabled;
+    }
+
+    /**
+     * Get entity of given row version or build and cache it
+     *
+     * Entries are keyed by type and id and only match the row version and the very domain
+     * object they were built from; updates replace the stored object, so a rebuilt entry
+     * never shows older values even when versions restart after the repository is cleared.
+     * Callers get a copy, because updates and $expand change the returned entity.
+     *
+     * @param  type     Name of the entity type
+     * @param  id       Id of the entity
+     * @param  version  Row version of the entity; {@code null} if unknown
+     * @param  source   Domain object the entity is built from
+     * @param  builder  A {@link Supplier} to build the entity on a miss
+     *
+     * @return A newly created {@link Entity}
+     **/
+
+    public Entity get(String type, int id, Long version, Object source, Supplier<Entity> builder) {
+        if (!this.enabled || null == version) {
+            return builder.get();
+        }
+
+        Key key = new Key(type, id);
+
+        /* Map access doesn't record stats; stale entries must count as misses */
+        Entry entry = this.cache.asMap().get(key);
+
+        if (null != entry && entry.version == version && entry.source == source) {
+            this.statsCounter.recordHits(1);
+
+            return copyOf(entry);
+        }
+
+        this.statsCounter.recordMisses(1);
+
+        entry = new Entry(key, version, source, builder.get());
+
+        this.cache.put(key, entry);
+
+        return copyOf(entry);
+    }
+
+    /**
+     * Whether serialized fragments are kept
+     *
+     * @return Either {@code true} if enabled; otherwise {@code false}
+     **/
+
+    public boolean isFragmentsEnabled() {
+        return this.enabled && this.fragments;
+    }
+
+    /**
+     * Get serialized fragment of given entity
+     *
+     * Fragments belong to the entry the entity was copied from, so they are dropped along
+     * with it once the row version changes. Lookups are counted in bulk by the caller via
+     * {@link #recordFragments(int, int)}.
+     *
+     * @param  entity  A {@link Entity} handed out by this cache
+     * @param  shape   Key of the format and $select the fragment was serialized with
+     *
+     * @return Either the serialized entity; otherwise {@code null}
+     **/
+
+    public byte[] getFragment(Entity entity, String shape) {
+        if (entity instanceof CachedEntity) {
+            for (Fragment fragment : ((CachedEntity) entity).entry.fragments) {
+                if (fragment.shape.equals(shape)) {
+                    return fragment.content;
+                }
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Record fragment lookups
+     *
+     * @param  hits    Number of found fragments
+     * @param  misses  Number of missing fragments
+     **/
+
+    public void recordFragments(int hits, int misses) {
+        this.fragmentHits.increment(hits);
+        this.fragmentMisses.increment(misses);
+    }
+
+    /**
+     * Store serialized fragment of given entity
+     *
+     * Entities not handed out by this cache are ignored; once all slots are taken, the
+     * oldest fragment is replaced.
+     *
+     * @param  entity   A {@link Entity} handed out by this cache
+     * @param  shape    Key of the format and $select the fragment was serialized with
+     * @param  content  Serialized entity
+     **/
+
+    public void putFragment(Entity entity, String shape, byte[] content) {
+        if (!isFragmentsEnabled() || !(entity instanceof CachedEntity)) {
+            return;
+        }
+
+        Entry entry = ((CachedEntity) entity).entry;
+
+        synchronized (entry) {
+            Fragment[] fragments = entry.fragments;
+            Fragment[] newFragments;
+
+            if (MAX_FRAGMENTS > fragments.length) {
+                newFragments = Arrays.copyOf(fragments, fragments.length + 1);
+            } else {
+                newFragments = new Fragment[MAX_FRAGMENTS];
+
+                System.arraycopy(fragments, 1, newFragments, 0, MAX_FRAGMENTS - 1);
+            }
+
+            newFragments[newFragments.length - 1] = new Fragment(shape, content);
+
+            entry.fragments = newFragments;
+        }
+
+        /* Replace the entry with itself to update its weight; fails if already evicted */
+        this.cache.asMap().replace(entry.key, entry, entry);
+    }
+
+    /**
+     * Get number of fragment lookups
+     *
+     * @param  hit  Whether to count hits or misses
+     *
+     * @return Number of lookups
+     **/
+
+    public long getFragmentCount(boolean hit) {
+        return (long) (hit ? this.fragmentHits : this.fragmentMisses).count();
+    }
+
+    /**
+     * Remove cached entity of given type and id
+     *
+     * @param  type  Name of the entity type
+     * @param  id    Id of the entity
+     **/
+
+    public void invalidate(String type, int id) {
+        this.cache.invalidate(new Key(type, id));
+    }
+
+    /**
+     * Remove all entries
+     **/
+
+    public void clear() {
+        this.cache.invalidateAll();
+    }
+
+    /**
+     * Get number of cached entities
+     *
+     * @return Number of entries
+     **/
+
+    public long size() {
+        this.cache.cleanUp();
+
+        return this.cache.estimatedSize();
+    }
+
+    /**
+     * Get hit and miss statistics
+     *
+     * @return Current {@link CacheStats}
+     **/
+
+    public CacheStats getStats() {
+        return this.statsCounter.snapshot();
+    }
+
+    /**
+     * Copy given entity
+     *
+     * Properties and their values are shared; property values are replaced and never
+     * changed in place, whereas the property list and links belong to the copy.
+     *
+     * @param  entry  A {@link Entry} with the template to copy
+     *
+     * @return A newly created {@link Entity}
+     **/
+
+    private static Entity copyOf(Entry entry) {
+        Entity template = entry.template;
+        Entity retVal = new CachedEntity(entry);
+
+        retVal.getProperties().addAll(template.getProperties());
+        retVal.setType(template.getType());
+        retVal.setId(template.getId());
+        retVal.setETag(template.getETag());
+
+        return retVal;
+    }
+
+    private static int weigh(Entity entity) {
+        int retVal = ENTRY_OVERHEAD + 2 * entity.getId().toString().length();
+
+        for (Property property : entity.getProperties()) {
+            retVal += PROPERTY_OVERHEAD;
+
+            if (property.getValue() instanceof CharSequence) {
+                retVal += 2 * ((CharSequence) property.getValue()).length();
+            }
+        }
+
+        return retVal;
+    }
+}
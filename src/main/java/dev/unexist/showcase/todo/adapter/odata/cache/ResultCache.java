@@ -0,0 +1,272 @@
+/**
+ * @package Showcase-OData-Quarkus
+ *
+ * @file OData result cache
+ * @copyright 2024-present Christoph Kappel <christoph@unexist.dev>
+ * @version $Id$
+ *
+ * This program can be distributed under the terms of the Apache License v2.0.
+ * See the file LICENSE for details.
+ **/
+
+package dev.unexist.showcase.todo.adapter.odata.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.ConcurrentStatsCounter;
+import com.github.benmanes.caffeine.cache.stats.StatsCounter;
+import dev.unexist.showcase.todo.infrastructure.compression.Compression;
+import dev.unexist.showcase.todo.infrastructure.compression.ContentEncoding;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+@ApplicationScoped
+public class ResultCache {
+    public static final String CACHE_NAME = "odata-results";
+
+    /* Rough per entry overhead of key, headers and bookkeeping */
+    private static final int ENTRY_OVERHEAD = 256;
+
+    @ConfigProperty(name = "todo.odata.cache.enabled", defaultValue = "true")
+    boolean enabled;
+
+    @ConfigProperty(name = "todo.odata.cache.max-bytes", defaultValue = "16777216")
+    long maxBytes;
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    @Inject
+    Compression compression;
+
+    private StatsCounter statsCounter;
+    private Cache<String, Entry> cache;
+
+    /**
+     * Cached response
+     **/
+
+    public static class Entry {
+        private final byte[] content;
+        private final String contentType;
+        private final Map<String, String> headers;
+        private final long[] versions;
+
+        /* Compressed content by encoding; replaced as a whole */
+        private volatile byte[][] encodedContents;
+
+        /**
+         * Constructor
+         *
+         * @param  content      Serialized response body
+         * @param  contentType  Content type of the body
+         * @param  headers      Additional response headers
+         * @param  versions     Versions of all entity sets the response was built from
+         **/
+
+        public Entry(byte[] content, String contentType, Map<String, String> headers,
+                     long[] versions)
+        {
+            this.content = content;
+            this.contentType = contentType;
+            this.headers = Collections.unmodifiableMap(new LinkedHashMap<>(headers));
+            this.versions = versions.clone();
+            this.encodedContents = new byte[ContentEncoding.values().length][];
+        }
+
+        /**
+         * Get serialized response body
+         *
+         * @return Body of the response
+         **/
+
+        public byte[] getContent() {
+            return this.content;
+        }
+
+        /**
+         * Get content type of the body
+         *
+         * @return Content type
+         **/
+
+        public String getContentType() {
+            return this.contentType;
+        }
+
+        /**
+         * Get additional response headers
+         *
+         * @return A {@link Map} of header name to value
+         **/
+
+        public Map<String, String> getHeaders() {
+            return this.headers;
+        }
+
+        private int getWeight() {
+            int retVal = this.content.length + ENTRY_OVERHEAD;
+
+            for (byte[] encodedContent : this.encodedContents) {
+                retVal += null != encodedContent ? encodedContent.length : 0;
+            }
+
+            return retVal;
+        }
+    }
+
+    /**
+     * Create cache and register metrics
+     **/
+
+    @PostConstruct
+    void init() {
+        this.statsCounter = new ConcurrentStatsCounter();
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(this.maxBytes)
+                .weigher((String key, Entry entry) -> key.length() + entry.getWeight())
+                .recordStats(() -> this.statsCounter)
+                .build();
+
+        CaffeineCacheMetrics.monitor(this.meterRegistry, this.cache, CACHE_NAME);
+    }
+
+    /**
+     * Whether the cache is enabled
+     *
+     * @return Either {@code true} if enabled; otherwise {@code false}
+     **/
+
+    public boolean isEnabled() {
+        return this.enabled;
+    }
+
+    /**
+     * Get cached response if it was built from the given versions
+     *
+     * Entries of older versions are removed, so a single write invalidates all affected
+     * responses without scanning the cache.
+     *
+     * @param  key       Normalized key of the request
+     * @param  versions  Current versions of all involved entity sets
+     *
+     * @return Either found {@link Entry}; otherwise an empty {@link Optional}
+     **/
+
+    public Optional<Entry> get(String key, long[] versions) {
+        /* Map access doesn't record stats; stale entries must count as misses */
+        Entry entry = this.cache.asMap().get(key);
+
+        if (null != entry && !Arrays.equals(entry.versions, versions)) {
+            this.cache.asMap().remove(key, entry);
+
+            entry = null;
+        }
+
+        if (null != entry) {
+            this.statsCounter.recordHits(1);
+        } else {
+            this.statsCounter.recordMisses(1);
+        }
+
+        return Optional.ofNullable(entry);
+    }
+
+    /**
+     * Store response unless the versions changed in the meantime
+     *
+     * @param  key              Normalized key of the request
+     * @param  entry            A {@link Entry} to store
+     * @param  currentVersions  Current versions of all involved entity sets
+     **/
+
+    public void put(String key, Entry entry, long[] currentVersions) {
+        if (Arrays.equals(entry.versions, currentVersions)) {
+            this.cache.put(key, entry);
+        }
+    }
+
+    /**
+     * Get content of a cached response in given encoding
+     *
+     * Every encoding is compressed only once per entry and kept along with it, so hits just
+     * copy the stored bytes.
+     *
+     * @param  key       Normalized key of the request
+     * @param  entry     A {@link Entry} of the key
+     * @param  encoding  A {@link ContentEncoding} to use
+     *
+     * @return Content in given encoding
+     **/
+
+    public byte[] getContent(String key, Entry entry, ContentEncoding encoding) {
+        if (ContentEncoding.IDENTITY == encoding) {
+            return entry.content;
+        }
+
+        byte[] retVal = entry.encodedContents[encoding.ordinal()];
+
+        if (null == retVal) {
+            retVal = this.compression.compress(entry.content, encoding);
+
+            synchronized (entry) {
+                byte[][] encodedContents = entry.encodedContents.clone();
+
+                encodedContents[encoding.ordinal()] = retVal;
+                entry.encodedContents = encodedContents;
+            }
+
+            /* Replace the entry with itself to update its weight; fails if already evicted */
+            this.cache.asMap().replace(key, entry, entry);
+        }
+
+        return retVal;
+    }
+
+    /**
+     * Remove all entries
+     **/
+
+    public void clear() {
+        this.cache.invalidateAll();
+    }
+
+    /**
+     * Create a normalized cache key
+     *
+     * Query options are decoded and sorted, so the order of the options doesn't matter.
+     *
+     * @param  path         Raw OData path of the request
+     * @param  query        Raw query of the request; might be {@code null}
+     * @param  contentType  Content type of the response
+     *
+     * @return Normalized key
+     **/
+
+    public static String createKey(String path, String query, String contentType) {
+        String options = "";
+
+        if (null != query && !query.isEmpty()) {
+            options = Arrays.stream(query.split("&"))
+                    .filter(option -> !option.isEmpty())
+                    .map(option -> URLDecoder.decode(option, StandardCharsets.UTF_8).trim())
+                    .sorted()
+                    .collect(Collectors.joining("&"));
+        }
+
+        return String.format("%s?%s|%s", path, options, contentType);
+    }
+}
@@ -11,12 +11,29 @@
 
 package dev.unexist.showcase.todo.adapter.odata.entity;
 
+import dev.unexist.showcase.todo.adapter.odata.apply.ApplyPlan;
+import dev.unexist.showcase.todo.adapter.odata.storage.EntityStorage;
+import dev.unexist.showcase.todo.domain.Change;
+import dev.unexist.showcase.todo.domain.IndexRange;
+import org.apache.olingo.commons.api.data.DeletedEntity;
+import org.apache.olingo.commons.api.data.Delta;
 import org.apache.olingo.commons.api.data.Entity;
 import org.apache.olingo.commons.api.data.EntityCollection;
+import org.apache.olingo.commons.api.data.Property;
+import org.apache.olingo.commons.api.data.ValueType;
 import org.apache.olingo.commons.api.edm.provider.CsdlEntityType;
 import org.apache.olingo.commons.api.ex.ODataRuntimeException;
+import org.apache.olingo.server.api.ODataApplicationException;
 
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.IntFunction;
 import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 abstract class EntityServiceBase<T> {
     public static CsdlEntityType createEntityType() {
@@ -33,9 +50,96 @@ abstract class EntityServiceBase<T> {
 
     public abstract void updateEntity(Entity entity);
 
+    public abstract boolean updateEntity(Entity entity, long expectedVersion);
+
     public abstract void deleteEntity(Entity entity);
 
+    public abstract boolean deleteEntity(Entity entity, long expectedVersion);
+
+    public abstract Optional<Entity> findById(int id);
+
     public abstract EntityCollection getAll();
 
     public abstract EntityCollection getAllByPredicate(Predicate<T> filterBy);
+
+    public abstract int count();
+
+    public abstract long getVersion();
+
+    public abstract long getChangeSequence();
+
+    public abstract Optional<Delta> getChangesSince(long sequence);
+
+    public abstract Optional<Stream<Entity>> getAllByIndex(String propertyName, IndexRange range);
+
+    public abstract Object getPropertyValue(T t, String propertyName);
+
+    public abstract List<Map<String, Object>> aggregate(ApplyPlan plan)
+            throws ODataApplicationException;
+
+    /**
+     * Get all properties which are backed by a sorted index
+     *
+     * @param  propertyIndexes  A {@link Map} of property to index name
+     * @param  indexNames       Names of all available indexes
+     *
+     * @return A {@link Set} of property names; might be empty
+     **/
+
+    protected static Set<String> getIndexedProperties(Map<String, String> propertyIndexes,
+                                                      Set<String> indexNames)
+    {
+        return propertyIndexes.entrySet().stream()
+                .filter(e -> indexNames.contains(e.getValue()))
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toUnmodifiableSet());
+    }
+
+    public abstract Set<String> getIndexedProperties();
+
+    /**
+     * Create delta of given changes
+     *
+     * Entries which changed several times are sent just once in order of their last change;
+     * entries which are gone by now are reported as deleted.
+     *
+     * @param  changes   A {@link List} of {@link Change} in order
+     * @param  typeName  Full qualified name of the entity type
+     * @param  finder    A {@link IntFunction} to find the current entity of an id
+     *
+     * @return A newly created {@link Delta}
+     **/
+
+    protected static Delta createDelta(List<Change> changes, String typeName,
+                                       IntFunction<Optional<Entity>> finder)
+    {
+        Map<Integer, Change.Type> latestChanges = new LinkedHashMap<>();
+
+        for (Change change : changes) {
+            latestChanges.remove(change.getId());
+            latestChanges.put(change.getId(), change.getType());
+        }
+
+        Delta retVal = new Delta();
+
+        latestChanges.forEach((id, type) -> {
+            Optional<Entity> entity = Change.Type.DELETED == type
+                    ? Optional.empty() : finder.apply(id);
+
+            if (entity.isPresent()) {
+                retVal.getEntities().add(entity.get());
+            } else {
+                DeletedEntity deletedEntity = new DeletedEntity();
+
+                deletedEntity.setType(typeName);
+                deletedEntity.addProperty(new Property(null, "ID", ValueType.PRIMITIVE, id));
+                deletedEntity.setId(EntityStorage.createId(deletedEntity, "ID"));
+                deletedEntity.setReason(DeletedEntity.Reason.deleted);
+
+                retVal.getDeletedEntities().add(deletedEntity);
+            }
+        });
+
+        return retVal;
+    }
 }
@@ -11,10 +11,15 @@
 
 package dev.unexist.showcase.todo.adapter.odata.entity;
 
+import dev.unexist.showcase.todo.adapter.odata.apply.AggregationEngine;
+import dev.unexist.showcase.todo.adapter.odata.apply.ApplyPlan;
+import dev.unexist.showcase.todo.adapter.odata.cache.EntityCache;
 import dev.unexist.showcase.todo.adapter.odata.storage.EntityStorage;
+import dev.unexist.showcase.todo.domain.IndexRange;
 import dev.unexist.showcase.todo.domain.task.Task;
 import dev.unexist.showcase.todo.domain.task.TaskBase;
 import dev.unexist.showcase.todo.domain.task.TaskService;
+import org.apache.olingo.commons.api.data.Delta;
 import org.apache.olingo.commons.api.data.Entity;
 import org.apache.olingo.commons.api.data.EntityCollection;
 import org.apache.olingo.commons.api.data.Property;
@@ -25,6 +30,7 @@ import org.apache.olingo.commons.api.edm.provider.CsdlEntityType;
 import org.apache.olingo.commons.api.edm.provider.CsdlNavigationProperty;
 import org.apache.olingo.commons.api.edm.provider.CsdlProperty;
 import org.apache.olingo.commons.api.edm.provider.CsdlPropertyRef;
+import org.apache.olingo.server.api.ODataApplicationException;
 
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
@@ -32,10 +38,13 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static dev.unexist.showcase.todo.adapter.odata.processor.EdmProvider.NAMESPACE;
 
@@ -47,9 +56,23 @@ public class TaskEntityService extends EntityServiceBase<Task> {
 
     public static final FullQualifiedName ET_FQN = new FullQualifiedName(NAMESPACE, ET_NAME);
 
+    /* Properties which can be backed by a secondary index of the repository */
+    private static final Map<String, String> PROPERTY_INDEXES = Map.of(
+            "ID", "id",
+            "TodoID", "todoId",
+            "Title", "title",
+            "Description", "description",
+            "Done", "done");
+
     @Inject
     TaskService taskService;
 
+    @Inject
+    AggregationEngine aggregationEngine;
+
+    @Inject
+    EntityCache entityCache;
+
     static public CsdlEntityType createEntityType() {
         CsdlProperty id = new CsdlProperty()
                 .setName("ID")
@@ -63,6 +86,9 @@ public class TaskEntityService extends EntityServiceBase<Task> {
         CsdlProperty  description = new CsdlProperty()
                 .setName("Description")
                 .setType(EdmPrimitiveTypeKind.String.getFullQualifiedName());
+        CsdlProperty done = new CsdlProperty()
+                .setName("Done")
+                .setType(EdmPrimitiveTypeKind.Boolean.getFullQualifiedName());
 
         /* Create CsdlPropertyRef for Key element */
         CsdlPropertyRef propertyRef = new CsdlPropertyRef();
@@ -84,7 +110,7 @@ public class TaskEntityService extends EntityServiceBase<Task> {
         CsdlEntityType entityType = new CsdlEntityType();
 
         entityType.setName(ET_NAME);
-        entityType.setProperties(Arrays.asList(id, todoId, title, description));
+        entityType.setProperties(Arrays.asList(id, todoId, title, description, done));
         entityType.setKey(Collections.singletonList(propertyRef));
         entityType.setNavigationProperties(navPropList);
 
@@ -100,6 +126,13 @@ public class TaskEntityService extends EntityServiceBase<Task> {
      **/
 
     public Entity createEntityFrom(Task task) {
+        Long version = this.taskService.findVersionById(task.getId()).orElse(null);
+
+        return this.entityCache.get(ET_NAME, task.getId(), version, task,
+                () -> buildEntityFrom(task, version));
+    }
+
+    private static Entity buildEntityFrom(Task task, Long version) {
         Entity entity = new Entity()
                 .addProperty(new Property(null, "ID",
                         ValueType.PRIMITIVE, task.getId()))
@@ -108,11 +141,17 @@ public class TaskEntityService extends EntityServiceBase<Task> {
                 .addProperty(new Property(null, "Title",
                         ValueType.PRIMITIVE, task.getTitle()))
                 .addProperty(new Property(null, "Description",
-                        ValueType.PRIMITIVE, task.getDescription()));
+                        ValueType.PRIMITIVE, task.getDescription()))
+                .addProperty(new Property(null, "Done",
+                        ValueType.PRIMITIVE, task.getDone()));
 
         entity.setType(ET_FQN.getFullQualifiedNameAsString());
         entity.setId(EntityStorage.createId(entity, "ID"));
 
+        if (null != version) {
+            entity.setETag(EntityStorage.createETag(version));
+        }
+
         return entity;
     }
 
@@ -122,6 +161,12 @@ public class TaskEntityService extends EntityServiceBase<Task> {
         taskBase.setTitle(String.valueOf(entity.getProperty("Description").getValue()));
         taskBase.setDescription(String.valueOf(entity.getProperty("Description").getValue()));
 
+        Property done = entity.getProperty("Done");
+
+        if (null != done && done.getValue() instanceof Boolean) {
+            taskBase.setDone((Boolean) done.getValue());
+        }
+
         return taskBase;
     }
 
@@ -136,20 +181,116 @@ public class TaskEntityService extends EntityServiceBase<Task> {
     public Entity createEntity(Entity entity) {
         Objects.requireNonNull(entity, "Entity not found");
 
-        Optional<Task> task = this.taskService.create(this.extractFromEntity(entity));
+        Optional<Task> task = this.taskService.create(
+                (Integer)entity.getProperty("TodoID").getValue(), this.extractFromEntity(entity));
 
         if (task.isPresent()) {
-            task.get().setTodoId((Integer)entity.getProperty("TodoID").getValue());
-
             entity.addProperty(new Property(null, "ID",
                     ValueType.PRIMITIVE, task.get().getId()));
 
             entity.setType(ET_FQN.getFullQualifiedNameAsString());
+
+            this.taskService.findVersionById(task.get().getId())
+                    .ifPresent(version -> entity.setETag(EntityStorage.createETag(version)));
         }
 
         return entity;
     }
 
+    /**
+     * Create new entities of given parent within a single write
+     *
+     * @param  todoId    Id of the parent {@link dev.unexist.showcase.todo.domain.todo.Todo}
+     * @param  entities  A {@link List} of {@link Entity} to apply properties to
+     *
+     * @return Updated {@link Entity} list; might be empty on failure
+     **/
+
+    public List<Entity> createEntities(int todoId, List<Entity> entities) {
+        List<TaskBase> taskBases = entities.stream()
+                .map(this::extractFromEntity)
+                .collect(Collectors.toList());
+
+        Optional<List<Task>> tasks = this.taskService.createAll(todoId, taskBases);
+
+        if (tasks.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        for (int i = 0; i < entities.size(); i++) {
+            applyKeys(entities.get(i), tasks.get().get(i).getId(), todoId);
+        }
+
+        return entities;
+    }
+
+    /**
+     * Update or create entities of given parent
+     *
+     * Entities with an ID replace the existing {@link Task} of the parent; all others are
+     * created within a single write.
+     *
+     * @param  todoId    Id of the parent {@link dev.unexist.showcase.todo.domain.todo.Todo}
+     * @param  entities  A {@link List} of {@link Entity} to apply properties to
+     *
+     * @throws IllegalArgumentException When an entity doesn't belong to the parent
+     **/
+
+    public void mergeEntities(int todoId, List<Entity> entities) {
+        List<Entity> newEntities = new ArrayList<>();
+
+        for (Entity entity : entities) {
+            Property idProperty = entity.getProperty("ID");
+
+            if (null == idProperty || null == idProperty.getValue()) {
+                newEntities.add(entity);
+
+                continue;
+            }
+
+            Integer existingID = (Integer)idProperty.getValue();
+            boolean isChild = this.taskService.findById(existingID)
+                    .map(task -> todoId == task.getTodoId())
+                    .orElse(false);
+
+            if (!isChild || !this.taskService.update(existingID, extractFromEntity(entity))) {
+                throw new IllegalArgumentException(String.format(
+                        "Task %d not found in todo %d", existingID, todoId));
+            }
+
+            this.entityCache.invalidate(ET_NAME, existingID);
+
+            applyKeys(entity, existingID, todoId);
+        }
+
+        if (!newEntities.isEmpty()) {
+            createEntities(todoId, newEntities);
+        }
+    }
+
+    /**
+     * Replace key properties and ETag of given entity with the stored values
+     *
+     * @param  entity  A {@link Entity} to update
+     * @param  id      Id of the stored {@link Task}
+     * @param  todoId  Id of the parent
+     **/
+
+    private void applyKeys(Entity entity, int id, int todoId) {
+        entity.getProperties().removeIf(property ->
+                "ID".equals(property.getName()) || "TodoID".equals(property.getName()));
+        entity.addProperty(new Property(null, "ID",
+                ValueType.PRIMITIVE, id));
+        entity.addProperty(new Property(null, "TodoID",
+                ValueType.PRIMITIVE, todoId));
+
+        entity.setType(ET_FQN.getFullQualifiedNameAsString());
+        entity.setId(EntityStorage.createId(entity, "ID"));
+
+        this.taskService.findVersionById(id)
+                .ifPresent(version -> entity.setETag(EntityStorage.createETag(version)));
+    }
+
     /**
      * Update entity based on given parameters
      *
@@ -161,7 +302,33 @@ public class TaskEntityService extends EntityServiceBase<Task> {
 
         Integer existingID = (Integer)entity.getProperty("ID").getValue();
 
-        this.taskService.update(existingID, extractFromEntity(entity));
+        if (this.taskService.update(existingID, extractFromEntity(entity))) {
+            this.entityCache.invalidate(ET_NAME, existingID);
+        }
+    }
+
+    /**
+     * Update entity only if its row version still matches
+     *
+     * @param  entity           A {@link Entity} to apply properties to
+     * @param  expectedVersion  Expected row version of the entity
+     *
+     * @return Either {@code true} on success; otherwise {@code false} if modified meanwhile
+     **/
+
+    public boolean updateEntity(Entity entity, long expectedVersion) {
+        Objects.requireNonNull(entity, "Entity not found");
+
+        Integer existingID = (Integer)entity.getProperty("ID").getValue();
+
+        boolean isUpdated = this.taskService.update(existingID, extractFromEntity(entity),
+                expectedVersion);
+
+        if (isUpdated) {
+            this.entityCache.invalidate(ET_NAME, existingID);
+        }
+
+        return isUpdated;
     }
 
     /**
@@ -175,7 +342,44 @@ public class TaskEntityService extends EntityServiceBase<Task> {
 
         Integer existingID = (Integer)entity.getProperty("ID").getValue();
 
-        this.taskService.delete(existingID);
+        if (this.taskService.delete(existingID)) {
+            this.entityCache.invalidate(ET_NAME, existingID);
+        }
+    }
+
+    /**
+     * Delete entity only if its row version still matches
+     *
+     * @param  entity           A {@link Entity} to delete
+     * @param  expectedVersion  Expected row version of the entity
+     *
+     * @return Either {@code true} on success; otherwise {@code false} if modified meanwhile
+     **/
+
+    public boolean deleteEntity(Entity entity, long expectedVersion) {
+        Objects.requireNonNull(entity, "Entity not found");
+
+        Integer existingID = (Integer)entity.getProperty("ID").getValue();
+
+        boolean isDeleted = this.taskService.delete(existingID, expectedVersion);
+
+        if (isDeleted) {
+            this.entityCache.invalidate(ET_NAME, existingID);
+        }
+
+        return isDeleted;
+    }
+
+    /**
+     * Find entity by id
+     *
+     * @param  id  Id of the {@link Task}
+     *
+     * @return Either the found {@link Entity}; otherwise an empty {@link Optional}
+     **/
+
+    public Optional<Entity> findById(int id) {
+        return this.taskService.findById(id).map(this::createEntityFrom);
     }
 
     /**
@@ -213,4 +417,144 @@ public class TaskEntityService extends EntityServiceBase<Task> {
 
         return collection;
     }
+
+    /**
+     * Get all entities of given {@link dev.unexist.showcase.todo.domain.todo.Todo}
+     *
+     * @param  todoId  Id of the parent entry
+     *
+     * @return A {@link EntityCollection} ordered by id; might be empty
+     **/
+
+    public EntityCollection getAllByTodoId(int todoId) {
+        EntityCollection collection = new EntityCollection();
+
+        collection.getEntities().addAll(
+                this.taskService.findAllByTodoId(todoId, null, Integer.MAX_VALUE).stream()
+                        .map(this::createEntityFrom)
+                        .collect(Collectors.toUnmodifiableList()));
+
+        return collection;
+    }
+
+    /**
+     * Get number of all entities
+     *
+     * @return Number of entities
+     **/
+
+    public int count() {
+        return this.taskService.count();
+    }
+
+    /**
+     * Get version of all entities
+     *
+     * @return Current version; incremented after every write
+     **/
+
+    public long getVersion() {
+        return this.taskService.getVersion();
+    }
+
+    /**
+     * Get sequence number of the last change of any entity
+     *
+     * @return Sequence number; {@code 0} if nothing changed yet
+     **/
+
+    public long getChangeSequence() {
+        return this.taskService.getChangeSequence();
+    }
+
+    /**
+     * Get all entities changed after given sequence number
+     *
+     * @param  sequence  Sequence number of the last known change
+     *
+     * @return Either a {@link Delta} of changed and deleted entities; otherwise an empty
+     *         {@link Optional} if the sequence is unknown or too old
+     **/
+
+    public Optional<Delta> getChangesSince(long sequence) {
+        return this.taskService.findChangesSince(sequence)
+                .map(changes -> createDelta(changes, ET_FQN.getFullQualifiedNameAsString(),
+                        id -> this.taskService.findById(id).map(this::createEntityFrom)));
+    }
+
+    /**
+     * Get all properties which are backed by a sorted index
+     *
+     * @return A {@link Set} of property names; might be empty
+     **/
+
+    public Set<String> getIndexedProperties() {
+        return getIndexedProperties(PROPERTY_INDEXES, this.taskService.getIndexNames());
+    }
+
+    /**
+     * Get all entities within given range of the index of a property
+     *
+     * @param  propertyName  Name of the indexed property
+     * @param  range         A {@link IndexRange} to scan
+     *
+     * @return Either a lazy {@link Stream} in index order; otherwise an empty {@link Optional}
+     **/
+
+    public Optional<Stream<Entity>> getAllByIndex(String propertyName, IndexRange range) {
+        String indexName = PROPERTY_INDEXES.get(propertyName);
+
+        if (null == indexName) {
+            return Optional.empty();
+        }
+
+        return this.taskService.findAllByIndex(indexName, range)
+                .map(stream -> stream.map(this::createEntityFrom));
+    }
+
+    /**
+     * Get value of an entity property straight from given {@link Task}
+     *
+     * @param  task          A {@link Task} to read from
+     * @param  propertyName  Name of the property
+     *
+     * @return Either the value like in {@link #createEntityFrom(Task)}; otherwise {@code null}
+     **/
+
+    public Object getPropertyValue(Task task, String propertyName) {
+        Object retVal = null;
+
+        switch (propertyName) {
+            case "ID":
+                retVal = task.getId();
+                break;
+            case "TodoID":
+                retVal = task.getTodoId();
+                break;
+            case "Title":
+                retVal = task.getTitle();
+                break;
+            case "Description":
+                retVal = task.getDescription();
+                break;
+            case "Done":
+                retVal = task.getDone();
+                break;
+        }
+
+        return retVal;
+    }
+
+    /**
+     * Aggregate all entries according to given $apply plan
+     *
+     * @param  plan  A {@link ApplyPlan} to execute
+     *
+     * @return A {@link List} of result rows
+     * @throws ODataApplicationException When the plan cannot be evaluated
+     **/
+
+    public List<Map<String, Object>> aggregate(ApplyPlan plan) throws ODataApplicationException {
+        return this.aggregationEngine.aggregate(plan, this.taskService.getAll(), this::getPropertyValue);
+    }
 }
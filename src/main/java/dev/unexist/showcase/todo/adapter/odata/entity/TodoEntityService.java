@@ -11,13 +11,21 @@
 
 package dev.unexist.showcase.todo.adapter.odata.entity;
 
+import dev.unexist.showcase.todo.adapter.odata.apply.AggregationEngine;
+import dev.unexist.showcase.todo.adapter.odata.apply.ApplyPlan;
+import dev.unexist.showcase.todo.adapter.odata.cache.EntityCache;
 import dev.unexist.showcase.todo.adapter.odata.storage.EntityStorage;
+import dev.unexist.showcase.todo.domain.IndexRange;
+import dev.unexist.showcase.todo.domain.UnitOfWork;
 import dev.unexist.showcase.todo.domain.task.Task;
+import dev.unexist.showcase.todo.domain.todo.DueDate;
 import dev.unexist.showcase.todo.domain.todo.Todo;
 import dev.unexist.showcase.todo.domain.todo.TodoBase;
 import dev.unexist.showcase.todo.domain.todo.TodoService;
+import org.apache.olingo.commons.api.data.Delta;
 import org.apache.olingo.commons.api.data.Entity;
 import org.apache.olingo.commons.api.data.EntityCollection;
+import org.apache.olingo.commons.api.data.Link;
 import org.apache.olingo.commons.api.data.Property;
 import org.apache.olingo.commons.api.data.ValueType;
 import org.apache.olingo.commons.api.edm.EdmPrimitiveTypeKind;
@@ -26,17 +34,24 @@ import org.apache.olingo.commons.api.edm.provider.CsdlEntityType;
 import org.apache.olingo.commons.api.edm.provider.CsdlNavigationProperty;
 import org.apache.olingo.commons.api.edm.provider.CsdlProperty;
 import org.apache.olingo.commons.api.edm.provider.CsdlPropertyRef;
+import org.apache.olingo.server.api.ODataApplicationException;
 
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Calendar;
 import java.util.Collections;
+import java.util.GregorianCalendar;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static dev.unexist.showcase.todo.adapter.odata.processor.EdmProvider.NAMESPACE;
 
@@ -48,9 +63,32 @@ public class TodoEntityService extends EntityServiceBase<Todo> {
 
     public static final FullQualifiedName ET_FQN = new FullQualifiedName(NAMESPACE, ET_NAME);
 
+    /* Properties which can be backed by a sorted index of the repository */
+    private static final Map<String, String> PROPERTY_INDEXES = Map.of(
+            "ID", "id",
+            "Title", "title",
+            "Description", "description",
+            "Start", "start",
+            "Due", "due");
+
+    /* Date properties are indexed as epoch days */
+    private static final Set<String> DATE_PROPERTIES = Set.of("Start", "Due");
+
     @Inject
     TodoService todoService;
 
+    @Inject
+    AggregationEngine aggregationEngine;
+
+    @Inject
+    TaskEntityService taskEntityService;
+
+    @Inject
+    UnitOfWork unitOfWork;
+
+    @Inject
+    EntityCache entityCache;
+
     public static CsdlEntityType createEntityType() {
         CsdlProperty id = new CsdlProperty()
                 .setName("ID")
@@ -61,6 +99,12 @@ public class TodoEntityService extends EntityServiceBase<Todo> {
         CsdlProperty  description = new CsdlProperty()
                 .setName("Description")
                 .setType(EdmPrimitiveTypeKind.String.getFullQualifiedName());
+        CsdlProperty start = new CsdlProperty()
+                .setName("Start")
+                .setType(EdmPrimitiveTypeKind.Date.getFullQualifiedName());
+        CsdlProperty due = new CsdlProperty()
+                .setName("Due")
+                .setType(EdmPrimitiveTypeKind.Date.getFullQualifiedName());
 
         /* Create CsdlPropertyRef for Key element */
         CsdlPropertyRef propertyRef = new CsdlPropertyRef();
@@ -83,7 +127,7 @@ public class TodoEntityService extends EntityServiceBase<Todo> {
         CsdlEntityType entityType = new CsdlEntityType();
 
         entityType.setName(ET_NAME);
-        entityType.setProperties(Arrays.asList(id, title, description));
+        entityType.setProperties(Arrays.asList(id, title, description, start, due));
         entityType.setKey(Collections.singletonList(propertyRef));
         entityType.setNavigationProperties(navPropList);
 
@@ -99,6 +143,13 @@ public class TodoEntityService extends EntityServiceBase<Todo> {
      **/
 
     public Entity createEntityFrom(Todo todo) {
+        Long version = this.todoService.findVersionById(todo.getId()).orElse(null);
+
+        return this.entityCache.get(ET_NAME, todo.getId(), version, todo,
+                () -> buildEntityFrom(todo, version));
+    }
+
+    private static Entity buildEntityFrom(Todo todo, Long version) {
         Entity entity = new Entity()
                 .addProperty(new Property(null, "ID",
                         ValueType.PRIMITIVE, todo.getId()))
@@ -107,9 +158,20 @@ public class TodoEntityService extends EntityServiceBase<Todo> {
                 .addProperty(new Property(null, "Description",
                         ValueType.PRIMITIVE, todo.getDescription()));
 
+        DueDate dueDate = todo.getDueDate();
+
+        entity.addProperty(new Property(null, "Start", ValueType.PRIMITIVE,
+                null != dueDate ? dueDate.getStart() : null));
+        entity.addProperty(new Property(null, "Due", ValueType.PRIMITIVE,
+                null != dueDate ? dueDate.getDue() : null));
+
         entity.setType(ET_FQN.getFullQualifiedNameAsString());
         entity.setId(EntityStorage.createId(entity, "ID"));
 
+        if (null != version) {
+            entity.setETag(EntityStorage.createETag(version));
+        }
+
         return entity;
     }
 
@@ -119,12 +181,59 @@ public class TodoEntityService extends EntityServiceBase<Todo> {
         todoBase.setTitle(String.valueOf(entity.getProperty("Title").getValue()));
         todoBase.setDescription(String.valueOf(entity.getProperty("Description").getValue()));
 
+        LocalDate start = getDate(entity, "Start");
+        LocalDate due = getDate(entity, "Due");
+
+        if (null != start || null != due) {
+            DueDate dueDate = new DueDate();
+
+            dueDate.setStart(start);
+            dueDate.setDue(due);
+
+            todoBase.setDueDate(dueDate);
+        }
+
         return todoBase;
     }
 
+    /**
+     * Get value of a date property
+     *
+     * The deserializer creates a {@link Calendar} for Edm.Date values unless told otherwise.
+     *
+     * @param  entity        A {@link Entity} to read from
+     * @param  propertyName  Name of the property
+     *
+     * @return Either the date; otherwise {@code null} when unset
+     **/
+
+    private static LocalDate getDate(Entity entity, String propertyName) {
+        Property property = entity.getProperty(propertyName);
+        Object value = null != property ? property.getValue() : null;
+        LocalDate retVal = null;
+
+        if (value instanceof LocalDate) {
+            retVal = (LocalDate) value;
+        } else if (value instanceof GregorianCalendar) {
+            retVal = ((GregorianCalendar) value).toZonedDateTime().toLocalDate();
+        } else if (value instanceof Calendar) {
+            Calendar calendar = (Calendar) value;
+
+            retVal = LocalDate.of(calendar.get(Calendar.YEAR),
+                    calendar.get(Calendar.MONTH) + 1, calendar.get(Calendar.DAY_OF_MONTH));
+        } else if (value instanceof java.sql.Date) {
+            retVal = ((java.sql.Date) value).toLocalDate();
+        }
+
+        return retVal;
+    }
+
     /**
      * Create new entity
      *
+     * Inline {@link Task} entities of a deep insert are created in bulk together with the
+     * parent within a single unit of work.
+     *
      * @param  entity  A {@link Entity} to apply properties to
      *
      * @return Updated {@link Entity}
@@ -133,16 +242,42 @@ public class TodoEntityService extends EntityServiceBase<Todo> {
     public Entity createEntity(Entity entity) {
         Objects.requireNonNull(entity, "Entity not found");
 
-        Optional<Todo> todo = this.todoService.create(extractFromEntity(entity));
+        return this.unitOfWork.execute(() -> {
+            Optional<Todo> todo = this.todoService.create(extractFromEntity(entity));
+
+            if (todo.isPresent()) {
+                entity.addProperty(new Property(null, "ID",
+                        ValueType.PRIMITIVE, todo.get().getId()));
+
+                entity.setType(ET_FQN.getFullQualifiedNameAsString());
+
+                this.todoService.findVersionById(todo.get().getId())
+                        .ifPresent(version -> entity.setETag(EntityStorage.createETag(version)));
+
+                getInlineTasks(entity).ifPresent(inlineTasks ->
+                        this.taskEntityService.createEntities(todo.get().getId(), inlineTasks));
+            }
 
-        if (todo.isPresent()) {
-            entity.addProperty(new Property(null, "ID",
-                    ValueType.PRIMITIVE, todo.get().getId()));
+            return entity;
+        });
+    }
+
+    /**
+     * Get inline {@link Task} entities of a deep insert or update
+     *
+     * @param  entity  A {@link Entity} to check
+     *
+     * @return Either list of inline entities; otherwise an empty {@link Optional}
+     **/
+
+    private static Optional<List<Entity>> getInlineTasks(Entity entity) {
+        Link link = entity.getNavigationLink(TaskEntityService.ES_NAME);
 
-            entity.setType(ET_FQN.getFullQualifiedNameAsString());
+        if (null == link || null == link.getInlineEntitySet()) {
+            return Optional.empty();
         }
 
-        return entity;
+        return Optional.of(link.getInlineEntitySet().getEntities());
     }
 
     /**
@@ -156,7 +291,53 @@ public class TodoEntityService extends EntityServiceBase<Todo> {
 
         Integer existingID = (Integer)entity.getProperty("ID").getValue();
 
-        this.todoService.update(existingID, extractFromEntity(entity));
+        boolean isUpdated = this.unitOfWork.execute(() -> {
+            boolean retVal = this.todoService.update(existingID, extractFromEntity(entity));
+
+            if (retVal) {
+                getInlineTasks(entity).ifPresent(inlineTasks ->
+                        this.taskEntityService.mergeEntities(existingID, inlineTasks));
+            }
+
+            return retVal;
+        });
+
+        if (isUpdated) {
+            this.entityCache.invalidate(ET_NAME, existingID);
+        }
+    }
+
+    /**
+     * Update entity only if its row version still matches
+     *
+     * @param  entity           A {@link Entity} to apply properties to
+     * @param  expectedVersion  Expected row version of the entity
+     *
+     * @return Either {@code true} on success; otherwise {@code false} if modified meanwhile
+     **/
+
+    public boolean updateEntity(Entity entity, long expectedVersion) {
+        Objects.requireNonNull(entity, "Entity not found");
+
+        Integer existingID = (Integer)entity.getProperty("ID").getValue();
+
+        boolean isUpdated = this.unitOfWork.execute(() -> {
+            boolean retVal = this.todoService.update(existingID, extractFromEntity(entity),
+                    expectedVersion);
+
+            if (retVal) {
+                getInlineTasks(entity).ifPresent(inlineTasks ->
+                        this.taskEntityService.mergeEntities(existingID, inlineTasks));
+            }
+
+            return retVal;
+        });
+
+        if (isUpdated) {
+            this.entityCache.invalidate(ET_NAME, existingID);
+        }
+
+        return isUpdated;
     }
 
     /**
@@ -170,7 +351,44 @@ public class TodoEntityService extends EntityServiceBase<Todo> {
 
         Integer existingID = (Integer)entity.getProperty("ID").getValue();
 
-        this.todoService.delete(existingID);
+        if (this.todoService.delete(existingID)) {
+            this.entityCache.invalidate(ET_NAME, existingID);
+        }
+    }
+
+    /**
+     * Delete entity only if its row version still matches
+     *
+     * @param  entity           A {@link Entity} to delete
+     * @param  expectedVersion  Expected row version of the entity
+     *
+     * @return Either {@code true} on success; otherwise {@code false} if modified meanwhile
+     **/
+
+    public boolean deleteEntity(Entity entity, long expectedVersion) {
+        Objects.requireNonNull(entity, "Entity not found");
+
+        Integer existingID = (Integer)entity.getProperty("ID").getValue();
+
+        boolean isDeleted = this.todoService.delete(existingID, expectedVersion);
+
+        if (isDeleted) {
+            this.entityCache.invalidate(ET_NAME, existingID);
+        }
+
+        return isDeleted;
+    }
+
+    /**
+     * Find entity by id
+     *
+     * @param  id  Id of the {@link Todo}
+     *
+     * @return Either the found {@link Entity}; otherwise an empty {@link Optional}
+     **/
+
+    public Optional<Entity> findById(int id) {
+        return this.todoService.findById(id).map(this::createEntityFrom);
     }
 
     /**
@@ -208,4 +426,132 @@ public class TodoEntityService extends EntityServiceBase<Todo> {
 
         return collection;
     }
+
+    /**
+     * Get number of all entities
+     *
+     * @return Number of entities
+     **/
+
+    public int count() {
+        return this.todoService.count();
+    }
+
+    /**
+     * Get version of all entities
+     *
+     * @return Current version; incremented after every write
+     **/
+
+    public long getVersion() {
+        return this.todoService.getVersion();
+    }
+
+    /**
+     * Get sequence number of the last change of any entity
+     *
+     * @return Sequence number; {@code 0} if nothing changed yet
+     **/
+
+    public long getChangeSequence() {
+        return this.todoService.getChangeSequence();
+    }
+
+    /**
+     * Get all entities changed after given sequence number
+     *
+     * @param  sequence  Sequence number of the last known change
+     *
+     * @return Either a {@link Delta} of changed and deleted entities; otherwise an empty
+     *         {@link Optional} if the sequence is unknown or too old
+     **/
+
+    public Optional<Delta> getChangesSince(long sequence) {
+        return this.todoService.findChangesSince(sequence)
+                .map(changes -> createDelta(changes, ET_FQN.getFullQualifiedNameAsString(),
+                        id -> this.todoService.findById(id).map(this::createEntityFrom)));
+    }
+
+    /**
+     * Get all properties which are backed by a sorted index
+     *
+     * @return A {@link Set} of property names; might be empty
+     **/
+
+    public Set<String> getIndexedProperties() {
+        return getIndexedProperties(PROPERTY_INDEXES, this.todoService.getIndexNames());
+    }
+
+    /**
+     * Get all entities within given range of the index of a property
+     *
+     * @param  propertyName  Name of the indexed property
+     * @param  range         A {@link IndexRange} to scan
+     *
+     * @return Either a lazy {@link Stream} in index order; otherwise an empty {@link Optional}
+     **/
+
+    public Optional<Stream<Entity>> getAllByIndex(String propertyName, IndexRange range) {
+        String indexName = PROPERTY_INDEXES.get(propertyName);
+
+        if (null == indexName) {
+            return Optional.empty();
+        }
+
+        IndexRange indexRange = range;
+
+        if (DATE_PROPERTIES.contains(propertyName)) {
+            indexRange = range.convert(value -> value instanceof LocalDate
+                    ? ((LocalDate) value).toEpochDay() : value);
+        }
+
+        return this.todoService.findAllByIndex(indexName, indexRange)
+                .map(stream -> stream.map(this::createEntityFrom));
+    }
+
+    /**
+     * Get value of an entity property straight from given {@link Todo}
+     *
+     * @param  todo          A {@link Todo} to read from
+     * @param  propertyName  Name of the property
+     *
+     * @return Either the value like in {@link #createEntityFrom(Todo)}; otherwise {@code null}
+     **/
+
+    public Object getPropertyValue(Todo todo, String propertyName) {
+        Object retVal = null;
+
+        switch (propertyName) {
+            case "ID":
+                retVal = todo.getId();
+                break;
+            case "Title":
+                retVal = todo.getTitle();
+                break;
+            case "Description":
+                retVal = todo.getDescription();
+                break;
+            case "Start":
+                retVal = null != todo.getDueDate() ? todo.getDueDate().getStart() : null;
+                break;
+            case "Due":
+                retVal = null != todo.getDueDate() ? todo.getDueDate().getDue() : null;
+                break;
+        }
+
+        return retVal;
+    }
+
+    /**
+     * Aggregate all entries according to given $apply plan
+     *
+     * @param  plan  A {@link ApplyPlan} to execute
+     *
+     * @return A {@link List} of result rows
+     * @throws ODataApplicationException When the plan cannot be evaluated
+     **/
+
+    public List<Map<String, Object>> aggregate(ApplyPlan plan) throws ODataApplicationException {
+        return this.aggregationEngine.aggregate(plan, this.todoService.getAll(), this::getPropertyValue);
+    }
 }
@@ -0,0 +1,266 @@
+/**
+ * @package Showcase-OData-Quarkus
+ *
+ * @file OData batch processor
+ * @copyright 2024-present Christoph Kappel <christoph@unexist.dev>
+ * @version $Id$
+ *
+ * This program can be distributed under the terms of the Apache License v2.0.
+ * See the file LICENSE for details.
+ **/
+
+package dev.unexist.showcase.todo.adapter.odata.processor;
+
+import dev.unexist.showcase.todo.domain.UnitOfWork;
+import org.apache.olingo.commons.api.edm.Edm;
+import org.apache.olingo.commons.api.edm.EdmEntitySet;
+import org.apache.olingo.commons.api.edm.EdmEntityType;
+import org.apache.olingo.commons.api.format.ContentType;
+import org.apache.olingo.commons.api.http.HttpHeader;
+import org.apache.olingo.commons.api.http.HttpMethod;
+import org.apache.olingo.commons.api.http.HttpStatusCode;
+import org.apache.olingo.server.api.OData;
+import org.apache.olingo.server.api.ODataApplicationException;
+import org.apache.olingo.server.api.ODataHandler;
+import org.apache.olingo.server.api.ODataLibraryException;
+import org.apache.olingo.server.api.ODataRequest;
+import org.apache.olingo.server.api.ODataResponse;
+import org.apache.olingo.server.api.ServiceMetadata;
+import org.apache.olingo.server.api.batch.BatchFacade;
+import org.apache.olingo.server.api.deserializer.batch.BatchOptions;
+import org.apache.olingo.server.api.deserializer.batch.BatchRequestPart;
+import org.apache.olingo.server.api.deserializer.batch.ODataResponsePart;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+public class BatchProcessor implements org.apache.olingo.server.api.processor.BatchProcessor {
+    private final UnitOfWork unitOfWork;
+    private final Executor executor;
+    private final Consumer<ODataHandler> processorRegistrar;
+
+    private OData odata;
+    private ServiceMetadata serviceMetadata;
+
+    /**
+     * Constructor
+     *
+     * @param  unitOfWork          A {@link UnitOfWork} to run changesets atomically
+     * @param  executor            A bounded {@link Executor} for read-only parts
+     * @param  processorRegistrar  A {@link Consumer} to register entity processors on a handler
+     **/
+
+    public BatchProcessor(UnitOfWork unitOfWork, Executor executor,
+                          Consumer<ODataHandler> processorRegistrar)
+    {
+        this.unitOfWork = unitOfWork;
+        this.executor = executor;
+        this.processorRegistrar = processorRegistrar;
+    }
+
+    @Override
+    public void init(OData odata, ServiceMetadata serviceMetadata) {
+        this.odata = odata;
+        this.serviceMetadata = serviceMetadata;
+    }
+
+    @Override
+    public void processBatch(BatchFacade facade, ODataRequest request, ODataResponse response)
+            throws ODataApplicationException, ODataLibraryException
+    {
+        /* 1. Parse all parts of the batch */
+        String boundary = facade.extractBoundaryFromContentType(
+                request.getHeader(HttpHeader.CONTENT_TYPE));
+        BatchOptions options = BatchOptions.with()
+                .rawBaseUri(request.getRawBaseUri())
+                .rawServiceResolutionUri(request.getRawServiceResolutionUri())
+                .build();
+
+        List<BatchRequestPart> requestParts = this.odata.createFixedFormatDeserializer()
+                .parseBatchRequest(request.getBody(), boundary, options);
+
+        /* 2. Execute parts in order; consecutive reads can't see each other and run in parallel */
+        List<ODataResponsePart> responseParts = new ArrayList<>();
+        List<BatchRequestPart> readParts = new ArrayList<>();
+
+        for (BatchRequestPart requestPart : requestParts) {
+            if (isReadOnly(requestPart)) {
+                readParts.add(requestPart);
+
+                continue;
+            }
+
+            responseParts.addAll(processReadParts(facade, readParts));
+            readParts.clear();
+
+            responseParts.add(facade.handleBatchRequest(requestPart));
+        }
+
+        responseParts.addAll(processReadParts(facade, readParts));
+
+        /* 3. Serialize all responses into a single multipart response */
+        String responseBoundary = "batch_" + UUID.randomUUID();
+        InputStream responseContent = this.odata.createFixedFormatSerializer()
+                .batchResponse(responseParts, responseBoundary);
+
+        response.setHeader(HttpHeader.CONTENT_TYPE,
+                ContentType.MULTIPART_MIXED + ";boundary=" + responseBoundary);
+        response.setContent(responseContent);
+        response.setStatusCode(HttpStatusCode.OK.getStatusCode());
+    }
+
+    @Override
+    public ODataResponsePart processChangeSet(BatchFacade facade, List<ODataRequest> requests)
+            throws ODataApplicationException, ODataLibraryException
+    {
+        List<ODataResponse> responses = new ArrayList<>();
+
+        this.unitOfWork.begin();
+
+        try {
+            for (ODataRequest request : requests) {
+                ODataResponse response = facade.handleODataRequest(request);
+
+                /* Any failure discards the whole changeset and is answered by its error */
+                if (HttpStatusCode.BAD_REQUEST.getStatusCode() <= response.getStatusCode()) {
+                    this.unitOfWork.rollback();
+
+                    return new ODataResponsePart(response, false);
+                }
+
+                responses.add(response);
+            }
+
+            this.unitOfWork.commit();
+        } catch (ODataApplicationException | ODataLibraryException | RuntimeException e) {
+            if (this.unitOfWork.isActive()) {
+                this.unitOfWork.rollback();
+            }
+
+            throw e;
+        }
+
+        return new ODataResponsePart(responses, true);
+    }
+
+    /**
+     * Process read-only parts; in parallel when there is more than one
+     *
+     * @param  facade     A {@link BatchFacade} for sequential processing
+     * @param  readParts  A list of read-only {@link BatchRequestPart}
+     *
+     * @return A list of {@link ODataResponsePart} in order of the request parts
+     * @throws ODataApplicationException
+     * @throws ODataLibraryException
+     **/
+
+    private List<ODataResponsePart> processReadParts(BatchFacade facade,
+                                                     List<BatchRequestPart> readParts)
+            throws ODataApplicationException, ODataLibraryException
+    {
+        List<ODataResponsePart> retVal = new ArrayList<>();
+
+        if (readParts.isEmpty()) {
+            return retVal;
+        }
+
+        /* Like plain GET requests every read sees one point in time */
+        if (1 == readParts.size()) {
+            this.unitOfWork.openSnapshot();
+
+            try {
+                retVal.add(facade.handleBatchRequest(readParts.get(0)));
+            } finally {
+                this.unitOfWork.closeSnapshot();
+            }
+
+            return retVal;
+        }
+
+        warmUpMetadata();
+
+        List<CompletableFuture<ODataResponsePart>> futures = readParts.stream()
+                .map(readPart -> CompletableFuture.supplyAsync(
+                        () -> this.unitOfWork.read(() -> processReadPart(readPart)), this.executor))
+                .collect(Collectors.toList());
+
+        try {
+            for (CompletableFuture<ODataResponsePart> future : futures) {
+                retVal.add(future.join());
+            }
+        } catch (CompletionException e) {
+            throw new ODataApplicationException("Failed to process batch part",
+                    HttpStatusCode.INTERNAL_SERVER_ERROR.getStatusCode(), Locale.ENGLISH, e);
+        }
+
+        return retVal;
+    }
+
+    /**
+     * Process a single read-only part on its own handler
+     *
+     * Handlers keep state of the current request, so every parallel part needs its own one;
+     * {@link OData} and {@link ServiceMetadata} are shared with the whole batch.
+     *
+     * @param  readPart  A read-only {@link BatchRequestPart}
+     *
+     * @return A {@link ODataResponsePart} with the response
+     **/
+
+    private ODataResponsePart processReadPart(BatchRequestPart readPart) {
+        ODataRequest request = readPart.getRequests().get(0);
+        ODataHandler handler = this.odata.createRawHandler(this.serviceMetadata);
+
+        this.processorRegistrar.accept(handler);
+
+        ODataResponse response = handler.process(request);
+        String contentId = request.getHeader(HttpHeader.CONTENT_ID);
+
+        if (null != contentId) {
+            response.setHeader(HttpHeader.CONTENT_ID, contentId);
+        }
+
+        return new ODataResponsePart(response, false);
+    }
+
+    /**
+     * Resolve all lazily loaded metadata before handlers share it across threads
+     **/
+
+    private void warmUpMetadata() {
+        Edm edm = this.serviceMetadata.getEdm();
+
+        edm.getSchemas();
+
+        for (EdmEntitySet edmEntitySet : edm.getEntityContainer().getEntitySets()) {
+            EdmEntityType edmEntityType = edmEntitySet.getEntityType();
+
+            edmEntityType.getKeyPredicateNames();
+            edmEntityType.getPropertyNames().forEach(edmEntityType::getStructuralProperty);
+            edmEntityType.getNavigationPropertyNames().forEach(name ->
+                    edmEntityType.getNavigationProperty(name).getType());
+            edmEntitySet.getNavigationPropertyBindings();
+        }
+    }
+
+    /**
+     * Whether the part is a single GET request
+     *
+     * @param  requestPart  A {@link BatchRequestPart} to check
+     *
+     * @return Either {@code true} if read-only; otherwise {@code false}
+     **/
+
+    private static boolean isReadOnly(BatchRequestPart requestPart) {
+        return !requestPart.isChangeSet() && 1 == requestPart.getRequests().size()
+                && HttpMethod.GET == requestPart.getRequests().get(0).getMethod();
+    }
+}
@@ -11,24 +11,35 @@
 
 package dev.unexist.showcase.todo.adapter.odata.processor;
 
+import dev.unexist.showcase.todo.adapter.odata.apply.ApplyPlan;
+import dev.unexist.showcase.todo.adapter.odata.cache.EntityCache;
+import dev.unexist.showcase.todo.adapter.odata.cache.ResultCache;
 import dev.unexist.showcase.todo.adapter.odata.storage.EntityStorage;
+import dev.unexist.showcase.todo.infrastructure.compression.Compression;
+import dev.unexist.showcase.todo.infrastructure.compression.ContentEncoding;
+import dev.unexist.showcase.todo.infrastructure.concurrent.ParallelScanner;
+import dev.unexist.showcase.todo.infrastructure.serde.IsoDateCodec;
+import org.apache.olingo.commons.api.Constants;
 import org.apache.olingo.commons.api.data.ContextURL;
+import org.apache.olingo.commons.api.data.Delta;
 import org.apache.olingo.commons.api.data.Entity;
 import org.apache.olingo.commons.api.data.EntityCollection;
 import org.apache.olingo.commons.api.edm.EdmEntitySet;
 import org.apache.olingo.commons.api.edm.EdmEntityType;
 import org.apache.olingo.commons.api.edm.EdmNavigationProperty;
 import org.apache.olingo.commons.api.edm.EdmProperty;
+import org.apache.olingo.commons.api.edm.constants.ODataServiceVersion;
 import org.apache.olingo.commons.api.format.ContentType;
 import org.apache.olingo.commons.api.http.HttpHeader;
 import org.apache.olingo.commons.api.http.HttpStatusCode;
 import org.apache.olingo.server.api.ODataApplicationException;
 import org.apache.olingo.server.api.ODataRequest;
 import org.apache.olingo.server.api.ODataResponse;
+import org.apache.olingo.server.api.prefer.PreferencesApplied;
+import org.apache.olingo.server.api.serializer.EdmDeltaSerializer;
 import org.apache.olingo.server.api.serializer.EntityCollectionSerializerOptions;
 import org.apache.olingo.server.api.serializer.ODataSerializer;
 import org.apache.olingo.server.api.serializer.SerializerException;
-import org.apache.olingo.server.api.serializer.SerializerResult;
 import org.apache.olingo.server.api.uri.UriInfo;
 import org.apache.olingo.server.api.uri.UriInfoResource;
 import org.apache.olingo.server.api.uri.UriParameter;
@@ -36,6 +47,7 @@ import org.apache.olingo.server.api.uri.UriResource;
 import org.apache.olingo.server.api.uri.UriResourceEntitySet;
 import org.apache.olingo.server.api.uri.UriResourceNavigation;
 import org.apache.olingo.server.api.uri.UriResourcePrimitiveProperty;
+import org.apache.olingo.server.api.uri.queryoption.ApplyOption;
 import org.apache.olingo.server.api.uri.queryoption.CountOption;
 import org.apache.olingo.server.api.uri.queryoption.ExpandOption;
 import org.apache.olingo.server.api.uri.queryoption.FilterOption;
@@ -48,21 +60,60 @@ import org.apache.olingo.server.api.uri.queryoption.expression.Expression;
 import org.apache.olingo.server.api.uri.queryoption.expression.ExpressionVisitException;
 import org.apache.olingo.server.api.uri.queryoption.expression.Member;
 
+import javax.json.Json;
+import javax.json.JsonArrayBuilder;
+import javax.json.JsonObjectBuilder;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 public class EntityCollectionProcessor extends EntityProcessorBase
         implements org.apache.olingo.server.api.processor.EntityCollectionProcessor
 {
+    public static final String HEADER_QUERY_INDEX = "X-Query-Index";
+    public static final String HEADER_QUERY_PLAN = "X-Query-Plan";
+    public static final String HEADER_CACHE = "X-Cache";
+    public static final String OPTION_EXPLAIN = "explain";
+    public static final String OPTION_DELTA_TOKEN = "$deltatoken";
+
+    private final ResultCache resultCache;
+    private final ParallelScanner scanner;
+    private final FragmentSerializer fragmentSerializer;
+    private final Compression compression;
+
     /**
      * Constructor
      *
-     * @param  storage  A {@link EntityStorage} instance
+     * @param  storage      A {@link EntityStorage} instance
+     * @param  resultCache  A {@link ResultCache} instance
+     * @param  scanner      A {@link ParallelScanner} to evaluate $filter on large inputs
+     * @param  entityCache  A {@link EntityCache} to keep serialized entities
+     * @param  compression  A {@link Compression} to serve cached results precompressed
      **/
 
-    public EntityCollectionProcessor(EntityStorage storage) {
+    public EntityCollectionProcessor(EntityStorage storage, ResultCache resultCache,
+                                     ParallelScanner scanner, EntityCache entityCache,
+                                     Compression compression)
+    {
         this.storage = storage;
+        this.resultCache = resultCache;
+        this.scanner = scanner;
+        this.fragmentSerializer = new FragmentSerializer(entityCache);
+        this.compression = compression;
     }
 
     public void readEntityCollection(ODataRequest request, ODataResponse response,
@@ -72,8 +123,9 @@ public class EntityCollectionProcessor extends EntityProcessorBase
         EdmEntitySet responseEdmEntitySet = null;
         EntityCollection responseEntityCollection = null;
         EdmEntityType responseEdmEntityType = null;
-        EntityCollection entityCollection = null;
         ExpandOption expandOption = null;
+        QueryPlan queryPlan = null;
+        List<Entity> entityList = null;
 
         /* 1. Retrieve the requested EntitySet from the uriInfo (representation of the parsed URI) */
         List<UriResource> resourceParts = uriInfo.getUriResourceParts();
@@ -88,11 +140,88 @@ public class EntityCollectionProcessor extends EntityProcessorBase
         UriResourceEntitySet uriResourceEntitySet = (UriResourceEntitySet) uriResource;
         EdmEntitySet startEdmEntitySet = uriResourceEntitySet.getEntitySet();
 
+        /* Follow-up of a delta link; just send what changed since */
+        if (null != uriInfo.getDeltaTokenOption()) {
+            readEntitySetChanges(request, response, uriInfo, startEdmEntitySet, responseFormat);
+
+            return;
+        }
+
+        /* Change sequence of the read snapshot, so the delta link matches the entities read */
+        boolean isTrackChanges = isTrackChanges(request, uriInfo);
+        long changeSequence = isTrackChanges
+                ? this.storage.getEntitySetChangeSequence(startEdmEntitySet) : 0;
+
+        /* Serve repeated queries from cache as long as no involved entity set changed */
+        String cacheKey = null;
+        long[] versions = null;
+
+        if (this.resultCache.isEnabled() && !isExplain(uriInfo) && !isTimeDependent(uriInfo)
+                && !isTrackChanges)
+        {
+            cacheKey = ResultCache.createKey(request.getRawODataPath(), request.getRawQueryPath(),
+                    responseFormat.toContentTypeString());
+            versions = getEntitySetVersions(uriInfo, startEdmEntitySet);
+
+            Optional<ResultCache.Entry> cacheEntry = this.resultCache.get(cacheKey, versions);
+
+            if (cacheEntry.isPresent()) {
+                /* Compressed once per entry; the servlet passes encoded bodies through */
+                ContentEncoding encoding = this.compression.negotiate(
+                        request.getHeader(HttpHeader.ACCEPT_ENCODING),
+                        cacheEntry.get().getContent().length);
+
+                response.setContent(new ByteArrayInputStream(
+                        this.resultCache.getContent(cacheKey, cacheEntry.get(), encoding)));
+                response.setStatusCode(HttpStatusCode.OK.getStatusCode());
+                response.setHeader(HttpHeader.CONTENT_TYPE, cacheEntry.get().getContentType());
+
+                if (ContentEncoding.IDENTITY != encoding) {
+                    response.setHeader(HttpHeader.CONTENT_ENCODING, encoding.getToken());
+                }
+
+                cacheEntry.get().getHeaders().forEach(response::setHeader);
+                response.setHeader(HEADER_CACHE, "HIT");
+
+                return;
+            }
+        }
+
+        /* $apply replaces the entities with aggregated rows */
+        if (null != uriInfo.getApplyOption()) {
+            byte[] content = readAggregatedEntitySetData(uriInfo, startEdmEntitySet, responseFormat);
+
+            if (null != cacheKey) {
+                this.resultCache.put(cacheKey, new ResultCache.Entry(content,
+                        responseFormat.toContentTypeString(), Collections.emptyMap(), versions),
+                        getEntitySetVersions(uriInfo, startEdmEntitySet));
+
+                response.setHeader(HEADER_CACHE, "MISS");
+            }
+
+            response.setContent(new ByteArrayInputStream(content));
+            response.setStatusCode(HttpStatusCode.OK.getStatusCode());
+            response.setHeader(HttpHeader.CONTENT_TYPE, responseFormat.toContentTypeString());
+
+            return;
+        }
+
         if (1 == segmentCount) {
             responseEdmEntitySet = startEdmEntitySet;
 
-            /* 2. Fetch the data from backend */
-            entityCollection = this.storage.readEntitySetData(startEdmEntitySet);
+            /* 2. Plan the query and fetch the data from backend */
+            int rowCount = this.storage.countEntitySetData(startEdmEntitySet);
+
+            queryPlan = QueryPlanner.plan(uriInfo, startEdmEntitySet.getName(),
+                    this.storage.getIndexedProperties(startEdmEntitySet), rowCount);
+            entityList = readPlannedEntitySetData(uriInfo, startEdmEntitySet, queryPlan);
+
+            /* Index cannot be used for the literals; replan without indexes */
+            if (null == entityList) {
+                queryPlan = QueryPlanner.plan(uriInfo, startEdmEntitySet.getName(),
+                        Collections.emptySet(), rowCount);
+                entityList = readPlannedEntitySetData(uriInfo, startEdmEntitySet, queryPlan);
+            }
         } else if (2 == segmentCount) {
             UriResource lastSegment = resourceParts.get(1);
 
@@ -118,111 +247,61 @@ public class EntityCollectionProcessor extends EntityProcessorBase
                             HttpStatusCode.NOT_FOUND.getStatusCode(), Locale.ENGLISH);
                 }
 
-                entityCollection = this.storage.getRelatedEntityCollection(sourceEntity,
-                        targetEntityType);
+                long startNanos = System.nanoTime();
+                EntityCollection relatedEntityCollection = this.storage.getRelatedEntityCollection(
+                        sourceEntity, targetEntityType);
+
+                /* Related entities are not indexed */
+                queryPlan = QueryPlanner.plan(uriInfo, responseEdmEntitySet.getName(),
+                        Collections.emptySet(), relatedEntityCollection.getEntities().size());
+                entityList = scanEntities(uriInfo, queryPlan,
+                        relatedEntityCollection.getEntities().iterator(), startNanos);
             }
         } else {
             throw new ODataApplicationException("Not supported.",
                     HttpStatusCode.NOT_IMPLEMENTED.getStatusCode(), Locale.ENGLISH);
         }
 
-        /* 3. Apply system query options */
-        List<Entity> entityList = entityCollection.getEntities();
+        if (null == queryPlan) {
+            throw new ODataApplicationException("Not supported.",
+                    HttpStatusCode.NOT_IMPLEMENTED.getStatusCode(), Locale.ENGLISH);
+        }
+
+        /* 3. Apply remaining system query options in order of the plan */
+        long startNanos;
 
-        /* 3a. Handle $filter */
+        /* 3a. Handle $filter; unless already done while scanning */
         FilterOption filterOption = uriInfo.getFilterOption();
 
-        if (null != filterOption) {
-            try {
-                Iterator<Entity> entityIterator = entityList.iterator();
-
-                while (entityIterator.hasNext()) {
-                    Entity currentEntity = entityIterator.next();
-                    Expression filterExpression = filterOption.getExpression();
-                    FilterExpressionVisitor expressionVisitor = new FilterExpressionVisitor(currentEntity);
+        if (queryPlan.has(QueryPlan.Operation.FILTER)) {
+            startNanos = System.nanoTime();
 
-                    Object visitorResult = filterExpression.accept(expressionVisitor);
+            entityList = this.scanner.filter(entityList, compileFilter(filterOption));
 
-                    if (visitorResult instanceof Boolean) {
-                        if (!Boolean.TRUE.equals(visitorResult)) {
-                            entityIterator.remove();
-                        }
-                    } else {
-                        throw new ODataApplicationException("A filter expression must evaluate to type Edm.Boolean",
-                                HttpStatusCode.BAD_REQUEST.getStatusCode(), Locale.ENGLISH);
-                    }
-                }
-            } catch (ExpressionVisitException e) {
-                throw new ODataApplicationException("Exception in filter evaluation",
-                        HttpStatusCode.INTERNAL_SERVER_ERROR.getStatusCode(), Locale.ENGLISH);
-            }
+            queryPlan.record(QueryPlan.Operation.FILTER, entityList.size(), startNanos);
         }
 
-        /* 3b. Handle $expand */
-        expandOption = uriInfo.getExpandOption();
-
-        if (null != expandOption) {
-            Iterator<Entity> entityIterator = entityList.iterator();
+        /* 3b. Handle $orderby; unless the scan is already ordered */
+        if (queryPlan.has(QueryPlan.Operation.SORT)) {
+            startNanos = System.nanoTime();
 
-            while (entityIterator.hasNext()) {
-                expandEntities(expandOption, startEdmEntitySet, entityIterator.next());
+            /* Without $orderby an index scan is sorted back into id order for stable paging */
+            if (null != uriInfo.getOrderByOption()) {
+                sortEntities(uriInfo.getOrderByOption(), entityList);
+            } else {
+                entityList.sort(Comparator.comparing(
+                        entity -> (Integer) entity.getProperty("ID").getValue()));
             }
-        }
-
-        /* 3c. Handle $orderby */
-        OrderByOption orderByOption = uriInfo.getOrderByOption();
-
-        if (null != orderByOption) {
-            List<OrderByItem> orderItemList = orderByOption.getOrders();
-            final OrderByItem orderByItem = orderItemList.get(0); // in our example we support only one
-
-            Expression expression = orderByItem.getExpression();
 
-            if (expression instanceof Member) {
-                UriInfoResource expResourcePath = ((Member)expression).getResourcePath();
-                UriResource expUriResource = expResourcePath.getUriResourceParts().get(0);
-
-                if (expUriResource instanceof UriResourcePrimitiveProperty) {
-                    EdmProperty edmProperty = ((UriResourcePrimitiveProperty)expUriResource).getProperty();
-                    final String sortPropertyName = edmProperty.getName();
-
-                    /* Delegate the sorting to the native sorter of Integer and String */
-                    entityList.sort((entity1, entity2) -> {
-                        int compareResult = 0;
-
-                        if (sortPropertyName.equals("ID")) {
-                            Integer integer1 = (Integer) entity1.getProperty(
-                                    sortPropertyName).getValue();
-                            Integer integer2 = (Integer) entity2.getProperty(
-                                    sortPropertyName).getValue();
-
-                            compareResult = integer1.compareTo(integer2);
-                        } else {
-                            String propertyValue1 = String.valueOf(
-                                    entity1.getProperty(sortPropertyName).getValue());
-                            String propertyValue2 = String.valueOf(
-                                    entity2.getProperty(sortPropertyName).getValue());
-
-                            compareResult = propertyValue1.compareTo(propertyValue2);
-                        }
-
-                        /* If 'desc' is specified in the URI, change the order of the list */
-                        if (orderByItem.isDescending()) {
-                            return -compareResult;
-                        }
-
-                        return compareResult;
-                    });
-                }
-            }
+            queryPlan.record(QueryPlan.Operation.SORT, entityList.size(), startNanos);
         }
 
-        /* 3d. Handle $select */
+        /* 3c. Handle $select */
         SelectOption selectOption = uriInfo.getSelectOption();
 
         responseEntityCollection = new EntityCollection();
 
-        /* 3e. Handle $count */
+        /* 3d. Handle $count */
         CountOption countOption = uriInfo.getCountOption();
 
         if (null != countOption) {
@@ -230,13 +309,16 @@ public class EntityCollectionProcessor extends EntityProcessorBase
 
             if (isCount) {
                 responseEntityCollection.setCount(entityList.size());
+
+                queryPlan.record(QueryPlan.Operation.COUNT, entityList.size(), System.nanoTime());
             }
         }
 
-        /* 3f. Handle $skip */
+        /* 3e. Handle $skip */
         SkipOption skipOption = uriInfo.getSkipOption();
 
         if (null != skipOption) {
+            startNanos = System.nanoTime();
             int skipNumber = skipOption.getValue();
 
             if (0 <= skipNumber) {
@@ -249,12 +331,15 @@ public class EntityCollectionProcessor extends EntityProcessorBase
                 throw new ODataApplicationException("Invalid value for $skip",
                         HttpStatusCode.BAD_REQUEST.getStatusCode(), Locale.ENGLISH);
             }
+
+            queryPlan.record(QueryPlan.Operation.SKIP, entityList.size(), startNanos);
         }
 
-        /* 3g. Handle $top */
+        /* 3f. Handle $top */
         TopOption topOption = uriInfo.getTopOption();
 
         if (topOption != null) {
+            startNanos = System.nanoTime();
             int topNumber = topOption.getValue();
 
             if (0 <= topNumber) {
@@ -265,19 +350,39 @@ public class EntityCollectionProcessor extends EntityProcessorBase
                 throw new ODataApplicationException("Invalid value for $top",
                         HttpStatusCode.BAD_REQUEST.getStatusCode(), Locale.ENGLISH);
             }
+
+            queryPlan.record(QueryPlan.Operation.TOP, entityList.size(), startNanos);
+        }
+
+        /* 3h. Handle $expand; after paging to only expand returned entities */
+        expandOption = uriInfo.getExpandOption();
+
+        if (null != expandOption) {
+            startNanos = System.nanoTime();
+
+            for (Entity entity : entityList) {
+                expandEntities(expandOption, startEdmEntitySet, entity);
+            }
+
+            queryPlan.record(QueryPlan.Operation.EXPAND, entityList.size(), startNanos);
         }
 
         /* Update collection */
         responseEntityCollection.getEntities().addAll(entityList);
 
+        if (isTrackChanges) {
+            responseEntityCollection.setDeltaLink(createDeltaLink(request, startEdmEntitySet,
+                    changeSequence));
+        }
+
         /* 4. Create a serializer based on the requested format (json) */
         ContextURL contextUrl = null;
         EdmEntityType edmEntityType = null;
+        String selectList = null;
 
         if (isContNav(uriInfo)) {
             edmEntityType = responseEdmEntityType;
-
-            String selectList = this.odata.createUriHelper().buildContextURLSelectList(
+            selectList = this.odata.createUriHelper().buildContextURLSelectList(
                     edmEntityType, expandOption, selectOption);
 
             contextUrl = ContextURL.with()
@@ -286,8 +391,7 @@ public class EntityCollectionProcessor extends EntityProcessorBase
                     .build();
         } else {
             edmEntityType = responseEdmEntitySet.getEntityType();
-
-            String selectList = this.odata.createUriHelper().buildContextURLSelectList(
+            selectList = this.odata.createUriHelper().buildContextURLSelectList(
                     edmEntityType, expandOption, selectOption);
 
             contextUrl = ContextURL.with()
@@ -305,13 +409,497 @@ public class EntityCollectionProcessor extends EntityProcessorBase
                 .expand(expandOption)
                 .build();
 
+        startNanos = System.nanoTime();
+
         ODataSerializer serializer = this.odata.createSerializer(responseFormat);
-        SerializerResult serializerResult = serializer.entityCollection(this.serviceMetadata,
-                edmEntityType, responseEntityCollection, opts);
+        InputStream serializedContent;
+
+        /* Unchanged rows of plain entity sets are reused from their serialized fragments */
+        if (1 == segmentCount && !isExplain(uriInfo)
+                && this.fragmentSerializer.supports(responseFormat, null != expandOption))
+        {
+            EntityCollectionSerializerOptions rowOpts = EntityCollectionSerializerOptions.with()
+                    .contextURL(contextUrl)
+                    .id(id)
+                    .select(selectOption)
+                    .build();
+
+            serializedContent = new ByteArrayInputStream(this.fragmentSerializer.entityCollection(
+                    serializer, this.serviceMetadata, edmEntityType, responseEntityCollection,
+                    opts, rowOpts, FragmentSerializer.createShape(responseFormat, selectList)));
+        } else {
+            serializedContent = serializer.entityCollection(this.serviceMetadata,
+                    edmEntityType, responseEntityCollection, opts).getContent();
+        }
+
+        queryPlan.record(QueryPlan.Operation.SELECT, entityList.size(), startNanos);
 
         /* 5. Configure the response object: set the body, headers and status code */
-        response.setContent(serializerResult.getContent());
+        IndexScan indexScan = queryPlan.getIndexScan();
+        Map<String, String> headers = new LinkedHashMap<>();
+
+        headers.put(HEADER_QUERY_INDEX, null != indexScan ? indexScan.describe() : "none");
+        headers.put(HEADER_QUERY_PLAN, queryPlan.toString());
+
+        if (isExplain(uriInfo)) {
+            response.setContent(new ByteArrayInputStream(queryPlan.toJson().toString()
+                    .getBytes(StandardCharsets.UTF_8)));
+            response.setHeader(HttpHeader.CONTENT_TYPE, ContentType.APPLICATION_JSON.toContentTypeString());
+        } else if (null != cacheKey) {
+            byte[] content = readContent(serializedContent);
+
+            this.resultCache.put(cacheKey, new ResultCache.Entry(content,
+                    responseFormat.toContentTypeString(), headers, versions),
+                    getEntitySetVersions(uriInfo, startEdmEntitySet));
+
+            response.setContent(new ByteArrayInputStream(content));
+            response.setHeader(HttpHeader.CONTENT_TYPE, responseFormat.toContentTypeString());
+            response.setHeader(HEADER_CACHE, "MISS");
+        } else {
+            response.setContent(serializedContent);
+            response.setHeader(HttpHeader.CONTENT_TYPE, responseFormat.toContentTypeString());
+        }
+
+        if (isTrackChanges) {
+            headers.put(HttpHeader.PREFERENCE_APPLIED, PreferencesApplied.with()
+                    .trackChanges().build().toValueString());
+        }
+
+        response.setStatusCode(HttpStatusCode.OK.getStatusCode());
+        headers.forEach(response::setHeader);
+    }
+
+    /**
+     * Serialize all changes of an entity set since the sequence of a delta token
+     *
+     * The response carries a new delta link for the next round; entries changed several times
+     * are sent just once.
+     *
+     * @param  request            A {@link ODataRequest} to answer
+     * @param  response           A {@link ODataResponse} to fill
+     * @param  uriInfo            A {@link UriInfo} with the delta token
+     * @param  edmEntitySet       A {@link EdmEntitySet} of the request
+     * @param  responseFormat     A {@link ContentType} of the response
+     *
+     * @throws SerializerException
+     * @throws ODataApplicationException
+     **/
+
+    private void readEntitySetChanges(ODataRequest request, ODataResponse response,
+                                      UriInfo uriInfo, EdmEntitySet edmEntitySet,
+                                      ContentType responseFormat)
+            throws SerializerException, ODataApplicationException
+    {
+        if (1 != uriInfo.getUriResourceParts().size()) {
+            throw new ODataApplicationException("Delta links are only supported for entity sets",
+                    HttpStatusCode.NOT_IMPLEMENTED.getStatusCode(), Locale.ENGLISH);
+        }
+
+        long sequence;
+
+        try {
+            sequence = Long.parseLong(uriInfo.getDeltaTokenOption().getValue());
+        } catch (NumberFormatException e) {
+            throw new ODataApplicationException("Invalid value for $deltatoken",
+                    HttpStatusCode.BAD_REQUEST.getStatusCode(), Locale.ENGLISH);
+        }
+
+        /* Changes and entities come from the read snapshot, so the next delta continues after it */
+        long changeSequence = this.storage.getEntitySetChangeSequence(edmEntitySet);
+
+        Delta delta = this.storage.readEntitySetChanges(edmEntitySet, sequence)
+                .orElseThrow(() -> new ODataApplicationException(
+                        "Delta token expired, read the entity set again",
+                        HttpStatusCode.GONE.getStatusCode(), Locale.ENGLISH));
+
+        delta.setDeltaLink(createDeltaLink(request, edmEntitySet, changeSequence));
+
+        EntityCollectionSerializerOptions opts = EntityCollectionSerializerOptions.with()
+                .contextURL(ContextURL.with().entitySet(edmEntitySet).build())
+                .id(request.getRawBaseUri() + "/" + edmEntitySet.getName())
+                .build();
+
+        EdmDeltaSerializer serializer = this.odata.createEdmDeltaSerializer(responseFormat,
+                Collections.singletonList(ODataServiceVersion.V40.toString()));
+
+        response.setContent(serializer.entityCollection(this.serviceMetadata,
+                edmEntitySet.getEntityType(), delta, opts).getContent());
         response.setStatusCode(HttpStatusCode.OK.getStatusCode());
         response.setHeader(HttpHeader.CONTENT_TYPE, responseFormat.toContentTypeString());
     }
+
+    /**
+     * Whether changes of the response should be tracked via a delta link
+     *
+     * Tracking is only applied to plain reads of a whole entity set, since the delta just
+     * knows about changed rows and not about query options.
+     *
+     * @param  request  A {@link ODataRequest} with the preferences
+     * @param  uriInfo  A {@link UriInfo} to check
+     *
+     * @return Either {@code true} if changes are tracked; otherwise {@code false}
+     **/
+
+    private boolean isTrackChanges(ODataRequest request, UriInfo uriInfo) {
+        return 1 == uriInfo.getUriResourceParts().size()
+                && this.odata.createPreferences(request.getHeaders(HttpHeader.PREFER))
+                    .hasTrackChanges()
+                && null == uriInfo.getFilterOption() && null == uriInfo.getSearchOption()
+                && null == uriInfo.getApplyOption() && null == uriInfo.getOrderByOption()
+                && null == uriInfo.getSkipOption() && null == uriInfo.getTopOption()
+                && null == uriInfo.getSelectOption() && null == uriInfo.getExpandOption()
+                && !isExplain(uriInfo);
+    }
+
+    /**
+     * Create a delta link to read changes after given sequence number
+     *
+     * @param  request       A {@link ODataRequest} to get the base from
+     * @param  edmEntitySet  A {@link EdmEntitySet} to track
+     * @param  sequence      Sequence number of the last known change
+     *
+     * @return A newly created {@link URI}
+     **/
+
+    private static URI createDeltaLink(ODataRequest request, EdmEntitySet edmEntitySet,
+                                       long sequence)
+    {
+        return URI.create(request.getRawBaseUri() + "/" + edmEntitySet.getName()
+                + "?" + OPTION_DELTA_TOKEN + "=" + sequence);
+    }
+
+    /**
+     * Get versions of all entity sets a response is built from
+     *
+     * Navigation and $expand pull in other entity sets, so all sets of the container are
+     * considered then.
+     *
+     * @param  uriInfo            A {@link UriInfo} to use
+     * @param  startEdmEntitySet  A {@link EdmEntitySet} of the first segment
+     *
+     * @return Array of versions in container order
+     **/
+
+    private long[] getEntitySetVersions(UriInfo uriInfo, EdmEntitySet startEdmEntitySet) {
+        long[] retVal;
+
+        if (1 == uriInfo.getUriResourceParts().size() && null == uriInfo.getExpandOption()) {
+            retVal = new long[] { this.storage.getEntitySetVersion(startEdmEntitySet) };
+        } else {
+            retVal = this.serviceMetadata.getEdm().getEntityContainer().getEntitySets().stream()
+                    .mapToLong(this.storage::getEntitySetVersion)
+                    .toArray();
+        }
+
+        return retVal;
+    }
+
+    /**
+     * Read serialized content completely
+     *
+     * @param  inputStream  A {@link InputStream} to read
+     *
+     * @return Read bytes
+     * @throws ODataApplicationException
+     **/
+
+    private static byte[] readContent(InputStream inputStream) throws ODataApplicationException {
+        try (InputStream in = inputStream) {
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new ODataApplicationException("Cannot read serialized content",
+                    HttpStatusCode.INTERNAL_SERVER_ERROR.getStatusCode(), Locale.ENGLISH);
+        }
+    }
+
+    /**
+     * Whether the client requested the query plan instead of the entities
+     *
+     * @param  uriInfo  A {@link UriInfo} to check
+     *
+     * @return Either {@code true} if explain was requested; otherwise {@code false}
+     **/
+
+    private static boolean isExplain(UriInfo uriInfo) {
+        return uriInfo.getCustomQueryOptions().stream()
+                .anyMatch(option -> OPTION_EXPLAIN.equals(option.getName())
+                        && Boolean.parseBoolean(option.getText()));
+    }
+
+    /**
+     * Check whether the result depends on the current time
+     *
+     * @param  uriInfo  A {@link UriInfo} to check
+     *
+     * @return Either {@code true} if $filter calls now(); otherwise {@code false}
+     **/
+
+    private static boolean isTimeDependent(UriInfo uriInfo) {
+        FilterOption filterOption = uriInfo.getFilterOption();
+        ApplyOption applyOption = uriInfo.getApplyOption();
+
+        return null != filterOption && null != filterOption.getText()
+                && filterOption.getText().toLowerCase(Locale.ENGLISH).contains("now(")
+                || null != applyOption && null != applyOption.getText()
+                && applyOption.getText().toLowerCase(Locale.ENGLISH).contains("now(");
+    }
+
+    /**
+     * Aggregate an entity set according to $apply and serialize the result rows
+     *
+     * Aggregated rows only consist of the grouping properties and aliases, which the entity
+     * serializer cannot write, so the JSON is built here.
+     *
+     * @param  uriInfo         A {@link UriInfo} to use
+     * @param  edmEntitySet    A {@link EdmEntitySet} to aggregate
+     * @param  responseFormat  A {@link ContentType} of the response
+     *
+     * @return Serialized response body
+     * @throws ODataApplicationException
+     **/
+
+    private byte[] readAggregatedEntitySetData(UriInfo uriInfo, EdmEntitySet edmEntitySet,
+                                               ContentType responseFormat)
+            throws ODataApplicationException
+    {
+        if (1 != uriInfo.getUriResourceParts().size()) {
+            throw new ODataApplicationException("$apply is only supported on entity sets",
+                    HttpStatusCode.NOT_IMPLEMENTED.getStatusCode(), Locale.ENGLISH);
+        }
+
+        if (null != uriInfo.getFilterOption() || null != uriInfo.getOrderByOption()
+                || null != uriInfo.getSelectOption() || null != uriInfo.getExpandOption()
+                || null != uriInfo.getSkipOption() || null != uriInfo.getTopOption()
+                || null != uriInfo.getCountOption() || null != uriInfo.getSearchOption())
+        {
+            throw new ODataApplicationException("$apply cannot be combined with other system query options",
+                    HttpStatusCode.NOT_IMPLEMENTED.getStatusCode(), Locale.ENGLISH);
+        }
+
+        if (!responseFormat.isCompatible(ContentType.APPLICATION_JSON)) {
+            throw new ODataApplicationException("$apply is only supported for JSON",
+                    HttpStatusCode.NOT_ACCEPTABLE.getStatusCode(), Locale.ENGLISH);
+        }
+
+        ApplyPlan plan = ApplyPlan.of(uriInfo.getApplyOption());
+        List<Map<String, Object>> rows = this.storage.aggregateEntitySetData(edmEntitySet, plan);
+
+        JsonArrayBuilder valueBuilder = Json.createArrayBuilder();
+
+        for (Map<String, Object> row : rows) {
+            JsonObjectBuilder rowBuilder = Json.createObjectBuilder();
+
+            row.forEach((name, value) -> addJsonValue(rowBuilder, name, value));
+
+            valueBuilder.add(rowBuilder);
+        }
+
+        return Json.createObjectBuilder()
+                .add(Constants.JSON_CONTEXT, Constants.METADATA + "#" + edmEntitySet.getName()
+                        + "(" + String.join(",", plan.getColumnNames()) + ")")
+                .add(Constants.VALUE, valueBuilder)
+                .build()
+                .toString()
+                .getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void addJsonValue(JsonObjectBuilder builder, String name, Object value) {
+        if (null == value) {
+            builder.addNull(name);
+        } else if (value instanceof Integer || value instanceof Long) {
+            builder.add(name, ((Number) value).longValue());
+        } else if (value instanceof Number) {
+            builder.add(name, ((Number) value).doubleValue());
+        } else if (value instanceof Boolean) {
+            builder.add(name, (Boolean) value);
+        } else if (value instanceof LocalDate) {
+            builder.add(name, IsoDateCodec.format((LocalDate) value));
+        } else {
+            builder.add(name, String.valueOf(value));
+        }
+    }
+
+    /**
+     * Read data according to the scan step of given plan
+     *
+     * @param  uriInfo       A {@link UriInfo} to use
+     * @param  edmEntitySet  A {@link EdmEntitySet} to read
+     * @param  queryPlan     A {@link QueryPlan} to execute
+     *
+     * @return Either list of found {@link Entity}; otherwise {@code null} if the index cannot be used
+     * @throws ODataApplicationException
+     **/
+
+    private List<Entity> readPlannedEntitySetData(UriInfo uriInfo, EdmEntitySet edmEntitySet,
+                                                  QueryPlan queryPlan)
+            throws ODataApplicationException
+    {
+        long startNanos = System.nanoTime();
+        IndexScan indexScan = queryPlan.getIndexScan();
+        Iterator<Entity> entityIterator;
+
+        if (null != indexScan) {
+            Optional<Stream<Entity>> entityStream = this.storage.readEntitySetData(edmEntitySet,
+                    indexScan.getPropertyName(), indexScan.getRange());
+
+            if (entityStream.isEmpty()) {
+                return null;
+            }
+
+            entityIterator = entityStream.get().iterator();
+        } else {
+            entityIterator = this.storage.readEntitySetData(edmEntitySet)
+                    .getEntities().iterator();
+        }
+
+        return scanEntities(uriInfo, queryPlan, entityIterator, startNanos);
+    }
+
+    /**
+     * Collect entities and apply pushed down $filter and limit
+     *
+     * The scan stops once {@link QueryPlan#getScanLimit()} matching entities have been found.
+     *
+     * @param  uriInfo         A {@link UriInfo} to use
+     * @param  queryPlan       A {@link QueryPlan} to execute
+     * @param  entityIterator  A {@link Iterator} over all candidate entities
+     * @param  startNanos      Start time of the scan
+     *
+     * @return List of found {@link Entity}
+     * @throws ODataApplicationException
+     **/
+
+    private List<Entity> scanEntities(UriInfo uriInfo, QueryPlan queryPlan,
+                                      Iterator<Entity> entityIterator, long startNanos)
+            throws ODataApplicationException
+    {
+        List<Entity> retVal = new ArrayList<>();
+        long limit = queryPlan.getScanLimit();
+        FilterOption filterOption = queryPlan.has(QueryPlan.Operation.FILTER)
+                ? null : uriInfo.getFilterOption();
+
+        if (null != filterOption && Long.MAX_VALUE == limit) {
+            /* Without a limit every candidate is read anyway; filter them in parallel */
+            entityIterator.forEachRemaining(retVal::add);
+
+            retVal = this.scanner.filter(retVal, compileFilter(filterOption));
+        } else {
+            ParallelScanner.Condition<Entity, ODataApplicationException> condition =
+                    null != filterOption ? compileFilter(filterOption) : null;
+
+            while (entityIterator.hasNext() && retVal.size() < limit) {
+                Entity currentEntity = entityIterator.next();
+
+                if (null == condition || condition.test(currentEntity)) {
+                    retVal.add(currentEntity);
+                }
+            }
+        }
+
+        queryPlan.record(null != queryPlan.getIndexScan()
+                ? QueryPlan.Operation.INDEX_SCAN : QueryPlan.Operation.SCAN, retVal.size(), startNanos);
+
+        return retVal;
+    }
+
+    /**
+     * Sort entities according to $orderby
+     *
+     * @param  orderByOption  A {@link OrderByOption} to use
+     * @param  entityList     A list of {@link Entity} to sort in place
+     **/
+
+    private static void sortEntities(OrderByOption orderByOption, List<Entity> entityList) {
+        List<OrderByItem> orderItemList = orderByOption.getOrders();
+        final OrderByItem orderByItem = orderItemList.get(0); // in our example we support only one
+
+        Expression expression = orderByItem.getExpression();
+
+        if (expression instanceof Member) {
+            UriInfoResource expResourcePath = ((Member)expression).getResourcePath();
+            UriResource expUriResource = expResourcePath.getUriResourceParts().get(0);
+
+            if (expUriResource instanceof UriResourcePrimitiveProperty) {
+                EdmProperty edmProperty = ((UriResourcePrimitiveProperty)expUriResource).getProperty();
+                final String sortPropertyName = edmProperty.getName();
+
+                /* Delegate the sorting to the native sorter of Integer and String */
+                entityList.sort((entity1, entity2) -> {
+                    int compareResult = 0;
+
+                    if (sortPropertyName.equals("ID")) {
+                        Integer integer1 = (Integer) entity1.getProperty(
+                                sortPropertyName).getValue();
+                        Integer integer2 = (Integer) entity2.getProperty(
+                                sortPropertyName).getValue();
+
+                        compareResult = integer1.compareTo(integer2);
+                    } else {
+                        String propertyValue1 = String.valueOf(
+                                entity1.getProperty(sortPropertyName).getValue());
+                        String propertyValue2 = String.valueOf(
+                                entity2.getProperty(sortPropertyName).getValue());
+
+                        compareResult = propertyValue1.compareTo(propertyValue2);
+                    }
+
+                    /* If 'desc' is specified in the URI, change the order of the list */
+                    if (orderByItem.isDescending()) {
+                        return -compareResult;
+                    }
+
+                    return compareResult;
+                });
+            }
+        }
+    }
+
+    /**
+     * Compile $filter into a condition which can be evaluated concurrently
+     *
+     * @param  filterOption  A {@link FilterOption} to compile
+     *
+     * @return A thread-safe {@link ParallelScanner.Condition} for entities
+     **/
+
+    private static ParallelScanner.Condition<Entity, ODataApplicationException> compileFilter(
+            FilterOption filterOption)
+    {
+        Expression filterExpression = filterOption.getExpression();
+        Clock clock = Clock.systemDefaultZone();
+
+        return entity -> matchesFilter(filterExpression, entity, clock);
+    }
+
+    /**
+     * Evaluate $filter for given entity
+     *
+     * @param  filterExpression  A {@link Expression} to evaluate
+     * @param  entity            A {@link Entity} to check
+     * @param  clock             A {@link Clock} for now()
+     *
+     * @return Either {@code true} if the entity matches; otherwise {@code false}
+     * @throws ODataApplicationException
+     **/
+
+    private static boolean matchesFilter(Expression filterExpression, Entity entity, Clock clock)
+            throws ODataApplicationException
+    {
+        try {
+            FilterExpressionVisitor expressionVisitor = new FilterExpressionVisitor(entity, clock);
+
+            Object visitorResult = filterExpression.accept(expressionVisitor);
+
+            /* Unset boolean properties evaluate to null and don't match */
+            if (null == visitorResult || visitorResult instanceof Boolean) {
+                return Boolean.TRUE.equals(visitorResult);
+            } else {
+                throw new ODataApplicationException("A filter expression must evaluate to type Edm.Boolean",
+                        HttpStatusCode.BAD_REQUEST.getStatusCode(), Locale.ENGLISH);
+            }
+        } catch (ExpressionVisitException e) {
+            throw new ODataApplicationException("Exception in filter evaluation",
+                    HttpStatusCode.INTERNAL_SERVER_ERROR.getStatusCode(), Locale.ENGLISH);
+        }
+    }
 }
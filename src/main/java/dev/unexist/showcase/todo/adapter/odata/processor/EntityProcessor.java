@@ -27,6 +27,7 @@ import org.apache.olingo.server.api.ODataRequest;
 import org.apache.olingo.server.api.ODataResponse;
 import org.apache.olingo.server.api.deserializer.DeserializerResult;
 import org.apache.olingo.server.api.deserializer.ODataDeserializer;
+import org.apache.olingo.server.api.etag.PreconditionException;
 import org.apache.olingo.server.api.serializer.EntitySerializerOptions;
 import org.apache.olingo.server.api.serializer.ODataSerializer;
 import org.apache.olingo.server.api.serializer.SerializerResult;
@@ -88,15 +89,6 @@ public class EntityProcessor extends EntityProcessorBase
             List<UriParameter> keyPredicates = uriResourceEntitySet.getKeyPredicates();
 
             responseEntity = this.storage.readEntityData(startEdmEntitySet, keyPredicates);
-
-            /* 3. Apply system query options */
-
-            /* 3a. Handle $expand */
-            expandOption = uriInfo.getExpandOption();
-
-            if (null != expandOption) {
-                expandEntities(expandOption, startEdmEntitySet, responseEntity);
-            }
         } else if (segmentCount == 2) {
             UriResource navSegment = resourceParts.get(1);
 
@@ -136,6 +128,30 @@ public class EntityProcessor extends EntityProcessorBase
                     HttpStatusCode.NOT_FOUND.getStatusCode(), Locale.ENGLISH);
         }
 
+        /* 3. Check conditional headers; the ETag doesn't cover expanded entities */
+        String eTag = responseEntity.getETag();
+
+        if (null != eTag) {
+            boolean isNotModified = this.odata.createETagHelper().checkReadPreconditions(eTag,
+                    request.getHeaders(HttpHeader.IF_MATCH), request.getHeaders(HttpHeader.IF_NONE_MATCH));
+
+            if (isNotModified && null == uriInfo.getExpandOption()) {
+                response.setStatusCode(HttpStatusCode.NOT_MODIFIED.getStatusCode());
+                response.setHeader(HttpHeader.ETAG, eTag);
+
+                return;
+            }
+        }
+
+        /* 3a. Handle $expand */
+        if (1 == segmentCount) {
+            expandOption = uriInfo.getExpandOption();
+
+            if (null != expandOption) {
+                expandEntities(expandOption, startEdmEntitySet, responseEntity);
+            }
+        }
+
         /* 3b. Handle $select */
         SelectOption selectOption = uriInfo.getSelectOption();
 
@@ -171,6 +187,10 @@ public class EntityProcessor extends EntityProcessorBase
         response.setContent(serializerResult.getContent());
         response.setStatusCode(HttpStatusCode.OK.getStatusCode());
         response.setHeader(HttpHeader.CONTENT_TYPE, responseFormat.toContentTypeString());
+
+        if (null != eTag) {
+            response.setHeader(HttpHeader.ETAG, eTag);
+        }
     }
 
     @Override
@@ -193,10 +213,27 @@ public class EntityProcessor extends EntityProcessorBase
         Entity createdEntity = this.storage.createEntityData(edmEntitySet, requestEntity);
 
         // 3. serialize the response (we have to return the created entity)
-        ContextURL contextUrl = ContextURL.with().entitySet(edmEntitySet).build();
+        // 3.1. return the inline entities of a deep insert as expanded graph
+        ExpandOption expandOption = uriInfo.getExpandOption();
+
+        if (null != expandOption) {
+            expandEntities(expandOption, edmEntitySet, createdEntity);
+        } else {
+            expandOption = result.getExpandTree();
+        }
+
+        String selectList = this.odata.createUriHelper().buildContextURLSelectList(
+                edmEntityType, expandOption, null);
 
-        // expand and select currently not supported
-        EntitySerializerOptions options = EntitySerializerOptions.with().contextURL(contextUrl).build();
+        ContextURL contextUrl = ContextURL.with()
+                .entitySet(edmEntitySet)
+                .selectList(selectList)
+                .build();
+
+        EntitySerializerOptions options = EntitySerializerOptions.with()
+                .contextURL(contextUrl)
+                .expand(expandOption)
+                .build();
 
         ODataSerializer serializer = this.odata.createSerializer(responseFormat);
         SerializerResult serializedResponse = serializer.entity(this.serviceMetadata,
@@ -206,6 +243,10 @@ public class EntityProcessor extends EntityProcessorBase
         response.setContent(serializedResponse.getContent());
         response.setStatusCode(HttpStatusCode.CREATED.getStatusCode());
         response.setHeader(HttpHeader.CONTENT_TYPE, responseFormat.toContentTypeString());
+
+        if (null != createdEntity.getETag()) {
+            response.setHeader(HttpHeader.ETAG, createdEntity.getETag());
+        }
     }
 
     @Override
@@ -233,10 +274,19 @@ public class EntityProcessor extends EntityProcessorBase
 
         // Note that this updateEntity()-method is invoked for both PUT or PATCH operations
         HttpMethod httpMethod = request.getMethod();
-        this.storage.updateEntityData(edmEntitySet, keyPredicates, requestEntity, httpMethod);
+        Long expectedVersion = getExpectedVersion(request, edmEntitySet, keyPredicates);
+
+        this.storage.updateEntityData(edmEntitySet, keyPredicates, requestEntity, httpMethod,
+                expectedVersion);
 
         //3. configure the response object
         response.setStatusCode(HttpStatusCode.NO_CONTENT.getStatusCode());
+
+        Entity updatedEntity = this.storage.readEntityData(edmEntitySet, keyPredicates);
+
+        if (null != updatedEntity.getETag()) {
+            response.setHeader(HttpHeader.ETAG, updatedEntity.getETag());
+        }
     }
 
     @Override
@@ -251,12 +301,50 @@ public class EntityProcessor extends EntityProcessorBase
 
         // 2. delete the data in backend
         List<UriParameter> keyPredicates = uriResourceEntitySet.getKeyPredicates();
-        this.storage.deleteEntityData(edmEntitySet, keyPredicates);
+        Long expectedVersion = getExpectedVersion(request, edmEntitySet, keyPredicates);
+
+        this.storage.deleteEntityData(edmEntitySet, keyPredicates, expectedVersion);
 
         //3. configure the response object
         response.setStatusCode(HttpStatusCode.NO_CONTENT.getStatusCode());
     }
 
+    /**
+     * Check conditional headers of a change request
+     *
+     * The returned version is checked again while writing, so a concurrent change between
+     * this check and the write still results in {@code 412 Precondition Failed}.
+     *
+     * @param  request        A {@link ODataRequest} to check
+     * @param  edmEntitySet   A {@link EdmEntitySet} of the entity
+     * @param  keyPredicates  A list of URI parameters of the entity
+     *
+     * @return Either expected row version; otherwise {@code null} for unconditional requests
+     * @throws ODataApplicationException
+     * @throws PreconditionException
+     **/
+
+    private Long getExpectedVersion(ODataRequest request, EdmEntitySet edmEntitySet,
+                                    List<UriParameter> keyPredicates)
+            throws ODataApplicationException, PreconditionException
+    {
+        List<String> ifMatchHeaders = request.getHeaders(HttpHeader.IF_MATCH);
+        List<String> ifNoneMatchHeaders = request.getHeaders(HttpHeader.IF_NONE_MATCH);
+
+        if ((null == ifMatchHeaders || ifMatchHeaders.isEmpty())
+                && (null == ifNoneMatchHeaders || ifNoneMatchHeaders.isEmpty()))
+        {
+            return null;
+        }
+
+        Entity currentEntity = this.storage.readEntityData(edmEntitySet, keyPredicates);
+
+        this.odata.createETagHelper().checkChangePreconditions(currentEntity.getETag(),
+                ifMatchHeaders, ifNoneMatchHeaders);
+
+        return EntityStorage.parseETag(currentEntity.getETag());
+    }
+
     public EdmEntitySet getEdmEntitySet(UriInfoResource uriInfo) throws ODataApplicationException {
         List<UriResource> resourcePaths = uriInfo.getUriResourceParts();
 
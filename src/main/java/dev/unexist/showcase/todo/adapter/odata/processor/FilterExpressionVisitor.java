@@ -11,10 +11,14 @@
 
 package dev.unexist.showcase.todo.adapter.odata.processor;
 
+import dev.unexist.showcase.todo.infrastructure.serde.IsoDateCodec;
 import org.apache.olingo.commons.api.data.Entity;
 import org.apache.olingo.commons.api.edm.EdmEnumType;
 import org.apache.olingo.commons.api.edm.EdmType;
 import org.apache.olingo.commons.api.http.HttpStatusCode;
+import org.apache.olingo.commons.core.edm.primitivetype.EdmBoolean;
+import org.apache.olingo.commons.core.edm.primitivetype.EdmDate;
+import org.apache.olingo.commons.core.edm.primitivetype.EdmDuration;
 import org.apache.olingo.commons.core.edm.primitivetype.EdmString;
 import org.apache.olingo.server.api.ODataApplicationException;
 import org.apache.olingo.server.api.uri.UriResource;
@@ -27,14 +31,45 @@ import org.apache.olingo.server.api.uri.queryoption.expression.Member;
 import org.apache.olingo.server.api.uri.queryoption.expression.MethodKind;
 import org.apache.olingo.server.api.uri.queryoption.expression.UnaryOperatorKind;
 
+import java.time.Clock;
+import java.time.DateTimeException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZonedDateTime;
 import java.util.List;
 import java.util.Locale;
+import java.util.function.Function;
 
 public class FilterExpressionVisitor implements ExpressionVisitor<Object> {
-    private final Entity currentEntity;
+    private final Function<String, Object> properties;
+    private final Clock clock;
 
     public FilterExpressionVisitor(Entity currentEntity) {
-        this.currentEntity = currentEntity;
+        this(currentEntity, Clock.systemDefaultZone());
+    }
+
+    /**
+     * Constructor
+     *
+     * @param  currentEntity  A {@link Entity} to evaluate; {@code null} for constant expressions
+     * @param  clock          A {@link Clock} for now()
+     **/
+
+    public FilterExpressionVisitor(Entity currentEntity, Clock clock) {
+        this(null != currentEntity
+                ? name -> currentEntity.getProperty(name).getValue() : null, clock);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param  properties  A {@link Function} to look up property values by name
+     * @param  clock       A {@link Clock} for now()
+     **/
+
+    public FilterExpressionVisitor(Function<String, Object> properties, Clock clock) {
+        this.properties = properties;
+        this.clock = clock;
     }
 
     @Override
@@ -47,8 +82,7 @@ public class FilterExpressionVisitor implements ExpressionVisitor<Object> {
             UriResourcePrimitiveProperty uriResourceProperty =
                     (UriResourcePrimitiveProperty) uriResourceParts.get(0);
 
-            return currentEntity.getProperty(
-                    uriResourceProperty.getProperty().getName()).getValue();
+            return this.properties.apply(uriResourceProperty.getProperty().getName());
         } else {
             throw new ODataApplicationException("Only primitive properties are implemented in filter expressions",
                     HttpStatusCode.NOT_IMPLEMENTED.getStatusCode(), Locale.ENGLISH);
@@ -70,11 +104,29 @@ public class FilterExpressionVisitor implements ExpressionVisitor<Object> {
             }
 
             retVal= stringLiteral;
+        } else if (literal.getType() instanceof EdmBoolean) {
+            retVal = Boolean.parseBoolean(literalAsString);
+        } else if (literal.getType() instanceof EdmDate) {
+            try {
+                retVal = IsoDateCodec.parse(literalAsString);
+            } catch (DateTimeException e) {
+                throw new ODataApplicationException("Invalid Edm.Date literal",
+                        HttpStatusCode.BAD_REQUEST.getStatusCode(), Locale.ENGLISH);
+            }
+        } else if (literal.getType() instanceof EdmDuration) {
+            try {
+                /* Strip the optional duration'...' prefix */
+                retVal = Duration.parse(literalAsString.startsWith("duration'")
+                        ? literalAsString.substring(9, literalAsString.length() - 1) : literalAsString);
+            } catch (DateTimeException e) {
+                throw new ODataApplicationException("Invalid Edm.Duration literal",
+                        HttpStatusCode.BAD_REQUEST.getStatusCode(), Locale.ENGLISH);
+            }
         } else {
             try {
                 retVal = Integer.parseInt(literalAsString);
             } catch (NumberFormatException e) {
-                throw new ODataApplicationException("Only Edm.Int32 and Edm.String literals are implemented",
+                throw new ODataApplicationException("Only Edm.Int32, Edm.String, Edm.Boolean, Edm.Date and Edm.Duration literals are implemented",
                         HttpStatusCode.NOT_IMPLEMENTED.getStatusCode(), Locale.ENGLISH);
             }
         }
@@ -88,9 +140,10 @@ public class FilterExpressionVisitor implements ExpressionVisitor<Object> {
     {
         Object retVal = null;
 
-        System.out.println(operator);
-
-        if (UnaryOperatorKind.NOT == operator && operand instanceof Boolean) {
+        if (UnaryOperatorKind.NOT == operator && null == operand) {
+            /* Negating an unset boolean property keeps it unset */
+            retVal = null;
+        } else if (UnaryOperatorKind.NOT == operator && operand instanceof Boolean) {
             retVal = !(Boolean) operand;
         } else if (UnaryOperatorKind.MINUS == operator && operand instanceof Integer) {
             retVal = -(Integer) operand;
@@ -143,13 +196,26 @@ public class FilterExpressionVisitor implements ExpressionVisitor<Object> {
     {
         Object retVal = null;
 
-        if (left instanceof Boolean && right instanceof Boolean) {
+        if ((null == left || left instanceof Boolean) && (null == right || right instanceof Boolean)) {
             Boolean valueLeft = (Boolean) left;
             Boolean valueRight = (Boolean) right;
 
+            /* Unset values are unknown: they only decide the result when the other side can't */
             switch (operator) {
-                case AND: retVal = valueLeft && valueRight; break;
-                case OR:  retVal = valueLeft || valueRight; break;
+                case AND:
+                    if (Boolean.FALSE.equals(valueLeft) || Boolean.FALSE.equals(valueRight)) {
+                        retVal = false;
+                    } else if (null != valueLeft && null != valueRight) {
+                        retVal = true;
+                    }
+                    break;
+                case OR:
+                    if (Boolean.TRUE.equals(valueLeft) || Boolean.TRUE.equals(valueRight)) {
+                        retVal = true;
+                    } else if (null != valueLeft && null != valueRight) {
+                        retVal = false;
+                    }
+                    break;
             }
         } else {
             throw new ODataApplicationException("Boolean operations need two numeric operands",
@@ -164,6 +230,17 @@ public class FilterExpressionVisitor implements ExpressionVisitor<Object> {
     {
         Object retVal = null;
 
+        /* Unset values only equal each other and never compare otherwise */
+        if (null == left || null == right) {
+            switch (operator) {
+                case EQ: retVal = left == right; break;
+                case NE: retVal = left != right; break;
+                default: retVal = false; break;
+            }
+
+            return retVal;
+        }
+
         if (left.getClass().equals(right.getClass()) && left instanceof Comparable) {
             int result = 0;
 
@@ -173,6 +250,8 @@ public class FilterExpressionVisitor implements ExpressionVisitor<Object> {
                 result = ((Comparable<String>) (String) left).compareTo((String) right);
             } else if (left instanceof Boolean) {
                 result = ((Comparable<Boolean>) (Boolean) left).compareTo((Boolean) right);
+            } else if (left instanceof LocalDate) {
+                result = ((LocalDate) left).compareTo((LocalDate) right);
             } else {
                 throw new ODataApplicationException("Class " + left.getClass().getCanonicalName() + " not expected",
                         HttpStatusCode.INTERNAL_SERVER_ERROR.getStatusCode(), Locale.ENGLISH);
@@ -200,7 +279,17 @@ public class FilterExpressionVisitor implements ExpressionVisitor<Object> {
     {
         Object retVal = null;
 
-        if (left instanceof Integer && right instanceof Integer) {
+        if (left instanceof LocalDate && right instanceof Duration
+                && (BinaryOperatorKind.ADD == operator || BinaryOperatorKind.SUB == operator))
+        {
+            long days = ((Duration) right).toDays();
+
+            retVal = BinaryOperatorKind.ADD == operator
+                    ? ((LocalDate) left).plusDays(days) : ((LocalDate) left).minusDays(days);
+        } else if (null == left || null == right) {
+            /* Arithmetic on unset values stays unset */
+            retVal = null;
+        } else if (left instanceof Integer && right instanceof Integer) {
             Integer valueLeft = (Integer) left;
             Integer valueRight = (Integer) right;
 
@@ -239,6 +328,24 @@ public class FilterExpressionVisitor implements ExpressionVisitor<Object> {
                             HttpStatusCode.BAD_REQUEST.getStatusCode(), Locale.ENGLISH);
                 };
                 break;
+            case YEAR:  /* Falls through */
+            case MONTH: /* Falls through */
+            case DAY:
+                retVal = evaluateDatePart(methodCall, parameters.get(0));
+                break;
+            case NOW:
+                retVal = ZonedDateTime.now(this.clock);
+                break;
+            case DATE:
+                if (parameters.get(0) instanceof ZonedDateTime) {
+                    retVal = ((ZonedDateTime) parameters.get(0)).toLocalDate();
+                } else if (null == parameters.get(0) || parameters.get(0) instanceof LocalDate) {
+                    retVal = parameters.get(0);
+                } else {
+                    throw new ODataApplicationException("Date needs a parameter of type Edm.DateTimeOffset",
+                            HttpStatusCode.BAD_REQUEST.getStatusCode(), Locale.ENGLISH);
+                }
+                break;
             default:
                 throw new ODataApplicationException("Method call " + methodCall + " not implemented",
                         HttpStatusCode.NOT_IMPLEMENTED.getStatusCode(), Locale.ENGLISH);
@@ -247,6 +354,32 @@ public class FilterExpressionVisitor implements ExpressionVisitor<Object> {
         return retVal;
     }
 
+    private static Object evaluateDatePart(MethodKind methodCall, Object value)
+            throws ODataApplicationException
+    {
+        Object retVal = null;
+        LocalDate date = null;
+
+        if (value instanceof LocalDate) {
+            date = (LocalDate) value;
+        } else if (value instanceof ZonedDateTime) {
+            date = ((ZonedDateTime) value).toLocalDate();
+        } else if (null != value) {
+            throw new ODataApplicationException(methodCall + " needs a parameter of type Edm.Date or Edm.DateTimeOffset",
+                    HttpStatusCode.BAD_REQUEST.getStatusCode(), Locale.ENGLISH);
+        }
+
+        if (null != date) {
+            switch (methodCall) {
+                case YEAR:  retVal = date.getYear(); break;
+                case MONTH: retVal = date.getMonthValue(); break;
+                case DAY:   retVal = date.getDayOfMonth(); break;
+            }
+        }
+
+        return retVal;
+    }
+
     @Override
     public Object visitTypeLiteral(EdmType type) throws ODataApplicationException {
         throw new ODataApplicationException("Type literals are not implemented",
@@ -0,0 +1,263 @@
+/**
+ * @package Showcase-OData-Quarkus
+ *
+ * @file OData fragment serializer
+ * @copyright 2024-present Christoph Kappel <christoph@unexist.dev>
+ * @version $Id$
+ *
+ * This program can be distributed under the terms of the Apache License v2.0.
+ * See the file LICENSE for details.
+ **/
+
+package dev.unexist.showcase.todo.adapter.odata.processor;
+
+import dev.unexist.showcase.todo.adapter.odata.cache.EntityCache;
+import org.apache.olingo.commons.api.Constants;
+import org.apache.olingo.commons.api.data.Entity;
+import org.apache.olingo.commons.api.data.EntityCollection;
+import org.apache.olingo.commons.api.edm.EdmEntityType;
+import org.apache.olingo.commons.api.format.ContentType;
+import org.apache.olingo.commons.api.http.HttpStatusCode;
+import org.apache.olingo.server.api.ODataApplicationException;
+import org.apache.olingo.server.api.ServiceMetadata;
+import org.apache.olingo.server.api.serializer.EntityCollectionSerializerOptions;
+import org.apache.olingo.server.api.serializer.ODataSerializer;
+import org.apache.olingo.server.api.serializer.SerializerException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+public class FragmentSerializer {
+    private static final byte[] VALUE_START = ("\"" + Constants.VALUE + "\":[")
+            .getBytes(StandardCharsets.UTF_8);
+
+    private final EntityCache entityCache;
+
+    /**
+     * Constructor
+     *
+     * @param  entityCache  A {@link EntityCache} to keep the fragments
+     **/
+
+    public FragmentSerializer(EntityCache entityCache) {
+        this.entityCache = entityCache;
+    }
+
+    /**
+     * Whether a collection in given format can be assembled from fragments
+     *
+     * Expanded entities depend on other rows, so only plain entities qualify.
+     *
+     * @param  responseFormat  A {@link ContentType} of the response
+     * @param  isExpanded      Whether $expand is requested
+     *
+     * @return Either {@code true} if supported; otherwise {@code false}
+     **/
+
+    public boolean supports(ContentType responseFormat, boolean isExpanded) {
+        return this.entityCache.isFragmentsEnabled() && !isExpanded
+                && responseFormat.isCompatible(ContentType.APPLICATION_JSON);
+    }
+
+    /**
+     * Create key of the shape of serialized entities
+     *
+     * @param  responseFormat  A {@link ContentType} of the response including the metadata level
+     * @param  selectList      Select list of the context URL; {@code null} for all properties
+     *
+     * @return Key of the shape
+     **/
+
+    public static String createShape(ContentType responseFormat, String selectList) {
+        return responseFormat.toContentTypeString() + "|" + selectList;
+    }
+
+    /**
+     * Serialize a collection from the fragments of its entities
+     *
+     * Olingo writes the envelope and all missing entities in one go; the entities are cut
+     * out of the array again and kept per row, so the result is byte for byte the same as
+     * serializing the whole collection.
+     *
+     * @param  serializer       A {@link ODataSerializer} for the response format
+     * @param  serviceMetadata  A {@link ServiceMetadata} of the service
+     * @param  edmEntityType    A {@link EdmEntityType} of the entities
+     * @param  collection       A {@link EntityCollection} to serialize
+     * @param  options          Options of the whole collection
+     * @param  rowOptions       Options for the missing entities without count
+     * @param  shape            Key of the shape; see {@link #createShape(ContentType, String)}
+     *
+     * @return Serialized collection
+     * @throws SerializerException
+     * @throws ODataApplicationException
+     **/
+
+    public byte[] entityCollection(ODataSerializer serializer, ServiceMetadata serviceMetadata,
+                                   EdmEntityType edmEntityType, EntityCollection collection,
+                                   EntityCollectionSerializerOptions options,
+                                   EntityCollectionSerializerOptions rowOptions, String shape)
+            throws SerializerException, ODataApplicationException
+    {
+        List<Entity> entities = collection.getEntities();
+        byte[][] fragments = new byte[entities.size()][];
+        EntityCollection missing = new EntityCollection();
+        int size = 0;
+
+        for (int i = 0; i < fragments.length; i++) {
+            fragments[i] = this.entityCache.getFragment(entities.get(i), shape);
+
+            if (null == fragments[i]) {
+                missing.getEntities().add(entities.get(i));
+            } else {
+                size += fragments[i].length + 1;
+            }
+        }
+
+        this.entityCache.recordFragments(fragments.length - missing.getEntities().size(),
+                missing.getEntities().size());
+
+        /* Serialize all missing entities at once and hand them out in order */
+        if (!missing.getEntities().isEmpty()) {
+            byte[] content = readContent(serializer.entityCollection(serviceMetadata,
+                    edmEntityType, missing, rowOptions).getContent());
+            List<byte[]> missingFragments = split(content, indexOfValues(content));
+            int next = 0;
+
+            if (missingFragments.size() != missing.getEntities().size()) {
+                throw new ODataApplicationException("Cannot split serialized entities",
+                        HttpStatusCode.INTERNAL_SERVER_ERROR.getStatusCode(), Locale.ENGLISH);
+            }
+
+            for (int i = 0; i < fragments.length; i++) {
+                if (null == fragments[i]) {
+                    fragments[i] = missingFragments.get(next++);
+                    size += fragments[i].length + 1;
+
+                    this.entityCache.putFragment(entities.get(i), shape, fragments[i]);
+                }
+            }
+        }
+
+        /* Envelope without entities carries context, count and links */
+        EntityCollection envelope = new EntityCollection();
+
+        envelope.setCount(collection.getCount());
+        envelope.setNext(collection.getNext());
+        envelope.setDeltaLink(collection.getDeltaLink());
+
+        byte[] content = readContent(serializer.entityCollection(serviceMetadata,
+                edmEntityType, envelope, options).getContent());
+        int valuesStart = indexOfValues(content);
+
+        /* Separators are already included in the size, but there is one less than entities */
+        byte[] retVal = new byte[content.length + Math.max(0, size - 1)];
+        int pos = valuesStart;
+
+        System.arraycopy(content, 0, retVal, 0, valuesStart);
+
+        for (int i = 0; i < fragments.length; i++) {
+            if (0 < i) {
+                retVal[pos++] = ',';
+            }
+
+            System.arraycopy(fragments[i], 0, retVal, pos, fragments[i].length);
+            pos += fragments[i].length;
+        }
+
+        System.arraycopy(content, valuesStart, retVal, pos, content.length - valuesStart);
+
+        return retVal;
+    }
+
+    /**
+     * Find start of the value array
+     *
+     * Names inside of strings have escaped quotes, so the first match is the property.
+     *
+     * @param  content  Serialized collection
+     *
+     * @return Position right after the opening bracket
+     * @throws ODataApplicationException
+     **/
+
+    private static int indexOfValues(byte[] content) throws ODataApplicationException {
+        for (int i = 0; i <= content.length - VALUE_START.length; i++) {
+            int j = 0;
+
+            while (j < VALUE_START.length && content[i + j] == VALUE_START[j]) {
+                j++;
+            }
+
+            if (VALUE_START.length == j) {
+                return i + j;
+            }
+        }
+
+        throw new ODataApplicationException("Cannot find values of serialized collection",
+                HttpStatusCode.INTERNAL_SERVER_ERROR.getStatusCode(), Locale.ENGLISH);
+    }
+
+    /**
+     * Split the objects of a serialized array
+     *
+     * @param  content  Serialized collection
+     * @param  from     Position right after the opening bracket
+     *
+     * @return A {@link List} of serialized objects
+     **/
+
+    private static List<byte[]> split(byte[] content, int from) {
+        List<byte[]> retVal = new ArrayList<>();
+        boolean isString = false;
+        int depth = 0;
+        int start = from;
+
+        for (int i = from; i < content.length; i++) {
+            byte b = content[i];
+
+            if (isString) {
+                if ('\\' == b) {
+                    i++;
+                } else if ('"' == b) {
+                    isString = false;
+                }
+            } else if ('"' == b) {
+                isString = true;
+            } else if ('{' == b || '[' == b) {
+                if (0 == depth) {
+                    start = i;
+                }
+
+                depth++;
+            } else if ('}' == b || ']' == b) {
+                if (0 == depth) {
+                    break;
+                }
+
+                depth--;
+
+                if (0 == depth) {
+                    byte[] fragment = new byte[i + 1 - start];
+
+                    System.arraycopy(content, start, fragment, 0, fragment.length);
+                    retVal.add(fragment);
+                }
+            }
+        }
+
+        return retVal;
+    }
+
+    private static byte[] readContent(InputStream inputStream) throws ODataApplicationException {
+        try (InputStream in = inputStream) {
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new ODataApplicationException("Cannot read serialized content",
+                    HttpStatusCode.INTERNAL_SERVER_ERROR.getStatusCode(), Locale.ENGLISH);
+        }
+    }
+}
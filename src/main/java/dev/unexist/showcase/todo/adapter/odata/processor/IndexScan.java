@@ -0,0 +1,75 @@
+/**
+ * @package Showcase-OData-Quarkus
+ *
+ * @file OData index scan
+ * @copyright 2024-present Christoph Kappel <christoph@unexist.dev>
+ * @version $Id$
+ *
+ * This program can be distributed under the terms of the Apache License v2.0.
+ * See the file LICENSE for details.
+ **/
+
+package dev.unexist.showcase.todo.adapter.odata.processor;
+
+import dev.unexist.showcase.todo.domain.IndexRange;
+
+public class IndexScan {
+    private final String propertyName;
+    private final IndexRange range;
+    private final boolean ordered;
+
+    /**
+     * Constructor
+     *
+     * @param  propertyName  Name of the indexed property
+     * @param  range         A {@link IndexRange} to scan
+     * @param  ordered       Whether the scan satisfies $orderby
+     **/
+
+    public IndexScan(String propertyName, IndexRange range, boolean ordered) {
+        this.propertyName = propertyName;
+        this.range = range;
+        this.ordered = ordered;
+    }
+
+    /**
+     * Get name of the indexed property
+     *
+     * @return Name of the property
+     **/
+
+    public String getPropertyName() {
+        return this.propertyName;
+    }
+
+    /**
+     * Get range to scan
+     *
+     * @return A {@link IndexRange}
+     **/
+
+    public IndexRange getRange() {
+        return this.range;
+    }
+
+    /**
+     * Whether the scan returns the entities in the requested order
+     *
+     * @return Either {@code true} if ordered; otherwise {@code false}
+     **/
+
+    public boolean isOrdered() {
+        return this.ordered;
+    }
+
+    /**
+     * Describe this scan for explain output
+     *
+     * @return Description of the scan
+     **/
+
+    public String describe() {
+        return String.format("%s %s%s", this.propertyName, this.range,
+                this.ordered ? " ordered" : "");
+    }
+}
@@ -0,0 +1,265 @@
+/**
+ * @package Showcase-OData-Quarkus
+ *
+ * @file OData query plan
+ * @copyright 2024-present Christoph Kappel <christoph@unexist.dev>
+ * @version $Id$
+ *
+ * This program can be distributed under the terms of the Apache License v2.0.
+ * See the file LICENSE for details.
+ **/
+
+package dev.unexist.showcase.todo.adapter.odata.processor;
+
+import javax.json.Json;
+import javax.json.JsonArrayBuilder;
+import javax.json.JsonObject;
+import javax.json.JsonObjectBuilder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+public class QueryPlan {
+
+    /**
+     * Operations of a plan in order of execution
+     **/
+
+    public enum Operation {
+        SCAN,
+        INDEX_SCAN,
+        FILTER,
+        SORT,
+        COUNT,
+        SKIP,
+        TOP,
+        EXPAND,
+        SELECT
+    }
+
+    /**
+     * Single step of a plan
+     **/
+
+    public static class Step {
+        private final Operation operation;
+        private final String detail;
+        private final long estimatedRows;
+        private long actualRows;
+        private long elapsedNanos;
+
+        /**
+         * Constructor
+         *
+         * @param  operation      A {@link Operation} of this step
+         * @param  detail         Detail of the step; might be {@code null}
+         * @param  estimatedRows  Estimated number of rows after this step
+         **/
+
+        Step(Operation operation, String detail, long estimatedRows) {
+            this.operation = operation;
+            this.detail = detail;
+            this.estimatedRows = estimatedRows;
+            this.actualRows = -1;
+        }
+
+        /**
+         * Get operation of this step
+         *
+         * @return A {@link Operation}
+         **/
+
+        public Operation getOperation() {
+            return this.operation;
+        }
+
+        /**
+         * Get detail of this step
+         *
+         * @return Either detail; otherwise {@code null}
+         **/
+
+        public String getDetail() {
+            return this.detail;
+        }
+
+        /**
+         * Get estimated number of rows after this step
+         *
+         * @return Number of rows
+         **/
+
+        public long getEstimatedRows() {
+            return this.estimatedRows;
+        }
+
+        /**
+         * Get actual number of rows after this step
+         *
+         * @return Either number of rows; otherwise {@code -1} when not executed
+         **/
+
+        public long getActualRows() {
+            return this.actualRows;
+        }
+
+        /**
+         * Get elapsed time of this step
+         *
+         * @return Elapsed time in nanoseconds
+         **/
+
+        public long getElapsedNanos() {
+            return this.elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return null != this.detail
+                    ? String.format("%s[%s]", this.operation, this.detail)
+                    : this.operation.name();
+        }
+    }
+
+    private final String entitySetName;
+    private final IndexScan indexScan;
+    private final long scanLimit;
+    private final double estimatedCost;
+    private final List<Step> steps;
+
+    /**
+     * Constructor
+     *
+     * @param  entitySetName  Name of the entity set
+     * @param  indexScan      A {@link IndexScan} to use; {@code null} for a full scan
+     * @param  scanLimit      Maximum number of matching rows to fetch
+     * @param  estimatedCost  Estimated cost of the plan
+     * @param  steps          A list of {@link Step} in order of execution
+     **/
+
+    QueryPlan(String entitySetName, IndexScan indexScan, long scanLimit,
+              double estimatedCost, List<Step> steps)
+    {
+        this.entitySetName = entitySetName;
+        this.indexScan = indexScan;
+        this.scanLimit = scanLimit;
+        this.estimatedCost = estimatedCost;
+        this.steps = new ArrayList<>(steps);
+    }
+
+    /**
+     * Get selected index scan
+     *
+     * @return Either selected {@link IndexScan}; otherwise {@code null} for a full scan
+     **/
+
+    public IndexScan getIndexScan() {
+        return this.indexScan;
+    }
+
+    /**
+     * Get maximum number of matching rows the scan has to fetch
+     *
+     * @return Number of rows; {@link Long#MAX_VALUE} when unlimited
+     **/
+
+    public long getScanLimit() {
+        return this.scanLimit;
+    }
+
+    /**
+     * Get estimated cost of this plan
+     *
+     * @return Estimated cost
+     **/
+
+    public double getEstimatedCost() {
+        return this.estimatedCost;
+    }
+
+    /**
+     * Get steps of this plan
+     *
+     * @return A list of {@link Step} in order of execution
+     **/
+
+    public List<Step> getSteps() {
+        return Collections.unmodifiableList(this.steps);
+    }
+
+    /**
+     * Whether the plan contains the given operation
+     *
+     * @param  operation  A {@link Operation} to check
+     *
+     * @return Either {@code true} if contained; otherwise {@code false}
+     **/
+
+    public boolean has(Operation operation) {
+        return this.steps.stream()
+                .anyMatch(step -> step.operation == operation);
+    }
+
+    /**
+     * Record execution statistics of an operation
+     *
+     * @param  operation   A {@link Operation} to record
+     * @param  rows        Number of rows after the operation
+     * @param  startNanos  Start time of the operation
+     **/
+
+    public void record(Operation operation, long rows, long startNanos) {
+        long elapsedNanos = System.nanoTime() - startNanos;
+
+        this.steps.stream()
+                .filter(step -> step.operation == operation)
+                .findFirst()
+                .ifPresent(step -> {
+                    step.actualRows = rows;
+                    step.elapsedNanos = elapsedNanos;
+                });
+    }
+
+    /**
+     * Convert plan to JSON for explain output
+     *
+     * @return A {@link JsonObject} of this plan
+     **/
+
+    public JsonObject toJson() {
+        JsonArrayBuilder stepsBuilder = Json.createArrayBuilder();
+
+        for (Step step : this.steps) {
+            JsonObjectBuilder stepBuilder = Json.createObjectBuilder()
+                    .add("operation", step.operation.name());
+
+            if (null != step.detail) {
+                stepBuilder.add("detail", step.detail);
+            }
+
+            stepBuilder.add("estimatedRows", step.estimatedRows);
+
+            if (0 <= step.actualRows) {
+                stepBuilder.add("actualRows", step.actualRows)
+                        .add("elapsedMicros", step.elapsedNanos / 1000L);
+            }
+
+            stepsBuilder.add(stepBuilder);
+        }
+
+        return Json.createObjectBuilder()
+                .add("entitySet", Objects.toString(this.entitySetName, ""))
+                .add("estimatedCost", Math.round(this.estimatedCost))
+                .add("steps", stepsBuilder)
+                .build();
+    }
+
+    @Override
+    public String toString() {
+        return this.steps.stream()
+                .map(Step::toString)
+                .collect(Collectors.joining(" > "));
+    }
+}
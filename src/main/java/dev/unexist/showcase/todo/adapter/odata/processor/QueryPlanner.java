@@ -0,0 +1,467 @@
+/**
+ * @package Showcase-OData-Quarkus
+ *
+ * @file OData query planner
+ * @copyright 2024-present Christoph Kappel <christoph@unexist.dev>
+ * @version $Id$
+ *
+ * This program can be distributed under the terms of the Apache License v2.0.
+ * See the file LICENSE for details.
+ **/
+
+package dev.unexist.showcase.todo.adapter.odata.processor;
+
+import dev.unexist.showcase.todo.domain.IndexRange;
+import org.apache.olingo.server.api.ODataApplicationException;
+import org.apache.olingo.server.api.uri.UriInfo;
+import org.apache.olingo.server.api.uri.UriResource;
+import org.apache.olingo.server.api.uri.UriResourcePrimitiveProperty;
+import org.apache.olingo.server.api.uri.queryoption.CountOption;
+import org.apache.olingo.server.api.uri.queryoption.ExpandItem;
+import org.apache.olingo.server.api.uri.queryoption.ExpandOption;
+import org.apache.olingo.server.api.uri.queryoption.FilterOption;
+import org.apache.olingo.server.api.uri.queryoption.OrderByItem;
+import org.apache.olingo.server.api.uri.queryoption.OrderByOption;
+import org.apache.olingo.server.api.uri.queryoption.SkipOption;
+import org.apache.olingo.server.api.uri.queryoption.TopOption;
+import org.apache.olingo.server.api.uri.queryoption.expression.Binary;
+import org.apache.olingo.server.api.uri.queryoption.expression.BinaryOperatorKind;
+import org.apache.olingo.server.api.uri.queryoption.expression.Expression;
+import org.apache.olingo.server.api.uri.queryoption.expression.ExpressionVisitException;
+import org.apache.olingo.server.api.uri.queryoption.expression.Literal;
+import org.apache.olingo.server.api.uri.queryoption.expression.Member;
+import org.apache.olingo.server.api.uri.queryoption.expression.Method;
+import org.apache.olingo.server.api.uri.queryoption.expression.Unary;
+import org.apache.olingo.server.api.uri.queryoption.expression.UnaryOperatorKind;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static dev.unexist.showcase.todo.adapter.odata.processor.QueryPlan.Operation;
+import static dev.unexist.showcase.todo.adapter.odata.processor.QueryPlan.Step;
+
+public class QueryPlanner {
+    /* Fraction of rows a filter without usable range is expected to keep */
+    private static final double DEFAULT_SELECTIVITY = 0.5;
+
+    /**
+     * Create a plan for the query options of given {@link UriInfo}
+     *
+     * Cost rules are simple: every scanned row costs one unit, evaluating the filter costs one
+     * unit per row and sorting costs {@code m * log2(m)} for {@code m} rows. Filter and paging
+     * are pushed into the scan whenever the scan returns rows in the requested order, and
+     * $expand always runs last so it only touches rows which are part of the response.
+     *
+     * @param  uriInfo            A {@link UriInfo} to use
+     * @param  entitySetName      Name of the entity set
+     * @param  indexedProperties  Names of all indexed properties of the entity set
+     * @param  rowCount           Number of rows of the entity set
+     *
+     * @return A newly created {@link QueryPlan}
+     **/
+
+    public static QueryPlan plan(UriInfo uriInfo, String entitySetName,
+                                 Set<String> indexedProperties, long rowCount)
+    {
+        long n = Math.max(1L, rowCount);
+
+        /* Analyze $filter */
+        FilterOption filterOption = uriInfo.getFilterOption();
+        Map<String, IndexRange> ranges = new LinkedHashMap<>();
+        int conjunctCount = 0;
+
+        if (null != filterOption) {
+            conjunctCount = collectRanges(filterOption.getExpression(), ranges);
+        }
+
+        ranges.keySet().retainAll(indexedProperties);
+
+        /* Analyze $orderby; only a single primitive property is supported */
+        OrderByOption orderByOption = uriInfo.getOrderByOption();
+        String orderPropertyName = null;
+        boolean isDescending = false;
+
+        if (null != orderByOption && !orderByOption.getOrders().isEmpty()) {
+            OrderByItem orderByItem = orderByOption.getOrders().get(0);
+
+            orderPropertyName = getPropertyName(orderByItem.getExpression());
+            isDescending = orderByItem.isDescending();
+        }
+
+        /* Analyze paging; a limit can only be pushed down when no $count is requested */
+        CountOption countOption = uriInfo.getCountOption();
+        boolean isCount = null != countOption && countOption.getValue();
+        SkipOption skipOption = uriInfo.getSkipOption();
+        TopOption topOption = uriInfo.getTopOption();
+        long skip = null != skipOption ? Math.max(0, skipOption.getValue()) : 0L;
+        long limit = Long.MAX_VALUE;
+
+        if (null != topOption && 0 <= topOption.getValue() && !isCount) {
+            limit = skip + topOption.getValue();
+        }
+
+        /* Candidate: full scan */
+        long filteredRows = null != filterOption ? estimateFilteredRows(ranges, conjunctCount, n) : n;
+        boolean isOrdered = null == orderPropertyName;
+
+        IndexScan bestScan = null;
+        double bestCost = n + (null != filterOption ? n : 0)
+                + (isOrdered ? 0 : sortCost(filteredRows));
+        long bestRows = filteredRows;
+
+        /* Candidates: range scans */
+        for (Map.Entry<String, IndexRange> entry : ranges.entrySet()) {
+            String propertyName = entry.getKey();
+            boolean isRangeOrdered = propertyName.equals(orderPropertyName);
+
+            /* Without $orderby rows come in id order; indexes keep it for ids and single values */
+            boolean isIdOrdered = null == orderPropertyName
+                    && ("ID".equals(propertyName) || entry.getValue().isExact());
+            long rangeRows = estimateRangeRows(propertyName, entry.getValue(), n);
+            long rangeFilteredRows = 1 < conjunctCount
+                    ? Math.max(1L, Math.round(rangeRows * DEFAULT_SELECTIVITY)) : rangeRows;
+
+            double cost = log2(n) + rangeRows + rangeRows
+                    + (isRangeOrdered || isIdOrdered ? 0 : sortCost(rangeFilteredRows));
+
+            if (cost < bestCost) {
+                bestScan = new IndexScan(propertyName, entry.getValue()
+                        .descending(isRangeOrdered && isDescending), isRangeOrdered);
+                bestCost = cost;
+                bestRows = rangeFilteredRows;
+                isOrdered = isRangeOrdered || isIdOrdered;
+            }
+        }
+
+        /* Candidate: ordered scan of the index of the $orderby property */
+        if (null != orderPropertyName && indexedProperties.contains(orderPropertyName)) {
+            double selectivity = (double) filteredRows / n;
+            long scannedRows = Long.MAX_VALUE != limit
+                    ? Math.min(n, (long) Math.ceil(limit / Math.max(selectivity, 1.0 / n))) : n;
+
+            double cost = scannedRows + (null != filterOption ? scannedRows : 0);
+
+            if (cost < bestCost) {
+                bestScan = new IndexScan(orderPropertyName,
+                        IndexRange.all().descending(isDescending), true);
+                bestCost = cost;
+                bestRows = Math.min(filteredRows, limit);
+                isOrdered = true;
+            }
+        }
+
+        /* Build steps in order of execution */
+        long scanLimit = isOrdered ? limit : Long.MAX_VALUE;
+        long rows = Math.min(bestRows, scanLimit);
+        List<Step> steps = new ArrayList<>();
+
+        /* Filter is evaluated while scanning unless a full scan has to read everything anyway */
+        boolean isFilterPushed = null != filterOption
+                && (null != bestScan || Long.MAX_VALUE != scanLimit);
+
+        if (null != bestScan) {
+            steps.add(new Step(Operation.INDEX_SCAN, describeScan(bestScan.describe(),
+                    isFilterPushed, scanLimit), rows));
+        } else {
+            steps.add(new Step(Operation.SCAN, describeScan(entitySetName,
+                    isFilterPushed, scanLimit), isFilterPushed ? rows : n));
+        }
+
+        if (null != filterOption && !isFilterPushed) {
+            steps.add(new Step(Operation.FILTER, filterOption.getText(), rows));
+        }
+
+        if (!isOrdered) {
+            steps.add(new Step(Operation.SORT, null != orderPropertyName
+                    ? orderPropertyName + (isDescending ? " desc" : "") : "ID", rows));
+        }
+
+        if (isCount) {
+            steps.add(new Step(Operation.COUNT, null, rows));
+        }
+
+        if (null != skipOption) {
+            rows = Math.max(0, rows - skip);
+
+            steps.add(new Step(Operation.SKIP, String.valueOf(skip), rows));
+        }
+
+        if (null != topOption) {
+            rows = Math.min(rows, Math.max(0, topOption.getValue()));
+
+            steps.add(new Step(Operation.TOP, String.valueOf(topOption.getValue()), rows));
+        }
+
+        ExpandOption expandOption = uriInfo.getExpandOption();
+
+        if (null != expandOption) {
+            steps.add(new Step(Operation.EXPAND, describeExpand(expandOption), rows));
+        }
+
+        steps.add(new Step(Operation.SELECT,
+                null != uriInfo.getSelectOption() ? uriInfo.getSelectOption().getText() : null, rows));
+
+        return new QueryPlan(entitySetName, bestScan, scanLimit, bestCost, steps);
+    }
+
+    private static String describeScan(String source, boolean hasFilter, long scanLimit) {
+        StringBuilder sb = new StringBuilder(source);
+
+        if (hasFilter) {
+            sb.append("; filter");
+        }
+
+        if (Long.MAX_VALUE != scanLimit) {
+            sb.append("; limit ").append(scanLimit);
+        }
+
+        return sb.toString();
+    }
+
+    private static String describeExpand(ExpandOption expandOption) {
+        StringBuilder sb = new StringBuilder();
+
+        for (ExpandItem expandItem : expandOption.getExpandItems()) {
+            if (0 < sb.length()) {
+                sb.append(",");
+            }
+
+            if (expandItem.isStar()) {
+                sb.append("*");
+            } else if (null != expandItem.getResourcePath()) {
+                List<UriResource> parts = expandItem.getResourcePath().getUriResourceParts();
+
+                sb.append(parts.get(0).getSegmentValue());
+            }
+        }
+
+        return sb.toString();
+    }
+
+    private static double log2(long n) {
+        return Math.log(Math.max(2L, n)) / Math.log(2);
+    }
+
+    private static double sortCost(long rows) {
+        return rows * log2(rows);
+    }
+
+    private static long estimateRangeRows(String propertyName, IndexRange range, long n) {
+        long retVal;
+
+        if (null != range.getLower() && null != range.getUpper()) {
+            if (range.getLower() instanceof Boolean) {
+                /* Two values only; assume an even split */
+                retVal = range.getLower().equals(range.getUpper()) ? n / 2 : n;
+            } else if (range.getLower().equals(range.getUpper())) {
+                retVal = "ID".equals(propertyName) ? 1L : n / 10;
+            } else {
+                retVal = n / 4;
+            }
+        } else {
+            retVal = n / 3;
+        }
+
+        return Math.max(1L, retVal);
+    }
+
+    private static long estimateFilteredRows(Map<String, IndexRange> ranges, int conjunctCount, long n) {
+        long retVal = Math.max(1L, Math.round(n * DEFAULT_SELECTIVITY));
+
+        for (Map.Entry<String, IndexRange> entry : ranges.entrySet()) {
+            retVal = Math.min(retVal, estimateRangeRows(entry.getKey(), entry.getValue(), n));
+        }
+
+        return retVal;
+    }
+
+    /**
+     * Collect ranges of all AND-ed comparisons between a property and a literal and of
+     * bare boolean properties
+     *
+     * @param  expression  A {@link Expression} to analyze
+     * @param  ranges      A {@link Map} to collect the ranges into
+     *
+     * @return Number of AND-ed conjuncts of the expression
+     **/
+
+    static int collectRanges(Expression expression, Map<String, IndexRange> ranges) {
+        /* A bare boolean property or its negation, e.g. Done or not Done */
+        if (expression instanceof Member || expression instanceof Unary
+                && UnaryOperatorKind.NOT == ((Unary) expression).getOperator())
+        {
+            boolean value = expression instanceof Member;
+            String propertyName = getPropertyName(value
+                    ? expression : ((Unary) expression).getOperand());
+
+            if (null != propertyName) {
+                IndexRange range = ranges.computeIfAbsent(propertyName, k -> IndexRange.all());
+
+                narrowLower(range, value, true);
+                narrowUpper(range, value, true);
+            }
+
+            return 1;
+        }
+
+        if (!(expression instanceof Binary)) {
+            return 1;
+        }
+
+        Binary binary = (Binary) expression;
+        BinaryOperatorKind operator = binary.getOperator();
+
+        if (BinaryOperatorKind.AND == operator) {
+            return collectRanges(binary.getLeftOperand(), ranges)
+                    + collectRanges(binary.getRightOperand(), ranges);
+        }
+
+        String propertyName = getPropertyName(binary.getLeftOperand());
+        Object value = getLiteralValue(binary.getRightOperand());
+
+        /* Literal on the left side; mirror the comparison */
+        if (null == propertyName || null == value) {
+            propertyName = getPropertyName(binary.getRightOperand());
+            value = getLiteralValue(binary.getLeftOperand());
+            operator = mirror(operator);
+        }
+
+        if (null == propertyName || !(value instanceof Comparable) || null == mirror(operator)) {
+            return 1;
+        }
+
+        IndexRange range = ranges.computeIfAbsent(propertyName, k -> IndexRange.all());
+
+        switch (operator) {
+            case EQ:
+                narrowLower(range, (Comparable<?>) value, true);
+                narrowUpper(range, (Comparable<?>) value, true);
+                break;
+            case GT: narrowLower(range, (Comparable<?>) value, false); break;
+            case GE: narrowLower(range, (Comparable<?>) value, true); break;
+            case LT: narrowUpper(range, (Comparable<?>) value, false); break;
+            case LE: narrowUpper(range, (Comparable<?>) value, true); break;
+        }
+
+        return 1;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void narrowLower(IndexRange range, Comparable<?> value, boolean inclusive) {
+        Comparable<Object> lower = (Comparable<Object>) range.getLower();
+
+        if (null == lower || !lower.getClass().equals(value.getClass())) {
+            range.from(value, inclusive);
+        } else {
+            int result = lower.compareTo(value);
+
+            if (0 > result || (0 == result && !inclusive)) {
+                range.from(value, inclusive);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void narrowUpper(IndexRange range, Comparable<?> value, boolean inclusive) {
+        Comparable<Object> upper = (Comparable<Object>) range.getUpper();
+
+        if (null == upper || !upper.getClass().equals(value.getClass())) {
+            range.to(value, inclusive);
+        } else {
+            int result = upper.compareTo(value);
+
+            if (0 < result || (0 == result && !inclusive)) {
+                range.to(value, inclusive);
+            }
+        }
+    }
+
+    private static BinaryOperatorKind mirror(BinaryOperatorKind operator) {
+        BinaryOperatorKind retVal = null;
+
+        if (null == operator) {
+            return null;
+        }
+
+        switch (operator) {
+            case EQ: retVal = BinaryOperatorKind.EQ; break;
+            case GT: retVal = BinaryOperatorKind.LT; break;
+            case GE: retVal = BinaryOperatorKind.LE; break;
+            case LT: retVal = BinaryOperatorKind.GT; break;
+            case LE: retVal = BinaryOperatorKind.GE; break;
+        }
+
+        return retVal;
+    }
+
+    /**
+     * Get name of the primitive property the expression refers to
+     *
+     * @param  expression  A {@link Expression} to check
+     *
+     * @return Either name of the property; otherwise {@code null}
+     **/
+
+    static String getPropertyName(Expression expression) {
+        String retVal = null;
+
+        if (expression instanceof Member) {
+            List<UriResource> uriResourceParts = ((Member) expression).getResourcePath()
+                    .getUriResourceParts();
+
+            if (1 == uriResourceParts.size()
+                    && uriResourceParts.get(0) instanceof UriResourcePrimitiveProperty)
+            {
+                retVal = ((UriResourcePrimitiveProperty) uriResourceParts.get(0))
+                        .getProperty().getName();
+            }
+        }
+
+        return retVal;
+    }
+
+    private static Object getLiteralValue(Expression expression) {
+        Object retVal = null;
+
+        if (isConstant(expression)) {
+            try {
+                retVal = expression.accept(new FilterExpressionVisitor(null));
+            } catch (ExpressionVisitException | ODataApplicationException e) {
+                /* Unsupported literal; cannot be used for a range */
+            }
+        }
+
+        return retVal;
+    }
+
+    /**
+     * Check whether the expression doesn't refer to any property, e.g. {@code date(now())}
+     *
+     * @param  expression  A {@link Expression} to check
+     *
+     * @return Either {@code true} if constant; otherwise {@code false}
+     **/
+
+    static boolean isConstant(Expression expression) {
+        boolean retVal = false;
+
+        if (expression instanceof Literal) {
+            retVal = true;
+        } else if (expression instanceof Method) {
+            retVal = ((Method) expression).getParameters().stream()
+                    .allMatch(QueryPlanner::isConstant);
+        } else if (expression instanceof Binary) {
+            Binary binary = (Binary) expression;
+
+            retVal = null != binary.getRightOperand()
+                    && isConstant(binary.getLeftOperand()) && isConstant(binary.getRightOperand());
+        } else if (expression instanceof Unary) {
+            retVal = isConstant(((Unary) expression).getOperand());
+        }
+
+        return retVal;
+    }
+}
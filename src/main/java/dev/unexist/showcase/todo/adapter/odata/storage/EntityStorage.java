@@ -11,8 +11,11 @@
 
 package dev.unexist.showcase.todo.adapter.odata.storage;
 
+import dev.unexist.showcase.todo.adapter.odata.apply.ApplyPlan;
 import dev.unexist.showcase.todo.adapter.odata.entity.TaskEntityService;
 import dev.unexist.showcase.todo.adapter.odata.entity.TodoEntityService;
+import dev.unexist.showcase.todo.domain.IndexRange;
+import org.apache.olingo.commons.api.data.Delta;
 import org.apache.olingo.commons.api.data.Entity;
 import org.apache.olingo.commons.api.data.EntityCollection;
 import org.apache.olingo.commons.api.data.Property;
@@ -34,8 +37,13 @@ import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
 @ApplicationScoped
 public class EntityStorage {
@@ -66,6 +74,157 @@ public class EntityStorage {
         return retVal;
     }
 
+    /**
+     * Read data from an entity collection within given range of a sorted index
+     *
+     * @param  edmEntitySet  A {@link EdmEntitySet} to use
+     * @param  propertyName  Name of the indexed property
+     * @param  range         A {@link IndexRange} to scan
+     *
+     * @return Either a lazy {@link Stream} in index order; otherwise an empty {@link Optional}
+     **/
+
+    public Optional<Stream<Entity>> readEntitySetData(EdmEntitySet edmEntitySet, String propertyName,
+                                                      IndexRange range)
+    {
+        Optional<Stream<Entity>> retVal = Optional.empty();
+
+        if (TodoEntityService.ES_NAME.equals(edmEntitySet.getName())) {
+            retVal = this.todoEntityService.getAllByIndex(propertyName, range);
+        } else if (TaskEntityService.ES_NAME.equals(edmEntitySet.getName())) {
+            retVal = this.taskEntityService.getAllByIndex(propertyName, range);
+        }
+
+        return retVal;
+    }
+
+    /**
+     * Aggregate data of an entity collection according to given $apply plan
+     *
+     * @param  edmEntitySet  A {@link EdmEntitySet} to use
+     * @param  plan          A {@link ApplyPlan} to execute
+     *
+     * @return A {@link List} of result rows; empty for unknown entity sets
+     * @throws ODataApplicationException When the plan cannot be evaluated
+     **/
+
+    public List<Map<String, Object>> aggregateEntitySetData(EdmEntitySet edmEntitySet,
+                                                            ApplyPlan plan)
+            throws ODataApplicationException
+    {
+        List<Map<String, Object>> retVal = Collections.emptyList();
+
+        if (TodoEntityService.ES_NAME.equals(edmEntitySet.getName())) {
+            retVal = this.todoEntityService.aggregate(plan);
+        } else if (TaskEntityService.ES_NAME.equals(edmEntitySet.getName())) {
+            retVal = this.taskEntityService.aggregate(plan);
+        }
+
+        return retVal;
+    }
+
+    /**
+     * Count entities of an entity collection
+     *
+     * @param  edmEntitySet  A {@link EdmEntitySet} to use
+     *
+     * @return Number of entities; {@code 0} for unknown entity sets
+     **/
+
+    public int countEntitySetData(EdmEntitySet edmEntitySet) {
+        int retVal = 0;
+
+        if (TodoEntityService.ES_NAME.equals(edmEntitySet.getName())) {
+            retVal = this.todoEntityService.count();
+        } else if (TaskEntityService.ES_NAME.equals(edmEntitySet.getName())) {
+            retVal = this.taskEntityService.count();
+        }
+
+        return retVal;
+    }
+
+    /**
+     * Get version of an entity collection
+     *
+     * @param  edmEntitySet  A {@link EdmEntitySet} to use
+     *
+     * @return Current version; {@code 0} for unknown entity sets
+     **/
+
+    public long getEntitySetVersion(EdmEntitySet edmEntitySet) {
+        long retVal = 0;
+
+        if (TodoEntityService.ES_NAME.equals(edmEntitySet.getName())) {
+            retVal = this.todoEntityService.getVersion();
+        } else if (TaskEntityService.ES_NAME.equals(edmEntitySet.getName())) {
+            retVal = this.taskEntityService.getVersion();
+        }
+
+        return retVal;
+    }
+
+    /**
+     * Get sequence number of the last change of an entity collection
+     *
+     * @param  edmEntitySet  A {@link EdmEntitySet} to use
+     *
+     * @return Sequence number; {@code 0} for unknown entity sets
+     **/
+
+    public long getEntitySetChangeSequence(EdmEntitySet edmEntitySet) {
+        long retVal = 0;
+
+        if (TodoEntityService.ES_NAME.equals(edmEntitySet.getName())) {
+            retVal = this.todoEntityService.getChangeSequence();
+        } else if (TaskEntityService.ES_NAME.equals(edmEntitySet.getName())) {
+            retVal = this.taskEntityService.getChangeSequence();
+        }
+
+        return retVal;
+    }
+
+    /**
+     * Read changes of an entity collection after given sequence number
+     *
+     * @param  edmEntitySet  A {@link EdmEntitySet} to use
+     * @param  sequence      Sequence number of the last known change
+     *
+     * @return Either a {@link Delta} of changed and deleted entities; otherwise an empty
+     *         {@link Optional} if the sequence is unknown or too old
+     **/
+
+    public Optional<Delta> readEntitySetChanges(EdmEntitySet edmEntitySet, long sequence) {
+        Optional<Delta> retVal = Optional.empty();
+
+        if (TodoEntityService.ES_NAME.equals(edmEntitySet.getName())) {
+            retVal = this.todoEntityService.getChangesSince(sequence);
+        } else if (TaskEntityService.ES_NAME.equals(edmEntitySet.getName())) {
+            retVal = this.taskEntityService.getChangesSince(sequence);
+        }
+
+        return retVal;
+    }
+
+    /**
+     * Get all properties of an entity set which are backed by a sorted index
+     *
+     * @param  edmEntitySet  A {@link EdmEntitySet} to use
+     *
+     * @return A {@link Set} of property names; might be empty
+     **/
+
+    public Set<String> getIndexedProperties(EdmEntitySet edmEntitySet) {
+        Set<String> retVal = Collections.emptySet();
+
+        if (TodoEntityService.ES_NAME.equals(edmEntitySet.getName())) {
+            retVal = this.todoEntityService.getIndexedProperties();
+        } else if (TaskEntityService.ES_NAME.equals(edmEntitySet.getName())) {
+            retVal = this.taskEntityService.getIndexedProperties();
+        }
+
+        return retVal;
+    }
+
     /**
      * Create new entity from request entity
      *
@@ -75,14 +234,21 @@ public class EntityStorage {
      * @return Either updated {@link Entity} on success; otherwise {@code null}
      */
 
-    public Entity createEntityData(EdmEntitySet edmEntitySet, Entity requestEntity) {
+    public Entity createEntityData(EdmEntitySet edmEntitySet, Entity requestEntity)
+            throws ODataApplicationException
+    {
         Entity retVal = null;
         EdmEntityType edmEntityType = edmEntitySet.getEntityType();
 
-        if (TodoEntityService.ET_NAME.equals(edmEntityType.getName())) {
-            retVal = this.todoEntityService.createEntity(requestEntity);
-        } else if (TaskEntityService.ET_NAME.equals(edmEntityType.getName())) {
-            retVal = this.taskEntityService.createEntity(requestEntity);
+        try {
+            if (TodoEntityService.ET_NAME.equals(edmEntityType.getName())) {
+                retVal = this.todoEntityService.createEntity(requestEntity);
+            } else if (TaskEntityService.ET_NAME.equals(edmEntityType.getName())) {
+                retVal = this.taskEntityService.createEntity(requestEntity);
+            }
+        } catch (IllegalArgumentException e) {
+            throw new ODataApplicationException(e.getMessage(),
+                    HttpStatusCode.BAD_REQUEST.getStatusCode(), Locale.ENGLISH);
         }
 
         return retVal;
@@ -129,6 +295,25 @@ public class EntityStorage {
     public void updateEntityData(EdmEntitySet edmEntitySet, List<UriParameter> keyParams,
                                  Entity updateEntity, HttpMethod httpMethod)
             throws ODataApplicationException
+    {
+        updateEntityData(edmEntitySet, keyParams, updateEntity, httpMethod, null);
+    }
+
+    /**
+     * Update entity based on given update entity if its row version still matches
+     *
+     * @param  edmEntitySet     A {@link EdmEntitySet} to use
+     * @param  keyParams        A list of URI parameters
+     * @param  updateEntity     A {@link Entity} to update
+     * @param  httpMethod       A {@link HttpMethod} for this call
+     * @param  expectedVersion  Expected row version; {@code null} to update unconditionally
+     *
+     * @throws ODataApplicationException
+     */
+
+    public void updateEntityData(EdmEntitySet edmEntitySet, List<UriParameter> keyParams,
+                                 Entity updateEntity, HttpMethod httpMethod, Long expectedVersion)
+            throws ODataApplicationException
     {
         EdmEntityType edmEntityType = edmEntitySet.getEntityType();
 
@@ -140,10 +325,12 @@ public class EntityStorage {
                     HttpStatusCode.NOT_FOUND.getStatusCode(), Locale.ENGLISH);
         }
 
-        /* Loop over all properties and replace the values with the values of the given payload */
+        /* Loop over all properties and replace them with the values of the given payload;
+        properties may be shared with cached entities, so they are never changed in place */
         List<Property> existingProperties = foundEntity.getProperties();
 
-        for (Property existingProp : existingProperties) {
+        for (int i = 0; i < existingProperties.size(); i++) {
+            Property existingProp = existingProperties.get(i);
             String propName = existingProp.getName();
 
             /* Ignore the key properties, they aren't updatable */
@@ -160,21 +347,45 @@ public class EntityStorage {
                     /* As of the OData spec, in case of PATCH, the existing property is not touched */
                     continue;
                 } else if (httpMethod.equals(HttpMethod.PUT)) {
-                    existingProp.setValue(existingProp.getValueType(), null);
+                    existingProperties.set(i, new Property(existingProp.getType(), propName,
+                            existingProp.getValueType(), null));
 
                     continue;
                 }
             }
 
-            existingProp.setValue(existingProp.getValueType(),
-                    updateProperty.getValue());
+            existingProperties.set(i, new Property(existingProp.getType(), propName,
+                    existingProp.getValueType(), updateProperty.getValue()));
         }
 
+        /* Keep inline entities of a deep update */
+        foundEntity.getNavigationLinks().addAll(updateEntity.getNavigationLinks());
+
         /* Finally update entity */
-        if (TodoEntityService.ET_NAME.equals(edmEntityType.getName())) {
-            this.todoEntityService.updateEntity(foundEntity);
-        } else if (TaskEntityService.ET_NAME.equals(edmEntityType.getName())) {
-            this.taskEntityService.updateEntity(foundEntity);
+        boolean isUpdated = true;
+
+        try {
+            if (TodoEntityService.ET_NAME.equals(edmEntityType.getName())) {
+                if (null == expectedVersion) {
+                    this.todoEntityService.updateEntity(foundEntity);
+                } else {
+                    isUpdated = this.todoEntityService.updateEntity(foundEntity, expectedVersion);
+                }
+            } else if (TaskEntityService.ET_NAME.equals(edmEntityType.getName())) {
+                if (null == expectedVersion) {
+                    this.taskEntityService.updateEntity(foundEntity);
+                } else {
+                    isUpdated = this.taskEntityService.updateEntity(foundEntity, expectedVersion);
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            throw new ODataApplicationException(e.getMessage(),
+                    HttpStatusCode.BAD_REQUEST.getStatusCode(), Locale.ENGLISH);
+        }
+
+        if (!isUpdated) {
+            throw new ODataApplicationException("Entity has been modified",
+                    HttpStatusCode.PRECONDITION_FAILED.getStatusCode(), Locale.ENGLISH);
         }
     }
 
@@ -189,16 +400,47 @@ public class EntityStorage {
 
     public void deleteEntityData(EdmEntitySet edmEntitySet, List<UriParameter> keyParams)
             throws ODataApplicationException
+    {
+        deleteEntityData(edmEntitySet, keyParams, null);
+    }
+
+    /**
+     * Delete entity based on given data if its row version still matches
+     *
+     * @param  edmEntitySet     A {@link EdmEntitySet} to use
+     * @param  keyParams        A list of URI parameters
+     * @param  expectedVersion  Expected row version; {@code null} to delete unconditionally
+     *
+     * @throws ODataApplicationException
+     **/
+
+    public void deleteEntityData(EdmEntitySet edmEntitySet, List<UriParameter> keyParams,
+                                 Long expectedVersion)
+            throws ODataApplicationException
     {
         EdmEntityType edmEntityType = edmEntitySet.getEntityType();
 
         /* Try to find entity */
         Entity foundEntity = getEntity(edmEntityType, keyParams);
+        boolean isDeleted = true;
 
         if (TodoEntityService.ET_NAME.equals(edmEntityType.getName())) {
-            this.todoEntityService.deleteEntity(foundEntity);
+            if (null == expectedVersion) {
+                this.todoEntityService.deleteEntity(foundEntity);
+            } else {
+                isDeleted = this.todoEntityService.deleteEntity(foundEntity, expectedVersion);
+            }
         } else if (TaskEntityService.ET_NAME.equals(edmEntityType.getName())) {
-            this.taskEntityService.deleteEntity(foundEntity);
+            if (null == expectedVersion) {
+                this.taskEntityService.deleteEntity(foundEntity);
+            } else {
+                isDeleted = this.taskEntityService.deleteEntity(foundEntity, expectedVersion);
+            }
+        }
+
+        if (!isDeleted) {
+            throw new ODataApplicationException("Entity has been modified",
+                    HttpStatusCode.PRECONDITION_FAILED.getStatusCode(), Locale.ENGLISH);
         }
     }
 
@@ -234,8 +476,7 @@ public class EntityStorage {
             navigationTargetEntityCollection.setId(createId(sourceEntity,
                     "ID", TaskEntityService.NAV_NAME));
             navigationTargetEntityCollection.getEntities().addAll(
-                    this.taskEntityService.getAllByPredicate(t -> t.getTodoId() == todoId)
-                            .getEntities());
+                    this.taskEntityService.getAllByTodoId(todoId).getEntities());
         } else if (TaskEntityService.ET_FQN.getFullQualifiedNameAsString().equals(sourceEntityFqn)
                 && relatedEntityFqn.equals(TodoEntityService.ET_FQN))
         {
@@ -265,21 +506,51 @@ public class EntityStorage {
     private Entity getEntity(EdmEntityType edmEntityType, List<UriParameter> keyParams)
             throws ODataApplicationException
     {
-        /* FIXME: Try to find entity in a wasteful way */
-        Entity foundEntity = null;
+        Integer id = getKeyId(edmEntityType, keyParams);
+        Optional<Entity> foundEntity = Optional.empty();
+
+        if (null != id) {
+            if (TodoEntityService.ET_NAME.equals(edmEntityType.getName())) {
+                foundEntity = this.todoEntityService.findById(id);
+            } else if (TaskEntityService.ET_NAME.equals(edmEntityType.getName())) {
+                foundEntity = this.taskEntityService.findById(id);
+            }
+        }
 
-        if (TodoEntityService.ET_NAME.equals(edmEntityType.getName())) {
-            foundEntity = findEntity(edmEntityType, this.todoEntityService.getAll(), keyParams);
-        } else if (TaskEntityService.ET_NAME.equals(edmEntityType.getName())) {
-            foundEntity = findEntity(edmEntityType, this.taskEntityService.getAll(), keyParams);
+        return foundEntity.orElseThrow(() -> new ODataApplicationException(
+                "Entity for requested key doesn't exist",
+                HttpStatusCode.NOT_FOUND.getStatusCode(), Locale.ENGLISH));
+    }
+
+    /**
+     * Get id of the entity from given key
+     *
+     * @param  edmEntityType  A {@link EdmEntityType} to use
+     * @param  keyParams      A list of URI parameters
+     *
+     * @return Either the id; otherwise {@code null} if the key isn't a single integer id
+     **/
+
+    private static Integer getKeyId(EdmEntityType edmEntityType, List<UriParameter> keyParams) {
+        if (1 != keyParams.size() || null == keyParams.get(0).getText()) {
+            return null;
         }
 
-        if (null == foundEntity) {
-            throw new ODataApplicationException("Entity for requested key doesn't exist",
-                    HttpStatusCode.NOT_FOUND.getStatusCode(), Locale.ENGLISH);
+        UriParameter key = keyParams.get(0);
+        EdmProperty edmKeyProperty = (EdmProperty) edmEntityType.getProperty(key.getName());
+
+        if (null == edmKeyProperty) {
+            return null;
         }
 
-        return foundEntity;
+        try {
+            return ((EdmPrimitiveType) edmKeyProperty.getType()).valueOfString(key.getText(),
+                    edmKeyProperty.isNullable(), edmKeyProperty.getMaxLength(),
+                    edmKeyProperty.getPrecision(), edmKeyProperty.getScale(),
+                    edmKeyProperty.isUnicode(), Integer.class);
+        } catch (EdmPrimitiveTypeException e) {
+            return null;
+        }
     }
 
     /**
@@ -422,6 +693,40 @@ public class EntityStorage {
         }
     }
 
+    /**
+     * Create a strong ETag from given row version
+     *
+     * @param  version  Row version of the entity
+     *
+     * @return A quoted ETag value
+     **/
+
+    public static String createETag(long version) {
+        return "\"" + version + "\"";
+    }
+
+    /**
+     * Parse row version from given ETag
+     *
+     * @param  eTag  A quoted ETag value created by {@link #createETag(long)}
+     *
+     * @return Either parsed row version; otherwise {@code null} for foreign ETags
+     **/
+
+    public static Long parseETag(String eTag) {
+        Long retVal = null;
+
+        if (null != eTag && 2 < eTag.length() && eTag.startsWith("\"") && eTag.endsWith("\"")) {
+            try {
+                retVal = Long.parseLong(eTag.substring(1, eTag.length() - 1));
+            } catch (NumberFormatException e) {
+                /* Not one of ours */
+            }
+        }
+
+        return retVal;
+    }
+
     public static String getEntitySetName(Entity entity) {
         if(TodoEntityService.ET_FQN.getFullQualifiedNameAsString().equals(entity.getType())) {
             return TodoEntityService.ES_NAME;
@@ -0,0 +1,76 @@
+/**
+ * @package Showcase-OData-Quarkus
+ *
+ * @file Repository change
+ * @copyright 2024-present Christoph Kappel <christoph@unexist.dev>
+ * @version $Id$
+ *
+ * This program can be distributed under the terms of the Apache License v2.0.
+ * See the file LICENSE for details.
+ **/
+
+package dev.unexist.showcase.todo.domain;
+
+public final class Change {
+    public enum Type {
+        CREATED,
+        UPDATED,
+        DELETED
+    }
+
+    private final long sequence;
+    private final int id;
+    private final Type type;
+
+    /**
+     * Constructor
+     *
+     * @param  sequence  Sequence number of the change
+     * @param  id        Id of the changed entry
+     * @param  type      A {@link Type} of the change
+     **/
+
+    public Change(long sequence, int id, Type type) {
+        this.sequence = sequence;
+        this.id = id;
+        this.type = type;
+    }
+
+    /**
+     * Get sequence number of the change
+     *
+     * Sequence numbers are assigned per repository without gaps in commit order.
+     *
+     * @return Sequence number
+     **/
+
+    public long getSequence() {
+        return this.sequence;
+    }
+
+    /**
+     * Get id of the changed entry
+     *
+     * @return Id of the entry
+     **/
+
+    public int getId() {
+        return this.id;
+    }
+
+    /**
+     * Get type of the change
+     *
+     * @return A {@link Type} of the change
+     **/
+
+    public Type getType() {
+        return this.type;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Change{sequence=%d, id=%d, type=%s}",
+                this.sequence, this.id, this.type);
+    }
+}
@@ -0,0 +1,86 @@
+/**
+ * @package Showcase-OData-Quarkus
+ *
+ * @file Change event
+ * @copyright 2024-present Christoph Kappel <christoph@unexist.dev>
+ * @version $Id$
+ *
+ * This program can be distributed under the terms of the Apache License v2.0.
+ * See the file LICENSE for details.
+ **/
+
+package dev.unexist.showcase.todo.domain;
+
+public final class ChangeEvent {
+    public static final String ENTITY_TODO = "todo";
+    public static final String ENTITY_TASK = "task";
+
+    private final long sequence;
+    private final String entity;
+    private final int id;
+    private final Change.Type type;
+
+    /**
+     * Constructor
+     *
+     * @param  sequence  Sequence number of the event
+     * @param  entity    Name of the changed entity, e.g. {@link #ENTITY_TODO}
+     * @param  id        Id of the changed entry
+     * @param  type      A {@link Change.Type} of the change
+     **/
+
+    public ChangeEvent(long sequence, String entity, int id, Change.Type type) {
+        this.sequence = sequence;
+        this.entity = entity;
+        this.id = id;
+        this.type = type;
+    }
+
+    /**
+     * Get sequence number of the event
+     *
+     * Sequence numbers are monotonic over all entities and start over on restart.
+     *
+     * @return Sequence number
+     **/
+
+    public long getSequence() {
+        return this.sequence;
+    }
+
+    /**
+     * Get name of the changed entity
+     *
+     * @return Name of the entity
+     **/
+
+    public String getEntity() {
+        return this.entity;
+    }
+
+    /**
+     * Get id of the changed entry
+     *
+     * @return Id of the entry
+     **/
+
+    public int getId() {
+        return this.id;
+    }
+
+    /**
+     * Get type of the change
+     *
+     * @return A {@link Change.Type} of the change
+     **/
+
+    public Change.Type getType() {
+        return this.type;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ChangeEvent{sequence=%d, entity=%s, id=%d, type=%s}",
+                this.sequence, this.entity, this.id, this.type);
+    }
+}
@@ -0,0 +1,46 @@
+/**
+ * @package Showcase-OData-Quarkus
+ *
+ * @file Change listener
+ * @copyright 2024-present Christoph Kappel <christoph@unexist.dev>
+ * @version $Id$
+ *
+ * This program can be distributed under the terms of the Apache License v2.0.
+ * See the file LICENSE for details.
+ **/
+
+package dev.unexist.showcase.todo.domain;
+
+/**
+ * Listener for committed changes of {@link dev.unexist.showcase.todo.domain.todo.Todo} and
+ * {@link dev.unexist.showcase.todo.domain.task.Task} entries
+ *
+ * Beans implementing this interface are registered automatically. Events are delivered in
+ * sequence order on a thread of the event bus after the commit, one at a time per listener;
+ * listeners which fall too far behind are reset instead of slowing down writers.
+ **/
+
+public interface ChangeListener {
+
+    /**
+     * Handle a committed change
+     *
+     * Events just carry the id of the entry; the current state has to be read if required.
+     *
+     * @param  event  A {@link ChangeEvent} to handle
+     **/
+
+    void onChange(ChangeEvent event);
+
+    /**
+     * Handle lost events
+     *
+     * Called when a subscriber resumes from a sequence number which isn't kept anymore or
+     * falls too far behind, so all entries have to be read again.
+     *
+     * @param  sequence  Sequence number of the last event
+     **/
+
+    default void onReset(long sequence) {
+    }
+}
@@ -13,7 +13,10 @@ package dev.unexist.showcase.todo.domain;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
 
 public interface CrudRepository<K> {
 
@@ -27,6 +30,18 @@ public interface CrudRepository<K> {
 
     boolean add(K k);
 
+    /**
+     * Add all {@link K} entries at once
+     *
+     * The entries get a contiguous range of ids and are stored within a single write.
+     *
+     * @param  ks  A {@link List} of {@link K} entries to add
+     *
+     * @return Either {@code true} on success; otherwise {@code false}
+     **/
+
+    boolean addAll(List<K> ks);
+
     /**
      * Update {@link K} with given id
      *
@@ -37,6 +52,43 @@ public interface CrudRepository<K> {
 
     boolean update(K k);
 
+    /**
+     * Update {@link K} with given id only if its row version still matches
+     *
+     * @param  k                A {@link K} to update
+     * @param  expectedVersion  Expected row version of the entry
+     *
+     * @return Either {@code true} on success; otherwise {@code false} if not found or modified
+     **/
+
+    boolean update(K k, long expectedVersion);
+
+    /**
+     * Update {@link K} with given id atomically
+     *
+     * The updater gets the stored entry and returns a new one; no other write to the same id
+     * can happen in between, so concurrent updates are never lost.
+     *
+     * @param  id       Id of the entry to update
+     * @param  updater  A {@link UnaryOperator} to create the new entry from the stored one
+     *
+     * @return Either {@code true} on success; otherwise {@code false} if not found
+     **/
+
+    boolean update(int id, UnaryOperator<K> updater);
+
+    /**
+     * Update {@link K} with given id atomically only if its row version still matches
+     *
+     * @param  id               Id of the entry to update
+     * @param  updater          A {@link UnaryOperator} to create the new entry from the stored one
+     * @param  expectedVersion  Expected row version of the entry
+     *
+     * @return Either {@code true} on success; otherwise {@code false} if not found or modified
+     **/
+
+    boolean update(int id, UnaryOperator<K> updater, long expectedVersion);
+
     /**
      * Delete {@link K} with given id
      *
@@ -47,6 +99,17 @@ public interface CrudRepository<K> {
 
     boolean deleteById(int id);
 
+    /**
+     * Delete {@link K} with given id only if its row version still matches
+     *
+     * @param  id               Id to delete
+     * @param  expectedVersion  Expected row version of the entry
+     *
+     * @return Either {@code true} on success; otherwise {@code false} if not found or modified
+     **/
+
+    boolean deleteById(int id, long expectedVersion);
+
     /**
      * Get all {@link K} entries
      *
@@ -55,6 +118,17 @@ public interface CrudRepository<K> {
 
     List<K> getAll();
 
+    /**
+     * Get a page of {@link K} entries ordered by id
+     *
+     * @param  afterId  Id of the last entry of the previous page; {@code null} for the first page
+     * @param  limit    Maximum number of entries
+     *
+     * @return List of found {@link K}; might be empty
+     **/
+
+    List<K> getPage(Integer afterId, int limit);
+
     /**
      * Find {@link K} by given id
      *
@@ -65,6 +139,18 @@ public interface CrudRepository<K> {
 
     Optional<K> findById(int id);
 
+    /**
+     * Find row version of {@link K} by given id
+     *
+     * The row version starts at {@code 1} and is incremented on every update of the entry.
+     *
+     * @param  id  Id to find
+     *
+     * @return A {@link Optional} with the result of the lookup
+     **/
+
+    Optional<Long> findVersionById(int id);
+
     /**
      * Find {@link K} by given {@link Predicate}
      *
@@ -85,6 +171,70 @@ public interface CrudRepository<K> {
 
     List<K> findAllByPredicate(Predicate<K> filterBy);
 
+    /**
+     * Get number of stored {@link K} entries
+     *
+     * @return Number of entries
+     **/
+
+    int count();
+
+    /**
+     * Get version of this repository
+     *
+     * The version is incremented after every write, so readers can detect stale derived data.
+     *
+     * @return Current version
+     **/
+
+    long getVersion();
+
+    /**
+     * Get sequence number of the last change
+     *
+     * Every create, update and delete of a single entry gets the next sequence number. Inside
+     * of a read snapshot this is the last change the snapshot contains.
+     *
+     * @return Sequence number; {@code 0} if nothing changed yet
+     **/
+
+    long getChangeSequence();
+
+    /**
+     * Find all changes after given sequence number
+     *
+     * Only a bounded number of changes is kept; callers have to fall back to a full read
+     * when the result is empty. Inside of a read snapshot only the changes the snapshot
+     * contains are returned.
+     *
+     * @param  sequence  Sequence number of the last known change
+     *
+     * @return Either a {@link List} of changes in order; otherwise an empty {@link Optional}
+     *         if the sequence is unknown or too old
+     **/
+
+    Optional<List<Change>> findChangesSince(long sequence);
+
+    /**
+     * Get names of all sorted indexes
+     *
+     * @return A {@link Set} of index names; might be empty
+     **/
+
+    Set<String> getIndexNames();
+
+    /**
+     * Find all {@link K} within given range of a sorted index
+     *
+     * @param  indexName  Name of the index to use
+     * @param  range      A {@link IndexRange} to scan
+     *
+     * @return Either a lazy {@link Stream} in index order; otherwise an empty {@link Optional} when
+     *         there is no such index
+     **/
+
+    Optional<Stream<K>> findAllByIndex(String indexName, IndexRange range);
+
     /**
      * Delete all entries from repository
      **/
@@ -0,0 +1,242 @@
+/**
+ * @package Showcase-OData-Quarkus
+ *
+ * @file Index range class
+ * @copyright 2024-present Christoph Kappel <christoph@unexist.dev>
+ * @version $Id$
+ *
+ * This program can be distributed under the terms of the Apache License v2.0.
+ * See the file LICENSE for details.
+ **/
+
+package dev.unexist.showcase.todo.domain;
+
+import java.util.function.Function;
+
+public class IndexRange {
+    private Comparable<?> lower;
+    private boolean lowerInclusive;
+    private Comparable<?> upper;
+    private boolean upperInclusive;
+    private boolean descending;
+    private Integer afterId;
+
+    /**
+     * Create a range which covers the whole index
+     *
+     * @return A newly created {@link IndexRange}
+     **/
+
+    public static IndexRange all() {
+        return new IndexRange();
+    }
+
+    /**
+     * Create a range which covers exactly one value
+     *
+     * @param  value  Value to match
+     *
+     * @return A newly created {@link IndexRange}
+     **/
+
+    public static IndexRange exactly(Comparable<?> value) {
+        return new IndexRange()
+                .from(value, true)
+                .to(value, true);
+    }
+
+    /**
+     * Set lower bound of the range
+     *
+     * @param  value      Lower bound
+     * @param  inclusive  Whether the bound is included
+     *
+     * @return This {@link IndexRange}
+     **/
+
+    public IndexRange from(Comparable<?> value, boolean inclusive) {
+        this.lower = value;
+        this.lowerInclusive = inclusive;
+
+        return this;
+    }
+
+    /**
+     * Set upper bound of the range
+     *
+     * @param  value      Upper bound
+     * @param  inclusive  Whether the bound is included
+     *
+     * @return This {@link IndexRange}
+     **/
+
+    public IndexRange to(Comparable<?> value, boolean inclusive) {
+        this.upper = value;
+        this.upperInclusive = inclusive;
+
+        return this;
+    }
+
+    /**
+     * Set iteration order of the range
+     *
+     * @param  descending  Whether to iterate in descending order
+     *
+     * @return This {@link IndexRange}
+     **/
+
+    public IndexRange descending(boolean descending) {
+        this.descending = descending;
+
+        return this;
+    }
+
+    /**
+     * Start ascending iteration behind given id within the lower bound
+     *
+     * Entries with the same value are ordered by id, so this is a keyset cursor for ranges of
+     * exactly one value.
+     *
+     * @param  afterId  Last id of the previous page; {@code null} to start at the beginning
+     *
+     * @return This {@link IndexRange}
+     **/
+
+    public IndexRange after(Integer afterId) {
+        this.afterId = afterId;
+
+        return this;
+    }
+
+    /**
+     * Create a copy of this range with converted bounds
+     *
+     * @param  converter  A {@link Function} to convert a bound that is set
+     *
+     * @return A newly created {@link IndexRange}
+     **/
+
+    public IndexRange convert(Function<Comparable<?>, Comparable<?>> converter) {
+        IndexRange retVal = new IndexRange();
+
+        retVal.lower = null != this.lower ? converter.apply(this.lower) : null;
+        retVal.lowerInclusive = this.lowerInclusive;
+        retVal.upper = null != this.upper ? converter.apply(this.upper) : null;
+        retVal.upperInclusive = this.upperInclusive;
+        retVal.descending = this.descending;
+        retVal.afterId = this.afterId;
+
+        return retVal;
+    }
+
+    /**
+     * Get lower bound of the range
+     *
+     * @return Either lower bound; otherwise {@code null}
+     **/
+
+    public Comparable<?> getLower() {
+        return this.lower;
+    }
+
+    /**
+     * Whether the lower bound is included
+     *
+     * @return Either {@code true} if included; otherwise {@code false}
+     **/
+
+    public boolean isLowerInclusive() {
+        return this.lowerInclusive;
+    }
+
+    /**
+     * Get upper bound of the range
+     *
+     * @return Either upper bound; otherwise {@code null}
+     **/
+
+    public Comparable<?> getUpper() {
+        return this.upper;
+    }
+
+    /**
+     * Whether the upper bound is included
+     *
+     * @return Either {@code true} if included; otherwise {@code false}
+     **/
+
+    public boolean isUpperInclusive() {
+        return this.upperInclusive;
+    }
+
+    /**
+     * Whether the range is iterated in descending order
+     *
+     * @return Either {@code true} if descending; otherwise {@code false}
+     **/
+
+    public boolean isDescending() {
+        return this.descending;
+    }
+
+    /**
+     * Get id to start the iteration after
+     *
+     * @return Either id of the cursor; otherwise {@code null}
+     **/
+
+    public Integer getAfterId() {
+        return this.afterId;
+    }
+
+    /**
+     * Whether this range is bounded on either side
+     *
+     * @return Either {@code true} if bounded; otherwise {@code false}
+     **/
+
+    public boolean isBounded() {
+        return null != this.lower || null != this.upper;
+    }
+
+    /**
+     * Whether the range matches exactly one value
+     *
+     * @return Either {@code true} if both bounds are the same inclusive value; otherwise
+     *         {@code false}
+     **/
+
+    public boolean isExact() {
+        return null != this.lower && this.lower.equals(this.upper)
+                && this.lowerInclusive && this.upperInclusive;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+
+        if (null != this.lower) {
+            sb.append(this.lowerInclusive ? "[" : "(").append(this.lower);
+        } else {
+            sb.append("(*");
+        }
+
+        sb.append(",");
+
+        if (null != this.upper) {
+            sb.append(this.upper).append(this.upperInclusive ? "]" : ")");
+        } else {
+            sb.append("*)");
+        }
+
+        if (null != this.afterId) {
+            sb.append(" after ").append(this.afterId);
+        }
+
+        if (this.descending) {
+            sb.append(" desc");
+        }
+
+        return sb.toString();
+    }
+}
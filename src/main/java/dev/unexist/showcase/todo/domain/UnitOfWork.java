@@ -0,0 +1,113 @@
+/**
+ * @package Showcase-OData-Quarkus
+ *
+ * @file Unit of work interface
+ * @copyright 2024-present Christoph Kappel <christoph@unexist.dev>
+ * @version $Id$
+ *
+ * This program can be distributed under the terms of the Apache License v2.0.
+ * See the file LICENSE for details.
+ **/
+
+package dev.unexist.showcase.todo.domain;
+
+import java.util.function.Supplier;
+
+public interface UnitOfWork {
+
+    /**
+     * Begin a unit of work for the current thread
+     *
+     * All writes to repositories until {@link #commit()} or {@link #rollback()} are applied
+     * atomically; other units of work wait until this one is finished.
+     **/
+
+    void begin();
+
+    /**
+     * Keep all writes of the current unit of work
+     **/
+
+    void commit();
+
+    /**
+     * Revert all writes of the current unit of work in reverse order
+     **/
+
+    void rollback();
+
+    /**
+     * Whether the current thread has an active unit of work
+     *
+     * @return Either {@code true} if active; otherwise {@code false}
+     **/
+
+    boolean isActive();
+
+    /**
+     * Open a read snapshot for the current thread
+     *
+     * All reads of the current thread until {@link #closeSnapshot()} see the repositories at
+     * one consistent point in time without blocking writers; reads inside of an active unit of
+     * work still see its own writes.
+     **/
+
+    void openSnapshot();
+
+    /**
+     * Close the read snapshot of the current thread
+     **/
+
+    void closeSnapshot();
+
+    /**
+     * Run given action on a consistent read snapshot
+     *
+     * @param  action  A {@link Supplier} to run
+     * @param  <T>     Type of the result
+     *
+     * @return Result of the action
+     **/
+
+    default <T> T read(Supplier<T> action) {
+        this.openSnapshot();
+
+        try {
+            return action.get();
+        } finally {
+            this.closeSnapshot();
+        }
+    }
+
+    /**
+     * Run given action atomically
+     *
+     * The action joins the active unit of work of the current thread, so callers inside of a
+     * batch changeset are rolled back together with it.
+     *
+     * @param  action  A {@link Supplier} to run
+     * @param  <T>     Type of the result
+     *
+     * @return Result of the action
+     **/
+
+    default <T> T execute(Supplier<T> action) {
+        if (this.isActive()) {
+            return action.get();
+        }
+
+        this.begin();
+
+        try {
+            T retVal = action.get();
+
+            this.commit();
+
+            return retVal;
+        } catch (RuntimeException e) {
+            this.rollback();
+
+            throw e;
+        }
+    }
+}
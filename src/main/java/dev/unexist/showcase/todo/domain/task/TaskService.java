@@ -11,36 +11,73 @@
 
 package dev.unexist.showcase.todo.domain.task;
 
+import dev.unexist.showcase.todo.domain.Change;
 import dev.unexist.showcase.todo.domain.CrudRepository;
+import dev.unexist.showcase.todo.domain.IndexRange;
 
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @ApplicationScoped
 public class TaskService {
+    private static final String TODO_ID_INDEX = "todoId";
 
     @Inject
     CrudRepository<Task> taskRepository;
 
     /**
-     * Create new {@link Task} entry and store it in repository
+     * Create new {@link Task} entry of given {@link dev.unexist.showcase.todo.domain.todo.Todo}
+     * and store it in repository
      *
-     * @param  base  A {@link TaskBase} entry
+     * @param  todoId  Id of the parent entry
+     * @param  base    A {@link TaskBase} entry
      *
      * @return Either id of the entry on success; otherwise {@code -1}
      **/
 
-    public Optional<Task> create(TaskBase base) {
+    public Optional<Task> create(int todoId, TaskBase base) {
         Task task = new Task(base);
 
+        task.setTodoId(todoId);
+
         boolean retval = this.taskRepository.add(task);
 
         return Optional.ofNullable(retval ? task : null);
     }
 
+    /**
+     * Create new {@link Task} entries of given {@link dev.unexist.showcase.todo.domain.todo.Todo}
+     * and store them in a single write
+     *
+     * @param  todoId  Id of the parent entry
+     * @param  bases   A {@link List} of {@link TaskBase} entries
+     *
+     * @return Either created entries in order of the bases on success; otherwise an empty
+     *         {@link Optional}
+     **/
+
+    public Optional<List<Task>> createAll(int todoId, List<TaskBase> bases) {
+        List<Task> tasks = new ArrayList<>(bases.size());
+
+        for (TaskBase base : bases) {
+            Task task = new Task(base);
+
+            task.setTodoId(todoId);
+            tasks.add(task);
+        }
+
+        boolean retval = this.taskRepository.addAll(tasks);
+
+        return Optional.ofNullable(retval ? tasks : null);
+    }
+
     /**
      * Update {@link Task} at with given id
      *
@@ -51,16 +88,39 @@ public class TaskService {
      **/
 
     public boolean update(int id, TaskBase base) {
-        Optional<Task> task = this.findById(id);
-        boolean ret = false;
+        return this.taskRepository.update(id, task -> {
+            Task updated = new Task(task);
 
-        if (task.isPresent()) {
-            task.get().update(base);
+            updated.update(base);
+            updated.setId(id);
+            updated.setTodoId(task.getTodoId());
 
-            ret = this.taskRepository.update(task.get());
-        }
+            return updated;
+        });
+    }
+
+    /**
+     * Update {@link Task} with given id only if its row version still matches
+     *
+     * The update is applied to a copy, so the stored entry stays untouched on conflict.
+     *
+     * @param  id               Id of the {@link Task} to update
+     * @param  base             Values for the entry
+     * @param  expectedVersion  Expected row version of the entry
+     *
+     * @return Either {@code true} on success; otherwise {@code false} if not found or modified
+     **/
 
-        return ret;
+    public boolean update(int id, TaskBase base, long expectedVersion) {
+        return this.taskRepository.update(id, task -> {
+            Task updated = new Task(task);
+
+            updated.update(base);
+            updated.setId(id);
+            updated.setTodoId(task.getTodoId());
+
+            return updated;
+        }, expectedVersion);
     }
 
     /**
@@ -75,6 +135,19 @@ public class TaskService {
         return this.taskRepository.deleteById(id);
     }
 
+    /**
+     * Delete {@link Task} with given id only if its row version still matches
+     *
+     * @param  id               Id of the {@link Task} to delete
+     * @param  expectedVersion  Expected row version of the entry
+     *
+     * @return Either {@code true} on success; otherwise {@code false} if not found or modified
+     **/
+
+    public boolean delete(int id, long expectedVersion) {
+        return this.taskRepository.deleteById(id, expectedVersion);
+    }
+
     /**
      * Get all {@link Task} entries
      *
@@ -97,6 +170,31 @@ public class TaskService {
         return this.taskRepository.findAllByPredicate(filterBy);
     }
 
+    /**
+     * Find a page of {@link Task} entries of given {@link dev.unexist.showcase.todo.domain.todo.Todo}
+     *
+     * Uses the {@code todoId} index when available, so the cost depends on the number of tasks
+     * of the todo instead of all tasks.
+     *
+     * @param  todoId   Id of the parent entry
+     * @param  afterId  Id of the last entry of the previous page; {@code null} for the first page
+     * @param  limit    Maximum number of entries
+     *
+     * @return List of found {@link Task} ordered by id; might be empty
+     **/
+
+    public List<Task> findAllByTodoId(int todoId, Integer afterId, int limit) {
+        Optional<Stream<Task>> tasks = this.taskRepository.findAllByIndex(TODO_ID_INDEX,
+                IndexRange.exactly(todoId).after(afterId));
+
+        return tasks
+                .orElseGet(() -> this.taskRepository.findAllByPredicate(task ->
+                        todoId == task.getTodoId() && (null == afterId || afterId < task.getId()))
+                        .stream())
+                .limit(limit)
+                .collect(Collectors.toUnmodifiableList());
+    }
+
     /**
      * Find {@link Task} by given id
      *
@@ -108,4 +206,82 @@ public class TaskService {
     public Optional<Task> findById(int id) {
         return this.taskRepository.findById(id);
     }
+
+    /**
+     * Find row version of {@link Task} by given id
+     *
+     * @param  id  Id of the {@link Task} to find
+     *
+     * @return A {@link Optional} with the result of the lookup
+     **/
+
+    public Optional<Long> findVersionById(int id) {
+        return this.taskRepository.findVersionById(id);
+    }
+
+    /**
+     * Get number of all {@link Task} entries
+     *
+     * @return Number of entries
+     **/
+
+    public int count() {
+        return this.taskRepository.count();
+    }
+
+    /**
+     * Get version of all {@link Task} entries
+     *
+     * @return Current version; incremented after every write
+     **/
+
+    public long getVersion() {
+        return this.taskRepository.getVersion();
+    }
+
+    /**
+     * Get sequence number of the last change of any {@link Task} entry
+     *
+     * @return Sequence number; {@code 0} if nothing changed yet
+     **/
+
+    public long getChangeSequence() {
+        return this.taskRepository.getChangeSequence();
+    }
+
+    /**
+     * Find all changes of {@link Task} entries after given sequence number
+     *
+     * @param  sequence  Sequence number of the last known change
+     *
+     * @return Either a {@link List} of changes in order; otherwise an empty {@link Optional}
+     *         if the sequence is unknown or too old
+     **/
+
+    public Optional<List<Change>> findChangesSince(long sequence) {
+        return this.taskRepository.findChangesSince(sequence);
+    }
+
+    /**
+     * Get names of all sorted indexes
+     *
+     * @return A {@link Set} of index names; might be empty
+     **/
+
+    public Set<String> getIndexNames() {
+        return this.taskRepository.getIndexNames();
+    }
+
+    /**
+     * Find all {@link Task} entries within given range of a sorted index
+     *
+     * @param  indexName  Name of the index to use
+     * @param  range      A {@link IndexRange} to scan
+     *
+     * @return Either a lazy {@link Stream} in index order; otherwise an empty {@link Optional}
+     **/
+
+    public Optional<Stream<Task>> findAllByIndex(String indexName, IndexRange range) {
+        return this.taskRepository.findAllByIndex(indexName, range);
+    }
 }
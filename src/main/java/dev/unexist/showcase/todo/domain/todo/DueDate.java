@@ -15,7 +15,11 @@ import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import dev.unexist.showcase.todo.infrastructure.serde.DateDeserializer;
 import dev.unexist.showcase.todo.infrastructure.serde.DateSerializer;
+import dev.unexist.showcase.todo.infrastructure.serde.JsonbDateDeserializer;
+import dev.unexist.showcase.todo.infrastructure.serde.JsonbDateSerializer;
 
+import javax.json.bind.annotation.JsonbTypeDeserializer;
+import javax.json.bind.annotation.JsonbTypeSerializer;
 import java.time.LocalDate;
 
 public class DueDate {
@@ -23,10 +27,14 @@ public class DueDate {
 
     @JsonSerialize(using = DateSerializer.class)
     @JsonDeserialize(using = DateDeserializer.class)
+    @JsonbTypeSerializer(JsonbDateSerializer.class)
+    @JsonbTypeDeserializer(JsonbDateDeserializer.class)
     private LocalDate start;
 
     @JsonSerialize(using = DateSerializer.class)
     @JsonDeserialize(using = DateDeserializer.class)
+    @JsonbTypeSerializer(JsonbDateSerializer.class)
+    @JsonbTypeDeserializer(JsonbDateDeserializer.class)
     private LocalDate due;
 
     /**
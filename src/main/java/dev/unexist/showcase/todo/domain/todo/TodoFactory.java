@@ -11,8 +11,9 @@
 
 package dev.unexist.showcase.todo.domain.todo;
 
+import dev.unexist.showcase.todo.infrastructure.serde.IsoDateCodec;
+
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
 import java.util.Objects;
 
 public class TodoFactory {
@@ -58,7 +59,6 @@ public class TodoFactory {
     private static LocalDate createDate(String dateStr) {
         Objects.requireNonNull(dateStr, "Date string cannot be null");
 
-        return LocalDate.from(
-                DateTimeFormatter.ofPattern(DueDate.DATE_PATTERN).parse(dateStr));
+        return IsoDateCodec.parse(dateStr);
     }
 }
@@ -11,14 +11,18 @@
 
 package dev.unexist.showcase.todo.domain.todo;
 
+import dev.unexist.showcase.todo.domain.Change;
 import dev.unexist.showcase.todo.domain.CrudRepository;
+import dev.unexist.showcase.todo.domain.IndexRange;
 import dev.unexist.showcase.todo.domain.task.Task;
 
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.function.Predicate;
+import java.util.stream.Stream;
 
 @ApplicationScoped
 public class TodoService {
@@ -52,16 +56,37 @@ public class TodoService {
      **/
 
     public boolean update(int id, TodoBase base) {
-        Optional<Todo> todo = this.findById(id);
-        boolean ret = false;
+        return this.todoRepository.update(id, todo -> {
+            Todo updated = new Todo(todo);
 
-        if (todo.isPresent()) {
-            todo.get().update(base);
+            updated.update(base);
+            updated.setId(id);
 
-            ret = this.todoRepository.update(todo.get());
-        }
+            return updated;
+        });
+    }
+
+    /**
+     * Update {@link Todo} with given id only if its row version still matches
+     *
+     * The update is applied to a copy, so the stored entry stays untouched on conflict.
+     *
+     * @param  id               Id of the {@link Todo} to update
+     * @param  base             Values for the entry
+     * @param  expectedVersion  Expected row version of the entry
+     *
+     * @return Either {@code true} on success; otherwise {@code false} if not found or modified
+     **/
+
+    public boolean update(int id, TodoBase base, long expectedVersion) {
+        return this.todoRepository.update(id, todo -> {
+            Todo updated = new Todo(todo);
+
+            updated.update(base);
+            updated.setId(id);
 
-        return ret;
+            return updated;
+        }, expectedVersion);
     }
 
     /**
@@ -76,6 +101,19 @@ public class TodoService {
         return this.todoRepository.deleteById(id);
     }
 
+    /**
+     * Delete {@link Todo} with given id only if its row version still matches
+     *
+     * @param  id               Id of the {@link Todo} to delete
+     * @param  expectedVersion  Expected row version of the entry
+     *
+     * @return Either {@code true} on success; otherwise {@code false} if not found or modified
+     **/
+
+    public boolean delete(int id, long expectedVersion) {
+        return this.todoRepository.deleteById(id, expectedVersion);
+    }
+
     /**
      * Get all {@link Todo} entries
      *
@@ -86,6 +124,19 @@ public class TodoService {
         return this.todoRepository.getAll();
     }
 
+    /**
+     * Get a page of {@link Todo} entries ordered by id
+     *
+     * @param  afterId  Id of the last entry of the previous page; {@code null} for the first page
+     * @param  limit    Maximum number of entries
+     *
+     * @return List of found {@link Todo}; might be empty
+     **/
+
+    public List<Todo> getPage(Integer afterId, int limit) {
+        return this.todoRepository.getPage(afterId, limit);
+    }
+
     /**
      * Find all {@link Task} entries by given {@link Predicate}
      *
@@ -109,4 +160,82 @@ public class TodoService {
     public Optional<Todo> findById(int id) {
         return this.todoRepository.findById(id);
     }
+
+    /**
+     * Find row version of {@link Todo} by given id
+     *
+     * @param  id  Id of the {@link Todo} to find
+     *
+     * @return A {@link Optional} with the result of the lookup
+     **/
+
+    public Optional<Long> findVersionById(int id) {
+        return this.todoRepository.findVersionById(id);
+    }
+
+    /**
+     * Get number of all {@link Todo} entries
+     *
+     * @return Number of entries
+     **/
+
+    public int count() {
+        return this.todoRepository.count();
+    }
+
+    /**
+     * Get version of all {@link Todo} entries
+     *
+     * @return Current version; incremented after every write
+     **/
+
+    public long getVersion() {
+        return this.todoRepository.getVersion();
+    }
+
+    /**
+     * Get sequence number of the last change of any {@link Todo} entry
+     *
+     * @return Sequence number; {@code 0} if nothing changed yet
+     **/
+
+    public long getChangeSequence() {
+        return this.todoRepository.getChangeSequence();
+    }
+
+    /**
+     * Find all changes of {@link Todo} entries after given sequence number
+     *
+     * @param  sequence  Sequence number of the last known change
+     *
+     * @return Either a {@link List} of changes in order; otherwise an empty {@link Optional}
+     *         if the sequence is unknown or too old
+     **/
+
+    public Optional<List<Change>> findChangesSince(long sequence) {
+        return this.todoRepository.findChangesSince(sequence);
+    }
+
+    /**
+     * Get names of all sorted indexes
+     *
+     * @return A {@link Set} of index names; might be empty
+     **/
+
+    public Set<String> getIndexNames() {
+        return this.todoRepository.getIndexNames();
+    }
+
+    /**
+     * Find all {@link Todo} entries within given range of a sorted index
+     *
+     * @param  indexName  Name of the index to use
+     * @param  range      A {@link IndexRange} to scan
+     *
+     * @return Either a lazy {@link Stream} in index order; otherwise an empty {@link Optional}
+     **/
+
+    public Optional<Stream<Todo>> findAllByIndex(String indexName, IndexRange range) {
+        return this.todoRepository.findAllByIndex(indexName, range);
+    }
 }
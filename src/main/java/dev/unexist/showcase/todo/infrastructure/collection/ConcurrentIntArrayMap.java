@@ -0,0 +1,265 @@
+/**
+ * @package Showcase-OData-Quarkus
+ *
+ * @file Concurrent map of dense int keys
+ * @copyright 2024-present Christoph Kappel <christoph@unexist.dev>
+ * @version $Id$
+ *
+ * This program can be distributed under the terms of the Apache License v2.0.
+ * See the file LICENSE for details.
+ **/
+
+package dev.unexist.showcase.todo.infrastructure.collection;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+public class ConcurrentIntArrayMap<V> {
+    private static final int CHUNK_BITS = 12;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final int DEFAULT_CHUNKS = 16;
+
+    /* Values live in fixed chunks, so growing just copies the chunk references */
+    private volatile AtomicReferenceArray<AtomicReferenceArray<V>> directory;
+    private final AtomicInteger size;
+
+    /* Guards installing chunks and replacing the directory; a lock keeps virtual threads unpinned */
+    private final ReentrantLock directoryLock;
+
+    /**
+     * Constructor
+     **/
+
+    public ConcurrentIntArrayMap() {
+        this.directory = new AtomicReferenceArray<>(DEFAULT_CHUNKS);
+        this.size = new AtomicInteger();
+        this.directoryLock = new ReentrantLock();
+    }
+
+    /**
+     * Get value of given key
+     *
+     * @param  key  Key to look up
+     *
+     * @return Either the value; otherwise {@code null}
+     **/
+
+    public V get(int key) {
+        AtomicReferenceArray<V> chunk = chunkOf(key);
+
+        return null != chunk ? chunk.get(key & CHUNK_MASK) : null;
+    }
+
+    /**
+     * Put value for given key
+     *
+     * Keys are used as position, so they should be dense and must not be negative.
+     *
+     * @param  key    Key of the entry
+     * @param  value  Value of the entry; must not be {@code null}
+     *
+     * @return Either the previous value; otherwise {@code null}
+     **/
+
+    public V put(int key, V value) {
+        if (null == value) {
+            throw new NullPointerException("Value cannot be null");
+        }
+
+        if (0 > key) {
+            throw new IllegalArgumentException("Key cannot be negative");
+        }
+
+        AtomicReferenceArray<V> chunk = chunkOf(key);
+
+        if (null == chunk) {
+            chunk = createChunk(key >>> CHUNK_BITS);
+        }
+
+        V retVal = chunk.getAndSet(key & CHUNK_MASK, value);
+
+        if (null == retVal) {
+            this.size.incrementAndGet();
+        }
+
+        return retVal;
+    }
+
+    /**
+     * Remove entry of given key
+     *
+     * @param  key  Key to remove
+     *
+     * @return Either the removed value; otherwise {@code null}
+     **/
+
+    public V remove(int key) {
+        AtomicReferenceArray<V> chunk = chunkOf(key);
+        V retVal = null != chunk ? chunk.getAndSet(key & CHUNK_MASK, null) : null;
+
+        if (null != retVal) {
+            this.size.decrementAndGet();
+        }
+
+        return retVal;
+    }
+
+    /**
+     * Get smallest key with a value that is equal to or greater than given key
+     *
+     * @param  from  Key to start at
+     *
+     * @return Either the found key; otherwise {@code -1}
+     **/
+
+    public int nextKey(int from) {
+        AtomicReferenceArray<AtomicReferenceArray<V>> chunks = this.directory;
+
+        for (int key = Math.max(0, from); key >= 0 && (key >>> CHUNK_BITS) < chunks.length(); ) {
+            AtomicReferenceArray<V> chunk = chunks.get(key >>> CHUNK_BITS);
+
+            if (null == chunk) {
+                /* Skip the whole chunk */
+                key = ((key >>> CHUNK_BITS) + 1) << CHUNK_BITS;
+
+                continue;
+            }
+
+            if (null != chunk.get(key & CHUNK_MASK)) {
+                return key;
+            }
+
+            key++;
+        }
+
+        return -1;
+    }
+
+    /**
+     * Get largest key with a value that is equal to or less than given key
+     *
+     * @param  from  Key to start at
+     *
+     * @return Either the found key; otherwise {@code -1}
+     **/
+
+    public int previousKey(int from) {
+        AtomicReferenceArray<AtomicReferenceArray<V>> chunks = this.directory;
+        int key = (int) Math.min(from, ((long) chunks.length() << CHUNK_BITS) - 1);
+
+        while (0 <= key) {
+            AtomicReferenceArray<V> chunk = chunks.get(key >>> CHUNK_BITS);
+
+            if (null == chunk) {
+                key = ((key >>> CHUNK_BITS) << CHUNK_BITS) - 1;
+
+                continue;
+            }
+
+            if (null != chunk.get(key & CHUNK_MASK)) {
+                return key;
+            }
+
+            key--;
+        }
+
+        return -1;
+    }
+
+    /**
+     * Get number of entries
+     *
+     * @return Number of entries
+     **/
+
+    public int size() {
+        return this.size.get();
+    }
+
+    /**
+     * Whether the map is empty
+     *
+     * @return Either {@code true} if empty; otherwise {@code false}
+     **/
+
+    public boolean isEmpty() {
+        return 0 == this.size.get();
+    }
+
+    /**
+     * Remove all entries
+     *
+     * Writes that run concurrently to this may get lost.
+     **/
+
+    public void clear() {
+        this.directoryLock.lock();
+
+        try {
+            this.directory = new AtomicReferenceArray<>(DEFAULT_CHUNKS);
+            this.size.set(0);
+        } finally {
+            this.directoryLock.unlock();
+        }
+    }
+
+    private AtomicReferenceArray<V> chunkOf(int key) {
+        AtomicReferenceArray<AtomicReferenceArray<V>> chunks = this.directory;
+        int index = key >>> CHUNK_BITS;
+
+        return 0 <= key && index < chunks.length() ? chunks.get(index) : null;
+    }
+
+    /**
+     * Create chunk of given index and grow the directory if necessary
+     *
+     * Chunks are only installed while holding the lock, so growing never loses one.
+     *
+     * @param  index  Index of the chunk
+     *
+     * @return Either the new chunk; otherwise the one another writer installed meanwhile
+     **/
+
+    private AtomicReferenceArray<V> createChunk(int index) {
+        this.directoryLock.lock();
+
+        try {
+            return this.installChunk(index);
+        } finally {
+            this.directoryLock.unlock();
+        }
+    }
+
+    private AtomicReferenceArray<V> installChunk(int index) {
+        AtomicReferenceArray<AtomicReferenceArray<V>> chunks = this.directory;
+
+        if (index >= chunks.length()) {
+            int length = chunks.length();
+
+            while (index >= length) {
+                length <<= 1;
+            }
+
+            AtomicReferenceArray<AtomicReferenceArray<V>> newChunks =
+                    new AtomicReferenceArray<>(length);
+
+            for (int i = 0; i < chunks.length(); i++) {
+                newChunks.set(i, chunks.get(i));
+            }
+
+            this.directory = chunks = newChunks;
+        }
+
+        AtomicReferenceArray<V> retVal = chunks.get(index);
+
+        if (null == retVal) {
+            retVal = new AtomicReferenceArray<>(CHUNK_SIZE);
+
+            chunks.set(index, retVal);
+        }
+
+        return retVal;
+    }
+}
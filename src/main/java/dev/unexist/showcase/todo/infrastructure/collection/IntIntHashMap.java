@@ -0,0 +1,253 @@
+/**
+ * @package Showcase-OData-Quarkus
+ *
+ * @file Primitive int to int hash map
+ * @copyright 2024-present Christoph Kappel <christoph@unexist.dev>
+ * @version $Id$
+ *
+ * This program can be distributed under the terms of the Apache License v2.0.
+ * See the file LICENSE for details.
+ **/
+
+package dev.unexist.showcase.todo.infrastructure.collection;
+
+import java.util.Arrays;
+
+public class IntIntHashMap {
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final float LOAD_FACTOR = 0.5f;
+
+    /* Multiplier of the golden ratio to spread sequential ids */
+    private static final int HASH_MULTIPLIER = 0x9e3779b9;
+
+    /* Marks free slots; the key itself is kept aside, so no extra array is needed */
+    private static final int FREE_KEY = 0;
+
+    private int[] keys;
+    private int[] values;
+    private int size;
+    private int mask;
+    private int resizeAt;
+    private boolean hasFreeKey;
+    private int freeKeyValue;
+
+    /**
+     * Constructor
+     **/
+
+    public IntIntHashMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param  expectedSize  Expected number of entries
+     **/
+
+    public IntIntHashMap(int expectedSize) {
+        allocate(capacityFor(expectedSize));
+    }
+
+    /**
+     * Get value of given key
+     *
+     * @param  key           Key to look up
+     * @param  defaultValue  Value to return for missing keys
+     *
+     * @return Either the value; otherwise the default value
+     **/
+
+    public int getOrDefault(int key, int defaultValue) {
+        if (FREE_KEY == key) {
+            return this.hasFreeKey ? this.freeKeyValue : defaultValue;
+        }
+
+        int slot = findSlot(key);
+
+        return FREE_KEY != this.keys[slot] ? this.values[slot] : defaultValue;
+    }
+
+    /**
+     * Whether the map contains given key
+     *
+     * @param  key  Key to look up
+     *
+     * @return Either {@code true} if found; otherwise {@code false}
+     **/
+
+    public boolean containsKey(int key) {
+        return FREE_KEY == key ? this.hasFreeKey : FREE_KEY != this.keys[findSlot(key)];
+    }
+
+    /**
+     * Put value for given key
+     *
+     * @param  key    Key of the entry
+     * @param  value  Value of the entry
+     **/
+
+    public void put(int key, int value) {
+        if (FREE_KEY == key) {
+            if (!this.hasFreeKey) {
+                this.hasFreeKey = true;
+                this.size++;
+            }
+
+            this.freeKeyValue = value;
+
+            return;
+        }
+
+        int slot = findSlot(key);
+
+        this.values[slot] = value;
+
+        if (FREE_KEY == this.keys[slot]) {
+            this.keys[slot] = key;
+
+            if (++this.size > this.resizeAt) {
+                allocate(this.keys.length << 1);
+            }
+        }
+    }
+
+    /**
+     * Remove entry of given key
+     *
+     * @param  key  Key to remove
+     *
+     * @return Either {@code true} if removed; otherwise {@code false}
+     **/
+
+    public boolean remove(int key) {
+        if (FREE_KEY == key) {
+            boolean retVal = this.hasFreeKey;
+
+            if (retVal) {
+                this.hasFreeKey = false;
+                this.size--;
+            }
+
+            return retVal;
+        }
+
+        int slot = findSlot(key);
+
+        if (FREE_KEY == this.keys[slot]) {
+            return false;
+        }
+
+        this.keys[slot] = FREE_KEY;
+        this.size--;
+
+        shiftBack(slot);
+
+        return true;
+    }
+
+    /**
+     * Get number of entries
+     *
+     * @return Number of entries
+     **/
+
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Whether the map is empty
+     *
+     * @return Either {@code true} if empty; otherwise {@code false}
+     **/
+
+    public boolean isEmpty() {
+        return 0 == this.size;
+    }
+
+    /**
+     * Remove all entries
+     **/
+
+    public void clear() {
+        Arrays.fill(this.keys, FREE_KEY);
+
+        this.hasFreeKey = false;
+        this.size = 0;
+    }
+
+    /**
+     * Find slot of given key with linear probing
+     *
+     * @param  key  Key to look up
+     *
+     * @return Either the slot of the key; otherwise the free slot it belongs to
+     **/
+
+    private int findSlot(int key) {
+        int slot = (key * HASH_MULTIPLIER) & this.mask;
+
+        while (FREE_KEY != this.keys[slot] && key != this.keys[slot]) {
+            slot = (slot + 1) & this.mask;
+        }
+
+        return slot;
+    }
+
+    /**
+     * Move entries behind a freed slot back, so probing doesn't stop at the hole
+     *
+     * @param  freeSlot  Slot that has just been freed
+     **/
+
+    private void shiftBack(int freeSlot) {
+        int slot = (freeSlot + 1) & this.mask;
+
+        while (FREE_KEY != this.keys[slot]) {
+            int idealSlot = (this.keys[slot] * HASH_MULTIPLIER) & this.mask;
+
+            /* Only move entries whose probe sequence passes the free slot */
+            if (((slot - idealSlot) & this.mask) >= ((slot - freeSlot) & this.mask)) {
+                this.keys[freeSlot] = this.keys[slot];
+                this.values[freeSlot] = this.values[slot];
+                this.keys[slot] = FREE_KEY;
+
+                freeSlot = slot;
+            }
+
+            slot = (slot + 1) & this.mask;
+        }
+    }
+
+    private void allocate(int capacity) {
+        int[] oldKeys = this.keys;
+        int[] oldValues = this.values;
+
+        this.keys = new int[capacity];
+        this.values = new int[capacity];
+        this.mask = capacity - 1;
+        this.resizeAt = (int) (capacity * LOAD_FACTOR);
+
+        if (null != oldKeys) {
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (FREE_KEY != oldKeys[i]) {
+                    int slot = findSlot(oldKeys[i]);
+
+                    this.keys[slot] = oldKeys[i];
+                    this.values[slot] = oldValues[i];
+                }
+            }
+        }
+    }
+
+    private static int capacityFor(int expectedSize) {
+        int capacity = DEFAULT_CAPACITY;
+
+        while (capacity * LOAD_FACTOR < expectedSize) {
+            capacity <<= 1;
+        }
+
+        return capacity;
+    }
+}
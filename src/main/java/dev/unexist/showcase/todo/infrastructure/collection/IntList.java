@@ -0,0 +1,176 @@
+/**
+ * @package Showcase-OData-Quarkus
+ *
+ * @file Primitive int list
+ * @copyright 2024-present Christoph Kappel <christoph@unexist.dev>
+ * @version $Id$
+ *
+ * This program can be distributed under the terms of the Apache License v2.0.
+ * See the file LICENSE for details.
+ **/
+
+package dev.unexist.showcase.todo.infrastructure.collection;
+
+import java.util.Arrays;
+
+public class IntList {
+    private static final int DEFAULT_CAPACITY = 4;
+
+    private int[] values;
+    private int size;
+
+    /**
+     * Constructor
+     **/
+
+    public IntList() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param  capacity  Initial capacity
+     **/
+
+    public IntList(int capacity) {
+        this.values = new int[Math.max(1, capacity)];
+    }
+
+    /**
+     * Append value
+     *
+     * @param  value  Value to append
+     **/
+
+    public void add(int value) {
+        ensureCapacity(this.size + 1);
+
+        this.values[this.size++] = value;
+    }
+
+    /**
+     * Insert value at given position
+     *
+     * @param  index  Position to insert at
+     * @param  value  Value to insert
+     **/
+
+    public void insert(int index, int value) {
+        if (0 > index || this.size < index) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds");
+        }
+
+        ensureCapacity(this.size + 1);
+
+        System.arraycopy(this.values, index, this.values, index + 1, this.size - index);
+
+        this.values[index] = value;
+        this.size++;
+    }
+
+    /**
+     * Get value at given position
+     *
+     * @param  index  Position of the value
+     *
+     * @return Value at the position
+     **/
+
+    public int get(int index) {
+        if (0 > index || this.size <= index) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds");
+        }
+
+        return this.values[index];
+    }
+
+    /**
+     * Remove value at given position
+     *
+     * @param  index  Position of the value
+     *
+     * @return Removed value
+     **/
+
+    public int removeAt(int index) {
+        int retVal = get(index);
+
+        System.arraycopy(this.values, index + 1, this.values, index, this.size - index - 1);
+
+        this.size--;
+
+        return retVal;
+    }
+
+    /**
+     * Search value in a list sorted in ascending order
+     *
+     * @param  value  Value to look for
+     *
+     * @return Either the position of the value; otherwise {@code -(insertion point) - 1}
+     **/
+
+    public int binarySearch(int value) {
+        return Arrays.binarySearch(this.values, 0, this.size, value);
+    }
+
+    /**
+     * Get number of values
+     *
+     * @return Number of values
+     **/
+
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Whether the list is empty
+     *
+     * @return Either {@code true} if empty; otherwise {@code false}
+     **/
+
+    public boolean isEmpty() {
+        return 0 == this.size;
+    }
+
+    /**
+     * Copy values within given range
+     *
+     * @param  from  Position of the first value, inclusive
+     * @param  to    Position of the last value, exclusive
+     *
+     * @return Array of the values
+     **/
+
+    public int[] toArray(int from, int to) {
+        return Arrays.copyOfRange(this.values, from, to);
+    }
+
+    /**
+     * Copy all values
+     *
+     * @return Array of the values
+     **/
+
+    public int[] toArray() {
+        return Arrays.copyOf(this.values, this.size);
+    }
+
+    /**
+     * Remove all values
+     **/
+
+    public void clear() {
+        this.size = 0;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > this.values.length) {
+            /* Grow by half, like ArrayList does */
+            this.values = Arrays.copyOf(this.values,
+                    Math.max(capacity, this.values.length + (this.values.length >> 1)));
+        }
+    }
+}
@@ -0,0 +1,264 @@
+/**
+ * @package Showcase-OData-Quarkus
+ *
+ * @file Primitive int keyed hash map
+ * @copyright 2024-present Christoph Kappel <christoph@unexist.dev>
+ * @version $Id$
+ *
+ * This program can be distributed under the terms of the Apache License v2.0.
+ * See the file LICENSE for details.
+ **/
+
+package dev.unexist.showcase.todo.infrastructure.collection;
+
+import java.util.Arrays;
+import java.util.function.IntFunction;
+
+public class IntObjectHashMap<V> {
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final float LOAD_FACTOR = 0.5f;
+
+    /* Multiplier of the golden ratio to spread sequential ids */
+    private static final int HASH_MULTIPLIER = 0x9e3779b9;
+
+    private int[] keys;
+    private Object[] values;
+    private int size;
+    private int mask;
+    private int resizeAt;
+
+    /**
+     * Consumer of key and value pairs
+     **/
+
+    @FunctionalInterface
+    public interface EntryConsumer<V> {
+        void accept(int key, V value);
+    }
+
+    /**
+     * Constructor
+     **/
+
+    public IntObjectHashMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param  expectedSize  Expected number of entries
+     **/
+
+    public IntObjectHashMap(int expectedSize) {
+        allocate(capacityFor(expectedSize));
+    }
+
+    /**
+     * Get value of given key
+     *
+     * @param  key  Key to look up
+     *
+     * @return Either the value; otherwise {@code null}
+     **/
+
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        int slot = findSlot(key);
+
+        return (V) this.values[slot];
+    }
+
+    /**
+     * Put value for given key
+     *
+     * @param  key    Key of the entry
+     * @param  value  Value of the entry; must not be {@code null}
+     *
+     * @return Either the previous value; otherwise {@code null}
+     **/
+
+    @SuppressWarnings("unchecked")
+    public V put(int key, V value) {
+        if (null == value) {
+            throw new NullPointerException("Value cannot be null");
+        }
+
+        int slot = findSlot(key);
+        V retVal = (V) this.values[slot];
+
+        this.keys[slot] = key;
+        this.values[slot] = value;
+
+        if (null == retVal && ++this.size > this.resizeAt) {
+            allocate(this.keys.length << 1);
+        }
+
+        return retVal;
+    }
+
+    /**
+     * Get value of given key or create and put a new one
+     *
+     * @param  key      Key to look up
+     * @param  factory  A {@link IntFunction} to create missing values
+     *
+     * @return Either the existing or the newly created value
+     **/
+
+    @SuppressWarnings("unchecked")
+    public V computeIfAbsent(int key, IntFunction<V> factory) {
+        int slot = findSlot(key);
+        V retVal = (V) this.values[slot];
+
+        if (null == retVal) {
+            retVal = factory.apply(key);
+
+            put(key, retVal);
+        }
+
+        return retVal;
+    }
+
+    /**
+     * Remove entry of given key
+     *
+     * @param  key  Key to remove
+     *
+     * @return Either the removed value; otherwise {@code null}
+     **/
+
+    @SuppressWarnings("unchecked")
+    public V remove(int key) {
+        int slot = findSlot(key);
+        V retVal = (V) this.values[slot];
+
+        if (null != retVal) {
+            this.values[slot] = null;
+            this.size--;
+
+            shiftBack(slot);
+        }
+
+        return retVal;
+    }
+
+    /**
+     * Get number of entries
+     *
+     * @return Number of entries
+     **/
+
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Whether the map is empty
+     *
+     * @return Either {@code true} if empty; otherwise {@code false}
+     **/
+
+    public boolean isEmpty() {
+        return 0 == this.size;
+    }
+
+    /**
+     * Call consumer for every entry in undefined order
+     *
+     * @param  consumer  A {@link EntryConsumer} to call
+     **/
+
+    @SuppressWarnings("unchecked")
+    public void forEach(EntryConsumer<V> consumer) {
+        for (int i = 0; i < this.values.length; i++) {
+            if (null != this.values[i]) {
+                consumer.accept(this.keys[i], (V) this.values[i]);
+            }
+        }
+    }
+
+    /**
+     * Remove all entries
+     **/
+
+    public void clear() {
+        Arrays.fill(this.values, null);
+
+        this.size = 0;
+    }
+
+    /**
+     * Find slot of given key with linear probing
+     *
+     * @param  key  Key to look up
+     *
+     * @return Either the slot of the key; otherwise the free slot it belongs to
+     **/
+
+    private int findSlot(int key) {
+        int slot = (key * HASH_MULTIPLIER) & this.mask;
+
+        while (null != this.values[slot] && key != this.keys[slot]) {
+            slot = (slot + 1) & this.mask;
+        }
+
+        return slot;
+    }
+
+    /**
+     * Move entries behind a freed slot back, so probing doesn't stop at the hole
+     *
+     * @param  freeSlot  Slot that has just been freed
+     **/
+
+    private void shiftBack(int freeSlot) {
+        int slot = (freeSlot + 1) & this.mask;
+
+        while (null != this.values[slot]) {
+            int idealSlot = (this.keys[slot] * HASH_MULTIPLIER) & this.mask;
+
+            /* Only move entries whose probe sequence passes the free slot */
+            if (((slot - idealSlot) & this.mask) >= ((slot - freeSlot) & this.mask)) {
+                this.keys[freeSlot] = this.keys[slot];
+                this.values[freeSlot] = this.values[slot];
+                this.values[slot] = null;
+
+                freeSlot = slot;
+            }
+
+            slot = (slot + 1) & this.mask;
+        }
+    }
+
+    private void allocate(int capacity) {
+        int[] oldKeys = this.keys;
+        Object[] oldValues = this.values;
+
+        this.keys = new int[capacity];
+        this.values = new Object[capacity];
+        this.mask = capacity - 1;
+        this.resizeAt = (int) (capacity * LOAD_FACTOR);
+
+        if (null != oldValues) {
+            for (int i = 0; i < oldValues.length; i++) {
+                if (null != oldValues[i]) {
+                    int slot = findSlot(oldKeys[i]);
+
+                    this.keys[slot] = oldKeys[i];
+                    this.values[slot] = oldValues[i];
+                }
+            }
+        }
+    }
+
+    private static int capacityFor(int expectedSize) {
+        int capacity = DEFAULT_CAPACITY;
+
+        while (capacity * LOAD_FACTOR < expectedSize) {
+            capacity <<= 1;
+        }
+
+        return capacity;
+    }
+}
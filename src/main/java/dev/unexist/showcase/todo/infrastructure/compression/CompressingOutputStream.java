@@ -0,0 +1,141 @@
+/**
+ * @package Showcase-OData-Quarkus
+ *
+ * @file Threshold compressing output stream
+ * @copyright 2024-present Christoph Kappel <christoph@unexist.dev>
+ * @version $Id$
+ *
+ * This program can be distributed under the terms of the Apache License v2.0.
+ * See the file LICENSE for details.
+ **/
+
+package dev.unexist.showcase.todo.infrastructure.compression;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.function.UnaryOperator;
+import java.util.zip.DeflaterOutputStream;
+
+public class CompressingOutputStream extends OutputStream {
+    private final OutputStream out;
+    private final ContentEncoding encoding;
+    private final int level;
+    private final UnaryOperator<ContentEncoding> decider;
+    private final byte[] buffer;
+    private int count;
+    private OutputStream target;
+    private ContentEncoding usedEncoding;
+    private boolean finished;
+
+    /**
+     * Constructor
+     *
+     * Everything up to the threshold is buffered; the encoding is only applied once more is
+     * written, so small bodies are sent as they are. The decider is called exactly once
+     * before the first byte reaches the underlying stream, so headers can still be set.
+     *
+     * @param  out        A {@link OutputStream} to write to
+     * @param  encoding   Negotiated {@link ContentEncoding}
+     * @param  level      Compression level from 1 (fastest) to 9 (smallest)
+     * @param  threshold  Minimum number of bytes to compress
+     * @param  decider    A {@link UnaryOperator} which gets the chosen encoding and returns
+     *                    the one to actually use, e.g. to veto already encoded bodies
+     **/
+
+    public CompressingOutputStream(OutputStream out, ContentEncoding encoding, int level,
+                                   int threshold, UnaryOperator<ContentEncoding> decider)
+    {
+        this.out = out;
+        this.encoding = encoding;
+        this.level = level;
+        this.decider = decider;
+        this.buffer = new byte[ContentEncoding.IDENTITY == encoding ? 0 : Math.max(0, threshold)];
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] { (byte) b }, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (null == this.target) {
+            if (this.count + len <= this.buffer.length) {
+                System.arraycopy(b, off, this.buffer, this.count, len);
+                this.count += len;
+
+                return;
+            }
+
+            decide(this.encoding);
+        }
+
+        this.target.write(b, off, len);
+    }
+
+    /**
+     * Flush written data
+     *
+     * Data below the threshold stays buffered, since the encoding isn't known yet.
+     *
+     * @throws IOException
+     **/
+
+    @Override
+    public void flush() throws IOException {
+        if (null != this.target) {
+            this.target.flush();
+        }
+    }
+
+    /**
+     * Write all pending data and finish the encoding without closing the underlying stream
+     *
+     * @throws IOException
+     **/
+
+    public void finish() throws IOException {
+        if (this.finished) {
+            return;
+        }
+
+        this.finished = true;
+
+        if (null == this.target) {
+            decide(ContentEncoding.IDENTITY);
+        }
+
+        if (this.target instanceof DeflaterOutputStream) {
+            ((DeflaterOutputStream) this.target).finish();
+        }
+
+        this.target.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        finish();
+
+        this.target.close();
+    }
+
+    /**
+     * Get encoding which is actually used
+     *
+     * @return Either the used {@link ContentEncoding}; otherwise {@code null} if not decided yet
+     **/
+
+    public ContentEncoding getUsedEncoding() {
+        return this.usedEncoding;
+    }
+
+    private void decide(ContentEncoding chosen) throws IOException {
+        this.usedEncoding = this.decider.apply(chosen);
+        this.target = this.usedEncoding.wrap(this.out, this.level);
+
+        if (0 < this.count) {
+            this.target.write(this.buffer, 0, this.count);
+            this.count = 0;
+        }
+    }
+}
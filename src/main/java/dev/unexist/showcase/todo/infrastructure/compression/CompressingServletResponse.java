@@ -0,0 +1,220 @@
+/**
+ * @package Showcase-OData-Quarkus
+ *
+ * @file Compressing servlet response
+ * @copyright 2024-present Christoph Kappel <christoph@unexist.dev>
+ * @version $Id$
+ *
+ * This program can be distributed under the terms of the Apache License v2.0.
+ * See the file LICENSE for details.
+ **/
+
+package dev.unexist.showcase.todo.infrastructure.compression;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+
+import static dev.unexist.showcase.todo.infrastructure.compression.Compression.HEADER_ACCEPT_ENCODING;
+import static dev.unexist.showcase.todo.infrastructure.compression.Compression.HEADER_CONTENT_ENCODING;
+import static dev.unexist.showcase.todo.infrastructure.compression.Compression.HEADER_CONTENT_LENGTH;
+import static dev.unexist.showcase.todo.infrastructure.compression.Compression.HEADER_VARY;
+
+public class CompressingServletResponse extends HttpServletResponseWrapper {
+    private final Compression compression;
+    private final ContentEncoding encoding;
+    private long contentLength = -1;
+    private boolean isEncoded;
+    private CompressingOutputStream compressingStream;
+    private ServletOutputStream outputStream;
+    private PrintWriter writer;
+
+    /**
+     * Constructor
+     *
+     * @param  response        A {@link HttpServletResponse} to wrap
+     * @param  compression     A {@link Compression} with the settings
+     * @param  acceptEncoding  Value of the Accept-Encoding header of the request
+     **/
+
+    public CompressingServletResponse(HttpServletResponse response, Compression compression,
+                                      String acceptEncoding)
+    {
+        super(response);
+
+        this.compression = compression;
+        this.encoding = compression.negotiate(acceptEncoding);
+
+        if (compression.isEnabled()) {
+            response.addHeader(HEADER_VARY, HEADER_ACCEPT_ENCODING);
+        }
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+        if (null == this.outputStream) {
+            ServletOutputStream out = super.getOutputStream();
+
+            this.compressingStream = this.compression.wrap(out, this.encoding, this::decide);
+            this.outputStream = new ServletOutputStream() {
+                @Override
+                public boolean isReady() {
+                    return out.isReady();
+                }
+
+                @Override
+                public void setWriteListener(WriteListener writeListener) {
+                    out.setWriteListener(writeListener);
+                }
+
+                @Override
+                public void write(int b) throws IOException {
+                    compressingStream.write(b);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    compressingStream.write(b, off, len);
+                }
+
+                @Override
+                public void flush() throws IOException {
+                    compressingStream.flush();
+                }
+
+                @Override
+                public void close() throws IOException {
+                    compressingStream.close();
+                }
+            };
+        }
+
+        return this.outputStream;
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        if (null == this.writer) {
+            this.writer = new PrintWriter(new OutputStreamWriter(getOutputStream(),
+                    getCharacterEncoding()));
+        }
+
+        return this.writer;
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+        if (null != this.writer) {
+            this.writer.flush();
+        }
+
+        if (null != this.outputStream) {
+            this.outputStream.flush();
+        } else {
+            super.flushBuffer();
+        }
+    }
+
+    @Override
+    public void setContentLength(int len) {
+        this.contentLength = len;
+    }
+
+    @Override
+    public void setContentLengthLong(long len) {
+        this.contentLength = len;
+    }
+
+    @Override
+    public void setHeader(String name, String value) {
+        if (!interceptHeader(name, value)) {
+            super.setHeader(name, value);
+        }
+    }
+
+    @Override
+    public void addHeader(String name, String value) {
+        if (!interceptHeader(name, value)) {
+            super.addHeader(name, value);
+        }
+    }
+
+    /**
+     * Write pending data and finish the encoding
+     *
+     * Must be called once the body is complete; the underlying stream stays open.
+     *
+     * @throws IOException
+     **/
+
+    public void finish() throws IOException {
+        if (null != this.writer) {
+            this.writer.flush();
+        }
+
+        if (null != this.compressingStream) {
+            this.compressingStream.finish();
+        } else if (0 <= this.contentLength) {
+            super.setContentLengthLong(this.contentLength);
+        }
+    }
+
+    /**
+     * Get encoding of the body
+     *
+     * @return Either the used {@link ContentEncoding}; otherwise {@code null} if nothing
+     *         was written yet
+     **/
+
+    public ContentEncoding getUsedEncoding() {
+        return null != this.compressingStream ? this.compressingStream.getUsedEncoding() : null;
+    }
+
+    /**
+     * Keep length and encoding headers until the encoding is decided
+     *
+     * @param  name   Name of the header
+     * @param  value  Value of the header
+     *
+     * @return Either {@code true} if the header has been handled; otherwise {@code false}
+     **/
+
+    private boolean interceptHeader(String name, String value) {
+        boolean retVal = false;
+
+        if (HEADER_CONTENT_LENGTH.equalsIgnoreCase(name)) {
+            try {
+                this.contentLength = Long.parseLong(value);
+            } catch (NumberFormatException e) {
+                this.contentLength = -1;
+            }
+
+            retVal = true;
+        } else if (HEADER_CONTENT_ENCODING.equalsIgnoreCase(name)
+                && !ContentEncoding.IDENTITY.getToken().equalsIgnoreCase(value))
+        {
+            /* Body is already encoded, e.g. precompressed by a cache */
+            this.isEncoded = true;
+        }
+
+        return retVal;
+    }
+
+    private ContentEncoding decide(ContentEncoding chosen) {
+        ContentEncoding retVal = this.isEncoded ? ContentEncoding.IDENTITY : chosen;
+
+        if (ContentEncoding.IDENTITY == retVal) {
+            if (0 <= this.contentLength) {
+                super.setContentLengthLong(this.contentLength);
+            }
+        } else {
+            super.setHeader(HEADER_CONTENT_ENCODING, retVal.getToken());
+        }
+
+        return retVal;
+    }
+}
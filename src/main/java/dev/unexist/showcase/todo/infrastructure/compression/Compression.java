@@ -0,0 +1,153 @@
+/**
+ * @package Showcase-OData-Quarkus
+ *
+ * @file Response compression
+ * @copyright 2024-present Christoph Kappel <christoph@unexist.dev>
+ * @version $Id$
+ *
+ * This program can be distributed under the terms of the Apache License v2.0.
+ * See the file LICENSE for details.
+ **/
+
+package dev.unexist.showcase.todo.infrastructure.compression;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+
+@ApplicationScoped
+public class Compression {
+    public static final String HEADER_ACCEPT_ENCODING = "Accept-Encoding";
+    public static final String HEADER_CONTENT_ENCODING = "Content-Encoding";
+    public static final String HEADER_CONTENT_LENGTH = "Content-Length";
+    public static final String HEADER_VARY = "Vary";
+
+    @ConfigProperty(name = "todo.compression.enabled", defaultValue = "true")
+    boolean enabled;
+
+    @ConfigProperty(name = "todo.compression.encodings", defaultValue = "gzip,deflate")
+    List<String> encodingNames;
+
+    @ConfigProperty(name = "todo.compression.min-bytes", defaultValue = "1024")
+    int minBytes;
+
+    @ConfigProperty(name = "todo.compression.level", defaultValue = "6")
+    int level;
+
+    private List<ContentEncoding> encodings;
+
+    /**
+     * Resolve configured encodings
+     **/
+
+    @PostConstruct
+    void init() {
+        this.encodings = Collections.unmodifiableList(this.encodingNames.stream()
+                .map(ContentEncoding::of)
+                .filter(Objects::nonNull)
+                .filter(encoding -> ContentEncoding.IDENTITY != encoding)
+                .distinct()
+                .collect(Collectors.toList()));
+    }
+
+    /**
+     * Whether responses are compressed at all
+     *
+     * @return Either {@code true} if enabled; otherwise {@code false}
+     **/
+
+    public boolean isEnabled() {
+        return this.enabled && !this.encodings.isEmpty();
+    }
+
+    /**
+     * Get minimum size of bodies to compress
+     *
+     * @return Number of bytes
+     **/
+
+    public int getMinBytes() {
+        return this.minBytes;
+    }
+
+    /**
+     * Pick encoding for a response
+     *
+     * @param  acceptEncoding  Value of the Accept-Encoding header; might be {@code null}
+     *
+     * @return Either the best supported encoding; otherwise {@link ContentEncoding#IDENTITY}
+     **/
+
+    public ContentEncoding negotiate(String acceptEncoding) {
+        return this.isEnabled()
+                ? ContentEncoding.negotiate(acceptEncoding, this.encodings)
+                : ContentEncoding.IDENTITY;
+    }
+
+    /**
+     * Pick encoding for a response body of known size
+     *
+     * @param  acceptEncoding  Value of the Accept-Encoding header; might be {@code null}
+     * @param  length          Length of the body
+     *
+     * @return Either the best supported encoding; otherwise {@link ContentEncoding#IDENTITY}
+     *         for small bodies
+     **/
+
+    public ContentEncoding negotiate(String acceptEncoding, int length) {
+        return length < this.minBytes ? ContentEncoding.IDENTITY : negotiate(acceptEncoding);
+    }
+
+    /**
+     * Compress given content completely
+     *
+     * @param  content   Content to compress
+     * @param  encoding  A {@link ContentEncoding} to use
+     *
+     * @return Compressed content
+     **/
+
+    public byte[] compress(byte[] content, ContentEncoding encoding) {
+        if (ContentEncoding.IDENTITY == encoding) {
+            return content;
+        }
+
+        /* Json compresses well, start small */
+        ByteArrayOutputStream retVal = new ByteArrayOutputStream(Math.max(64, content.length >> 3));
+
+        try (OutputStream out = encoding.wrap(retVal, this.level)) {
+            out.write(content);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return retVal.toByteArray();
+    }
+
+    /**
+     * Wrap given stream to compress everything above the threshold
+     *
+     * @param  out       A {@link OutputStream} to write to
+     * @param  encoding  Negotiated {@link ContentEncoding}
+     * @param  decider   Called before the first write with the encoding to use; see
+     *                   {@link CompressingOutputStream}
+     *
+     * @return A new {@link CompressingOutputStream}
+     **/
+
+    public CompressingOutputStream wrap(OutputStream out, ContentEncoding encoding,
+                                        UnaryOperator<ContentEncoding> decider)
+    {
+        return new CompressingOutputStream(out, encoding, this.level, this.minBytes, decider);
+    }
+}
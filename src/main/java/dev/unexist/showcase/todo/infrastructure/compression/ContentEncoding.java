@@ -0,0 +1,180 @@
+/**
+ * @package Showcase-OData-Quarkus
+ *
+ * @file HTTP content encoding
+ * @copyright 2024-present Christoph Kappel <christoph@unexist.dev>
+ * @version $Id$
+ *
+ * This program can be distributed under the terms of the Apache License v2.0.
+ * See the file LICENSE for details.
+ **/
+
+package dev.unexist.showcase.todo.infrastructure.compression;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+public enum ContentEncoding {
+    IDENTITY("identity"),
+    GZIP("gzip"),
+    DEFLATE("deflate");
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final String token;
+
+    ContentEncoding(String token) {
+        this.token = token;
+    }
+
+    /**
+     * Get token of the encoding as used in the HTTP headers
+     *
+     * @return Token of the encoding
+     **/
+
+    public String getToken() {
+        return this.token;
+    }
+
+    /**
+     * Wrap given stream to encode everything written to it
+     *
+     * Deflate is the zlib format as required by HTTP, not raw deflate.
+     *
+     * @param  out    A {@link OutputStream} to write the encoded data to
+     * @param  level  Compression level from 1 (fastest) to 9 (smallest)
+     *
+     * @return Either the encoding stream; otherwise the given stream for identity
+     * @throws IOException
+     **/
+
+    public OutputStream wrap(OutputStream out, int level) throws IOException {
+        OutputStream retVal = out;
+
+        /* Deflaters hold native memory, so they are released as soon as the data is complete */
+        switch (this) {
+            case GZIP:
+                retVal = new GZIPOutputStream(out, BUFFER_SIZE) {
+                    {
+                        this.def.setLevel(level);
+                    }
+
+                    @Override
+                    public void finish() throws IOException {
+                        super.finish();
+
+                        this.def.end();
+                    }
+                };
+                break;
+            case DEFLATE:
+                retVal = new DeflaterOutputStream(out, new Deflater(level), BUFFER_SIZE) {
+                    @Override
+                    public void finish() throws IOException {
+                        super.finish();
+
+                        this.def.end();
+                    }
+                };
+                break;
+        }
+
+        return retVal;
+    }
+
+    /**
+     * Find encoding by its token
+     *
+     * @param  token  Token to look for
+     *
+     * @return Either found {@link ContentEncoding}; otherwise {@code null}
+     **/
+
+    public static ContentEncoding of(String token) {
+        for (ContentEncoding encoding : values()) {
+            if (encoding.token.equalsIgnoreCase(token.trim())) {
+                return encoding;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Pick the best encoding the client accepts
+     *
+     * Encodings are weighted by their q-value; a wildcard covers all encodings not listed
+     * explicitly. Ties are resolved in order of the supported encodings.
+     *
+     * @param  acceptEncoding  Value of the Accept-Encoding header; might be {@code null}
+     * @param  supported       A {@link List} of supported encodings by preference
+     *
+     * @return Either the best supported encoding; otherwise {@link #IDENTITY}
+     **/
+
+    public static ContentEncoding negotiate(String acceptEncoding, List<ContentEncoding> supported) {
+        ContentEncoding retVal = IDENTITY;
+
+        if (null == acceptEncoding || acceptEncoding.isBlank()) {
+            return retVal;
+        }
+
+        double bestQuality = 0;
+
+        for (ContentEncoding encoding : supported) {
+            double quality = qualityOf(acceptEncoding, encoding.token);
+
+            if (quality > bestQuality) {
+                bestQuality = quality;
+                retVal = encoding;
+            }
+        }
+
+        return retVal;
+    }
+
+    /**
+     * Get q-value of given token within Accept-Encoding header
+     *
+     * @param  acceptEncoding  Value of the Accept-Encoding header
+     * @param  token           Token to look for
+     *
+     * @return Either the q-value of the token or wildcard; otherwise {@code 0}
+     **/
+
+    private static double qualityOf(String acceptEncoding, String token) {
+        double wildcard = 0;
+
+        for (String part : acceptEncoding.split(",")) {
+            String[] params = part.split(";");
+            String name = params[0].trim().toLowerCase(Locale.ENGLISH);
+            double quality = 1;
+
+            for (int i = 1; i < params.length; i++) {
+                String param = params[i].trim();
+
+                if (param.startsWith("q=")) {
+                    try {
+                        quality = Double.parseDouble(param.substring(2));
+                    } catch (NumberFormatException e) {
+                        quality = 0;
+                    }
+                }
+            }
+
+            if (name.equals(token)) {
+                return quality;
+            } else if ("*".equals(name)) {
+                wildcard = quality;
+            }
+        }
+
+        return wildcard;
+    }
+}
@@ -0,0 +1,193 @@
+/**
+ * @package Showcase-OData-Quarkus
+ *
+ * @file Parallel scanner
+ * @copyright 2024-present Christoph Kappel <christoph@unexist.dev>
+ * @version $Id$
+ *
+ * This program can be distributed under the terms of the Apache License v2.0.
+ * See the file LICENSE for details.
+ **/
+
+package dev.unexist.showcase.todo.infrastructure.concurrent;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+@ApplicationScoped
+public class ParallelScanner {
+
+    @ConfigProperty(name = "todo.scan.threads")
+    Optional<Integer> threads;
+
+    @ConfigProperty(name = "todo.scan.max-parallelism")
+    Optional<Integer> maxParallelism;
+
+    @ConfigProperty(name = "todo.scan.parallel-threshold", defaultValue = "10000")
+    int parallelThreshold;
+
+    @ConfigProperty(name = "todo.scan.chunk-size", defaultValue = "2048")
+    int chunkSize;
+
+    private ForkJoinPool pool;
+    private int requestParallelism;
+
+    /**
+     * Condition which may throw a checked exception
+     **/
+
+    @FunctionalInterface
+    public interface Condition<T, E extends Exception> {
+        boolean test(T t) throws E;
+    }
+
+    /**
+     * Create the pool
+     *
+     * The pool is shared by all requests, each request only uses up to
+     * {@code todo.scan.max-parallelism} threads of it including the calling one.
+     **/
+
+    @PostConstruct
+    void init() {
+        int poolSize = this.threads.orElse(Runtime.getRuntime().availableProcessors());
+
+        this.pool = new ForkJoinPool(poolSize);
+        this.requestParallelism = Math.min(poolSize + 1,
+                this.maxParallelism.orElse(Math.max(2, poolSize / 4)));
+    }
+
+    /**
+     * Shutdown the pool
+     **/
+
+    @PreDestroy
+    void destroy() {
+        this.pool.shutdown();
+    }
+
+    /**
+     * Get all elements which satisfy the condition in input order
+     *
+     * Inputs below the threshold are scanned on the calling thread. Larger inputs are split
+     * into chunks, which the calling thread and a capped number of pool workers claim one
+     * after another; the matches of every chunk are concatenated in chunk order afterwards.
+     *
+     * @param  input      A {@link List} to scan; must not change during the scan
+     * @param  condition  A {@link Condition} to test; must be thread-safe
+     * @param  <T>        Type of the elements
+     * @param  <E>        Type of the exception thrown by the condition
+     *
+     * @return A new {@link List} of all matching elements
+     * @throws E When the condition fails for any element
+     **/
+
+    public <T, E extends Exception> List<T> filter(List<T> input, Condition<T, E> condition)
+            throws E
+    {
+        int chunks = (input.size() + Math.max(1, this.chunkSize) - 1) / Math.max(1, this.chunkSize);
+        int workers = Math.min(this.requestParallelism, chunks);
+
+        if (input.size() < this.parallelThreshold || 1 >= workers) {
+            return filterRange(input, 0, input.size(), condition);
+        }
+
+        List<List<T>> results = new ArrayList<>(chunks);
+        AtomicInteger nextChunk = new AtomicInteger();
+        AtomicReference<Exception> failure = new AtomicReference<>();
+
+        for (int i = 0; i < chunks; i++) {
+            results.add(null);
+        }
+
+        Runnable worker = () -> {
+            int chunk;
+
+            while (null == failure.get() && (chunk = nextChunk.getAndIncrement()) < chunks) {
+                int from = chunk * this.chunkSize;
+                int to = Math.min(input.size(), from + this.chunkSize);
+
+                try {
+                    results.set(chunk, filterRange(input, from, to, condition));
+                } catch (Exception e) {
+                    failure.compareAndSet(null, e);
+                }
+            }
+        };
+
+        /* The calling thread is one of the workers */
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(workers - 1);
+        List<AtomicBoolean> claims = new ArrayList<>(workers - 1);
+
+        for (int i = 1; i < workers; i++) {
+            AtomicBoolean claim = new AtomicBoolean();
+
+            claims.add(claim);
+            tasks.add(this.pool.submit(() -> {
+                if (claim.compareAndSet(false, true)) {
+                    worker.run();
+                }
+            }));
+        }
+
+        worker.run();
+
+        /* Don't wait for tasks a busy pool hasn't started yet; no chunk is left for them */
+        for (int i = 0; i < tasks.size(); i++) {
+            if (claims.get(i).compareAndSet(false, true)) {
+                tasks.get(i).cancel(false);
+            } else {
+                tasks.get(i).join();
+            }
+        }
+
+        rethrow(failure.get());
+
+        int size = 0;
+
+        for (List<T> result : results) {
+            size += result.size();
+        }
+
+        List<T> retVal = new ArrayList<>(size);
+
+        results.forEach(retVal::addAll);
+
+        return retVal;
+    }
+
+    private static <T, E extends Exception> List<T> filterRange(List<T> input, int from, int to,
+                                                                Condition<T, E> condition)
+            throws E
+    {
+        List<T> retVal = new ArrayList<>();
+
+        for (int i = from; i < to; i++) {
+            T element = input.get(i);
+
+            if (condition.test(element)) {
+                retVal.add(element);
+            }
+        }
+
+        return retVal;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <E extends Exception> void rethrow(Exception e) throws E {
+        if (null != e) {
+            throw (E) e;
+        }
+    }
+}
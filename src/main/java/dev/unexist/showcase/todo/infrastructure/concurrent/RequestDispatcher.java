@@ -0,0 +1,118 @@
+/**
+ * @package Showcase-OData-Quarkus
+ *
+ * @file Request dispatcher
+ * @copyright 2024-present Christoph Kappel <christoph@unexist.dev>
+ * @version $Id$
+ *
+ * This program can be distributed under the terms of the Apache License v2.0.
+ * See the file LICENSE for details.
+ **/
+
+package dev.unexist.showcase.todo.infrastructure.concurrent;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+@ApplicationScoped
+public class RequestDispatcher implements Executor {
+    private static final Logger LOGGER = LoggerFactory.getLogger(RequestDispatcher.class);
+
+    /**
+     * Where request processing runs
+     **/
+
+    public enum Mode {
+        /* Directly on the worker thread of the server */
+        WORKER,
+        /* On a new virtual thread per request */
+        VIRTUAL
+    }
+
+    @ConfigProperty(name = "todo.dispatch.mode", defaultValue = "worker")
+    Mode mode;
+
+    private ExecutorService executorService;
+
+    /**
+     * Create the executor for the configured mode
+     *
+     * Virtual threads are looked up reflectively, so the same build runs on older runtimes and
+     * falls back to the worker threads there.
+     **/
+
+    @PostConstruct
+    void init() {
+        if (Mode.VIRTUAL == this.mode) {
+            try {
+                this.executorService = (ExecutorService) Executors.class
+                        .getMethod("newVirtualThreadPerTaskExecutor")
+                        .invoke(null);
+            } catch (ReflectiveOperationException e) {
+                LOGGER.warn("init: virtual threads unavailable on java={}, using worker threads",
+                        Runtime.version());
+            }
+        }
+
+        LOGGER.info("init: requests run on {} threads", this.isDispatching()
+                ? Mode.VIRTUAL : Mode.WORKER);
+    }
+
+    /**
+     * Shutdown the executor
+     **/
+
+    @PreDestroy
+    void destroy() {
+        if (null != this.executorService) {
+            this.executorService.shutdown();
+        }
+    }
+
+    /**
+     * Whether requests are handed off from the worker threads
+     *
+     * @return Either {@code true} when dispatching; otherwise {@code false}
+     **/
+
+    public boolean isDispatching() {
+        return null != this.executorService;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        if (this.isDispatching()) {
+            this.executorService.execute(command);
+        } else {
+            command.run();
+        }
+    }
+
+    /**
+     * Run given action in the configured mode
+     *
+     * @param  action  A {@link Supplier} to run
+     * @param  <T>     Type of the result
+     *
+     * @return A {@link CompletionStage} of the result; already completed in worker mode
+     **/
+
+    public <T> CompletionStage<T> dispatch(Supplier<T> action) {
+        if (this.isDispatching()) {
+            return CompletableFuture.supplyAsync(action, this.executorService);
+        }
+
+        return CompletableFuture.completedFuture(action.get());
+    }
+}
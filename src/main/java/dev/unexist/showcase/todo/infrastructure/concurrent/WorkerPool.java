@@ -0,0 +1,76 @@
+/**
+ * @package Showcase-OData-Quarkus
+ *
+ * @file Bounded worker pool
+ * @copyright 2024-present Christoph Kappel <christoph@unexist.dev>
+ * @version $Id$
+ *
+ * This program can be distributed under the terms of the Apache License v2.0.
+ * See the file LICENSE for details.
+ **/
+
+package dev.unexist.showcase.todo.infrastructure.concurrent;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@ApplicationScoped
+public class WorkerPool implements Executor {
+
+    @ConfigProperty(name = "todo.worker.threads")
+    Optional<Integer> threads;
+
+    @ConfigProperty(name = "todo.worker.queue-size", defaultValue = "256")
+    int queueSize;
+
+    private ExecutorService executorService;
+
+    /**
+     * Create the executor
+     *
+     * The queue is bounded; when it is full the submitting thread runs the task itself, which
+     * slows down producers instead of dropping work.
+     **/
+
+    @PostConstruct
+    void init() {
+        int poolSize = this.threads.orElse(Runtime.getRuntime().availableProcessors());
+        AtomicInteger threadCount = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "todo-worker-" + threadCount.incrementAndGet());
+
+            thread.setDaemon(true);
+
+            return thread;
+        };
+
+        this.executorService = new ThreadPoolExecutor(poolSize, poolSize, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(this.queueSize), threadFactory,
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * Shutdown the executor
+     **/
+
+    @PreDestroy
+    void destroy() {
+        this.executorService.shutdown();
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        this.executorService.execute(command);
+    }
+}
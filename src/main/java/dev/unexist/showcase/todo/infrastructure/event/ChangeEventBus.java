@@ -0,0 +1,349 @@
+/**
+ * @package Showcase-OData-Quarkus
+ *
+ * @file Change event bus
+ * @copyright 2024-present Christoph Kappel <christoph@unexist.dev>
+ * @version $Id$
+ *
+ * This program can be distributed under the terms of the Apache License v2.0.
+ * See the file LICENSE for details.
+ **/
+
+package dev.unexist.showcase.todo.infrastructure.event;
+
+import dev.unexist.showcase.todo.domain.Change;
+import dev.unexist.showcase.todo.domain.ChangeEvent;
+import dev.unexist.showcase.todo.domain.ChangeListener;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.inject.Instance;
+import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+@ApplicationScoped
+public class ChangeEventBus {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ChangeEventBus.class);
+
+    @ConfigProperty(name = "todo.events.replay-size", defaultValue = "4096")
+    int replaySize;
+
+    @Inject
+    Instance<ChangeListener> listenerBeans;
+
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    /* Guards sequence, replay ring and queues; a lock keeps virtual threads unpinned */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /* Ring of the latest events for subscribers which resume */
+    private ChangeEvent[] replay;
+    private volatile long sequence;
+
+    private ExecutorService executorService;
+
+    /**
+     * Subscription of a {@link ChangeListener}
+     *
+     * Each subscription queues its events and delivers them on a thread of the bus, so slow
+     * listeners neither delay writers nor other listeners.
+     **/
+
+    public final class Subscription implements AutoCloseable {
+        private final ChangeListener listener;
+        private final Queue<ChangeEvent> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger queued = new AtomicInteger();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        /* Sequence number of the pending reset; guarded by the lock of the bus */
+        private long resetSequence = -1;
+        private volatile boolean closed;
+
+        /**
+         * Constructor
+         *
+         * @param  listener  A {@link ChangeListener} to notify
+         **/
+
+        private Subscription(ChangeListener listener) {
+            this.listener = listener;
+        }
+
+        /**
+         * Queue event or mark a reset when the listener is too far behind
+         *
+         * Must be called while holding the lock of the bus.
+         *
+         * @param  event  A {@link ChangeEvent} to queue
+         **/
+
+        private void enqueue(ChangeEvent event) {
+            if (-1 != this.resetSequence
+                    || this.queued.get() >= ChangeEventBus.this.replay.length)
+            {
+                this.resetSequence = event.getSequence();
+            } else {
+                this.queue.offer(event);
+                this.queued.incrementAndGet();
+            }
+        }
+
+        /**
+         * Start draining the queue unless it is already drained
+         **/
+
+        private void schedule() {
+            if (!this.closed && this.scheduled.compareAndSet(false, true)) {
+                ChangeEventBus.this.executorService.execute(this::drain);
+            }
+        }
+
+        /**
+         * Deliver queued events and pending resets in sequence order
+         **/
+
+        private void drain() {
+            while (!this.closed) {
+                ChangeEvent event;
+
+                while (!this.closed && null != (event = this.queue.poll())) {
+                    this.queued.decrementAndGet();
+
+                    notifyChange(this.listener, event);
+                }
+
+                long reset = this.takeReset();
+
+                if (-1 != reset) {
+                    if (!this.closed) {
+                        notifyReset(this.listener, reset);
+                    }
+
+                    continue;
+                }
+
+                this.scheduled.set(false);
+
+                /* Recheck to avoid losing events queued just before clearing the flag */
+                if (this.queue.isEmpty() || !this.scheduled.compareAndSet(false, true)) {
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Take pending reset once all queued events are delivered
+         *
+         * @return Either the sequence number of the reset; otherwise {@code -1}
+         **/
+
+        private long takeReset() {
+            ChangeEventBus.this.lock.lock();
+
+            try {
+                long retVal = -1;
+
+                if (this.queue.isEmpty()) {
+                    retVal = this.resetSequence;
+
+                    this.resetSequence = -1;
+                }
+
+                return retVal;
+            } finally {
+                ChangeEventBus.this.lock.unlock();
+            }
+        }
+
+        /**
+         * Stop notifying the listener
+         **/
+
+        @Override
+        public void close() {
+            this.closed = true;
+
+            ChangeEventBus.this.subscriptions.remove(this);
+        }
+    }
+
+    /**
+     * Create the replay buffer and subscribe all listener beans
+     **/
+
+    @PostConstruct
+    void init() {
+        this.replay = new ChangeEvent[Math.max(1, this.replaySize)];
+
+        AtomicInteger threadCount = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "todo-events-" + threadCount.incrementAndGet());
+
+            thread.setDaemon(true);
+
+            return thread;
+        };
+
+        this.executorService = Executors.newCachedThreadPool(threadFactory);
+
+        for (ChangeListener listener : this.listenerBeans) {
+            this.subscribe(null, listener);
+        }
+    }
+
+    /**
+     * Shutdown the executor
+     **/
+
+    @PreDestroy
+    void destroy() {
+        this.executorService.shutdown();
+    }
+
+    /**
+     * Publish a committed change with the next sequence number to all listeners
+     *
+     * Repositories publish while the writer still holds its lock, so sequence numbers follow
+     * the order of the commits. Events are just queued here and delivered asynchronously;
+     * listeners which fall more than the replay size behind are reset instead.
+     *
+     * @param  entity  Name of the changed entity, e.g. {@link ChangeEvent#ENTITY_TODO}
+     * @param  id      Id of the changed entry
+     * @param  type    A {@link Change.Type} of the change
+     **/
+
+    public void publish(String entity, int id, Change.Type type) {
+        this.lock.lock();
+
+        try {
+            ChangeEvent event = new ChangeEvent(this.sequence + 1, entity, id, type);
+
+            this.replay[(int) (event.getSequence() % this.replay.length)] = event;
+            this.sequence = event.getSequence();
+
+            for (Subscription subscription : this.subscriptions) {
+                subscription.enqueue(event);
+            }
+        } finally {
+            this.lock.unlock();
+        }
+
+        for (Subscription subscription : this.subscriptions) {
+            subscription.schedule();
+        }
+    }
+
+    /**
+     * Subscribe listener for all events after given sequence number
+     *
+     * Kept events are replayed before the listener gets new ones; when the sequence is too
+     * old or unknown the listener is reset first and just gets new events.
+     *
+     * @param  afterSequence  Sequence number of the last known event; {@code null} to skip
+     *                        the replay
+     * @param  listener       A {@link ChangeListener} to notify
+     *
+     * @return A {@link Subscription} to close when done
+     **/
+
+    public Subscription subscribe(Long afterSequence, ChangeListener listener) {
+        Subscription retVal = new Subscription(listener);
+
+        this.lock.lock();
+
+        try {
+            if (null != afterSequence) {
+                Optional<List<ChangeEvent>> events = this.findSince(afterSequence,
+                        this.sequence);
+
+                if (events.isPresent()) {
+                    events.get().forEach(retVal::enqueue);
+                } else {
+                    retVal.resetSequence = this.sequence;
+                }
+            }
+
+            this.subscriptions.add(retVal);
+        } finally {
+            this.lock.unlock();
+        }
+
+        retVal.schedule();
+
+        return retVal;
+    }
+
+    /**
+     * Get kept events after given sequence number up to another one
+     *
+     * @param  sequence  Sequence number of the last known event
+     * @param  until     Sequence number of the last event to include
+     *
+     * @return Either the events in order; otherwise an empty {@link Optional} if the sequence
+     *         is unknown or isn't kept anymore
+     **/
+
+    public Optional<List<ChangeEvent>> findSince(long sequence, long until) {
+        this.lock.lock();
+
+        try {
+            long last = Math.min(until, this.sequence);
+
+            if (sequence < Math.max(0, this.sequence - this.replay.length) || sequence > last) {
+                return Optional.empty();
+            }
+
+            List<ChangeEvent> retVal = new ArrayList<>((int) (last - sequence));
+
+            for (long seq = sequence + 1; seq <= last; seq++) {
+                retVal.add(this.replay[(int) (seq % this.replay.length)]);
+            }
+
+            return Optional.of(Collections.unmodifiableList(retVal));
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Get sequence number of the last event
+     *
+     * @return Sequence number; {@code 0} if nothing was published yet
+     **/
+
+    public long getSequence() {
+        return this.sequence;
+    }
+
+    private static void notifyChange(ChangeListener listener, ChangeEvent event) {
+        try {
+            listener.onChange(event);
+        } catch (RuntimeException e) {
+            LOGGER.warn("notifyChange: listener={} event={} failed", listener, event, e);
+        }
+    }
+
+    private static void notifyReset(ChangeListener listener, long sequence) {
+        try {
+            listener.onReset(sequence);
+        } catch (RuntimeException e) {
+            LOGGER.warn("notifyReset: listener={} sequence={} failed", listener, sequence, e);
+        }
+    }
+}
@@ -0,0 +1,279 @@
+/**
+ * @package Showcase-OData-Quarkus
+ *
+ * @file Bitmap secondary index
+ * @copyright 2024-present Christoph Kappel <christoph@unexist.dev>
+ * @version $Id$
+ *
+ * This program can be distributed under the terms of the Apache License v2.0.
+ * See the file LICENSE for details.
+ **/
+
+package dev.unexist.showcase.todo.infrastructure.persistence;
+
+import dev.unexist.showcase.todo.domain.IndexRange;
+import org.roaringbitmap.PeekableIntIterator;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+public class BitmapIndex<K> implements SecondaryIndex<K> {
+    private static final int NULL_SLOT = 0;
+    private static final int FALSE_SLOT = 1;
+    private static final int TRUE_SLOT = 2;
+
+    private final String name;
+    private final Function<K, Boolean> extractor;
+    private final ReadWriteLock lock;
+
+    /* One bitmap of ids per value; ordered like the values: null, false, true */
+    private final RoaringBitmap[] bitmaps;
+
+    /**
+     * Constructor
+     *
+     * @param  name       Name of the index
+     * @param  extractor  A {@link Function} to extract the indexed value
+     **/
+
+    public BitmapIndex(String name, Function<K, Boolean> extractor) {
+        this.name = name;
+        this.extractor = extractor;
+        this.lock = new ReentrantReadWriteLock();
+        this.bitmaps = new RoaringBitmap[] {
+                new RoaringBitmap(), new RoaringBitmap(), new RoaringBitmap()
+        };
+    }
+
+    /**
+     * Get name of the index
+     *
+     * @return Name of the index
+     **/
+
+    @Override
+    public String getName() {
+        return this.name;
+    }
+
+    /**
+     * Whether the index can handle values of the given type
+     *
+     * @param  value  Value to check
+     *
+     * @return Either {@code true} if the value is a {@link Boolean}; otherwise {@code false}
+     **/
+
+    @Override
+    public boolean accepts(Object value) {
+        return null == value || value instanceof Boolean;
+    }
+
+    /**
+     * Add or replace the index entry of the given id
+     *
+     * @param  id  Id of the entry
+     * @param  k   A {@link K} entry to index
+     **/
+
+    @Override
+    public void put(int id, K k) {
+        int slot = slotOf(this.extractor.apply(k));
+
+        this.lock.writeLock().lock();
+
+        try {
+            removeUnlocked(id);
+
+            this.bitmaps[slot].add(id);
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Add or replace the index entries of all given ids
+     *
+     * @param  ks  A {@link Map} of id to {@link K} entry to index
+     **/
+
+    @Override
+    public void putAll(Map<Integer, K> ks) {
+        RoaringBitmap[] newBitmaps = new RoaringBitmap[] {
+                new RoaringBitmap(), new RoaringBitmap(), new RoaringBitmap()
+        };
+
+        ks.forEach((id, k) -> newBitmaps[slotOf(this.extractor.apply(k))].add(id));
+
+        RoaringBitmap ids = RoaringBitmap.or(newBitmaps);
+
+        this.lock.writeLock().lock();
+
+        try {
+            for (int i = 0; i < this.bitmaps.length; i++) {
+                this.bitmaps[i].andNot(ids);
+                this.bitmaps[i].or(newBitmaps[i]);
+            }
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove the index entry of the given id
+     *
+     * @param  id  Id of the entry
+     **/
+
+    @Override
+    public void remove(int id) {
+        this.lock.writeLock().lock();
+
+        try {
+            removeUnlocked(id);
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove all entries
+     **/
+
+    @Override
+    public void clear() {
+        this.lock.writeLock().lock();
+
+        try {
+            for (RoaringBitmap bitmap : this.bitmaps) {
+                bitmap.clear();
+            }
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Get ids of all entries within given range in index order
+     *
+     * The ids are copied under the read lock, so the cost is proportional to the number of
+     * matches and not to the size of the index.
+     *
+     * @param  range  A {@link IndexRange} to scan
+     *
+     * @return A {@link Stream} of matching ids
+     **/
+
+    @Override
+    public Stream<Integer> scan(IndexRange range) {
+        Objects.requireNonNull(range, "Range cannot be null");
+
+        int fromSlot = lowerSlot(range);
+        int toSlot = upperSlot(range);
+
+        if (fromSlot > toSlot) {
+            return Stream.empty();
+        }
+
+        int[][] ids = new int[toSlot - fromSlot + 1][];
+
+        this.lock.readLock().lock();
+
+        try {
+            for (int slot = fromSlot; slot <= toSlot; slot++) {
+                /* Continue behind the cursor like the sorted index does */
+                ids[slot - fromSlot] = slot == fromSlot && null != range.getAfterId()
+                        && null != range.getLower() && range.isLowerInclusive()
+                        ? idsAfter(this.bitmaps[slot], range.getAfterId())
+                        : this.bitmaps[slot].toArray();
+            }
+        } finally {
+            this.lock.readLock().unlock();
+        }
+
+        if (range.isDescending()) {
+            return IntStream.range(0, ids.length)
+                    .map(i -> ids.length - 1 - i)
+                    .boxed()
+                    .flatMap(i -> IntStream.range(0, ids[i].length)
+                            .mapToObj(j -> ids[i][ids[i].length - 1 - j]));
+        }
+
+        return Arrays.stream(ids)
+                .flatMap(slotIds -> Arrays.stream(slotIds).boxed());
+    }
+
+    /**
+     * Get number of indexed entries
+     *
+     * @return Number of entries
+     **/
+
+    @Override
+    public int size() {
+        this.lock.readLock().lock();
+
+        try {
+            return Arrays.stream(this.bitmaps)
+                    .mapToInt(RoaringBitmap::getCardinality)
+                    .sum();
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    private void removeUnlocked(int id) {
+        for (RoaringBitmap bitmap : this.bitmaps) {
+            bitmap.remove(id);
+        }
+    }
+
+    private static int slotOf(Boolean value) {
+        return null == value ? NULL_SLOT : (value ? TRUE_SLOT : FALSE_SLOT);
+    }
+
+    private static int lowerSlot(IndexRange range) {
+        if (null == range.getLower()) {
+            /* Skip null values unless the range is unbounded, they never match a comparison */
+            return null == range.getUpper() ? NULL_SLOT : FALSE_SLOT;
+        }
+
+        int slot = slotOf((Boolean) range.getLower());
+
+        return range.isLowerInclusive() ? slot : slot + 1;
+    }
+
+    private static int upperSlot(IndexRange range) {
+        if (null == range.getUpper()) {
+            return TRUE_SLOT;
+        }
+
+        int slot = slotOf((Boolean) range.getUpper());
+
+        return range.isUpperInclusive() ? slot : slot - 1;
+    }
+
+    private static int[] idsAfter(RoaringBitmap bitmap, int afterId) {
+        if (0 > afterId) {
+            return bitmap.toArray();
+        }
+
+        int[] retVal = new int[bitmap.getCardinality() - bitmap.rank(afterId)];
+        PeekableIntIterator iter = bitmap.getIntIterator();
+
+        iter.advanceIfNeeded(afterId + 1);
+
+        for (int i = 0; i < retVal.length; i++) {
+            retVal[i] = iter.next();
+        }
+
+        return retVal;
+    }
+}
@@ -0,0 +1,139 @@
+/**
+ * @package Showcase-OData-Quarkus
+ *
+ * @file Repository change log
+ * @copyright 2024-present Christoph Kappel <christoph@unexist.dev>
+ * @version $Id$
+ *
+ * This program can be distributed under the terms of the Apache License v2.0.
+ * See the file LICENSE for details.
+ **/
+
+package dev.unexist.showcase.todo.infrastructure.persistence;
+
+import dev.unexist.showcase.todo.domain.Change;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantLock;
+
+final class ChangeLog {
+    private static final Change.Type[] TYPES = Change.Type.values();
+
+    private final int[] ids;
+    private final byte[] types;
+
+    /* Appends run under the repository locks; no monitor, so virtual threads don't pin */
+    private final ReentrantLock lock;
+    private volatile long sequence;
+    private long floor;
+
+    /**
+     * Constructor
+     *
+     * The log is a ring of the latest changes; sequence numbers are contiguous, so only
+     * ids and types are stored and the slot is derived from the sequence.
+     *
+     * @param  capacity  Maximum number of changes to keep
+     **/
+
+    ChangeLog(int capacity) {
+        this.ids = new int[capacity];
+        this.types = new byte[capacity];
+        this.lock = new ReentrantLock();
+    }
+
+    /**
+     * Append change and assign the next sequence number
+     *
+     * @param  id    Id of the changed entry
+     * @param  type  A {@link Change.Type} of the change
+     *
+     * @return Sequence number of the change
+     **/
+
+    long append(int id, Change.Type type) {
+        this.lock.lock();
+
+        try {
+            long retVal = this.sequence + 1;
+            int slot = (int) (retVal % this.ids.length);
+
+            this.ids[slot] = id;
+            this.types[slot] = (byte) type.ordinal();
+
+            /* Oldest change is overwritten, so it cannot be replayed anymore */
+            this.floor = Math.max(this.floor, retVal - this.ids.length);
+            this.sequence = retVal;
+
+            return retVal;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Get sequence number of the last change
+     *
+     * @return Sequence number; {@code 0} if nothing changed yet
+     **/
+
+    long getSequence() {
+        return this.sequence;
+    }
+
+    /**
+     * Get all changes after given sequence number up to another one
+     *
+     * @param  sequence  Sequence number of the last known change
+     * @param  until     Sequence number of the last change to include, e.g. the one of a
+     *                   read snapshot
+     *
+     * @return Either the changes in order; otherwise an empty {@link Optional} if the sequence
+     *         is unknown or the log doesn't reach back that far
+     **/
+
+    Optional<List<Change>> since(long sequence, long until) {
+        this.lock.lock();
+
+        try {
+            long last = Math.min(until, this.sequence);
+
+            if (sequence < this.floor || sequence > last) {
+                return Optional.empty();
+            }
+
+            List<Change> retVal = new ArrayList<>((int) (last - sequence));
+
+            for (long seq = sequence + 1; seq <= last; seq++) {
+                int slot = (int) (seq % this.ids.length);
+
+                retVal.add(new Change(seq, this.ids[slot], TYPES[this.types[slot]]));
+            }
+
+            return Optional.of(Collections.unmodifiableList(retVal));
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Invalidate all previous sequence numbers, e.g. after all entries were dropped
+     *
+     * The reset consumes a sequence number of its own, so even readers which are up to date
+     * have to start over.
+     **/
+
+    void reset() {
+        this.lock.lock();
+
+        try {
+            this.floor = this.sequence + 1;
+            this.sequence = this.floor;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,150 @@
+/**
+ * @package Showcase-OData-Quarkus
+ *
+ * @file Id index
+ * @copyright 2024-present Christoph Kappel <christoph@unexist.dev>
+ * @version $Id$
+ *
+ * This program can be distributed under the terms of the Apache License v2.0.
+ * See the file LICENSE for details.
+ **/
+
+package dev.unexist.showcase.todo.infrastructure.persistence;
+
+import dev.unexist.showcase.todo.domain.IndexRange;
+import dev.unexist.showcase.todo.infrastructure.collection.ConcurrentIntArrayMap;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+public class IdIndex<K> implements SecondaryIndex<K> {
+    private final String name;
+    private final ConcurrentIntArrayMap<?> rows;
+
+    /**
+     * Constructor
+     *
+     * Rows are stored at the position of their id, so they already are the index and
+     * nothing has to be kept in sync.
+     *
+     * @param  name  Name of the index
+     * @param  rows  A {@link ConcurrentIntArrayMap} of the rows by id
+     **/
+
+    public IdIndex(String name, ConcurrentIntArrayMap<?> rows) {
+        this.name = name;
+        this.rows = rows;
+    }
+
+    /**
+     * Get name of the index
+     *
+     * @return Name of the index
+     **/
+
+    @Override
+    public String getName() {
+        return this.name;
+    }
+
+    /**
+     * Whether the index can handle values of the given type
+     *
+     * @param  value  Value to check
+     *
+     * @return Either {@code true} if the value is an {@link Integer}; otherwise {@code false}
+     **/
+
+    @Override
+    public boolean accepts(Object value) {
+        return null == value || value instanceof Integer;
+    }
+
+    @Override
+    public void put(int id, K k) {
+        /* Nothing to do, the rows are the index */
+    }
+
+    @Override
+    public void putAll(Map<Integer, K> ks) {
+        /* Nothing to do, the rows are the index */
+    }
+
+    @Override
+    public void remove(int id) {
+        /* Nothing to do, the rows are the index */
+    }
+
+    @Override
+    public void clear() {
+        /* Nothing to do, the rows are the index */
+    }
+
+    /**
+     * Get ids of all rows within given range in id order
+     *
+     * @param  range  A {@link IndexRange} to scan
+     *
+     * @return A lazy {@link Stream} of matching ids
+     **/
+
+    @Override
+    public Stream<Integer> scan(IndexRange range) {
+        Objects.requireNonNull(range, "Range cannot be null");
+
+        long from = 0;
+        long to = Integer.MAX_VALUE;
+
+        if (null != range.getLower()) {
+            from = (Integer) range.getLower();
+
+            /* Like the sorted index: skip the lower bound when the cursor is already behind it */
+            if (!range.isLowerInclusive() || null != range.getAfterId()
+                    && from <= range.getAfterId())
+            {
+                from++;
+            }
+        }
+
+        if (null != range.getUpper()) {
+            to = (Integer) range.getUpper();
+
+            if (!range.isUpperInclusive()) {
+                to--;
+            }
+        }
+
+        if (from > to) {
+            return Stream.empty();
+        }
+
+        int lower = (int) Math.max(0, from);
+        int upper = (int) to;
+
+        if (range.isDescending()) {
+            return IntStream.iterate(this.rows.previousKey(upper),
+                    id -> id >= lower, id -> id > lower ? this.rows.previousKey(id - 1) : -1)
+                    .boxed();
+        }
+
+        return IntStream.iterate(this.rows.nextKey(lower),
+                id -> 0 <= id && id <= upper, id -> id < upper ? this.rows.nextKey(id + 1) : -1)
+                .boxed();
+    }
+
+    /**
+     * Get number of indexed rows
+     *
+     * Deleted rows which are still read by snapshots are counted until they are pruned; the
+     * scan returns their ids as well and callers skip them like any vanished row.
+     *
+     * @return Number of rows
+     **/
+
+    @Override
+    public int size() {
+        return this.rows.size();
+    }
+}
@@ -0,0 +1,322 @@
+/**
+ * @package Showcase-OData-Quarkus
+ *
+ * @file Primitive int hash index
+ * @copyright 2024-present Christoph Kappel <christoph@unexist.dev>
+ * @version $Id$
+ *
+ * This program can be distributed under the terms of the Apache License v2.0.
+ * See the file LICENSE for details.
+ **/
+
+package dev.unexist.showcase.todo.infrastructure.persistence;
+
+import dev.unexist.showcase.todo.domain.IndexRange;
+import dev.unexist.showcase.todo.infrastructure.collection.IntIntHashMap;
+import dev.unexist.showcase.todo.infrastructure.collection.IntList;
+import dev.unexist.showcase.todo.infrastructure.collection.IntObjectHashMap;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.ToIntFunction;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+public class IntHashIndex<K> implements SecondaryIndex<K> {
+    private final String name;
+    private final ToIntFunction<K> extractor;
+    private final ReadWriteLock lock;
+
+    /* Sorted ids per value and the value of every id, so updates find their old entry */
+    private final IntObjectHashMap<IntList> idsByValue;
+    private final IntIntHashMap valueById;
+
+    /**
+     * Constructor
+     *
+     * @param  name       Name of the index
+     * @param  extractor  A {@link ToIntFunction} to extract the indexed value
+     **/
+
+    public IntHashIndex(String name, ToIntFunction<K> extractor) {
+        this.name = name;
+        this.extractor = extractor;
+        this.lock = new ReentrantReadWriteLock();
+        this.idsByValue = new IntObjectHashMap<>();
+        this.valueById = new IntIntHashMap();
+    }
+
+    /**
+     * Get name of the index
+     *
+     * @return Name of the index
+     **/
+
+    @Override
+    public String getName() {
+        return this.name;
+    }
+
+    /**
+     * Whether the index can handle values of the given type
+     *
+     * @param  value  Value to check
+     *
+     * @return Either {@code true} if the value is an {@link Integer}; otherwise {@code false}
+     **/
+
+    @Override
+    public boolean accepts(Object value) {
+        return null == value || value instanceof Integer;
+    }
+
+    /**
+     * Add or replace the index entry of the given id
+     *
+     * @param  id  Id of the entry
+     * @param  k   A {@link K} entry to index
+     **/
+
+    @Override
+    public void put(int id, K k) {
+        int value = this.extractor.applyAsInt(k);
+
+        this.lock.writeLock().lock();
+
+        try {
+            putUnlocked(id, value);
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Add or replace the index entries of all given ids
+     *
+     * @param  ks  A {@link Map} of id to {@link K} entry to index
+     **/
+
+    @Override
+    public void putAll(Map<Integer, K> ks) {
+        this.lock.writeLock().lock();
+
+        try {
+            ks.forEach((id, k) -> putUnlocked(id, this.extractor.applyAsInt(k)));
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove the index entry of the given id
+     *
+     * @param  id  Id of the entry
+     **/
+
+    @Override
+    public void remove(int id) {
+        this.lock.writeLock().lock();
+
+        try {
+            removeUnlocked(id);
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove all entries
+     **/
+
+    @Override
+    public void clear() {
+        this.lock.writeLock().lock();
+
+        try {
+            this.idsByValue.clear();
+            this.valueById.clear();
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Get ids of all entries within given range in index order
+     *
+     * Exact matches are a single lookup; other ranges have to visit every distinct value.
+     * The ids are copied under the read lock.
+     *
+     * @param  range  A {@link IndexRange} to scan
+     *
+     * @return A {@link Stream} of matching ids
+     **/
+
+    @Override
+    public Stream<Integer> scan(IndexRange range) {
+        Objects.requireNonNull(range, "Range cannot be null");
+
+        int[][] ids;
+
+        this.lock.readLock().lock();
+
+        try {
+            if (null != range.getLower() && range.getLower().equals(range.getUpper())) {
+                ids = range.isLowerInclusive() && range.isUpperInclusive()
+                        ? new int[][] { idsOf((Integer) range.getLower(), range) }
+                        : new int[0][];
+            } else {
+                int[] values = valuesWithin(range);
+
+                ids = new int[values.length][];
+
+                for (int i = 0; i < values.length; i++) {
+                    ids[i] = idsOf(values[i], range);
+                }
+            }
+        } finally {
+            this.lock.readLock().unlock();
+        }
+
+        if (range.isDescending()) {
+            return IntStream.range(0, ids.length)
+                    .map(i -> ids.length - 1 - i)
+                    .boxed()
+                    .flatMap(i -> IntStream.range(0, ids[i].length)
+                            .mapToObj(j -> ids[i][ids[i].length - 1 - j]));
+        }
+
+        return Arrays.stream(ids)
+                .flatMap(valueIds -> Arrays.stream(valueIds).boxed());
+    }
+
+    /**
+     * Get number of indexed entries
+     *
+     * @return Number of entries
+     **/
+
+    @Override
+    public int size() {
+        this.lock.readLock().lock();
+
+        try {
+            return this.valueById.size();
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    private void putUnlocked(int id, int value) {
+        if (this.valueById.containsKey(id)) {
+            if (this.valueById.getOrDefault(id, 0) == value) {
+                return;
+            }
+
+            removeUnlocked(id);
+        }
+
+        IntList ids = this.idsByValue.computeIfAbsent(value, key -> new IntList());
+        int pos = ids.binarySearch(id);
+
+        /* Ids mostly grow, so this is an append most of the time */
+        ids.insert(0 <= pos ? pos : -(pos + 1), id);
+
+        this.valueById.put(id, value);
+    }
+
+    private void removeUnlocked(int id) {
+        if (!this.valueById.containsKey(id)) {
+            return;
+        }
+
+        int value = this.valueById.getOrDefault(id, 0);
+        IntList ids = this.idsByValue.get(value);
+        int pos = ids.binarySearch(id);
+
+        if (0 <= pos) {
+            ids.removeAt(pos);
+        }
+
+        if (ids.isEmpty()) {
+            this.idsByValue.remove(value);
+        }
+
+        this.valueById.remove(id);
+    }
+
+    /**
+     * Get sorted distinct values within given range
+     *
+     * @param  range  A {@link IndexRange} to check
+     *
+     * @return Array of matching values
+     **/
+
+    private int[] valuesWithin(IndexRange range) {
+        IntList retVal = new IntList(this.idsByValue.size());
+
+        this.idsByValue.forEach((value, ids) -> {
+            if (isWithin(value, range)) {
+                retVal.add(value);
+            }
+        });
+
+        int[] values = retVal.toArray();
+
+        Arrays.sort(values);
+
+        return values;
+    }
+
+    /**
+     * Get ids of given value; the cursor of the range applies to its lower bound only
+     *
+     * @param  value  Value to look up
+     * @param  range  A {@link IndexRange} with the cursor
+     *
+     * @return Array of sorted ids
+     **/
+
+    private int[] idsOf(int value, IndexRange range) {
+        IntList ids = this.idsByValue.get(value);
+
+        if (null == ids) {
+            return new int[0];
+        }
+
+        int from = 0;
+
+        if (null != range.getAfterId() && range.isLowerInclusive()
+                && Integer.valueOf(value).equals(range.getLower()))
+        {
+            int pos = ids.binarySearch(range.getAfterId());
+
+            from = 0 <= pos ? pos + 1 : -(pos + 1);
+        }
+
+        return ids.toArray(from, ids.size());
+    }
+
+    private static boolean isWithin(int value, IndexRange range) {
+        if (null != range.getLower()) {
+            int lower = (Integer) range.getLower();
+
+            if (value < lower || !range.isLowerInclusive() && value == lower) {
+                return false;
+            }
+        }
+
+        if (null != range.getUpper()) {
+            int upper = (Integer) range.getUpper();
+
+            if (value > upper || !range.isUpperInclusive() && value == upper) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+}
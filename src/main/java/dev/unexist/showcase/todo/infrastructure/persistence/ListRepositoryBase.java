@@ -0,0 +1,771 @@
+/**
+ * @package Showcase-OData-Quarkus
+ *
+ * @file List repository base
+ * @copyright 2024-present Christoph Kappel <christoph@unexist.dev>
+ * @version $Id$
+ *
+ * This program can be distributed under the terms of the Apache License v2.0.
+ * See the file LICENSE for details.
+ **/
+
+package dev.unexist.showcase.todo.infrastructure.persistence;
+
+import dev.unexist.showcase.todo.domain.Change;
+import dev.unexist.showcase.todo.domain.CrudRepository;
+import dev.unexist.showcase.todo.domain.IndexRange;
+import dev.unexist.showcase.todo.infrastructure.collection.ConcurrentIntArrayMap;
+import dev.unexist.showcase.todo.infrastructure.event.ChangeEventBus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public abstract class ListRepositoryBase<K> implements CrudRepository<K> {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ListRepositoryBase.class);
+
+    /* Number of changes kept for incremental readers; about 5 bytes each */
+    private static final int CHANGE_LOG_CAPACITY = 65536;
+
+    @Inject
+    ListUnitOfWork unitOfWork;
+
+    @Inject
+    ChangeEventBus changeEventBus;
+
+    private final AtomicInteger lastId;
+    private final AtomicLong version;
+    private final AtomicInteger size;
+    private final ConcurrentIntArrayMap<Row<K>> rows;
+    private final Map<String, SecondaryIndex<K>> indexes;
+    private final ChangeLog changeLog;
+
+    /* Repository versions open snapshots read at, along with their number of readers */
+    private final ConcurrentSkipListMap<Long, Integer> readVersions;
+
+    /* Ids with older row versions kept for readers; pruned once the readers moved on */
+    private final Queue<Garbage> garbage;
+
+    /* Snapshot of the last version; shared by all readers until the next write */
+    private volatile RepositorySnapshot<K> snapshot;
+
+    /**
+     * Stored entry along with its row version
+     *
+     * Every write stacks a new row onto the previous one, so snapshots find the row of their
+     * version without any copy. Deleted entries leave a row without a value as long as older
+     * snapshots may still read them.
+     **/
+
+    static final class Row<K> {
+        final K value;
+        final long version;
+        final long commit;
+        volatile Row<K> previous;
+
+        /**
+         * Constructor
+         *
+         * @param  value     A {@link K} entry; {@code null} when deleted
+         * @param  version   Row version of the entry
+         * @param  commit    Repository version of the write
+         * @param  previous  Row this one replaces; might be {@code null}
+         **/
+
+        Row(K value, long version, long commit, Row<K> previous) {
+            this.value = value;
+            this.version = version;
+            this.commit = commit;
+            this.previous = previous;
+        }
+    }
+
+    /**
+     * Id with row versions that can be pruned once no snapshot reads before given version
+     **/
+
+    private static final class Garbage {
+        final int id;
+        final long commit;
+
+        Garbage(int id, long commit) {
+            this.id = id;
+            this.commit = commit;
+        }
+    }
+
+    /**
+     * Constructor
+     **/
+
+    public ListRepositoryBase() {
+        this.lastId = new AtomicInteger();
+        this.version = new AtomicLong();
+        this.size = new AtomicInteger();
+        this.rows = new ConcurrentIntArrayMap<>();
+        this.indexes = new ConcurrentHashMap<>();
+        this.changeLog = new ChangeLog(CHANGE_LOG_CAPACITY);
+        this.readVersions = new ConcurrentSkipListMap<>();
+        this.garbage = new ConcurrentLinkedQueue<>();
+    }
+
+    /**
+     * Get id of given entry
+     *
+     * @param  k  A {@link K} entry
+     *
+     * @return Id of the entry
+     **/
+
+    protected abstract int getId(K k);
+
+    /**
+     * Set id of given entry
+     *
+     * @param  k   A {@link K} entry
+     * @param  id  Id to set
+     **/
+
+    protected abstract void setId(K k, int id);
+
+    /**
+     * Get name of the entity of published change events
+     *
+     * @return Name of the entity, e.g. {@code todo}
+     **/
+
+    protected abstract String getEntityName();
+
+    /**
+     * Create a sorted index for the given property
+     *
+     * @param  name  Name of the property to index
+     *
+     * @return Either a newly created {@link SecondaryIndex}; otherwise {@code null} for unknown properties
+     **/
+
+    protected abstract SecondaryIndex<K> createIndex(String name);
+
+    /**
+     * Register the repository for read snapshots of the unit of work
+     **/
+
+    protected void register() {
+        this.unitOfWork.register(this);
+    }
+
+    /**
+     * Take a snapshot of the current version
+     *
+     * Snapshots just remember the version they read at, so taking one costs the same for
+     * any number of entries. Row versions of pinned snapshots are kept until they are
+     * released again.
+     *
+     * @param  isPinned  Whether the snapshot has to stay stable while others write; otherwise
+     *                   it always reads the latest rows
+     *
+     * @return A {@link RepositorySnapshot} of the entries
+     **/
+
+    RepositorySnapshot<K> takeSnapshot(boolean isPinned) {
+        long currentVersion = this.version.get();
+
+        if (!isPinned) {
+            return new RepositorySnapshot<>(this.rows, currentVersion, Long.MAX_VALUE,
+                    this.changeLog.getSequence());
+        }
+
+        this.readVersions.merge(currentVersion, 1, Integer::sum);
+
+        RepositorySnapshot<K> retVal = this.snapshot;
+
+        /* Writers log while holding their locks, so between two writes both belong together */
+        if (null == retVal || retVal.getVersion() != currentVersion) {
+            retVal = new RepositorySnapshot<>(this.rows, currentVersion, currentVersion,
+                    this.changeLog.getSequence());
+
+            this.snapshot = retVal;
+        }
+
+        return retVal;
+    }
+
+    /**
+     * Release a snapshot and prune the row versions nobody reads anymore
+     *
+     * @param  view         A {@link RepositorySnapshot} to release
+     * @param  canVacuum    Whether the caller holds no locks and may prune row versions
+     **/
+
+    void releaseSnapshot(RepositorySnapshot<K> view, boolean canVacuum) {
+        if (view.isPinned()) {
+            this.readVersions.computeIfPresent(view.getVersion(),
+                    (readVersion, readers) -> 1 < readers ? readers - 1 : null);
+
+            if (canVacuum) {
+                this.vacuum();
+            }
+        }
+    }
+
+    /**
+     * Create an index of the ids, which just walks the stored rows in id order
+     *
+     * @param  name  Name of the index
+     *
+     * @return A new {@link SecondaryIndex}
+     **/
+
+    protected SecondaryIndex<K> createIdIndex(String name) {
+        return new IdIndex<>(name, this.rows);
+    }
+
+    /**
+     * Create and fill sorted indexes for given properties
+     *
+     * @param  names  Names of the properties to index
+     **/
+
+    public void createIndexes(List<String> names) {
+        for (String name : names) {
+            SecondaryIndex<K> index = this.createIndex(name.trim());
+
+            if (null == index) {
+                LOGGER.warn("createIndexes: property={} cannot be indexed", name);
+
+                continue;
+            }
+
+            Map<Integer, K> existing = new LinkedHashMap<>();
+
+            for (int id = this.rows.nextKey(0); 0 <= id; id = this.rows.nextKey(id + 1)) {
+                K k = this.findLive(id);
+
+                if (null != k) {
+                    existing.put(id, k);
+                }
+            }
+
+            index.putAll(existing);
+            this.indexes.put(index.getName(), index);
+        }
+    }
+
+    @Override
+    public boolean add(final K k) {
+        int id = this.lastId.incrementAndGet();
+
+        this.unitOfWork.lock(id);
+
+        try {
+            this.setId(k, id);
+            this.store(id, k, 1L);
+            this.logChange(id, Change.Type.CREATED);
+            this.unitOfWork.recordUndo(() -> this.unstore(id));
+        } finally {
+            this.unitOfWork.unlock(id);
+        }
+
+        return true;
+    }
+
+    @Override
+    public boolean addAll(final List<K> ks) {
+        if (ks.isEmpty()) {
+            return true;
+        }
+
+        this.unitOfWork.lockAll();
+
+        try {
+            int id = this.lastId.getAndAdd(ks.size());
+            long commit = this.version.incrementAndGet();
+            Map<Integer, K> added = new LinkedHashMap<>();
+
+            for (K k : ks) {
+                this.setId(k, ++id);
+
+                added.put(id, k);
+                this.rows.put(id, new Row<>(k, 1L, commit, null));
+                this.logChange(id, Change.Type.CREATED);
+            }
+
+            this.size.addAndGet(added.size());
+            this.indexes.values().forEach(index -> index.putAll(added));
+            this.unitOfWork.recordUndo(() -> added.keySet().forEach(this::unstore));
+        } finally {
+            this.unitOfWork.unlockAll();
+        }
+
+        return true;
+    }
+
+    @Override
+    public boolean update(final K k) {
+        return this.compareAndUpdate(this.getId(k), oldK -> k, null);
+    }
+
+    @Override
+    public boolean update(final K k, long expectedVersion) {
+        return this.compareAndUpdate(this.getId(k), oldK -> k, expectedVersion);
+    }
+
+    @Override
+    public boolean update(int id, UnaryOperator<K> updater) {
+        return this.compareAndUpdate(id, updater, null);
+    }
+
+    @Override
+    public boolean update(int id, UnaryOperator<K> updater, long expectedVersion) {
+        return this.compareAndUpdate(id, updater, expectedVersion);
+    }
+
+    @Override
+    public boolean deleteById(int id) {
+        return this.compareAndDelete(id, null);
+    }
+
+    @Override
+    public boolean deleteById(int id, long expectedVersion) {
+        return this.compareAndDelete(id, expectedVersion);
+    }
+
+    /**
+     * Replace entry with the result of the updater while holding the lock of its id
+     *
+     * @param  id               Id of the entry
+     * @param  updater          A {@link UnaryOperator} to create the new entry from the stored one
+     * @param  expectedVersion  Expected row version; {@code null} to skip the check
+     *
+     * @return Either {@code true} on success; otherwise {@code false} if not found or modified
+     **/
+
+    private boolean compareAndUpdate(int id, UnaryOperator<K> updater, Long expectedVersion) {
+        boolean ret = false;
+
+        this.unitOfWork.lock(id);
+
+        try {
+            Row<K> oldRow = this.findLiveRow(id);
+
+            if (null != oldRow && (null == expectedVersion || expectedVersion == oldRow.version)) {
+                K newK = updater.apply(oldRow.value);
+
+                this.setId(newK, id);
+                this.store(id, newK, oldRow.version + 1);
+                this.logChange(id, Change.Type.UPDATED);
+                this.unitOfWork.recordUndo(() -> this.store(id, oldRow.value, oldRow.version));
+
+                ret = true;
+            } else {
+                LOGGER.warn("update: id={} version={} not found", id, expectedVersion);
+            }
+        } finally {
+            this.unitOfWork.unlock(id);
+        }
+
+        return ret;
+    }
+
+    /**
+     * Remove entry while holding the lock of its id
+     *
+     * @param  id               Id of the entry
+     * @param  expectedVersion  Expected row version; {@code null} to skip the check
+     *
+     * @return Either {@code true} on success; otherwise {@code false} if not found or modified
+     **/
+
+    private boolean compareAndDelete(int id, Long expectedVersion) {
+        boolean ret = false;
+
+        this.unitOfWork.lock(id);
+
+        try {
+            Row<K> oldRow = this.findLiveRow(id);
+
+            if (null != oldRow && (null == expectedVersion || expectedVersion == oldRow.version)) {
+                this.unstore(id);
+                this.logChange(id, Change.Type.DELETED);
+                this.unitOfWork.recordUndo(() -> this.store(id, oldRow.value, oldRow.version));
+
+                ret = true;
+            } else {
+                LOGGER.warn("deleteById: id={} version={} not found", id, expectedVersion);
+            }
+        } finally {
+            this.unitOfWork.unlock(id);
+        }
+
+        return ret;
+    }
+
+    /**
+     * Store entry with given row version and update all indexes
+     *
+     * @param  id          Id of the entry
+     * @param  k           A {@link K} entry to store
+     * @param  rowVersion  Row version of the entry
+     **/
+
+    private void store(int id, K k, long rowVersion) {
+        long commit = this.version.incrementAndGet();
+        Row<K> oldRow = this.rows.get(id);
+        Row<K> newRow = new Row<>(k, rowVersion, commit, oldRow);
+
+        this.rows.put(id, newRow);
+
+        if (null == oldRow || null == oldRow.value) {
+            this.size.incrementAndGet();
+        }
+
+        this.indexes.values().forEach(index -> index.put(id, k));
+        this.prune(id, newRow);
+    }
+
+    /**
+     * Remove entry from store and all indexes
+     *
+     * @param  id  Id of the entry
+     **/
+
+    private void unstore(int id) {
+        Row<K> oldRow = this.findLiveRow(id);
+
+        if (null != oldRow) {
+            Row<K> deletedRow = new Row<>(null, oldRow.version,
+                    this.version.incrementAndGet(), oldRow);
+
+            this.rows.put(id, deletedRow);
+            this.size.decrementAndGet();
+            this.indexes.values().forEach(index -> index.remove(id));
+            this.prune(id, deletedRow);
+        }
+    }
+
+    /**
+     * Append change of given id to the change log and publish it once it is committed
+     *
+     * Store and unstore don't log, so undoing the writes of a rolled back unit of work
+     * leaves no trace in the change log. Both happen while the writer still holds its lock,
+     * so events are numbered in the order of the commits.
+     *
+     * @param  id    Id of the changed entry
+     * @param  type  A {@link Change.Type} of the change
+     **/
+
+    private void logChange(int id, Change.Type type) {
+        this.unitOfWork.recordCommit(() -> {
+            this.changeLog.append(id, type);
+
+            /* Nobody listens when used without the container */
+            if (null != this.changeEventBus) {
+                this.changeEventBus.publish(this.getEntityName(), id, type);
+            }
+        });
+    }
+
+    /**
+     * Drop all row versions of given id no snapshot can read anymore
+     *
+     * Has to be called while holding the lock of the id.
+     *
+     * @param  id    Id of the entry
+     * @param  head  Latest {@link Row} of the entry
+     **/
+
+    private void prune(int id, Row<K> head) {
+        Row<K> kept = head;
+
+        /* Snapshots read the first row which isn't newer than themselves; skip all others */
+        for (Row<K> newer = head, row = head.previous; null != row;
+             newer = row, row = row.previous)
+        {
+            Long readVersion = this.readVersions.ceilingKey(row.commit);
+
+            if (null != readVersion && readVersion < newer.commit) {
+                kept.previous = row;
+                kept = row;
+            }
+        }
+
+        kept.previous = null;
+
+        if (kept != head) {
+            this.garbage.add(new Garbage(id, head.commit));
+        } else if (null == head.value) {
+            this.rows.remove(id);
+        }
+    }
+
+    /**
+     * Prune row versions which were kept for snapshots older than the oldest open one
+     *
+     * Ids which are locked by writers are skipped; their next write or release prunes them.
+     **/
+
+    private void vacuum() {
+        Map.Entry<Long, Integer> oldestRead = this.readVersions.firstEntry();
+        long oldest = null != oldestRead ? oldestRead.getKey() : Long.MAX_VALUE;
+
+        for (Garbage next = this.garbage.peek(); null != next && next.commit <= oldest;
+             next = this.garbage.peek())
+        {
+            if (!this.garbage.remove(next)) {
+                continue;
+            }
+
+            if (!this.unitOfWork.tryLock(next.id)) {
+                this.garbage.add(next);
+
+                break;
+            }
+
+            try {
+                Row<K> head = this.rows.get(next.id);
+
+                if (null != head) {
+                    this.prune(next.id, head);
+                }
+            } finally {
+                this.unitOfWork.unlock(next.id);
+            }
+        }
+    }
+
+    /**
+     * Count stored row versions of given id, deleted ones included
+     *
+     * @param  id  Id to look up
+     *
+     * @return Number of row versions
+     **/
+
+    int countRowVersions(int id) {
+        int retVal = 0;
+
+        for (Row<K> row = this.rows.get(id); null != row; row = row.previous) {
+            retVal++;
+        }
+
+        return retVal;
+    }
+
+    /**
+     * Get current row of given id without any snapshot
+     *
+     * @param  id  Id to look up
+     *
+     * @return Either the found {@link Row}; otherwise {@code null}
+     **/
+
+    private Row<K> findLiveRow(int id) {
+        Row<K> row = this.rows.get(id);
+
+        return null != row && null != row.value ? row : null;
+    }
+
+    /**
+     * Get current value of given id without any snapshot
+     *
+     * @param  id  Id to look up
+     *
+     * @return Either the found entry; otherwise {@code null}
+     **/
+
+    private K findLive(int id) {
+        Row<K> row = this.rows.get(id);
+
+        return null != row ? row.value : null;
+    }
+
+    @Override
+    public List<K> getAll() {
+        RepositorySnapshot<K> view = this.unitOfWork.snapshotOf(this);
+
+        if (null != view) {
+            return view.getAll();
+        }
+
+        view = this.unitOfWork.snapshot(this);
+
+        try {
+            return view.getAll();
+        } finally {
+            this.unitOfWork.release(this, view);
+        }
+    }
+
+    @Override
+    public List<K> getPage(Integer afterId, int limit) {
+        RepositorySnapshot<K> view = this.unitOfWork.snapshotOf(this);
+
+        if (null != view) {
+            return view.getPage(afterId, limit);
+        }
+
+        List<K> retVal = new ArrayList<>(Math.min(limit, this.size.get()));
+        int from = null == afterId ? 0 : afterId + 1;
+
+        for (int id = this.rows.nextKey(from); 0 <= id && retVal.size() < limit;
+             id = this.rows.nextKey(id + 1))
+        {
+            K k = this.findLive(id);
+
+            /* Rows may vanish between both calls */
+            if (null != k) {
+                retVal.add(k);
+            }
+        }
+
+        return Collections.unmodifiableList(retVal);
+    }
+
+    @Override
+    public Optional<K> findById(int id) {
+        RepositorySnapshot<K> view = this.unitOfWork.snapshotOf(this);
+
+        return Optional.ofNullable(null != view ? view.findById(id) : this.findLive(id));
+    }
+
+    @Override
+    public Optional<Long> findVersionById(int id) {
+        RepositorySnapshot<K> view = this.unitOfWork.snapshotOf(this);
+
+        if (null != view) {
+            return view.findVersionById(id);
+        }
+
+        Row<K> row = this.findLiveRow(id);
+
+        return null != row ? Optional.of(row.version) : Optional.empty();
+    }
+
+    @Override
+    public Optional<K> findByPredicate(Predicate<K> filterBy) {
+        RepositorySnapshot<K> view = this.unitOfWork.snapshotOf(this);
+
+        if (null != view) {
+            return view.getAll().stream()
+                    .filter(filterBy)
+                    .findFirst();
+        }
+
+        for (int id = this.rows.nextKey(0); 0 <= id; id = this.rows.nextKey(id + 1)) {
+            K k = this.findLive(id);
+
+            if (null != k && filterBy.test(k)) {
+                return Optional.of(k);
+            }
+        }
+
+        return Optional.empty();
+    }
+
+    @Override
+    public List<K> findAllByPredicate(Predicate<K> filterBy) {
+        return this.getAll().stream()
+                .filter(filterBy)
+                .collect(Collectors.toUnmodifiableList());
+    }
+
+    @Override
+    public int count() {
+        RepositorySnapshot<K> view = this.unitOfWork.snapshotOf(this);
+
+        return null != view ? view.size() : this.size.get();
+    }
+
+    @Override
+    public long getVersion() {
+        RepositorySnapshot<K> view = this.unitOfWork.snapshotOf(this);
+
+        return null != view ? view.getVersion() : this.version.get();
+    }
+
+    @Override
+    public long getChangeSequence() {
+        RepositorySnapshot<K> view = this.unitOfWork.snapshotOf(this);
+
+        return null != view && view.isPinned()
+                ? view.getChangeSequence() : this.changeLog.getSequence();
+    }
+
+    @Override
+    public Optional<List<Change>> findChangesSince(long sequence) {
+        return this.changeLog.since(sequence, this.getChangeSequence());
+    }
+
+    @Override
+    public Set<String> getIndexNames() {
+        return Collections.unmodifiableSet(this.indexes.keySet());
+    }
+
+    @Override
+    public Optional<Stream<K>> findAllByIndex(String indexName, IndexRange range) {
+        SecondaryIndex<K> index = this.indexes.get(indexName);
+
+        if (null == index || !index.accepts(range.getLower()) || !index.accepts(range.getUpper())) {
+            return Optional.empty();
+        }
+
+        RepositorySnapshot<K> view = this.unitOfWork.snapshotOf(this);
+
+        if (null == view) {
+            return Optional.of(index.scan(range)
+                    .map(this::findLive)
+                    .filter(Objects::nonNull));
+        }
+
+        /* Indexes only know the latest state; use them just when no write happened since */
+        long stamp = this.unitOfWork.getStamp();
+
+        if (0 > stamp || view.getVersion() != this.version.get()) {
+            return Optional.empty();
+        }
+
+        List<K> found = index.scan(range)
+                .map(view::findById)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+
+        return stamp == this.unitOfWork.getStamp()
+                ? Optional.of(found.stream()) : Optional.empty();
+    }
+
+    @Override
+    public void clear() {
+        this.unitOfWork.lockAll();
+
+        try {
+            /* Row versions go as well, so open snapshots don't see the removed entries anymore */
+            this.rows.clear();
+            this.garbage.clear();
+            this.size.set(0);
+            this.indexes.values().forEach(SecondaryIndex::clear);
+            this.lastId.set(0);
+            this.version.incrementAndGet();
+            this.changeLog.reset();
+        } finally {
+            this.unitOfWork.unlockAll();
+        }
+    }
+}
@@ -0,0 +1,402 @@
+/**
+ * @package Showcase-OData-Quarkus
+ *
+ * @file List unit of work
+ * @copyright 2024-present Christoph Kappel <christoph@unexist.dev>
+ * @version $Id$
+ *
+ * This program can be distributed under the terms of the Apache License v2.0.
+ * See the file LICENSE for details.
+ **/
+
+package dev.unexist.showcase.todo.infrastructure.persistence;
+
+import dev.unexist.showcase.todo.domain.UnitOfWork;
+
+import javax.enterprise.context.ApplicationScoped;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+@ApplicationScoped
+public class ListUnitOfWork implements UnitOfWork {
+    private static final int MAX_SNAPSHOT_ATTEMPTS = 8;
+
+    /* Power of two, so the stripe of an id is just a mask */
+    private static final int LOCK_STRIPES = 256;
+
+    /* Shared by single writes, exclusive for units of work and bulk writes */
+    private final ReentrantReadWriteLock globalLock;
+    private final ReentrantLock[] stripes;
+    private final ThreadLocal<Deque<Runnable>> undoLog;
+    private final ThreadLocal<List<Runnable>> commitLog;
+
+    /* Equal while no writer is active, so readers can detect concurrent writes */
+    private final AtomicLong startedWrites;
+    private final AtomicLong finishedWrites;
+    private final List<ListRepositoryBase<?>> repositories;
+    private final ThreadLocal<Map<ListRepositoryBase<?>, RepositorySnapshot<?>>> snapshots;
+
+    /**
+     * Constructor
+     **/
+
+    public ListUnitOfWork() {
+        this.globalLock = new ReentrantReadWriteLock();
+        this.stripes = new ReentrantLock[LOCK_STRIPES];
+        this.undoLog = new ThreadLocal<>();
+        this.commitLog = new ThreadLocal<>();
+        this.startedWrites = new AtomicLong();
+        this.finishedWrites = new AtomicLong();
+
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            this.stripes[i] = new ReentrantLock();
+        }
+        this.repositories = new CopyOnWriteArrayList<>();
+        this.snapshots = new ThreadLocal<>();
+    }
+
+    @Override
+    public void begin() {
+        if (null != this.undoLog.get()) {
+            throw new IllegalStateException("Unit of work already active");
+        }
+
+        this.lockAll();
+        this.undoLog.set(new ArrayDeque<>());
+        this.commitLog.set(new ArrayList<>());
+    }
+
+    @Override
+    public void commit() {
+        if (null == this.undoLog.get()) {
+            throw new IllegalStateException("No active unit of work");
+        }
+
+        List<Runnable> logActions = this.commitLog.get();
+
+        try {
+            /* Still under the lock, so change logs and events keep the order of the commits */
+            logActions.forEach(Runnable::run);
+        } finally {
+            this.undoLog.remove();
+            this.commitLog.remove();
+            this.unlockAll();
+        }
+    }
+
+    @Override
+    public void rollback() {
+        Deque<Runnable> undoActions = this.undoLog.get();
+
+        if (null == undoActions) {
+            throw new IllegalStateException("No active unit of work");
+        }
+
+        try {
+            while (!undoActions.isEmpty()) {
+                undoActions.pop().run();
+            }
+        } finally {
+            this.undoLog.remove();
+            this.commitLog.remove();
+            this.unlockAll();
+        }
+    }
+
+    @Override
+    public boolean isActive() {
+        return null != this.undoLog.get();
+    }
+
+    @Override
+    public void openSnapshot() {
+        if (null != this.snapshots.get()) {
+            throw new IllegalStateException("Snapshot already open");
+        }
+
+        this.snapshots.set(this.capture(this.repositories));
+    }
+
+    @Override
+    public void closeSnapshot() {
+        Map<ListRepositoryBase<?>, RepositorySnapshot<?>> pinned = this.snapshots.get();
+
+        this.snapshots.remove();
+
+        if (null != pinned) {
+            this.release(pinned);
+        }
+    }
+
+    /**
+     * Register a repository, so it is part of every read snapshot
+     *
+     * @param  repository  A {@link ListRepositoryBase} to register
+     **/
+
+    void register(ListRepositoryBase<?> repository) {
+        this.repositories.add(repository);
+    }
+
+    /**
+     * Get snapshot of given repository of the read snapshot of the current thread
+     *
+     * @param  repository  A {@link ListRepositoryBase} to look up
+     * @param  <K>         Type of the entries
+     *
+     * @return Either the pinned {@link RepositorySnapshot}; otherwise {@code null} when no
+     *         snapshot is open or the current thread is inside of a unit of work
+     **/
+
+    @SuppressWarnings("unchecked")
+    <K> RepositorySnapshot<K> snapshotOf(ListRepositoryBase<K> repository) {
+        Map<ListRepositoryBase<?>, RepositorySnapshot<?>> pinned = this.snapshots.get();
+
+        if (null == pinned || this.isActive()) {
+            return null;
+        }
+
+        return (RepositorySnapshot<K>) pinned.get(repository);
+    }
+
+    /**
+     * Take a consistent snapshot of a single repository
+     *
+     * @param  repository  A {@link ListRepositoryBase} to snapshot
+     * @param  <K>         Type of the entries
+     *
+     * @return A {@link RepositorySnapshot} of the last committed state; has to be released
+     *         via {@link #release(ListRepositoryBase, RepositorySnapshot)}
+     **/
+
+    @SuppressWarnings("unchecked")
+    <K> RepositorySnapshot<K> snapshot(ListRepositoryBase<K> repository) {
+        return (RepositorySnapshot<K>) this.capture(List.of(repository)).get(repository);
+    }
+
+    /**
+     * Release snapshot of a single repository
+     *
+     * @param  repository  A {@link ListRepositoryBase} of the snapshot
+     * @param  view        A {@link RepositorySnapshot} to release
+     * @param  <K>         Type of the entries
+     **/
+
+    <K> void release(ListRepositoryBase<K> repository, RepositorySnapshot<K> view) {
+        repository.releaseSnapshot(view, !this.isWriting());
+    }
+
+    /**
+     * Get current write stamp
+     *
+     * @return Either the number of finished writes; otherwise {@code -1} while a writer is active
+     **/
+
+    long getStamp() {
+        long finished = this.finishedWrites.get();
+
+        return this.startedWrites.get() == finished ? finished : -1L;
+    }
+
+    /**
+     * Acquire the lock of given id for a single write
+     *
+     * Writes to ids of different stripes run in parallel; inside of an active unit of work
+     * the locks pass immediately.
+     *
+     * @param  id  Id of the entry to write
+     **/
+
+    void lock(int id) {
+        this.globalLock.readLock().lock();
+        this.stripes[stripeOf(id)].lock();
+        this.startedWrites.incrementAndGet();
+    }
+
+    /**
+     * Acquire the lock of given id only if no other writer holds it
+     *
+     * @param  id  Id of the entry to write
+     *
+     * @return Either {@code true} when locked; otherwise {@code false}
+     **/
+
+    boolean tryLock(int id) {
+        if (!this.globalLock.readLock().tryLock()) {
+            return false;
+        }
+
+        if (!this.stripes[stripeOf(id)].tryLock()) {
+            this.globalLock.readLock().unlock();
+
+            return false;
+        }
+
+        this.startedWrites.incrementAndGet();
+
+        return true;
+    }
+
+    /**
+     * Release the lock of given id
+     *
+     * @param  id  Id of the written entry
+     **/
+
+    void unlock(int id) {
+        this.finishedWrites.incrementAndGet();
+        this.stripes[stripeOf(id)].unlock();
+        this.globalLock.readLock().unlock();
+    }
+
+    /**
+     * Acquire the exclusive lock for a unit of work or a write of many entries
+     *
+     * The lock is reentrant, so writes inside of an active unit of work pass immediately.
+     **/
+
+    void lockAll() {
+        this.globalLock.writeLock().lock();
+
+        if (1 == this.globalLock.getWriteHoldCount()) {
+            this.startedWrites.incrementAndGet();
+        }
+    }
+
+    /**
+     * Release the exclusive lock
+     **/
+
+    void unlockAll() {
+        if (1 == this.globalLock.getWriteHoldCount()) {
+            this.finishedWrites.incrementAndGet();
+        }
+
+        this.globalLock.writeLock().unlock();
+    }
+
+    /**
+     * Record an action to revert a write if a unit of work is active
+     *
+     * @param  undoAction  A {@link Runnable} to revert the write
+     **/
+
+    void recordUndo(Runnable undoAction) {
+        Deque<Runnable> undoActions = this.undoLog.get();
+
+        if (null != undoActions) {
+            undoActions.push(undoAction);
+        }
+    }
+
+    /**
+     * Record an action to log a write once it is committed
+     *
+     * Actions of a unit of work run on commit while still holding its lock and are dropped
+     * on rollback; without a unit of work they run immediately.
+     *
+     * @param  logAction  A {@link Runnable} to log the write
+     **/
+
+    void recordCommit(Runnable logAction) {
+        List<Runnable> logActions = this.commitLog.get();
+
+        if (null != logActions) {
+            logActions.add(logAction);
+        } else {
+            logAction.run();
+        }
+    }
+
+    /**
+     * Snapshot given repositories at one point in time between two writes
+     *
+     * Snapshots are taken optimistically and retried when a writer interfered; taking one
+     * just pins the current version of every repository, so retries are cheap.
+     *
+     * @param  toCapture  List of {@link ListRepositoryBase} to snapshot
+     *
+     * @return Map of repositories to their {@link RepositorySnapshot}
+     **/
+
+    private Map<ListRepositoryBase<?>, RepositorySnapshot<?>> capture(
+            List<ListRepositoryBase<?>> toCapture)
+    {
+        /* Inside of a write the own changes are the current state */
+        if (this.isWriting()) {
+            return this.pin(toCapture, false);
+        }
+
+        for (int attempt = 0; attempt < MAX_SNAPSHOT_ATTEMPTS; attempt++) {
+            long before = this.getStamp();
+
+            if (0 > before) {
+                /* Writes are short; give the writer a chance instead of reading its changes */
+                Thread.yield();
+
+                continue;
+            }
+
+            Map<ListRepositoryBase<?>, RepositorySnapshot<?>> retVal = this.pin(toCapture, true);
+
+            if (this.getStamp() == before) {
+                return retVal;
+            }
+
+            this.release(retVal);
+        }
+
+        /* Writers keep interfering; hold them off just for pinning the versions */
+        this.globalLock.writeLock().lock();
+
+        try {
+            return this.pin(toCapture, true);
+        } finally {
+            this.globalLock.writeLock().unlock();
+        }
+    }
+
+    private Map<ListRepositoryBase<?>, RepositorySnapshot<?>> pin(
+            List<ListRepositoryBase<?>> toCapture, boolean isPinned)
+    {
+        Map<ListRepositoryBase<?>, RepositorySnapshot<?>> retVal = new IdentityHashMap<>();
+
+        for (ListRepositoryBase<?> repository : toCapture) {
+            retVal.put(repository, repository.takeSnapshot(isPinned));
+        }
+
+        return retVal;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void release(Map<ListRepositoryBase<?>, RepositorySnapshot<?>> pinned) {
+        for (Map.Entry<ListRepositoryBase<?>, RepositorySnapshot<?>> entry : pinned.entrySet()) {
+            this.release((ListRepositoryBase<Object>) entry.getKey(),
+                    (RepositorySnapshot<Object>) entry.getValue());
+        }
+    }
+
+    /**
+     * Whether the current thread holds any write lock
+     *
+     * @return Either {@code true} while writing; otherwise {@code false}
+     **/
+
+    private boolean isWriting() {
+        return this.globalLock.isWriteLockedByCurrentThread()
+                || 0 < this.globalLock.getReadHoldCount();
+    }
+
+    private static int stripeOf(int id) {
+        /* Ids are handed out sequentially, so the low bits are already spread evenly */
+        return id & (LOCK_STRIPES - 1);
+    }
+}
@@ -0,0 +1,195 @@
+/**
+ * @package Showcase-OData-Quarkus
+ *
+ * @file Repository snapshot
+ * @copyright 2024-present Christoph Kappel <christoph@unexist.dev>
+ * @version $Id$
+ *
+ * This program can be distributed under the terms of the Apache License v2.0.
+ * See the file LICENSE for details.
+ **/
+
+package dev.unexist.showcase.todo.infrastructure.persistence;
+
+import dev.unexist.showcase.todo.infrastructure.collection.ConcurrentIntArrayMap;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+final class RepositorySnapshot<K> {
+    private final ConcurrentIntArrayMap<ListRepositoryBase.Row<K>> rows;
+    private final long version;
+    private final long visibleCommit;
+    private final long changeSequence;
+
+    /* All entries; collected once on first use and shared by all readers of the version */
+    private volatile List<K> values;
+
+    /**
+     * Constructor
+     *
+     * Nothing is copied; reads pick the latest row of every id which isn't newer than the
+     * snapshot, so the repository has to keep those rows until the snapshot is released.
+     *
+     * @param  rows           A {@link ConcurrentIntArrayMap} of rows by id
+     * @param  version        Repository version of the snapshot
+     * @param  visibleCommit   Newest repository version of visible rows; {@link Long#MAX_VALUE}
+     *                         to always read the latest rows
+     * @param  changeSequence  Sequence number of the last logged change of the version
+     **/
+
+    RepositorySnapshot(ConcurrentIntArrayMap<ListRepositoryBase.Row<K>> rows, long version,
+                       long visibleCommit, long changeSequence)
+    {
+        this.rows = rows;
+        this.version = version;
+        this.visibleCommit = visibleCommit;
+        this.changeSequence = changeSequence;
+    }
+
+    /**
+     * Get repository version of the snapshot
+     *
+     * @return Version of the snapshot
+     **/
+
+    long getVersion() {
+        return this.version;
+    }
+
+    /**
+     * Get sequence number of the last change the snapshot contains
+     *
+     * @return Sequence number of the last change
+     **/
+
+    long getChangeSequence() {
+        return this.changeSequence;
+    }
+
+    /**
+     * Whether the snapshot stays at its version while others write
+     *
+     * @return Either {@code true} if pinned; otherwise {@code false}
+     **/
+
+    boolean isPinned() {
+        return Long.MAX_VALUE != this.visibleCommit;
+    }
+
+    /**
+     * Get all entries ordered by id
+     *
+     * @return Immutable list of all entries
+     **/
+
+    List<K> getAll() {
+        List<K> retVal = this.values;
+
+        if (null == retVal) {
+            retVal = new ArrayList<>();
+
+            for (int id = this.rows.nextKey(0); 0 <= id; id = this.rows.nextKey(id + 1)) {
+                ListRepositoryBase.Row<K> row = this.findRow(id);
+
+                if (null != row) {
+                    retVal.add(row.value);
+                }
+            }
+
+            retVal = Collections.unmodifiableList(retVal);
+
+            /* Latest rows keep changing, so only pinned snapshots can share the list */
+            if (this.isPinned()) {
+                this.values = retVal;
+            }
+        }
+
+        return retVal;
+    }
+
+    /**
+     * Get a page of entries ordered by id
+     *
+     * @param  afterId  Id of the last entry of the previous page; {@code null} for the first page
+     * @param  limit    Maximum number of entries
+     *
+     * @return Immutable list of entries
+     **/
+
+    List<K> getPage(Integer afterId, int limit) {
+        List<K> retVal = new ArrayList<>();
+        int from = null == afterId ? 0 : afterId + 1;
+
+        for (int id = this.rows.nextKey(from); 0 <= id && retVal.size() < limit;
+             id = this.rows.nextKey(id + 1))
+        {
+            ListRepositoryBase.Row<K> row = this.findRow(id);
+
+            if (null != row) {
+                retVal.add(row.value);
+            }
+        }
+
+        return Collections.unmodifiableList(retVal);
+    }
+
+    /**
+     * Find entry by id
+     *
+     * @param  id  Id to look for
+     *
+     * @return Either the found entry; otherwise {@code null}
+     **/
+
+    K findById(int id) {
+        ListRepositoryBase.Row<K> row = this.findRow(id);
+
+        return null != row ? row.value : null;
+    }
+
+    /**
+     * Find row version by id
+     *
+     * @param  id  Id to look for
+     *
+     * @return Either the row version; otherwise an empty {@link Optional}
+     **/
+
+    Optional<Long> findVersionById(int id) {
+        ListRepositoryBase.Row<K> row = this.findRow(id);
+
+        return null != row ? Optional.of(row.version) : Optional.empty();
+    }
+
+    /**
+     * Get number of entries
+     *
+     * @return Number of entries
+     **/
+
+    int size() {
+        return this.getAll().size();
+    }
+
+    /**
+     * Find row of given id which was visible at the version of the snapshot
+     *
+     * @param  id  Id to look for
+     *
+     * @return Either the found {@link ListRepositoryBase.Row}; otherwise {@code null} when
+     *         the entry didn't exist or was deleted
+     **/
+
+    private ListRepositoryBase.Row<K> findRow(int id) {
+        for (ListRepositoryBase.Row<K> row = this.rows.get(id); null != row; row = row.previous) {
+            if (row.commit <= this.visibleCommit) {
+                return null != row.value ? row : null;
+            }
+        }
+
+        return null;
+    }
+}
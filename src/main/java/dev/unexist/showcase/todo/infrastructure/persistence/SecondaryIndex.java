@@ -0,0 +1,90 @@
+/**
+ * @package Showcase-OData-Quarkus
+ *
+ * @file Secondary index interface
+ * @copyright 2024-present Christoph Kappel <christoph@unexist.dev>
+ * @version $Id$
+ *
+ * This program can be distributed under the terms of the Apache License v2.0.
+ * See the file LICENSE for details.
+ **/
+
+package dev.unexist.showcase.todo.infrastructure.persistence;
+
+import dev.unexist.showcase.todo.domain.IndexRange;
+
+import java.util.Map;
+import java.util.stream.Stream;
+
+public interface SecondaryIndex<K> {
+
+    /**
+     * Get name of the index
+     *
+     * @return Name of the index
+     **/
+
+    String getName();
+
+    /**
+     * Whether the index can handle values of the given type
+     *
+     * @param  value  Value to check
+     *
+     * @return Either {@code true} if the value can be compared; otherwise {@code false}
+     **/
+
+    boolean accepts(Object value);
+
+    /**
+     * Add or replace the index entry of the given id
+     *
+     * @param  id  Id of the entry
+     * @param  k   A {@link K} entry to index
+     **/
+
+    void put(int id, K k);
+
+    /**
+     * Add or replace the index entries of all given ids
+     *
+     * @param  ks  A {@link Map} of id to {@link K} entry to index
+     **/
+
+    void putAll(Map<Integer, K> ks);
+
+    /**
+     * Remove the index entry of the given id
+     *
+     * @param  id  Id of the entry
+     **/
+
+    void remove(int id);
+
+    /**
+     * Remove all entries
+     **/
+
+    void clear();
+
+    /**
+     * Get ids of all entries within given range in index order
+     *
+     * Entries are ordered by value and then by id; unset values come first and are only
+     * part of unbounded ranges.
+     *
+     * @param  range  A {@link IndexRange} to scan
+     *
+     * @return A lazy {@link Stream} of matching ids
+     **/
+
+    Stream<Integer> scan(IndexRange range);
+
+    /**
+     * Get number of indexed entries
+     *
+     * @return Number of entries
+     **/
+
+    int size();
+}
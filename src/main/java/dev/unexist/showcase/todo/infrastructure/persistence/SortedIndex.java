@@ -0,0 +1,238 @@
+/**
+ * @package Showcase-OData-Quarkus
+ *
+ * @file Sorted secondary index
+ * @copyright 2024-present Christoph Kappel <christoph@unexist.dev>
+ * @version $Id$
+ *
+ * This program can be distributed under the terms of the Apache License v2.0.
+ * See the file LICENSE for details.
+ **/
+
+package dev.unexist.showcase.todo.infrastructure.persistence;
+
+import dev.unexist.showcase.todo.domain.IndexRange;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+public class SortedIndex<K> implements SecondaryIndex<K> {
+    private static final Comparator<Comparable<Object>> VALUE_ORDER =
+            Comparator.nullsFirst(Comparator.naturalOrder());
+
+    private final String name;
+    private final Class<?> type;
+    private final Function<K, ? extends Comparable<?>> extractor;
+    private final NavigableSet<Entry> entries;
+    private final ConcurrentMap<Integer, Entry> entriesById;
+
+    /**
+     * Entry of the index; ordered by value and then by id
+     **/
+
+    private static class Entry implements Comparable<Entry> {
+        private final Comparable<Object> value;
+        private final int id;
+
+        @SuppressWarnings("unchecked")
+        Entry(Comparable<?> value, int id) {
+            this.value = (Comparable<Object>) value;
+            this.id = id;
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            int result = VALUE_ORDER.compare(this.value, other.value);
+
+            return 0 != result ? result : Integer.compare(this.id, other.id);
+        }
+    }
+
+    /**
+     * Constructor
+     *
+     * @param  name       Name of the index
+     * @param  type       Type of the indexed values
+     * @param  extractor  A {@link Function} to extract the indexed value
+     **/
+
+    public SortedIndex(String name, Class<?> type, Function<K, ? extends Comparable<?>> extractor) {
+        this.name = name;
+        this.type = type;
+        this.extractor = extractor;
+        this.entries = new ConcurrentSkipListSet<>();
+        this.entriesById = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Get name of the index
+     *
+     * @return Name of the index
+     **/
+
+    @Override
+    public String getName() {
+        return this.name;
+    }
+
+    /**
+     * Whether the index can handle values of the given type
+     *
+     * @param  value  Value to check
+     *
+     * @return Either {@code true} if the value can be compared; otherwise {@code false}
+     **/
+
+    @Override
+    public boolean accepts(Object value) {
+        return null == value || this.type.isInstance(value);
+    }
+
+    /**
+     * Add or replace the index entry of the given id
+     *
+     * @param  id  Id of the entry
+     * @param  k   A {@link K} entry to index
+     **/
+
+    @Override
+    public void put(int id, K k) {
+        Entry entry = new Entry(this.extractor.apply(k), id);
+        Entry oldEntry = this.entriesById.put(id, entry);
+
+        if (null != oldEntry) {
+            this.entries.remove(oldEntry);
+        }
+
+        this.entries.add(entry);
+    }
+
+    /**
+     * Add or replace the index entries of all given ids
+     *
+     * @param  ks  A {@link Map} of id to {@link K} entry to index
+     **/
+
+    @Override
+    public void putAll(Map<Integer, K> ks) {
+        List<Entry> newEntries = new ArrayList<>(ks.size());
+
+        ks.forEach((id, k) -> {
+            Entry entry = new Entry(this.extractor.apply(k), id);
+            Entry oldEntry = this.entriesById.put(id, entry);
+
+            if (null != oldEntry) {
+                this.entries.remove(oldEntry);
+            }
+
+            newEntries.add(entry);
+        });
+
+        /* Inserting in order keeps the skip list walks short */
+        Collections.sort(newEntries);
+
+        this.entries.addAll(newEntries);
+    }
+
+    /**
+     * Remove the index entry of the given id
+     *
+     * @param  id  Id of the entry
+     **/
+
+    @Override
+    public void remove(int id) {
+        Entry oldEntry = this.entriesById.remove(id);
+
+        if (null != oldEntry) {
+            this.entries.remove(oldEntry);
+        }
+    }
+
+    /**
+     * Remove all entries
+     **/
+
+    @Override
+    public void clear() {
+        this.entriesById.clear();
+        this.entries.clear();
+    }
+
+    /**
+     * Get ids of all entries within given range in index order
+     *
+     * @param  range  A {@link IndexRange} to scan
+     *
+     * @return A lazy {@link Stream} of matching ids
+     **/
+
+    @Override
+    public Stream<Integer> scan(IndexRange range) {
+        Objects.requireNonNull(range, "Range cannot be null");
+
+        NavigableSet<Entry> view = this.entries;
+
+        if (null != range.getLower() && null != range.getUpper()) {
+            Entry lower = lowerBound(range);
+            Entry upper = upperBound(range);
+
+            /* Empty range; subSet would complain about it */
+            if (0 < lower.compareTo(upper)) {
+                return Stream.empty();
+            }
+
+            view = view.subSet(lower, true, upper, true);
+        } else if (null != range.getLower()) {
+            view = view.tailSet(lowerBound(range), true);
+        } else if (null != range.getUpper()) {
+            /* Skip null values, they never match a comparison */
+            view = view.subSet(new Entry(null, Integer.MAX_VALUE), false,
+                    upperBound(range), true);
+        }
+
+        if (range.isDescending()) {
+            view = view.descendingSet();
+        }
+
+        return view.stream()
+                .map(e -> e.id);
+    }
+
+    /**
+     * Get number of indexed entries
+     *
+     * @return Number of entries
+     **/
+
+    @Override
+    public int size() {
+        return this.entriesById.size();
+    }
+
+    private static Entry lowerBound(IndexRange range) {
+        int id = range.isLowerInclusive() ? Integer.MIN_VALUE : Integer.MAX_VALUE;
+
+        /* Continue behind the cursor; the cursor entry itself is excluded as well */
+        if (null != range.getAfterId() && range.isLowerInclusive()) {
+            id = (int) Math.min(range.getAfterId() + 1L, Integer.MAX_VALUE);
+        }
+
+        return new Entry(range.getLower(), id);
+    }
+
+    private static Entry upperBound(IndexRange range) {
+        return new Entry(range.getUpper(),
+                range.isUpperInclusive() ? Integer.MAX_VALUE : Integer.MIN_VALUE);
+    }
+}
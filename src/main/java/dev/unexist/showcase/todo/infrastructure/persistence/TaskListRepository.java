@@ -11,97 +11,68 @@
 
 package dev.unexist.showcase.todo.infrastructure.persistence;
 
-import dev.unexist.showcase.todo.domain.CrudRepository;
+import dev.unexist.showcase.todo.domain.ChangeEvent;
 import dev.unexist.showcase.todo.domain.task.Task;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 
+import javax.annotation.PostConstruct;
 import javax.enterprise.context.ApplicationScoped;
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
-import java.util.function.Predicate;
-import java.util.stream.Collectors;
 
 @ApplicationScoped
-public class TaskListRepository implements CrudRepository<Task> {
-    private static final Logger LOGGER = LoggerFactory.getLogger(TaskListRepository.class);
-    private final List<Task> list;
+public class TaskListRepository extends ListRepositoryBase<Task> {
+
+    @ConfigProperty(name = "todo.persistence.task.indexes")
+    Optional<List<String>> indexNames;
 
     /**
-     * Constructor
+     * Register for read snapshots and create configured indexes
      **/
 
-    public TaskListRepository() {
-        this.list = new ArrayList<>();
-    }
-
-    @Override
-    public boolean add(final Task task) {
-        task.setId(this.list.size() + 1);
-
-        return this.list.add(task);
-    }
-
-    @Override
-    public boolean update(final Task task) {
-        boolean ret = false;
-
-        try {
-            this.list.set(task.getId(), task);
-
-            ret = true;
-        } catch (IndexOutOfBoundsException e) {
-            LOGGER.warn("update: id={} not found", task.getId());
-        }
-
-        return ret;
+    @PostConstruct
+    void init() {
+        this.register();
+        this.indexNames.ifPresent(this::createIndexes);
     }
 
     @Override
-    public boolean deleteById(int id) {
-        boolean ret = false;
-
-        try {
-            this.list.remove(id);
-
-            ret = true;
-        } catch (IndexOutOfBoundsException e) {
-            LOGGER.warn("deleteById: id={} not found", id);
-        }
-
-        return ret;
+    protected int getId(Task task) {
+        return task.getId();
     }
 
     @Override
-    public List<Task> getAll() {
-        return Collections.unmodifiableList(this.list);
+    protected void setId(Task task, int id) {
+        task.setId(id);
     }
 
     @Override
-    public Optional<Task> findById(int id) {
-        return this.list.stream()
-                .filter(t -> t.getId() == id)
-                .findFirst();
+    protected String getEntityName() {
+        return ChangeEvent.ENTITY_TASK;
     }
 
     @Override
-    public Optional<Task> findByPredicate(Predicate<Task> filterBy) {
-        return this.list.stream()
-                .filter(filterBy)
-                .findFirst();
-    }
-
-    @Override
-    public List<Task> findAllByPredicate(Predicate<Task> filterBy) {
-        return this.list.stream()
-                .filter(filterBy)
-                .collect(Collectors.toUnmodifiableList());
-    }
+    protected SecondaryIndex<Task> createIndex(String name) {
+        SecondaryIndex<Task> retVal = null;
+
+        switch (name) {
+            case "id":
+                retVal = this.createIdIndex(name);
+                break;
+            case "todoId":
+                retVal = new IntHashIndex<>(name, Task::getTodoId);
+                break;
+            case "title":
+                retVal = new SortedIndex<>(name, String.class, Task::getTitle);
+                break;
+            case "description":
+                retVal = new SortedIndex<>(name, String.class, Task::getDescription);
+                break;
+            case "done":
+                retVal = new BitmapIndex<>(name, Task::getDone);
+                break;
+        }
 
-    @Override
-    public void clear() {
-        this.list.clear();
+        return retVal;
     }
 }
@@ -11,98 +11,91 @@
 
 package dev.unexist.showcase.todo.infrastructure.persistence;
 
-import dev.unexist.showcase.todo.domain.CrudRepository;
+import dev.unexist.showcase.todo.domain.ChangeEvent;
+import dev.unexist.showcase.todo.domain.todo.DueDate;
 import dev.unexist.showcase.todo.domain.todo.Todo;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 
+import javax.annotation.PostConstruct;
 import javax.enterprise.context.ApplicationScoped;
-import java.util.ArrayList;
-import java.util.Collections;
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
-import java.util.function.Predicate;
-import java.util.stream.Collectors;
+import java.util.function.Function;
 
 @ApplicationScoped
-public class TodoListRepository implements CrudRepository<Todo> {
-    private static final Logger LOGGER = LoggerFactory.getLogger(TodoListRepository.class);
+public class TodoListRepository extends ListRepositoryBase<Todo> {
 
-    private final List<Todo> list;
+    @ConfigProperty(name = "todo.persistence.todo.indexes")
+    Optional<List<String>> indexNames;
 
     /**
-     * Constructor
+     * Register for read snapshots and create configured indexes
      **/
 
-    public TodoListRepository() {
-        this.list = new ArrayList<>();
+    @PostConstruct
+    void init() {
+        this.register();
+        this.indexNames.ifPresent(this::createIndexes);
     }
 
     @Override
-    public boolean add(final Todo todo) {
-        todo.setId(this.list.size() + 1);
-
-        return this.list.add(todo);
+    protected int getId(Todo todo) {
+        return todo.getId();
     }
 
     @Override
-    public boolean update(final Todo todo) {
-        boolean ret = false;
-
-        try {
-            this.list.set(todo.getId(), todo);
-
-            ret = true;
-        } catch (IndexOutOfBoundsException e) {
-            LOGGER.warn("update: id={} not found", todo.getId());
-        }
-
-        return ret;
+    protected void setId(Todo todo, int id) {
+        todo.setId(id);
     }
 
     @Override
-    public boolean deleteById(int id) {
-        boolean ret = false;
-
-        try {
-            this.list.remove(id);
-
-            ret = true;
-        } catch (IndexOutOfBoundsException e) {
-            LOGGER.warn("deleteById: id={} not found", id);
-        }
-
-        return ret;
+    protected String getEntityName() {
+        return ChangeEvent.ENTITY_TODO;
     }
 
     @Override
-    public List<Todo> getAll() {
-        return Collections.unmodifiableList(this.list);
-    }
+    protected SecondaryIndex<Todo> createIndex(String name) {
+        SecondaryIndex<Todo> retVal = null;
+
+        switch (name) {
+            case "id":
+                retVal = this.createIdIndex(name);
+                break;
+            case "title":
+                retVal = new SortedIndex<>(name, String.class, Todo::getTitle);
+                break;
+            case "description":
+                retVal = new SortedIndex<>(name, String.class, Todo::getDescription);
+                break;
+            case "start":
+                retVal = new SortedIndex<>(name, Long.class,
+                        todo -> toEpochDay(todo, DueDate::getStart));
+                break;
+            case "due":
+                retVal = new SortedIndex<>(name, Long.class,
+                        todo -> toEpochDay(todo, DueDate::getDue));
+                break;
+        }
 
-    @Override
-    public Optional<Todo> findById(int id) {
-        return this.list.stream()
-                .filter(t -> t.getId() == id)
-                .findFirst();
+        return retVal;
     }
 
-    @Override
-    public Optional<Todo> findByPredicate(Predicate<Todo> filterBy) {
-        return this.list.stream()
-                .filter(filterBy)
-                .findFirst();
-    }
+    /**
+     * Get date of the {@link DueDate} of given {@link Todo} as epoch day
+     *
+     * Dates are indexed as plain numbers, which are cheaper to compare than {@link LocalDate}.
+     *
+     * @param  todo       A {@link Todo} to use
+     * @param  extractor  A {@link Function} to get the date
+     *
+     * @return Either the epoch day; otherwise {@code null} when unset
+     **/
 
-    @Override
-    public List<Todo> findAllByPredicate(Predicate<Todo> filterBy) {
-        return this.list.stream()
-                .filter(filterBy)
-                .collect(Collectors.toUnmodifiableList());
-    }
+    private static Long toEpochDay(Todo todo, Function<DueDate, LocalDate> extractor) {
+        DueDate dueDate = todo.getDueDate();
+        LocalDate date = null != dueDate ? extractor.apply(dueDate) : null;
 
-    @Override
-    public void clear() {
-        this.list.clear();
+        return null != date ? date.toEpochDay() : null;
     }
 }
@@ -14,11 +14,9 @@ package dev.unexist.showcase.todo.infrastructure.serde;
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.JsonDeserializer;
-import dev.unexist.showcase.todo.domain.todo.DueDate;
 
 import java.io.IOException;
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
 
 public class DateDeserializer extends JsonDeserializer<LocalDate> {
 
@@ -34,7 +32,8 @@ public class DateDeserializer extends JsonDeserializer<LocalDate> {
     @Override
     public LocalDate deserialize(JsonParser parser,
                                  DeserializationContext context) throws IOException {
-        return LocalDate.from(DateTimeFormatter.ofPattern(DueDate.DATE_PATTERN)
-                .parse(parser.getText()));
+        /* Parse straight from the buffer of the parser without creating a string */
+        return IsoDateCodec.parse(parser.getTextCharacters(),
+                parser.getTextOffset(), parser.getTextLength());
     }
 }
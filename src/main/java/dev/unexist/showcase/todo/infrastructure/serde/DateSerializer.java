@@ -14,11 +14,9 @@ package dev.unexist.showcase.todo.infrastructure.serde;
 import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.JsonSerializer;
 import com.fasterxml.jackson.databind.SerializerProvider;
-import dev.unexist.showcase.todo.domain.todo.DueDate;
 
 import java.io.IOException;
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
 
 public class DateSerializer extends JsonSerializer<LocalDate> {
 
@@ -34,6 +32,12 @@ public class DateSerializer extends JsonSerializer<LocalDate> {
     @Override
     public void serialize(LocalDate value, JsonGenerator gen,
                           SerializerProvider serializers) throws IOException {
-        gen.writeString(value.format(DateTimeFormatter.ofPattern(DueDate.DATE_PATTERN)));
+        char[] chars = new char[IsoDateCodec.LENGTH];
+
+        if (0 < IsoDateCodec.format(value, chars, 0)) {
+            gen.writeString(chars, 0, chars.length);
+        } else {
+            gen.writeString(IsoDateCodec.format(value));
+        }
     }
 }
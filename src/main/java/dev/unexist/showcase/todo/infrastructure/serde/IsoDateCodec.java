@@ -0,0 +1,194 @@
+/**
+ * @package Showcase-OData-Quarkus
+ *
+ * @file ISO date codec
+ * @copyright 2024-present Christoph Kappel <christoph@unexist.dev>
+ * @version $Id$
+ *
+ * This program can be distributed under the terms of the Apache License v2.0.
+ * See the file LICENSE for details.
+ **/
+
+package dev.unexist.showcase.todo.infrastructure.serde;
+
+import dev.unexist.showcase.todo.domain.todo.DueDate;
+
+import java.nio.CharBuffer;
+import java.time.LocalDate;
+import java.time.Month;
+import java.time.Year;
+import java.time.format.DateTimeFormatter;
+
+public final class IsoDateCodec {
+    public static final int LENGTH = DueDate.DATE_PATTERN.length();
+
+    /* Formatters are immutable and thread-safe, so a single instance is enough */
+    public static final DateTimeFormatter FORMATTER =
+            DateTimeFormatter.ofPattern(DueDate.DATE_PATTERN);
+
+    private IsoDateCodec() {
+    }
+
+    /**
+     * Parse a date in format {@code yyyy-MM-dd}
+     *
+     * @param  text  Text to parse
+     *
+     * @return Parsed {@link LocalDate}
+     * @throws java.time.format.DateTimeParseException if the text can't be parsed
+     **/
+
+    public static LocalDate parse(CharSequence text) {
+        LocalDate retVal = null;
+
+        if (LENGTH == text.length()) {
+            retVal = parseFast(text.charAt(0), text.charAt(1), text.charAt(2),
+                    text.charAt(3), text.charAt(4), text.charAt(5), text.charAt(6),
+                    text.charAt(7), text.charAt(8), text.charAt(9));
+        }
+
+        return null != retVal ? retVal : LocalDate.from(FORMATTER.parse(text));
+    }
+
+    /**
+     * Parse a date in format {@code yyyy-MM-dd} straight from a char buffer
+     *
+     * @param  chars   Buffer to read from
+     * @param  offset  Offset of the first char
+     * @param  length  Number of chars
+     *
+     * @return Parsed {@link LocalDate}
+     * @throws java.time.format.DateTimeParseException if the text can't be parsed
+     **/
+
+    public static LocalDate parse(char[] chars, int offset, int length) {
+        LocalDate retVal = null;
+
+        if (LENGTH == length) {
+            retVal = parseFast(chars[offset], chars[offset + 1], chars[offset + 2],
+                    chars[offset + 3], chars[offset + 4], chars[offset + 5], chars[offset + 6],
+                    chars[offset + 7], chars[offset + 8], chars[offset + 9]);
+        }
+
+        return null != retVal
+                ? retVal : LocalDate.from(FORMATTER.parse(CharBuffer.wrap(chars, offset, length)));
+    }
+
+    /**
+     * Format a date as {@code yyyy-MM-dd}
+     *
+     * @param  date  A {@link LocalDate} to format
+     *
+     * @return Formatted date
+     **/
+
+    public static String format(LocalDate date) {
+        char[] chars = new char[LENGTH];
+
+        return 0 < format(date, chars, 0) ? new String(chars) : FORMATTER.format(date);
+    }
+
+    /**
+     * Format a date as {@code yyyy-MM-dd} into a char buffer
+     *
+     * @param  date    A {@link LocalDate} to format
+     * @param  chars   Buffer to write to; needs room for {@link #LENGTH} chars
+     * @param  offset  Offset of the first char
+     *
+     * @return Either number of written chars; otherwise {@code 0} when the year isn't
+     *         within 1 and 9999 and must be formatted with {@link #FORMATTER}
+     **/
+
+    public static int format(LocalDate date, char[] chars, int offset) {
+        int year = date.getYear();
+
+        /* Pattern yyyy is the year of era, which differs for years before 1 */
+        if (1 > year || 9999 < year) {
+            return 0;
+        }
+
+        writeDigits(chars, offset, year, 4);
+        chars[offset + 4] = '-';
+        writeDigits(chars, offset + 5, date.getMonthValue(), 2);
+        chars[offset + 7] = '-';
+        writeDigits(chars, offset + 8, date.getDayOfMonth(), 2);
+
+        return LENGTH;
+    }
+
+    /**
+     * Format a date as {@code yyyy-MM-dd} into a byte buffer as ASCII
+     *
+     * @param  date    A {@link LocalDate} to format
+     * @param  bytes   Buffer to write to; needs room for {@link #LENGTH} bytes
+     * @param  offset  Offset of the first byte
+     *
+     * @return Either number of written bytes; otherwise {@code 0} when the year isn't
+     *         within 1 and 9999 and must be formatted with {@link #FORMATTER}
+     **/
+
+    public static int format(LocalDate date, byte[] bytes, int offset) {
+        int year = date.getYear();
+
+        if (1 > year || 9999 < year) {
+            return 0;
+        }
+
+        int ymd = year * 10000 + date.getMonthValue() * 100 + date.getDayOfMonth();
+
+        /* Write yyyyMMdd backwards and leave room for the dashes */
+        for (int i = LENGTH - 1; i >= 0; i--) {
+            if (4 == i || 7 == i) {
+                bytes[offset + i] = '-';
+            } else {
+                bytes[offset + i] = (byte) ('0' + ymd % 10);
+
+                ymd /= 10;
+            }
+        }
+
+        return LENGTH;
+    }
+
+    /**
+     * Parse the common case of a valid date
+     *
+     * Anything unusual is left to the formatter, so errors and its lenient handling of
+     * overlong days stay the same.
+     *
+     * @return Either the parsed {@link LocalDate}; otherwise {@code null}
+     **/
+
+    private static LocalDate parseFast(char y0, char y1, char y2, char y3, char dash0,
+                                       char m0, char m1, char dash1, char d0, char d1)
+    {
+        if ('-' != dash0 || '-' != dash1) {
+            return null;
+        }
+
+        int year = digit(y0) * 1000 + digit(y1) * 100 + digit(y2) * 10 + digit(y3);
+        int month = digit(m0) * 10 + digit(m1);
+        int day = digit(d0) * 10 + digit(d1);
+
+        /* Any non-digit makes the sum negative */
+        if (1 > year || 1 > month || 12 < month || 1 > day || 28 < day
+                && day > Month.of(month).length(Year.isLeap(year)))
+        {
+            return null;
+        }
+
+        return LocalDate.of(year, month, day);
+    }
+
+    private static int digit(char c) {
+        return '0' <= c && '9' >= c ? c - '0' : -100_000;
+    }
+
+    private static void writeDigits(char[] chars, int offset, int value, int count) {
+        for (int i = offset + count - 1; i >= offset; i--) {
+            chars[i] = (char) ('0' + value % 10);
+
+            value /= 10;
+        }
+    }
+}
@@ -0,0 +1,333 @@
+/**
+ * @package Showcase-OData-Quarkus
+ *
+ * @file Streaming JSON writer
+ * @copyright 2024-present Christoph Kappel <christoph@unexist.dev>
+ * @version $Id$
+ *
+ * This program can be distributed under the terms of the Apache License v2.0.
+ * See the file LICENSE for details.
+ **/
+
+package dev.unexist.showcase.todo.infrastructure.serde;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+public class JsonStreamWriter implements Flushable {
+    private static final int BUFFER_SIZE = 8192;
+
+    /* Large enough for the longest single write: an int, a date or an encoded char */
+    private static final int MAX_TOKEN_SIZE = 16;
+
+    private static final ThreadLocal<byte[]> BUFFERS =
+            ThreadLocal.withInitial(() -> new byte[BUFFER_SIZE]);
+
+    private static final byte[] HEX_DIGITS = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] TRUE = "true".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] FALSE = "false".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] MIN_INT = String.valueOf(Integer.MIN_VALUE)
+            .getBytes(StandardCharsets.US_ASCII);
+
+    private final OutputStream out;
+    private final byte[] buffer;
+    private int pos;
+    private boolean separate;
+
+    /**
+     * Constructor
+     *
+     * The buffer is reused per thread, so the writer must be flushed and dropped before
+     * the thread creates another one.
+     *
+     * @param  out  A {@link OutputStream} to write to
+     **/
+
+    public JsonStreamWriter(OutputStream out) {
+        this.out = out;
+        this.buffer = BUFFERS.get();
+    }
+
+    /**
+     * Encode a property name including quotes and colon once, so it can be reused
+     *
+     * @param  name  Name of the property; must not need escaping
+     *
+     * @return Encoded name
+     **/
+
+    public static byte[] encodeName(String name) {
+        return ("\"" + name + "\":").getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Begin a new object
+     *
+     * @throws IOException
+     **/
+
+    public void beginObject() throws IOException {
+        writeSeparator();
+        writeByte('{');
+
+        this.separate = false;
+    }
+
+    /**
+     * End current object
+     *
+     * @throws IOException
+     **/
+
+    public void endObject() throws IOException {
+        writeByte('}');
+
+        this.separate = true;
+    }
+
+    /**
+     * Begin a new array
+     *
+     * @throws IOException
+     **/
+
+    public void beginArray() throws IOException {
+        writeSeparator();
+        writeByte('[');
+
+        this.separate = false;
+    }
+
+    /**
+     * End current array
+     *
+     * @throws IOException
+     **/
+
+    public void endArray() throws IOException {
+        writeByte(']');
+
+        this.separate = true;
+    }
+
+    /**
+     * Write name of the next property
+     *
+     * @param  encodedName  Name encoded with {@link #encodeName(String)}
+     * @throws IOException
+     **/
+
+    public void name(byte[] encodedName) throws IOException {
+        writeSeparator();
+
+        if (encodedName.length > this.buffer.length - this.pos) {
+            flushBuffer();
+        }
+
+        System.arraycopy(encodedName, 0, this.buffer, this.pos, encodedName.length);
+
+        this.pos += encodedName.length;
+        this.separate = false;
+    }
+
+    /**
+     * Write int value
+     *
+     * @param  value  Value to write
+     * @throws IOException
+     **/
+
+    public void value(int value) throws IOException {
+        writeSeparator();
+        ensure(MAX_TOKEN_SIZE);
+
+        if (Integer.MIN_VALUE == value) {
+            System.arraycopy(MIN_INT, 0, this.buffer, this.pos, MIN_INT.length);
+
+            this.pos += MIN_INT.length;
+        } else {
+            if (0 > value) {
+                this.buffer[this.pos++] = '-';
+
+                value = -value;
+            }
+
+            writeDigits(value, digitCount(value));
+        }
+
+        this.separate = true;
+    }
+
+    /**
+     * Write boolean value
+     *
+     * @param  value  Value to write
+     * @throws IOException
+     **/
+
+    public void value(boolean value) throws IOException {
+        byte[] literal = value ? TRUE : FALSE;
+
+        writeSeparator();
+        ensure(MAX_TOKEN_SIZE);
+
+        System.arraycopy(literal, 0, this.buffer, this.pos, literal.length);
+
+        this.pos += literal.length;
+        this.separate = true;
+    }
+
+    /**
+     * Write string value
+     *
+     * @param  value  Value to write
+     * @throws IOException
+     **/
+
+    public void value(String value) throws IOException {
+        writeSeparator();
+        writeByte('"');
+
+        int len = value.length();
+
+        for (int i = 0; i < len; i++) {
+            char c = value.charAt(i);
+
+            ensure(MAX_TOKEN_SIZE);
+
+            if (0x80 > c) {
+                if ('"' == c || '\\' == c) {
+                    this.buffer[this.pos++] = '\\';
+                    this.buffer[this.pos++] = (byte) c;
+                } else if (0x20 > c) {
+                    writeEscaped(c);
+                } else {
+                    this.buffer[this.pos++] = (byte) c;
+                }
+            } else if (0x800 > c) {
+                this.buffer[this.pos++] = (byte) (0xc0 | (c >> 6));
+                this.buffer[this.pos++] = (byte) (0x80 | (c & 0x3f));
+            } else if (Character.isHighSurrogate(c) && i + 1 < len
+                    && Character.isLowSurrogate(value.charAt(i + 1)))
+            {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+
+                this.buffer[this.pos++] = (byte) (0xf0 | (codePoint >> 18));
+                this.buffer[this.pos++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+                this.buffer[this.pos++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+                this.buffer[this.pos++] = (byte) (0x80 | (codePoint & 0x3f));
+            } else if (Character.isSurrogate(c)) {
+                /* Lone surrogates can't be encoded; escape them like other control chars */
+                writeEscaped(c);
+            } else {
+                this.buffer[this.pos++] = (byte) (0xe0 | (c >> 12));
+                this.buffer[this.pos++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                this.buffer[this.pos++] = (byte) (0x80 | (c & 0x3f));
+            }
+        }
+
+        writeByte('"');
+
+        this.separate = true;
+    }
+
+    /**
+     * Write date value in format {@code yyyy-MM-dd}
+     *
+     * @param  value  Value to write
+     * @throws IOException
+     **/
+
+    public void value(LocalDate value) throws IOException {
+        writeSeparator();
+        ensure(MAX_TOKEN_SIZE);
+
+        int start = this.pos++;
+
+        /* Years out of range have a different length; leave them to the formatter */
+        if (0 == IsoDateCodec.format(value, this.buffer, this.pos)) {
+            this.pos = start;
+            this.separate = false;
+
+            value(IsoDateCodec.format(value));
+
+            return;
+        }
+
+        this.buffer[start] = '"';
+        this.pos += IsoDateCodec.LENGTH;
+        this.buffer[this.pos++] = '"';
+
+        this.separate = true;
+    }
+
+    /**
+     * Write buffered content to the stream; the stream itself isn't flushed
+     *
+     * @throws IOException
+     **/
+
+    @Override
+    public void flush() throws IOException {
+        flushBuffer();
+    }
+
+    private void writeSeparator() throws IOException {
+        if (this.separate) {
+            writeByte(',');
+        }
+    }
+
+    private void writeByte(char c) throws IOException {
+        ensure(1);
+
+        this.buffer[this.pos++] = (byte) c;
+    }
+
+    private void writeEscaped(char c) {
+        this.buffer[this.pos++] = '\\';
+        this.buffer[this.pos++] = 'u';
+        this.buffer[this.pos++] = HEX_DIGITS[(c >> 12) & 0xf];
+        this.buffer[this.pos++] = HEX_DIGITS[(c >> 8) & 0xf];
+        this.buffer[this.pos++] = HEX_DIGITS[(c >> 4) & 0xf];
+        this.buffer[this.pos++] = HEX_DIGITS[c & 0xf];
+    }
+
+    private void writeDigits(int value, int count) {
+        for (int i = this.pos + count - 1; i >= this.pos; i--) {
+            this.buffer[i] = (byte) ('0' + value % 10);
+
+            value /= 10;
+        }
+
+        this.pos += count;
+    }
+
+    private static int digitCount(int value) {
+        int count = 1;
+
+        while (10 <= value) {
+            value /= 10;
+            count++;
+        }
+
+        return count;
+    }
+
+    private void ensure(int size) throws IOException {
+        if (size > this.buffer.length - this.pos) {
+            flushBuffer();
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        if (0 < this.pos) {
+            this.out.write(this.buffer, 0, this.pos);
+
+            this.pos = 0;
+        }
+    }
+}
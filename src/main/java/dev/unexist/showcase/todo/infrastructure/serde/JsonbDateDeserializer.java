@@ -0,0 +1,36 @@
+/**
+ * @package Showcase-OData-Quarkus
+ *
+ * @file JSON-B date deserializer
+ * @copyright 2024-present Christoph Kappel <christoph@unexist.dev>
+ * @version $Id$
+ *
+ * This program can be distributed under the terms of the Apache License v2.0.
+ * See the file LICENSE for details.
+ **/
+
+package dev.unexist.showcase.todo.infrastructure.serde;
+
+import javax.json.bind.serializer.DeserializationContext;
+import javax.json.bind.serializer.JsonbDeserializer;
+import javax.json.stream.JsonParser;
+import java.lang.reflect.Type;
+import java.time.LocalDate;
+
+public class JsonbDateDeserializer implements JsonbDeserializer<LocalDate> {
+
+    /**
+     * Deserialize {@link LocalDate} from string
+     *
+     * @param  parser   A {@link JsonParser}
+     * @param  context  A {@link DeserializationContext}
+     * @param  rtType   Type of the result
+     *
+     * @return Parsed {@link LocalDate}
+     **/
+
+    @Override
+    public LocalDate deserialize(JsonParser parser, DeserializationContext context, Type rtType) {
+        return IsoDateCodec.parse(parser.getString());
+    }
+}
@@ -0,0 +1,34 @@
+/**
+ * @package Showcase-OData-Quarkus
+ *
+ * @file JSON-B date serializer
+ * @copyright 2024-present Christoph Kappel <christoph@unexist.dev>
+ * @version $Id$
+ *
+ * This program can be distributed under the terms of the Apache License v2.0.
+ * See the file LICENSE for details.
+ **/
+
+package dev.unexist.showcase.todo.infrastructure.serde;
+
+import javax.json.bind.serializer.JsonbSerializer;
+import javax.json.bind.serializer.SerializationContext;
+import javax.json.stream.JsonGenerator;
+import java.time.LocalDate;
+
+public class JsonbDateSerializer implements JsonbSerializer<LocalDate> {
+
+    /**
+     * Serialize {@link LocalDate} to format
+     *
+     * @param  value      Value to convert
+     * @param  generator  A {@link JsonGenerator}
+     * @param  context    A {@link SerializationContext}
+     **/
+
+    @Override
+    public void serialize(LocalDate value, JsonGenerator generator,
+                          SerializationContext context) {
+        generator.write(IsoDateCodec.format(value));
+    }
+}
@@ -0,0 +1,169 @@
+/**
+ * @package Showcase-OData-Quarkus
+ *
+ * @file Todo JSON codec
+ * @copyright 2024-present Christoph Kappel <christoph@unexist.dev>
+ * @version $Id$
+ *
+ * This program can be distributed under the terms of the Apache License v2.0.
+ * See the file LICENSE for details.
+ **/
+
+package dev.unexist.showcase.todo.infrastructure.serde;
+
+import dev.unexist.showcase.todo.domain.task.Task;
+import dev.unexist.showcase.todo.domain.todo.DueDate;
+import dev.unexist.showcase.todo.domain.todo.Todo;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collection;
+
+public final class TodoJsonCodec {
+    private static final byte[] ID = JsonStreamWriter.encodeName("id");
+    private static final byte[] TODO_ID = JsonStreamWriter.encodeName("todoId");
+    private static final byte[] TITLE = JsonStreamWriter.encodeName("title");
+    private static final byte[] DESCRIPTION = JsonStreamWriter.encodeName("description");
+    private static final byte[] DONE = JsonStreamWriter.encodeName("done");
+    private static final byte[] DUE_DATE = JsonStreamWriter.encodeName("dueDate");
+    private static final byte[] START = JsonStreamWriter.encodeName("start");
+    private static final byte[] DUE = JsonStreamWriter.encodeName("due");
+
+    private TodoJsonCodec() {
+    }
+
+    /**
+     * Whether the codec can write instances of the given type
+     *
+     * @param  type  Type to check
+     *
+     * @return Either {@code true} if supported; otherwise {@code false}
+     **/
+
+    public static boolean supports(Class<?> type) {
+        return Todo.class.isAssignableFrom(type) || Task.class.isAssignableFrom(type);
+    }
+
+    /**
+     * Write a {@link Todo}, a {@link Task} or a {@link Collection} of them to the stream
+     *
+     * @param  value  Value to write
+     * @param  out    A {@link OutputStream} to write to
+     * @throws IOException
+     **/
+
+    public static void write(Object value, OutputStream out) throws IOException {
+        JsonStreamWriter writer = new JsonStreamWriter(out);
+
+        if (value instanceof Collection) {
+            writer.beginArray();
+
+            for (Object element : (Collection<?>) value) {
+                writeValue(writer, element);
+            }
+
+            writer.endArray();
+        } else {
+            writeValue(writer, value);
+        }
+
+        writer.flush();
+    }
+
+    /**
+     * Write a {@link Todo}; unset fields are skipped
+     *
+     * @param  writer  A {@link JsonStreamWriter} to use
+     * @param  todo    A {@link Todo} to write
+     * @throws IOException
+     **/
+
+    public static void writeTodo(JsonStreamWriter writer, Todo todo) throws IOException {
+        writer.beginObject();
+
+        writer.name(ID);
+        writer.value(todo.getId());
+
+        writeString(writer, TITLE, todo.getTitle());
+        writeString(writer, DESCRIPTION, todo.getDescription());
+
+        if (null != todo.getDueDate()) {
+            writer.name(DUE_DATE);
+            writeDueDate(writer, todo.getDueDate());
+        }
+
+        writer.endObject();
+    }
+
+    /**
+     * Write a {@link Task}; unset fields are skipped
+     *
+     * @param  writer  A {@link JsonStreamWriter} to use
+     * @param  task    A {@link Task} to write
+     * @throws IOException
+     **/
+
+    public static void writeTask(JsonStreamWriter writer, Task task) throws IOException {
+        writer.beginObject();
+
+        writer.name(ID);
+        writer.value(task.getId());
+
+        writer.name(TODO_ID);
+        writer.value(task.getTodoId());
+
+        writeString(writer, TITLE, task.getTitle());
+        writeString(writer, DESCRIPTION, task.getDescription());
+
+        if (null != task.getDone()) {
+            writer.name(DONE);
+            writer.value(task.getDone().booleanValue());
+        }
+
+        writer.endObject();
+    }
+
+    /**
+     * Write a {@link DueDate}; unset dates are skipped
+     *
+     * @param  writer   A {@link JsonStreamWriter} to use
+     * @param  dueDate  A {@link DueDate} to write
+     * @throws IOException
+     **/
+
+    public static void writeDueDate(JsonStreamWriter writer, DueDate dueDate) throws IOException {
+        writer.beginObject();
+
+        if (null != dueDate.getStart()) {
+            writer.name(START);
+            writer.value(dueDate.getStart());
+        }
+
+        if (null != dueDate.getDue()) {
+            writer.name(DUE);
+            writer.value(dueDate.getDue());
+        }
+
+        writer.endObject();
+    }
+
+    private static void writeValue(JsonStreamWriter writer, Object value) throws IOException {
+        if (value instanceof Todo) {
+            writeTodo(writer, (Todo) value);
+        } else if (value instanceof Task) {
+            writeTask(writer, (Task) value);
+        } else {
+            throw new IllegalArgumentException("Unsupported type: "
+                    + (null == value ? "null" : value.getClass().getName()));
+        }
+    }
+
+    private static void writeString(JsonStreamWriter writer, byte[] name,
+                                    String value) throws IOException
+    {
+        if (null != value) {
+            writer.name(name);
+            writer.value(value);
+        }
+    }
+}
@@ -0,0 +1,331 @@
+/**
+ * @package Showcase-OData-Quarkus
+ *
+ * @file
+ * @copyright 2024-present Christoph Kappel <christoph@unexist.dev>
+ * @version $Id$
+ *
+ * This program can be distributed under the terms of the Apache License v2.0.
+ * See the file LICENSE for details.
+ **/
+
+package dev.unexist.showcase.todo.adapter;
+
+import dev.unexist.showcase.todo.adapter.odata.ODataServletBaseIT;
+import dev.unexist.showcase.todo.domain.Change;
+import dev.unexist.showcase.todo.domain.ChangeEvent;
+import dev.unexist.showcase.todo.domain.ChangeListener;
+import dev.unexist.showcase.todo.domain.UnitOfWork;
+import dev.unexist.showcase.todo.domain.todo.Todo;
+import dev.unexist.showcase.todo.domain.todo.TodoService;
+import dev.unexist.showcase.todo.infrastructure.event.ChangeEventBus;
+import io.quarkus.test.common.http.TestHTTPResource;
+import io.quarkus.test.junit.QuarkusTest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import javax.inject.Inject;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import static net.javacrumbs.jsonunit.assertj.JsonAssertions.assertThatJson;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@QuarkusTest
+public class ChangeEventResourceIT extends ODataServletBaseIT {
+    private static final HttpClient CLIENT = HttpClient.newHttpClient();
+
+    @TestHTTPResource("/events")
+    URI eventsUri;
+
+    @Inject
+    TodoService todoService;
+
+    @Inject
+    ChangeEventBus changeEventBus;
+
+    @Inject
+    UnitOfWork unitOfWork;
+
+    @Test
+    @Timeout(10)
+    public void shouldReplayChangesAfterLastEventId() throws Exception {
+        long sequence = this.changeEventBus.getSequence();
+
+        Todo todo = this.todoService.create(TodoFixture.createTodo()).orElseThrow();
+
+        this.todoService.update(todo.getId(), TodoFixture.createTodo());
+        this.todoService.delete(todo.getId());
+
+        List<Map<String, String>> events = readEvents(HttpRequest.newBuilder(this.eventsUri)
+                .header("Last-Event-ID", String.valueOf(sequence)), 3);
+
+        assertThat(events).extracting(event -> event.get("event"))
+                .containsOnly(ChangeEventResource.EVENT_CHANGE);
+        assertThat(events).extracting(event -> event.get("id")).containsExactly(
+                String.valueOf(sequence + 1), String.valueOf(sequence + 2),
+                String.valueOf(sequence + 3));
+
+        assertThatJson(events.get(0).get("data"))
+                .isEqualTo(String.format("{\"sequence\":%d,\"entity\":\"todo\",\"id\":%d,\"type\":\"CREATED\"}",
+                        sequence + 1, todo.getId()));
+        assertThatJson(events.get(1).get("data")).inPath("$.type").isEqualTo("UPDATED");
+        assertThatJson(events.get(2).get("data")).inPath("$.type").isEqualTo("DELETED");
+    }
+
+    @Test
+    @Timeout(10)
+    public void shouldStreamNewChanges() throws Exception {
+        long sequence = this.changeEventBus.getSequence();
+
+        CompletableFuture<Void> writer = CompletableFuture.runAsync(() -> {
+            try {
+                Thread.sleep(500);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            this.todoService.create(TodoFixture.createTodo());
+        });
+
+        List<Map<String, String>> events = readEvents(
+                HttpRequest.newBuilder(URI.create(this.eventsUri + "?after=" + sequence)), 1);
+
+        writer.join();
+
+        assertThat(events.get(0)).containsEntry("id", String.valueOf(sequence + 1));
+        assertThatJson(events.get(0).get("data")).inPath("$.type").isEqualTo("CREATED");
+    }
+
+    @Test
+    @Timeout(10)
+    public void shouldResetUnknownSequence() throws Exception {
+        this.todoService.delete(1);
+
+        long sequence = this.changeEventBus.getSequence();
+
+        List<Map<String, String>> events = readEvents(HttpRequest.newBuilder(this.eventsUri)
+                .header("Last-Event-ID", String.valueOf(sequence + 100)), 1);
+
+        assertThat(events.get(0))
+                .containsEntry("event", ChangeEventResource.EVENT_RESET)
+                .containsEntry("id", String.valueOf(sequence));
+    }
+
+    @Test
+    public void shouldRejectInvalidSequence() throws Exception {
+        HttpResponse<Void> response = CLIENT.send(
+                HttpRequest.newBuilder(URI.create(this.eventsUri + "?after=abc")).build(),
+                HttpResponse.BodyHandlers.discarding());
+
+        assertThat(response.statusCode()).isEqualTo(400);
+    }
+
+    @Test
+    @Timeout(10)
+    public void shouldReplayMoreChangesThanBufferSize() throws Exception {
+        long sequence = this.changeEventBus.getSequence();
+
+        for (int i = 0; i < 1000; i++) {
+            this.changeEventBus.publish(ChangeEvent.ENTITY_TASK, 1, Change.Type.UPDATED);
+        }
+
+        List<Map<String, String>> events = readEvents(HttpRequest.newBuilder(this.eventsUri)
+                .header("Last-Event-ID", String.valueOf(sequence)), 1000);
+
+        assertThat(events).hasSize(1000)
+                .extracting(event -> Long.parseLong(event.get("id")))
+                .containsExactlyElementsOf(LongStream.rangeClosed(sequence + 1, sequence + 1000)
+                        .boxed().collect(Collectors.toList()));
+    }
+
+    @Test
+    @Timeout(10)
+    public void shouldNotPublishRolledBackChanges() throws Exception {
+        BlockingQueue<ChangeEvent> events = new LinkedBlockingQueue<>();
+
+        ChangeEventBus.Subscription subscription = this.changeEventBus.subscribe(null,
+                events::add);
+
+        try {
+            assertThatThrownBy(() -> this.unitOfWork.execute(() -> {
+                this.todoService.create(TodoFixture.createTodo());
+
+                throw new IllegalStateException("Rollback");
+            })).isInstanceOf(IllegalStateException.class);
+
+            this.unitOfWork.execute(() -> this.todoService.delete(2));
+
+            /* Events arrive in order, so a rolled back create would come first */
+            ChangeEvent event = events.take();
+
+            assertThat(event.getId()).isEqualTo(2);
+            assertThat(event.getType()).isEqualTo(Change.Type.DELETED);
+        } finally {
+            subscription.close();
+        }
+
+        assertThat(events).isEmpty();
+    }
+
+    @Test
+    @Timeout(10)
+    public void shouldResetListenerBehindReplayBuffer() throws Exception {
+        long sequence = this.changeEventBus.getSequence();
+
+        for (int i = 0; i < 5000; i++) {
+            this.changeEventBus.publish(ChangeEvent.ENTITY_TASK, 1, Change.Type.UPDATED);
+        }
+
+        BlockingQueue<Long> resets = new LinkedBlockingQueue<>();
+
+        ChangeEventBus.Subscription subscription = this.changeEventBus.subscribe(sequence,
+                new ChangeListener() {
+                    @Override
+                    public void onChange(ChangeEvent event) {
+                        throw new AssertionError("Unexpected replay of " + event);
+                    }
+
+                    @Override
+                    public void onReset(long sequence) {
+                        resets.add(sequence);
+                    }
+                });
+
+        try {
+            assertThat(resets.take()).isEqualTo(sequence + 5000);
+        } finally {
+            subscription.close();
+        }
+    }
+
+    @Test
+    @Timeout(10)
+    public void shouldResetSlowListenerWithoutBlockingWriters() throws Exception {
+        CountDownLatch latch = new CountDownLatch(1);
+        BlockingQueue<Long> resets = new LinkedBlockingQueue<>();
+
+        ChangeEventBus.Subscription subscription = this.changeEventBus.subscribe(null,
+                new ChangeListener() {
+                    @Override
+                    public void onChange(ChangeEvent event) {
+                        try {
+                            latch.await();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                    }
+
+                    @Override
+                    public void onReset(long sequence) {
+                        resets.add(sequence);
+                    }
+                });
+
+        try {
+            for (int i = 0; i < 5000; i++) {
+                this.changeEventBus.publish(ChangeEvent.ENTITY_TASK, 1, Change.Type.UPDATED);
+            }
+
+            long sequence = this.changeEventBus.getSequence();
+
+            latch.countDown();
+
+            assertThat(resets.take()).isEqualTo(sequence);
+        } finally {
+            subscription.close();
+        }
+    }
+
+    @Test
+    @Timeout(value = 30, threadMode = Timeout.ThreadMode.SEPARATE_THREAD)
+    public void shouldDeliverEventsInSequenceOrder() throws Exception {
+        BlockingQueue<Long> sequences = new LinkedBlockingQueue<>();
+
+        ChangeEventBus.Subscription subscription = this.changeEventBus.subscribe(null,
+                event -> sequences.add(event.getSequence()));
+
+        List<Long> delivered = new ArrayList<>();
+
+        try {
+            List<CompletableFuture<Void>> writers = new ArrayList<>();
+
+            for (int i = 0; i < 4; i++) {
+                writers.add(CompletableFuture.runAsync(() -> {
+                    for (int j = 0; j < 500; j++) {
+                        this.todoService.update(1, TodoFixture.createTodo());
+                    }
+                }));
+            }
+
+            writers.forEach(CompletableFuture::join);
+
+            while (2000 > delivered.size()) {
+                delivered.add(sequences.take());
+            }
+        } finally {
+            subscription.close();
+        }
+
+        assertThat(delivered).isSorted().doesNotHaveDuplicates();
+        assertThat(delivered.get(1999) - delivered.get(0)).isEqualTo(1999);
+    }
+
+    /**
+     * Read given number of events from the stream
+     *
+     * @param  builder  A {@link HttpRequest.Builder} of the stream
+     * @param  count    Number of events to read
+     *
+     * @return List of events with their fields
+     **/
+
+    private static List<Map<String, String>> readEvents(HttpRequest.Builder builder, int count)
+            throws Exception
+    {
+        HttpResponse<Stream<String>> response = CLIENT.send(builder
+                .header("Accept", "text/event-stream").build(), HttpResponse.BodyHandlers.ofLines());
+
+        assertThat(response.statusCode()).isEqualTo(200);
+
+        List<Map<String, String>> retVal = new ArrayList<>();
+
+        try (Stream<String> lines = response.body()) {
+            Iterator<String> iterator = lines.iterator();
+            Map<String, String> event = new HashMap<>();
+
+            while (retVal.size() < count && iterator.hasNext()) {
+                String line = iterator.next();
+
+                if (line.isEmpty()) {
+                    if (!event.isEmpty()) {
+                        retVal.add(event);
+
+                        event = new HashMap<>();
+                    }
+                } else {
+                    int idx = line.indexOf(':');
+
+                    event.put(line.substring(0, idx), line.substring(idx + 1).trim());
+                }
+            }
+        }
+
+        return retVal;
+    }
+}
@@ -0,0 +1,123 @@
+/**
+ * @package Showcase-OData-Quarkus
+ *
+ * @file
+ * @copyright 2024-present Christoph Kappel <christoph@unexist.dev>
+ * @version $Id$
+ *
+ * This program can be distributed under the terms of the Apache License v2.0.
+ * See the file LICENSE for details.
+ **/
+
+package dev.unexist.showcase.todo.adapter;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import dev.unexist.showcase.todo.adapter.odata.ODataServletBaseIT;
+import io.quarkus.test.junit.QuarkusTest;
+import io.restassured.http.ContentType;
+import org.junit.jupiter.api.Test;
+
+import static io.restassured.RestAssured.given;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.everyItem;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.startsWith;
+
+@QuarkusTest
+public class ReactiveTodoResourceIT extends ODataServletBaseIT {
+
+    @Test
+    public void shouldGetAllTodosAsJsonArray() {
+        given()
+                .when()
+                    .accept(ContentType.JSON)
+                    .get("/reactive/todo")
+                .then()
+                    .statusCode(200)
+                    .body("size()", equalTo(3))
+                    .body("[0].id", equalTo(1));
+    }
+
+    @Test
+    public void shouldStreamAllTasksAsNdJson() {
+        String ndjsonOut = given()
+                .when()
+                    .accept("application/x-ndjson")
+                    .get("/reactive/todo/1/task")
+                .then()
+                    .statusCode(200)
+                    .header("Content-Type", startsWith("application/x-ndjson"))
+                .and()
+                    .extract()
+                    .asString();
+
+        assertThat(ndjsonOut.lines())
+                .hasSize(2)
+                .allSatisfy(line -> assertThat(line).contains("\"todoId\":1"));
+    }
+
+    @Test
+    public void shouldFindTodoById() {
+        given()
+                .when()
+                    .accept(ContentType.JSON)
+                    .get("/reactive/todo/2")
+                .then()
+                    .statusCode(200)
+                    .body("id", equalTo(2));
+
+        given()
+                .when()
+                    .accept(ContentType.JSON)
+                    .get("/reactive/todo/11")
+                .then()
+                    .statusCode(404);
+    }
+
+    @Test
+    public void shouldNotFindTaskOfOtherTodo() {
+        given()
+                .when()
+                    .accept(ContentType.JSON)
+                    .get("/reactive/todo/1/task/3")
+                .then()
+                    .statusCode(404);
+    }
+
+    @Test
+    public void shouldNotFindNonNumericIds() {
+        for (String path : new String[] { "/reactive/todo/abc", "/reactive/todo/abc/task",
+                "/reactive/todo/1/task/abc" })
+        {
+            given()
+                    .when()
+                        .accept(ContentType.JSON)
+                        .get(path)
+                    .then()
+                        .statusCode(404);
+        }
+    }
+
+    @Test
+    public void shouldCreateTodo() throws JsonProcessingException {
+        given()
+                .when()
+                    .accept(ContentType.JSON)
+                    .contentType(ContentType.JSON)
+                    .body(TodoFixture.createTodo())
+                    .post("/reactive/todo")
+                .then()
+                    .statusCode(201)
+                    .header("Location", equalTo("/reactive/todo/4"))
+                    .body("id", equalTo(4));
+
+        given()
+                .when()
+                    .accept(ContentType.JSON)
+                    .get("/reactive/todo")
+                .then()
+                    .statusCode(200)
+                    .body("id", everyItem(lessThan(5)));
+    }
+}
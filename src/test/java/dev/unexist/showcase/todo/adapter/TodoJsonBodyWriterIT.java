@@ -0,0 +1,103 @@
+/**
+ * @package Showcase-OData-Quarkus
+ *
+ * @file
+ * @copyright 2024-present Christoph Kappel <christoph@unexist.dev>
+ * @version $Id$
+ *
+ * This program can be distributed under the terms of the Apache License v2.0.
+ * See the file LICENSE for details.
+ **/
+
+package dev.unexist.showcase.todo.adapter;
+
+import dev.unexist.showcase.todo.adapter.odata.ODataServletBaseIT;
+import dev.unexist.showcase.todo.domain.task.Task;
+import dev.unexist.showcase.todo.domain.todo.Todo;
+import dev.unexist.showcase.todo.domain.todo.TodoFactory;
+import io.quarkus.test.junit.QuarkusTest;
+import io.restassured.http.ContentType;
+import org.junit.jupiter.api.Test;
+
+import javax.json.bind.JsonbBuilder;
+import java.util.List;
+
+import static io.restassured.RestAssured.given;
+import static net.javacrumbs.jsonunit.assertj.JsonAssertions.assertThatJson;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+@QuarkusTest
+public class TodoJsonBodyWriterIT extends ODataServletBaseIT {
+    private static final String TEXT = "Quote \" slash \\ tab \t umlaut ä emoji 😀";
+
+    @Test
+    public void shouldWriteTodoLikeJsonb() throws Exception {
+        Todo todo = TodoFactory.fromData(0, TEXT, "\u0001", "2021-05-07", "0999-12-31");
+
+        this.todoRepository.add(todo);
+
+        String jsonOut = given()
+                .when()
+                    .accept(ContentType.JSON)
+                    .get("/todo/4")
+                .then()
+                    .statusCode(200)
+                    .body("title", equalTo(TEXT))
+                    .body("dueDate.due", equalTo("0999-12-31"))
+                .and()
+                    .extract()
+                    .asString();
+
+        /* Unlike JSON-B, the codec writes the id first */
+        assertThat(jsonOut).startsWith("{\"id\":4,");
+
+        try (var jsonb = JsonbBuilder.create()) {
+            assertThatJson(jsonOut).isEqualTo(jsonb.toJson(todo));
+        }
+    }
+
+    @Test
+    public void shouldReadAndWriteDueDate() {
+        String jsonIn = "{\"title\":\"Todo\",\"description\":\"Todo\","
+                + "\"dueDate\":{\"start\":\"2024-02-29\",\"due\":\"2024-12-31\"}}";
+
+        given()
+                .when()
+                    .contentType(ContentType.JSON)
+                    .body(jsonIn)
+                    .post("/todo")
+                .then()
+                    .statusCode(201);
+
+        given()
+                .when()
+                    .accept(ContentType.JSON)
+                    .get("/todo/4")
+                .then()
+                    .statusCode(200)
+                    .body("dueDate.start", equalTo("2024-02-29"))
+                    .body("dueDate.due", equalTo("2024-12-31"));
+    }
+
+    @Test
+    public void shouldWriteTaskListLikeJsonb() throws Exception {
+        List<Task> tasks = this.taskRepository.findAllByPredicate(task -> 1 == task.getTodoId());
+
+        String jsonOut = given()
+                .when()
+                    .accept(ContentType.JSON)
+                    .get("/todo/1/task")
+                .then()
+                    .statusCode(200)
+                .and()
+                    .extract()
+                    .asString();
+
+        assertThat(jsonOut).startsWith("[{\"id\":1,");
+
+        try (var jsonb = JsonbBuilder.create()) {
+            assertThatJson(jsonOut).isEqualTo(jsonb.toJson(tasks));
+        }
+    }
+}
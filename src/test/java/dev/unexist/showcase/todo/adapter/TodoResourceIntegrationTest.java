@@ -18,7 +18,11 @@ import org.junit.jupiter.api.Order;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestMethodOrder;
 
+import java.util.List;
+
 import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.everyItem;
 
 @QuarkusTest
 @TestMethodOrder(MethodOrderer.OrderAnnotation.class)
@@ -77,6 +81,34 @@ public class TodoResourceIntegrationTest {
         createTask();
     }
 
+    @Test
+    @Order(7)
+    public void shouldCreateNewTasksInBulk() {
+        given()
+                .when()
+                    .accept(ContentType.JSON)
+                    .contentType(ContentType.JSON)
+                    .body(List.of(TaskFixture.createTask(), TaskFixture.createTask()))
+                    .post("/todo/1/task/bulk")
+                .then()
+                    .statusCode(201)
+                    .body("size()", equalTo(2))
+                    .body("todoId", everyItem(equalTo(1)));
+    }
+
+    @Test
+    @Order(8)
+    public void shouldNotCreateTasksInBulkForUnknownTodo() {
+        given()
+                .when()
+                    .accept(ContentType.JSON)
+                    .contentType(ContentType.JSON)
+                    .body(List.of(TaskFixture.createTask()))
+                    .post("/todo/11/task/bulk")
+                .then()
+                    .statusCode(404);
+    }
+
     /**
      * Create an entry via REST
      **/
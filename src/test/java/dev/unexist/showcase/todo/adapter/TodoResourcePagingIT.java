@@ -0,0 +1,140 @@
+/**
+ * @package Showcase-OData-Quarkus
+ *
+ * @file
+ * @copyright 2024-present Christoph Kappel <christoph@unexist.dev>
+ * @version $Id$
+ *
+ * This program can be distributed under the terms of the Apache License v2.0.
+ * See the file LICENSE for details.
+ **/
+
+package dev.unexist.showcase.todo.adapter;
+
+import dev.unexist.showcase.todo.adapter.odata.ODataServletBaseIT;
+import io.quarkus.test.junit.QuarkusTest;
+import io.restassured.http.ContentType;
+import org.junit.jupiter.api.Test;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.everyItem;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+
+@QuarkusTest
+public class TodoResourcePagingIT extends ODataServletBaseIT {
+
+    @Test
+    public void shouldPageTodos() {
+        given()
+                .when()
+                    .accept(ContentType.JSON)
+                    .get("/todo?limit=2")
+                .then()
+                    .statusCode(200)
+                    .header("Link", containsString("after=2"))
+                    .body("id", contains(1, 2));
+
+        given()
+                .when()
+                    .accept(ContentType.JSON)
+                    .get("/todo?limit=2&after=2")
+                .then()
+                    .statusCode(200)
+                    .header("Link", nullValue())
+                    .body("id", contains(3));
+    }
+
+    @Test
+    public void shouldSelectFieldsOfTodos() {
+        given()
+                .when()
+                    .accept(ContentType.JSON)
+                    .get("/todo?fields=id,title&limit=1")
+                .then()
+                    .statusCode(200)
+                    .header("Link", containsString("fields=id"))
+                    .body("[0].id", equalTo(1))
+                    .body("[0].title", notNullValue())
+                    .body("[0].description", nullValue())
+                    .body("[0].dueDate", nullValue());
+
+        given()
+                .when()
+                    .accept(ContentType.JSON)
+                    .get("/todo?fields=id,unknown")
+                .then()
+                    .statusCode(400);
+    }
+
+    @Test
+    public void shouldGetOnlyTasksOfTodo() {
+        given()
+                .when()
+                    .accept(ContentType.JSON)
+                    .get("/todo/1/task")
+                .then()
+                    .statusCode(200)
+                    .header("Link", nullValue())
+                    .body("size()", equalTo(2))
+                    .body("todoId", everyItem(equalTo(1)));
+
+        given()
+                .when()
+                    .accept(ContentType.JSON)
+                    .get("/todo/3/task")
+                .then()
+                    .statusCode(204);
+    }
+
+    @Test
+    public void shouldNotFindTasksOfUnknownTodo() {
+        given()
+                .when()
+                    .accept(ContentType.JSON)
+                    .get("/todo/99/task")
+                .then()
+                    .statusCode(404);
+    }
+
+    @Test
+    public void shouldPageTasksOfTodo() {
+        given()
+                .when()
+                    .accept(ContentType.JSON)
+                    .get("/todo/1/task?limit=1")
+                .then()
+                    .statusCode(200)
+                    .header("Link", containsString("after=1"))
+                    .header("Link", containsString("rel=\"next\""))
+                    .body("id", contains(1));
+
+        given()
+                .when()
+                    .accept(ContentType.JSON)
+                    .get("/todo/1/task?limit=1&after=1")
+                .then()
+                    .statusCode(200)
+                    .body("id", contains(2));
+
+        given()
+                .when()
+                    .accept(ContentType.JSON)
+                    .get("/todo/1/task?limit=1&after=2")
+                .then()
+                    .statusCode(204);
+    }
+
+    @Test
+    public void shouldRejectBadLimit() {
+        given()
+                .when()
+                    .accept(ContentType.JSON)
+                    .get("/todo/1/task?limit=0")
+                .then()
+                    .statusCode(400);
+    }
+}
@@ -23,10 +23,10 @@ import javax.inject.Inject;
 public class ODataServletBaseIT {
 
     @Inject
-    CrudRepository<Todo> todoRepository;
+    protected CrudRepository<Todo> todoRepository;
 
     @Inject
-    CrudRepository<Task> taskRepository;
+    protected CrudRepository<Task> taskRepository;
 
     /* Init */
 
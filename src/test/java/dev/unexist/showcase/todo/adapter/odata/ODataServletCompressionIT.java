@@ -0,0 +1,185 @@
+/**
+ * @package Showcase-OData-Quarkus
+ *
+ * @file
+ * @copyright 2024-present Christoph Kappel <christoph@unexist.dev>
+ * @version $Id$
+ *
+ * This program can be distributed under the terms of the Apache License v2.0.
+ * See the file LICENSE for details.
+ **/
+
+package dev.unexist.showcase.todo.adapter.odata;
+
+import dev.unexist.showcase.todo.adapter.TodoFixture;
+import io.quarkus.test.junit.QuarkusTest;
+import io.restassured.RestAssured;
+import io.restassured.config.DecoderConfig;
+import io.restassured.http.ContentType;
+import io.restassured.response.Response;
+import io.restassured.specification.RequestSpecification;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import static io.restassured.RestAssured.given;
+import static net.javacrumbs.jsonunit.assertj.JsonAssertions.assertThatJson;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+
+@QuarkusTest
+public class ODataServletCompressionIT extends ODataServletBaseIT {
+    private static final int ENTRIES = 50;
+
+    @Test
+    public void shouldCompressLargeCollectionWithGzip() throws Exception {
+        addTodos();
+
+        Response response = request("gzip")
+                .get("/odata/Todos?$orderby=ID")
+                .then()
+                    .statusCode(200)
+                    .header("Content-Encoding", equalTo("gzip"))
+                    .header("Vary", equalTo("Accept-Encoding"))
+                .and()
+                    .extract()
+                    .response();
+
+        assertThatJson(decode(response)).inPath("$.value").isArray().hasSize(ENTRIES + 3);
+    }
+
+    @Test
+    public void shouldCompressLargeCollectionWithDeflate() throws Exception {
+        addTodos();
+
+        Response response = request("deflate;q=1, gzip;q=0.5")
+                .get("/odata/Todos?$orderby=ID")
+                .then()
+                    .statusCode(200)
+                    .header("Content-Encoding", equalTo("deflate"))
+                .and()
+                    .extract()
+                    .response();
+
+        assertThatJson(decode(response)).inPath("$.value").isArray().hasSize(ENTRIES + 3);
+    }
+
+    @Test
+    public void shouldNotCompressSmallBodies() {
+        request("gzip")
+                .get("/odata/Todos(1)")
+                .then()
+                    .statusCode(200)
+                    .header("Content-Encoding", nullValue())
+                    .header("Vary", equalTo("Accept-Encoding"));
+    }
+
+    @Test
+    public void shouldNotCompressWithoutAcceptEncoding() throws Exception {
+        addTodos();
+
+        Response response = request("identity")
+                .get("/odata/Todos?$orderby=ID")
+                .then()
+                    .statusCode(200)
+                    .header("Content-Encoding", nullValue())
+                .and()
+                    .extract()
+                    .response();
+
+        assertThatJson(decode(response)).inPath("$.value").isArray().hasSize(ENTRIES + 3);
+    }
+
+    @Test
+    public void shouldServeCachedResultPrecompressed() throws Exception {
+        addTodos();
+
+        Response missResponse = request("gzip")
+                .get("/odata/Todos?$filter=ID gt 2")
+                .then()
+                    .statusCode(200)
+                    .header("X-Cache", equalTo("MISS"))
+                    .header("Content-Encoding", equalTo("gzip"))
+                .and()
+                    .extract()
+                    .response();
+
+        Response hitResponse = request("gzip")
+                .get("/odata/Todos?$filter=ID gt 2")
+                .then()
+                    .statusCode(200)
+                    .header("X-Cache", equalTo("HIT"))
+                    .header("Content-Encoding", equalTo("gzip"))
+                .and()
+                    .extract()
+                    .response();
+
+        assertThat(decode(hitResponse)).isEqualTo(decode(missResponse));
+
+        /* Identity is still served from the same entry */
+        Response plainResponse = request("identity")
+                .get("/odata/Todos?$filter=ID gt 2")
+                .then()
+                    .statusCode(200)
+                    .header("X-Cache", equalTo("HIT"))
+                    .header("Content-Encoding", nullValue())
+                .and()
+                    .extract()
+                    .response();
+
+        assertThat(decode(plainResponse)).isEqualTo(decode(missResponse));
+    }
+
+    @Test
+    public void shouldCompressRestResponses() throws Exception {
+        addTodos();
+
+        Response response = request("gzip")
+                .get("/todo")
+                .then()
+                    .statusCode(200)
+                    .header("Content-Encoding", equalTo("gzip"))
+                .and()
+                    .extract()
+                    .response();
+
+        assertThatJson(decode(response)).isArray().hasSize(ENTRIES + 3);
+    }
+
+    private void addTodos() {
+        for (int i = 0; i < ENTRIES; i++) {
+            this.todoRepository.add(TodoFixture.createTodo());
+        }
+    }
+
+    private static RequestSpecification request(String acceptEncoding) {
+        return given()
+                .config(RestAssured.config()
+                        .decoderConfig(DecoderConfig.decoderConfig().noContentDecoders()))
+                .header("Accept-Encoding", acceptEncoding)
+                .when()
+                    .accept(ContentType.JSON);
+    }
+
+    private static String decode(Response response) throws Exception {
+        byte[] content = response.asByteArray();
+        String encoding = response.getHeader("Content-Encoding");
+
+        if ("gzip".equals(encoding)) {
+            try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(content))) {
+                content = in.readAllBytes();
+            }
+        } else if ("deflate".equals(encoding)) {
+            try (InputStream in = new InflaterInputStream(new ByteArrayInputStream(content))) {
+                content = in.readAllBytes();
+            }
+        }
+
+        return new String(content, StandardCharsets.UTF_8);
+    }
+}
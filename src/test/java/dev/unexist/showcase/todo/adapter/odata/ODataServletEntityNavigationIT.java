@@ -38,9 +38,12 @@ public class ODataServletEntityNavigationIT extends ODataServletBaseIT {
 
         final Object expectedObject = json(String.join(System.lineSeparator(),
                 "{",
+                "\"@odata.etag\": \"${json-unit.any-string}\",",
                 "\"ID\": \"${json-unit.any-number}\",",
                 "\"TodoID\": \"${json-unit.any-number}\",",
-                "\"Title\": \"${json-unit.any-string}\"",
+                "\"Title\": \"${json-unit.any-string}\",",
+                "\"Description\": \"${json-unit.any-string}\",",
+                "\"Done\": \"${json-unit.any-boolean}\"",
                 "}"));
 
         assertThatJson(jsonOut)
@@ -64,10 +67,13 @@ public class ODataServletEntityNavigationIT extends ODataServletBaseIT {
 
         final Object expectedObject = json(String.join(System.lineSeparator(),
                 "{",
+                "\"@odata.etag\": \"${json-unit.any-string}\",",
                 "\"@odata.context\": \"${json-unit.ignore}\",",
                 "\"ID\": \"${json-unit.any-number}\",",
                 "\"Title\": \"${json-unit.any-string}\",",
-                "\"Description\": \"${json-unit.any-string}\"",
+                "\"Description\": \"${json-unit.any-string}\",",
+                "\"Start\": \"${json-unit.any-string}\",",
+                "\"Due\": \"${json-unit.any-string}\"",
                 "}"));
 
         assertThatJson(jsonOut).isEqualTo(expectedObject);
@@ -87,10 +93,13 @@ public class ODataServletEntityNavigationIT extends ODataServletBaseIT {
 
         final Object expectedObject = json(String.join(System.lineSeparator(),
                 "{",
+                "\"@odata.etag\": \"${json-unit.any-string}\",",
                 "\"@odata.context\": \"${json-unit.ignore}\",",
                 "\"ID\": \"${json-unit.any-number}\",",
                 "\"TodoID\": \"${json-unit.any-number}\",",
-                "\"Title\": \"${json-unit.any-string}\"",
+                "\"Title\": \"${json-unit.any-string}\",",
+                "\"Description\": \"${json-unit.any-string}\",",
+                "\"Done\": \"${json-unit.any-boolean}\"",
                 "}"));
 
         assertThatJson(jsonOut).isEqualTo(expectedObject);
@@ -0,0 +1,81 @@
+/**
+ * @package Showcase-OData-Quarkus
+ *
+ * @file
+ * @copyright 2024-present Christoph Kappel <christoph@unexist.dev>
+ * @version $Id$
+ *
+ * This program can be distributed under the terms of the Apache License v2.0.
+ * See the file LICENSE for details.
+ **/
+
+package dev.unexist.showcase.todo.adapter.odata.apply;
+
+import dev.unexist.showcase.todo.domain.task.Task;
+import dev.unexist.showcase.todo.domain.task.TaskFactory;
+import org.apache.olingo.server.api.ODataApplicationException;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AggregationEngineIT {
+    private static final int ROWS = 100_000;
+
+    private static AggregationEngine createEngine(int parallelThreshold) {
+        AggregationEngine engine = new AggregationEngine();
+
+        engine.parallelThreshold = parallelThreshold;
+        engine.chunkSize = 4096;
+
+        return engine;
+    }
+
+    private static Object getPropertyValue(Task task, String propertyName) {
+        Object retVal = null;
+
+        switch (propertyName) {
+            case "ID":
+                retVal = task.getId();
+                break;
+            case "TodoID":
+                retVal = task.getTodoId();
+                break;
+            case "Done":
+                retVal = task.getDone();
+                break;
+        }
+
+        return retVal;
+    }
+
+    @Test
+    public void shouldAggregateInParallelLikeSerial() throws ODataApplicationException {
+        List<Task> tasks = IntStream.range(0, ROWS)
+                .mapToObj(i -> TaskFactory.fromData(i, i % 100, "Task string",
+                        "Task string", 0 == i % 3))
+                .collect(Collectors.toList());
+
+        ApplyPlan plan = new ApplyPlan(Collections.emptyList(), List.of("TodoID", "Done"),
+                List.of(new ApplyPlan.AggregateSpec("Cnt", ApplyPlan.Method.COUNT, null),
+                        new ApplyPlan.AggregateSpec("MaxId", ApplyPlan.Method.MAX, "ID"),
+                        new ApplyPlan.AggregateSpec("Total", ApplyPlan.Method.SUM, "ID")));
+
+        List<Map<String, Object>> serial = createEngine(Integer.MAX_VALUE)
+                .aggregate(plan, tasks, AggregationEngineIT::getPropertyValue);
+        List<Map<String, Object>> parallel = createEngine(1)
+                .aggregate(plan, tasks, AggregationEngineIT::getPropertyValue);
+
+        assertThat(parallel).hasSize(200).isEqualTo(serial);
+        assertThat(parallel.get(0))
+                .containsEntry("TodoID", 0)
+                .containsEntry("Done", false);
+        assertThat(serial.stream().mapToLong(row -> (Long) row.get("Cnt")).sum())
+                .isEqualTo(ROWS);
+    }
+}
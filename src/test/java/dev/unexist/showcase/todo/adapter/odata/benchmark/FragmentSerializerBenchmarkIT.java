@@ -0,0 +1,128 @@
+/**
+ * @package Showcase-OData-Quarkus
+ *
+ * @file
+ * @copyright 2024-present Christoph Kappel <christoph@unexist.dev>
+ * @version $Id$
+ *
+ * This program can be distributed under the terms of the Apache License v2.0.
+ * See the file LICENSE for details.
+ **/
+
+package dev.unexist.showcase.todo.adapter.odata.benchmark;
+
+import dev.unexist.showcase.todo.adapter.TodoFixture;
+import dev.unexist.showcase.todo.adapter.odata.ODataServletBaseIT;
+import dev.unexist.showcase.todo.adapter.odata.cache.EntityCache;
+import dev.unexist.showcase.todo.adapter.odata.entity.TodoEntityService;
+import dev.unexist.showcase.todo.adapter.odata.processor.EdmProvider;
+import dev.unexist.showcase.todo.adapter.odata.processor.FragmentSerializer;
+import dev.unexist.showcase.todo.domain.todo.Todo;
+import io.quarkus.test.junit.QuarkusTest;
+import org.apache.olingo.commons.api.data.ContextURL;
+import org.apache.olingo.commons.api.data.EntityCollection;
+import org.apache.olingo.commons.api.edm.EdmEntitySet;
+import org.apache.olingo.commons.api.format.ContentType;
+import org.apache.olingo.server.api.OData;
+import org.apache.olingo.server.api.ServiceMetadata;
+import org.apache.olingo.server.api.serializer.EntityCollectionSerializerOptions;
+import org.apache.olingo.server.api.serializer.ODataSerializer;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Run with {@code mvn test -Pbenchmark}
+ **/
+
+@Tag("benchmark")
+@QuarkusTest
+public class FragmentSerializerBenchmarkIT extends ODataServletBaseIT {
+    private static final Logger LOGGER = LoggerFactory.getLogger(FragmentSerializerBenchmarkIT.class);
+
+    private static final int ENTRIES = 10_000;
+    private static final int WARMUP_ROUNDS = 20;
+    private static final int ROUNDS = 50;
+
+    @Inject
+    TodoEntityService todoEntityService;
+
+    @Inject
+    EntityCache entityCache;
+
+    @Test
+    public void shouldSerializeFasterFromFragments() throws Exception {
+        List<Todo> todos = new ArrayList<>(ENTRIES);
+
+        for (int i = 0; i < ENTRIES; i++) {
+            todos.add(TodoFixture.createTodo());
+        }
+
+        this.todoRepository.addAll(todos);
+
+        OData odata = OData.newInstance();
+        ServiceMetadata serviceMetadata = odata.createServiceMetadata(new EdmProvider(),
+                new ArrayList<>());
+        EdmEntitySet edmEntitySet = serviceMetadata.getEdm().getEntityContainer()
+                .getEntitySet(TodoEntityService.ES_NAME);
+        ODataSerializer serializer = odata.createSerializer(ContentType.JSON);
+
+        EntityCollectionSerializerOptions opts = EntityCollectionSerializerOptions.with()
+                .contextURL(ContextURL.with().entitySet(edmEntitySet).build())
+                .id(TodoEntityService.ES_NAME)
+                .build();
+
+        FragmentSerializer fragmentSerializer = new FragmentSerializer(this.entityCache);
+        String shape = FragmentSerializer.createShape(ContentType.JSON, null);
+
+        /* Entities are materialized once to measure just the serialization */
+        EntityCollection collection = this.todoEntityService.getAll();
+
+        Callable<byte[]> olingo = () -> {
+            try (InputStream in = serializer.entityCollection(serviceMetadata,
+                    edmEntitySet.getEntityType(), collection, opts).getContent())
+            {
+                return in.readAllBytes();
+            }
+        };
+
+        Callable<byte[]> fragments = () -> fragmentSerializer.entityCollection(serializer,
+                serviceMetadata, edmEntitySet.getEntityType(), collection, opts, opts, shape);
+
+        /* Both must produce the same document to make the comparison fair */
+        assertThat(fragments.call()).isEqualTo(olingo.call());
+
+        long olingoNanos = measure(olingo);
+        long fragmentNanos = measure(fragments);
+
+        LOGGER.info("{} todo collection writes: olingo={}us, fragments={}us per collection",
+                todos.size() + 3, TimeUnit.NANOSECONDS.toMicros(olingoNanos),
+                TimeUnit.NANOSECONDS.toMicros(fragmentNanos));
+
+        assertThat(fragmentNanos).isLessThan(olingoNanos);
+    }
+
+    private static long measure(Callable<byte[]> serializer) throws Exception {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            serializer.call();
+        }
+
+        long nanos = System.nanoTime();
+
+        for (int i = 0; i < ROUNDS; i++) {
+            serializer.call();
+        }
+
+        return (System.nanoTime() - nanos) / ROUNDS;
+    }
+}
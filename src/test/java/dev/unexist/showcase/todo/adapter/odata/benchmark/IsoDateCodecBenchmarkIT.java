@@ -0,0 +1,118 @@
+/**
+ * @package Showcase-OData-Quarkus
+ *
+ * @file
+ * @copyright 2024-present Christoph Kappel <christoph@unexist.dev>
+ * @version $Id$
+ *
+ * This program can be distributed under the terms of the Apache License v2.0.
+ * See the file LICENSE for details.
+ **/
+
+package dev.unexist.showcase.todo.adapter.odata.benchmark;
+
+import dev.unexist.showcase.todo.domain.todo.DueDate;
+import dev.unexist.showcase.todo.infrastructure.serde.IsoDateCodec;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Run with {@code mvn test -Pbenchmark -Dtest=IsoDateCodecBenchmarkIT}
+ *
+ * The JMH run stays in the test JVM, since forks can't see the class path of surefire;
+ * the gc profiler reports the allocation per value as {@code gc.alloc.rate.norm}.
+ **/
+
+@Tag("benchmark")
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class IsoDateCodecBenchmarkIT {
+    private static final DateTimeFormatter CACHED_FORMATTER =
+            DateTimeFormatter.ofPattern(DueDate.DATE_PATTERN);
+
+    private final String text = "2021-05-07";
+    private final char[] chars = this.text.toCharArray();
+    private final LocalDate date = LocalDate.of(2021, 5, 7);
+    private final char[] buffer = new char[IsoDateCodec.LENGTH];
+
+    @Benchmark
+    public LocalDate parseWithNewFormatter() {
+        return LocalDate.from(DateTimeFormatter.ofPattern(DueDate.DATE_PATTERN).parse(this.text));
+    }
+
+    @Benchmark
+    public LocalDate parseWithCachedFormatter() {
+        return LocalDate.from(CACHED_FORMATTER.parse(this.text));
+    }
+
+    @Benchmark
+    public LocalDate parseWithCodec() {
+        return IsoDateCodec.parse(this.chars, 0, this.chars.length);
+    }
+
+    @Benchmark
+    public String formatWithNewFormatter() {
+        return this.date.format(DateTimeFormatter.ofPattern(DueDate.DATE_PATTERN));
+    }
+
+    @Benchmark
+    public String formatWithCachedFormatter() {
+        return this.date.format(CACHED_FORMATTER);
+    }
+
+    @Benchmark
+    public char[] formatWithCodec() {
+        IsoDateCodec.format(this.date, this.buffer, 0);
+
+        return this.buffer;
+    }
+
+    @Test
+    public void shouldBeFasterThanFormatter() throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(IsoDateCodecBenchmarkIT.class.getName() + "\\.")
+                .forks(0)
+                .warmupIterations(3)
+                .warmupTime(TimeValue.seconds(1))
+                .measurementIterations(5)
+                .measurementTime(TimeValue.seconds(1))
+                .addProfiler(GCProfiler.class)
+                .build();
+
+        Collection<RunResult> results = new Runner(options).run();
+
+        Map<String, Double> scores = results.stream()
+                .collect(Collectors.toMap(
+                        result -> result.getParams().getBenchmark()
+                                .substring(result.getParams().getBenchmark().lastIndexOf('.') + 1),
+                        result -> result.getPrimaryResult().getScore()));
+
+        assertThat(scores.get("parseWithCodec"))
+                .isLessThan(scores.get("parseWithCachedFormatter"));
+        assertThat(scores.get("formatWithCodec"))
+                .isLessThan(scores.get("formatWithCachedFormatter"));
+    }
+}
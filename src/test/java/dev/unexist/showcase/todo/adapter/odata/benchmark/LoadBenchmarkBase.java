@@ -0,0 +1,102 @@
+/**
+ * @package Showcase-OData-Quarkus
+ *
+ * @file
+ * @copyright 2024-present Christoph Kappel <christoph@unexist.dev>
+ * @version $Id$
+ *
+ * This program can be distributed under the terms of the Apache License v2.0.
+ * See the file LICENSE for details.
+ **/
+
+package dev.unexist.showcase.todo.adapter.odata.benchmark;
+
+import dev.unexist.showcase.todo.adapter.odata.ODataServletBaseIT;
+import io.quarkus.test.common.http.TestHTTPResource;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URI;
+import java.net.URL;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Load harness with many concurrent connections
+ *
+ * Run with {@code make load} or {@code mvn test -Pbenchmark -Dbenchmark.connections=10000}
+ **/
+
+public abstract class LoadBenchmarkBase extends ODataServletBaseIT {
+    private static final Logger LOGGER = LoggerFactory.getLogger(LoadBenchmarkBase.class);
+
+    private static final int CONNECTIONS = Integer.getInteger("benchmark.connections", 1000);
+    private static final int ROUNDS = Integer.getInteger("benchmark.rounds", 3);
+
+    private static final String[] PATHS = {
+            "odata/Todos(1)", "odata/Tasks?$top=2", "todo/1", "reactive/todo/1" };
+
+    @TestHTTPResource("/")
+    URL baseUrl;
+
+    @ConfigProperty(name = "todo.dispatch.mode")
+    String dispatchMode;
+
+    @Test
+    public void shouldServeConcurrentConnections() {
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(30))
+                .build();
+
+        /* Warm up */
+        sendAll(client, Math.min(CONNECTIONS, 100));
+
+        for (int round = 1; round <= ROUNDS; round++) {
+            long nanos = System.nanoTime();
+            long failures = sendAll(client, CONNECTIONS);
+
+            nanos = System.nanoTime() - nanos;
+
+            LOGGER.info("mode={} round={} connections={} failures={} time={}ms throughput={}/s",
+                    this.dispatchMode, round, CONNECTIONS, failures,
+                    TimeUnit.NANOSECONDS.toMillis(nanos),
+                    CONNECTIONS * TimeUnit.SECONDS.toNanos(1) / nanos);
+
+            /* Timeouts under overload are part of the result, but most requests must succeed */
+            assertThat(failures).isLessThan(CONNECTIONS / 2);
+        }
+    }
+
+    private long sendAll(HttpClient client, int connections) {
+        List<CompletableFuture<Integer>> responses = new ArrayList<>(connections);
+
+        for (int i = 0; i < connections; i++) {
+            HttpRequest request = HttpRequest.newBuilder()
+                    .uri(URI.create(this.baseUrl + PATHS[i % PATHS.length]))
+                    .header("Accept", "application/json")
+                    .timeout(Duration.ofSeconds(60))
+                    .GET()
+                    .build();
+
+            responses.add(client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .thenApply(HttpResponse::statusCode)
+                    .exceptionally(e -> -1));
+        }
+
+        return responses.stream()
+                .map(CompletableFuture::join)
+                .filter(statusCode -> 200 != statusCode)
+                .count();
+    }
+}
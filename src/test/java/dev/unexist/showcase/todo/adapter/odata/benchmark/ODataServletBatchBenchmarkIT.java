@@ -0,0 +1,109 @@
+/**
+ * @package Showcase-OData-Quarkus
+ *
+ * @file
+ * @copyright 2024-present Christoph Kappel <christoph@unexist.dev>
+ * @version $Id$
+ *
+ * This program can be distributed under the terms of the Apache License v2.0.
+ * See the file LICENSE for details.
+ **/
+
+package dev.unexist.showcase.todo.adapter.odata.benchmark;
+
+import dev.unexist.showcase.todo.adapter.odata.ODataServletBaseIT;
+import io.quarkus.test.junit.QuarkusTest;
+import io.restassured.http.ContentType;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import static io.restassured.RestAssured.given;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Run with {@code mvn test -Pbenchmark}
+ **/
+
+@Tag("benchmark")
+@QuarkusTest
+public class ODataServletBatchBenchmarkIT extends ODataServletBaseIT {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ODataServletBatchBenchmarkIT.class);
+
+    private static final String CRLF = "\r\n";
+    private static final String TASK_JSON =
+            "{\"TodoID\":1,\"Title\":\"Task string\",\"Description\":\"Task string\"}";
+    private static final int INSERTS = 1000;
+
+    @Test
+    public void shouldCompareBatchWithSingleInserts() {
+        /* Warm up both paths */
+        postSingle();
+        postBatch(10);
+
+        long singleNanos = System.nanoTime();
+
+        for (int i = 0; i < INSERTS; i++) {
+            postSingle();
+        }
+
+        singleNanos = System.nanoTime() - singleNanos;
+
+        long batchNanos = System.nanoTime();
+
+        postBatch(INSERTS);
+
+        batchNanos = System.nanoTime() - batchNanos;
+
+        LOGGER.info("{} task inserts: single={}ms, batch={}ms", INSERTS,
+                TimeUnit.NANOSECONDS.toMillis(singleNanos),
+                TimeUnit.NANOSECONDS.toMillis(batchNanos));
+
+        assertThat(this.taskRepository.count()).isEqualTo(3 + 1 + 10 + 2 * INSERTS);
+    }
+
+    private static void postSingle() {
+        given()
+                .when()
+                    .contentType(ContentType.JSON)
+                    .accept(ContentType.JSON)
+                    .body(TASK_JSON)
+                    .post("/odata/Tasks")
+                .then()
+                    .statusCode(201);
+    }
+
+    private static void postBatch(int inserts) {
+        StringBuilder builder = new StringBuilder();
+
+        builder.append("--batch_1").append(CRLF)
+                .append("Content-Type: multipart/mixed;boundary=changeset_1").append(CRLF)
+                .append(CRLF);
+
+        for (int i = 0; i < inserts; i++) {
+            builder.append("--changeset_1").append(CRLF)
+                    .append("Content-Type: application/http").append(CRLF)
+                    .append("Content-Transfer-Encoding: binary").append(CRLF)
+                    .append("Content-ID: ").append(i + 1).append(CRLF).append(CRLF)
+                    .append("POST Tasks HTTP/1.1").append(CRLF)
+                    .append("Content-Type: ").append(ContentType.JSON).append(CRLF)
+                    .append("Accept: ").append(ContentType.JSON).append(CRLF).append(CRLF)
+                    .append(TASK_JSON).append(CRLF);
+        }
+
+        builder.append("--changeset_1--").append(CRLF)
+                .append("--batch_1--").append(CRLF);
+
+        given()
+                .when()
+                    .contentType("multipart/mixed;boundary=batch_1")
+                    .body(builder.toString().getBytes(StandardCharsets.UTF_8))
+                    .post("/odata/$batch")
+                .then()
+                    .statusCode(200);
+    }
+}
@@ -0,0 +1,37 @@
+/**
+ * @package Showcase-OData-Quarkus
+ *
+ * @file
+ * @copyright 2024-present Christoph Kappel <christoph@unexist.dev>
+ * @version $Id$
+ *
+ * This program can be distributed under the terms of the Apache License v2.0.
+ * See the file LICENSE for details.
+ **/
+
+package dev.unexist.showcase.todo.adapter.odata.benchmark;
+
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+import org.junit.jupiter.api.Tag;
+
+import java.util.Map;
+
+/**
+ * Requests run on virtual threads
+ **/
+
+@Tag("benchmark")
+@QuarkusTest
+@TestProfile(ODataServletVirtualLoadBenchmarkIT.VirtualThreadProfile.class)
+public class ODataServletVirtualLoadBenchmarkIT extends LoadBenchmarkBase {
+
+    public static class VirtualThreadProfile implements QuarkusTestProfile {
+
+        @Override
+        public Map<String, String> getConfigOverrides() {
+            return Map.of("todo.dispatch.mode", "virtual");
+        }
+    }
+}
@@ -0,0 +1,24 @@
+/**
+ * @package Showcase-OData-Quarkus
+ *
+ * @file
+ * @copyright 2024-present Christoph Kappel <christoph@unexist.dev>
+ * @version $Id$
+ *
+ * This program can be distributed under the terms of the Apache License v2.0.
+ * See the file LICENSE for details.
+ **/
+
+package dev.unexist.showcase.todo.adapter.odata.benchmark;
+
+import io.quarkus.test.junit.QuarkusTest;
+import org.junit.jupiter.api.Tag;
+
+/**
+ * Requests run on the worker threads of the server
+ **/
+
+@Tag("benchmark")
+@QuarkusTest
+public class ODataServletWorkerLoadBenchmarkIT extends LoadBenchmarkBase {
+}
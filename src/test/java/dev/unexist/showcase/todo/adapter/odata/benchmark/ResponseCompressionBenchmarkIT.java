@@ -0,0 +1,119 @@
+/**
+ * @package Showcase-OData-Quarkus
+ *
+ * @file
+ * @copyright 2024-present Christoph Kappel <christoph@unexist.dev>
+ * @version $Id$
+ *
+ * This program can be distributed under the terms of the Apache License v2.0.
+ * See the file LICENSE for details.
+ **/
+
+package dev.unexist.showcase.todo.adapter.odata.benchmark;
+
+import dev.unexist.showcase.todo.adapter.TodoFixture;
+import dev.unexist.showcase.todo.adapter.odata.ODataServletBaseIT;
+import dev.unexist.showcase.todo.domain.todo.Todo;
+import dev.unexist.showcase.todo.infrastructure.compression.CompressingOutputStream;
+import dev.unexist.showcase.todo.infrastructure.compression.ContentEncoding;
+import io.quarkus.test.junit.QuarkusTest;
+import io.restassured.http.ContentType;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static io.restassured.RestAssured.given;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Run with {@code mvn test -Pbenchmark}
+ **/
+
+@Tag("benchmark")
+@QuarkusTest
+public class ResponseCompressionBenchmarkIT extends ODataServletBaseIT {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ResponseCompressionBenchmarkIT.class);
+
+    private static final int ENTRIES = 10_000;
+    private static final int WARMUP_ROUNDS = 10;
+    private static final int ROUNDS = 30;
+    private static final int[] LEVELS = { 1, 6, 9 };
+
+    @Test
+    public void shouldTradeCpuForBandwidth() throws Exception {
+        List<Todo> todos = new ArrayList<>(ENTRIES);
+
+        for (int i = 0; i < ENTRIES; i++) {
+            todos.add(TodoFixture.createTodo());
+        }
+
+        this.todoRepository.addAll(todos);
+
+        byte[] odataContent = fetch("/odata/Todos");
+        byte[] restContent = fetch("/todo?limit=1000");
+
+        measure("odata", odataContent);
+        measure("rest", restContent);
+    }
+
+    private static byte[] fetch(String path) {
+        return given()
+                .header("Accept-Encoding", "identity")
+                .when()
+                    .accept(ContentType.JSON)
+                    .get(path)
+                .then()
+                    .statusCode(200)
+                .and()
+                    .extract()
+                    .asByteArray();
+    }
+
+    private static void measure(String name, byte[] content) throws Exception {
+        for (ContentEncoding encoding : List.of(ContentEncoding.GZIP, ContentEncoding.DEFLATE)) {
+            for (int level : LEVELS) {
+                int compressedLength = 0;
+
+                for (int i = 0; i < WARMUP_ROUNDS; i++) {
+                    compressedLength = compress(content, encoding, level);
+                }
+
+                long nanos = System.nanoTime();
+
+                for (int i = 0; i < ROUNDS; i++) {
+                    compress(content, encoding, level);
+                }
+
+                nanos = (System.nanoTime() - nanos) / ROUNDS;
+
+                LOGGER.info("{} body of {} bytes with {} level {}: {} bytes ({}%), {}us, {} MB/s",
+                        name, content.length, encoding.getToken(), level, compressedLength,
+                        compressedLength * 100 / content.length,
+                        TimeUnit.NANOSECONDS.toMicros(nanos),
+                        content.length * 1000L / Math.max(1, nanos));
+
+                assertThat(compressedLength).isLessThan(content.length / 4);
+            }
+        }
+    }
+
+    private static int compress(byte[] content, ContentEncoding encoding, int level)
+            throws Exception
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(content.length >> 3);
+
+        CompressingOutputStream compressingStream = new CompressingOutputStream(out,
+                encoding, level, 1024, chosen -> chosen);
+
+        compressingStream.write(content);
+        compressingStream.finish();
+
+        return out.size();
+    }
+}
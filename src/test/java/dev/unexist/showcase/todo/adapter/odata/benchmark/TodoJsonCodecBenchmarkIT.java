@@ -0,0 +1,127 @@
+/**
+ * @package Showcase-OData-Quarkus
+ *
+ * @file
+ * @copyright 2024-present Christoph Kappel <christoph@unexist.dev>
+ * @version $Id$
+ *
+ * This program can be distributed under the terms of the Apache License v2.0.
+ * See the file LICENSE for details.
+ **/
+
+package dev.unexist.showcase.todo.adapter.odata.benchmark;
+
+import dev.unexist.showcase.todo.adapter.TaskFixture;
+import dev.unexist.showcase.todo.adapter.TodoFixture;
+import dev.unexist.showcase.todo.domain.task.Task;
+import dev.unexist.showcase.todo.domain.todo.Todo;
+import dev.unexist.showcase.todo.infrastructure.serde.TodoJsonCodec;
+import io.quarkus.test.junit.QuarkusTest;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.json.bind.Jsonb;
+import javax.json.bind.JsonbBuilder;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static net.javacrumbs.jsonunit.assertj.JsonAssertions.assertThatJson;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Run with {@code mvn test -Pbenchmark}
+ **/
+
+@Tag("benchmark")
+@QuarkusTest
+public class TodoJsonCodecBenchmarkIT {
+    private static final Logger LOGGER = LoggerFactory.getLogger(TodoJsonCodecBenchmarkIT.class);
+
+    private static final int ENTRIES = 10_000;
+    private static final int WARMUP_ROUNDS = 20;
+    private static final int ROUNDS = 50;
+
+    /**
+     * Output stream that only counts bytes, so buffers of the sink don't skew the results
+     **/
+
+    private static class CountingOutputStream extends OutputStream {
+        private long count;
+
+        @Override
+        public void write(int b) {
+            this.count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            this.count += len;
+        }
+    }
+
+    @FunctionalInterface
+    private interface Serializer {
+        void write(Object value, OutputStream out) throws IOException;
+    }
+
+    @Test
+    public void shouldWriteFasterThanJsonb() throws Exception {
+        List<Todo> todos = new ArrayList<>(ENTRIES);
+        List<Task> tasks = new ArrayList<>(ENTRIES);
+
+        for (int i = 0; i < ENTRIES; i++) {
+            Todo todo = TodoFixture.createTodo();
+            Task task = TaskFixture.createTask(i);
+
+            todo.setId(i);
+            task.setId(i);
+
+            todos.add(todo);
+            tasks.add(task);
+        }
+
+        try (Jsonb jsonb = JsonbBuilder.create()) {
+            Serializer jsonbSerializer = jsonb::toJson;
+
+            /* Both must produce the same document to make the comparison fair */
+            ByteArrayOutputStream codecOut = new ByteArrayOutputStream();
+
+            TodoJsonCodec.write(todos, codecOut);
+
+            assertThatJson(codecOut.toString()).isEqualTo(jsonb.toJson(todos));
+
+            for (List<?> entries : List.of(todos, tasks)) {
+                String name = entries == todos ? "todo" : "task";
+
+                long jsonbNanos = measure(jsonbSerializer, entries);
+                long codecNanos = measure(TodoJsonCodec::write, entries);
+
+                LOGGER.info("{} {} list writes: jsonb={}us, codec={}us per list", ENTRIES, name,
+                        TimeUnit.NANOSECONDS.toMicros(jsonbNanos),
+                        TimeUnit.NANOSECONDS.toMicros(codecNanos));
+
+                assertThat(codecNanos).isLessThan(jsonbNanos);
+            }
+        }
+    }
+
+    private static long measure(Serializer serializer, Object value) throws IOException {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            serializer.write(value, new CountingOutputStream());
+        }
+
+        long nanos = System.nanoTime();
+
+        for (int i = 0; i < ROUNDS; i++) {
+            serializer.write(value, new CountingOutputStream());
+        }
+
+        return (System.nanoTime() - nanos) / ROUNDS;
+    }
+}
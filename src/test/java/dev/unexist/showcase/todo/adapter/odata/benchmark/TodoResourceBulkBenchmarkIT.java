@@ -0,0 +1,80 @@
+/**
+ * @package Showcase-OData-Quarkus
+ *
+ * @file
+ * @copyright 2024-present Christoph Kappel <christoph@unexist.dev>
+ * @version $Id$
+ *
+ * This program can be distributed under the terms of the Apache License v2.0.
+ * See the file LICENSE for details.
+ **/
+
+package dev.unexist.showcase.todo.adapter.odata.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.unexist.showcase.todo.adapter.TaskFixture;
+import dev.unexist.showcase.todo.adapter.odata.ODataServletBaseIT;
+import dev.unexist.showcase.todo.domain.task.Task;
+import io.quarkus.test.junit.QuarkusTest;
+import io.restassured.http.ContentType;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static io.restassured.RestAssured.given;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Run with {@code mvn test -Pbenchmark}
+ **/
+
+@Tag("benchmark")
+@QuarkusTest
+public class TodoResourceBulkBenchmarkIT extends ODataServletBaseIT {
+    private static final Logger LOGGER = LoggerFactory.getLogger(TodoResourceBulkBenchmarkIT.class);
+
+    private static final int TASKS = 100_000;
+
+    @Test
+    public void shouldBulkLoadTasks() throws JsonProcessingException {
+        List<Task> tasks = new ArrayList<>(TASKS);
+
+        for (int i = 0; i < TASKS; i++) {
+            tasks.add(TaskFixture.createTask());
+        }
+
+        /* Serialize upfront to keep the client out of the measurement */
+        String jsonIn = new ObjectMapper().writeValueAsString(tasks);
+
+        long repositoryNanos = System.nanoTime();
+
+        this.taskRepository.addAll(tasks);
+
+        repositoryNanos = System.nanoTime() - repositoryNanos;
+
+        long restNanos = System.nanoTime();
+
+        given()
+                .when()
+                    .contentType(ContentType.JSON)
+                    .body(jsonIn)
+                    .post("/todo/1/task/bulk")
+                .then()
+                    .statusCode(201);
+
+        restNanos = System.nanoTime() - restNanos;
+
+        LOGGER.info("{} task bulk load: repository={}ms, rest={}ms", TASKS,
+                TimeUnit.NANOSECONDS.toMillis(repositoryNanos),
+                TimeUnit.NANOSECONDS.toMillis(restNanos));
+
+        assertThat(this.taskRepository.count()).isEqualTo(3 + 2 * TASKS);
+        assertThat(repositoryNanos).isLessThan(TimeUnit.SECONDS.toNanos(1));
+    }
+}
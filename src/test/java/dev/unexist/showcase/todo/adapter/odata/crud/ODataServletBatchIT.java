@@ -0,0 +1,169 @@
+/**
+ * @package Showcase-OData-Quarkus
+ *
+ * @file
+ * @copyright 2024-present Christoph Kappel <christoph@unexist.dev>
+ * @version $Id$
+ *
+ * This program can be distributed under the terms of the Apache License v2.0.
+ * See the file LICENSE for details.
+ **/
+
+package dev.unexist.showcase.todo.adapter.odata.crud;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import dev.unexist.showcase.todo.adapter.TodoFixture;
+import dev.unexist.showcase.todo.adapter.odata.ODataServletBaseIT;
+import io.quarkus.test.junit.QuarkusTest;
+import io.restassured.http.ContentType;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+
+import static io.restassured.RestAssured.given;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.startsWith;
+
+@QuarkusTest
+public class ODataServletBatchIT extends ODataServletBaseIT {
+    private static final String CRLF = "\r\n";
+    private static final String TASK_JSON =
+            "{\"TodoID\":1,\"Title\":\"Task string\",\"Description\":\"Task string\"}";
+
+    @Test
+    public void shouldProcessReadsAndChangeSet() throws JsonProcessingException {
+        String body = "--batch_1" + CRLF
+                + createGetPart("Todos(1)")
+                + "--batch_1" + CRLF
+                + createGetPart("Tasks(3)")
+                + "--batch_1" + CRLF
+                + "Content-Type: multipart/mixed;boundary=changeset_1" + CRLF + CRLF
+                + "--changeset_1" + CRLF
+                + createChangePart("1", "POST", "Tasks", TASK_JSON)
+                + "--changeset_1" + CRLF
+                + createChangePart("2", "PATCH", "Todos(2)", TodoFixture.createEntityJSON())
+                + "--changeset_1--" + CRLF
+                + "--batch_1--" + CRLF;
+
+        String batchOut = given()
+                .when()
+                    .contentType("multipart/mixed;boundary=batch_1")
+                    .body(body.getBytes(StandardCharsets.UTF_8))
+                    .post("/odata/$batch")
+                .then()
+                    .statusCode(200)
+                    .header("Content-Type", startsWith("multipart/mixed"))
+                .and()
+                    .extract()
+                    .asString();
+
+        assertThat(batchOut)
+                .contains("HTTP/1.1 200 OK", "HTTP/1.1 201 Created", "HTTP/1.1 204 No Content");
+        assertThat(this.taskRepository.count()).isEqualTo(4);
+    }
+
+    @Test
+    public void shouldRollbackFailedChangeSet() throws JsonProcessingException {
+        String body = "--batch_1" + CRLF
+                + "Content-Type: multipart/mixed;boundary=changeset_1" + CRLF + CRLF
+                + "--changeset_1" + CRLF
+                + createChangePart("1", "POST", "Tasks", TASK_JSON)
+                + "--changeset_1" + CRLF
+                + createChangePart("2", "DELETE", "Tasks(1)", "")
+                + "--changeset_1" + CRLF
+                + createChangePart("3", "PATCH", "Todos(99)", TodoFixture.createEntityJSON())
+                + "--changeset_1--" + CRLF
+                + "--batch_1--" + CRLF;
+
+        String batchOut = given()
+                .when()
+                    .contentType("multipart/mixed;boundary=batch_1")
+                    .body(body.getBytes(StandardCharsets.UTF_8))
+                    .post("/odata/$batch")
+                .then()
+                    .statusCode(200)
+                .and()
+                    .extract()
+                    .asString();
+
+        assertThat(batchOut)
+                .contains("HTTP/1.1 404 Not Found")
+                .doesNotContain("HTTP/1.1 201 Created");
+        assertThat(this.taskRepository.count()).isEqualTo(3);
+        assertThat(this.taskRepository.findById(1)).isPresent();
+    }
+
+    @Test
+    public void shouldNotLogChangesOfFailedChangeSet() {
+        String deltaLink = given()
+                .when()
+                    .accept(ContentType.JSON)
+                    .header("Prefer", "odata.track-changes")
+                    .get("/odata/Tasks")
+                .then()
+                    .statusCode(200)
+                .and()
+                    .extract()
+                    .jsonPath()
+                    .getString("'@odata.deltaLink'");
+
+        long sequence = this.taskRepository.getChangeSequence();
+
+        String body = "--batch_1" + CRLF
+                + "Content-Type: multipart/mixed;boundary=changeset_1" + CRLF + CRLF
+                + "--changeset_1" + CRLF
+                + createChangePart("1", "POST", "Tasks", TASK_JSON)
+                + "--changeset_1" + CRLF
+                + createChangePart("2", "PATCH", "Tasks(2)", TASK_JSON)
+                + "--changeset_1" + CRLF
+                + createChangePart("3", "DELETE", "Tasks(1)", "")
+                + "--changeset_1" + CRLF
+                + createChangePart("4", "DELETE", "Tasks(99)", "")
+                + "--changeset_1--" + CRLF
+                + "--batch_1--" + CRLF;
+
+        given()
+                .when()
+                    .contentType("multipart/mixed;boundary=batch_1")
+                    .body(body.getBytes(StandardCharsets.UTF_8))
+                    .post("/odata/$batch")
+                .then()
+                    .statusCode(200)
+                    .body(containsString("HTTP/1.1 404 Not Found"));
+
+        assertThat(this.taskRepository.getChangeSequence()).isEqualTo(sequence);
+
+        URI uri = URI.create(deltaLink);
+
+        given()
+                .when()
+                    .accept(ContentType.JSON)
+                    .get(uri.getRawPath() + "?" + uri.getRawQuery())
+                .then()
+                    .statusCode(200)
+                    .body("value.size()", equalTo(0))
+                    .body("'@odata.deltaLink'", equalTo(deltaLink));
+    }
+
+    private static String createGetPart(String path) {
+        return "Content-Type: application/http" + CRLF
+                + "Content-Transfer-Encoding: binary" + CRLF + CRLF
+                + "GET " + path + " HTTP/1.1" + CRLF
+                + "Accept: " + ContentType.JSON + CRLF + CRLF + CRLF;
+    }
+
+    private static String createChangePart(String contentId, String method, String path,
+                                           String json)
+    {
+        return "Content-Type: application/http" + CRLF
+                + "Content-Transfer-Encoding: binary" + CRLF
+                + "Content-ID: " + contentId + CRLF + CRLF
+                + method + " " + path + " HTTP/1.1" + CRLF
+                + "Content-Type: " + ContentType.JSON + CRLF
+                + "Accept: " + ContentType.JSON + CRLF + CRLF
+                + json + CRLF;
+    }
+}
@@ -0,0 +1,136 @@
+/**
+ * @package Showcase-OData-Quarkus
+ *
+ * @file
+ * @copyright 2024-present Christoph Kappel <christoph@unexist.dev>
+ * @version $Id$
+ *
+ * This program can be distributed under the terms of the Apache License v2.0.
+ * See the file LICENSE for details.
+ **/
+
+package dev.unexist.showcase.todo.adapter.odata.crud;
+
+import dev.unexist.showcase.todo.adapter.odata.ODataServletBaseIT;
+import dev.unexist.showcase.todo.domain.task.Task;
+import io.quarkus.test.junit.QuarkusTest;
+import io.restassured.http.ContentType;
+import org.junit.jupiter.api.Test;
+
+import static io.restassured.RestAssured.given;
+import static net.javacrumbs.jsonunit.assertj.JsonAssertions.assertThatJson;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@QuarkusTest
+public class ODataServletDeepInsertIT extends ODataServletBaseIT {
+
+    @Test
+    public void shouldCreateTodoWithInlineTasks() {
+        String jsonIn = "{"
+                + "\"Title\": \"Todo string\","
+                + "\"Description\": \"Todo string\","
+                + "\"Tasks\": ["
+                +   "{\"Title\": \"Task string\", \"Description\": \"Task string\"},"
+                +   "{\"Title\": \"Task string\", \"Description\": \"Task string\"}"
+                + "]}";
+
+        String jsonOut = given()
+                .when()
+                    .accept(ContentType.JSON)
+                    .contentType(ContentType.JSON)
+                    .body(jsonIn)
+                    .post("/odata/Todos")
+                .then()
+                    .statusCode(201)
+                .and()
+                    .extract()
+                    .asString();
+
+        assertThatJson(jsonOut)
+                .inPath("$.Tasks[*].ID")
+                    .isArray()
+                    .containsExactly(4, 5);
+        assertThatJson(jsonOut)
+                .inPath("$.Tasks[*].TodoID")
+                    .isArray()
+                    .containsExactly(4, 4);
+
+        assertThat(this.taskRepository.count()).isEqualTo(5);
+        assertThat(this.taskRepository.findAllByPredicate(task -> 4 == task.getTodoId()))
+                .extracting(Task::getId)
+                .containsExactly(4, 5);
+    }
+
+    @Test
+    public void shouldRollbackFailedDeepInsert() {
+        String jsonIn = "{"
+                + "\"Title\": \"Todo string\","
+                + "\"Description\": \"Todo string\","
+                + "\"Tasks\": [{\"Title\": \"Task string\"}]"
+                + "}";
+
+        given()
+                .when()
+                    .accept(ContentType.JSON)
+                    .contentType(ContentType.JSON)
+                    .body(jsonIn)
+                    .post("/odata/Todos")
+                .then()
+                    .statusCode(500);
+
+        assertThat(this.todoRepository.count()).isEqualTo(3);
+        assertThat(this.taskRepository.count()).isEqualTo(3);
+    }
+
+    @Test
+    public void shouldUpdateTodoWithInlineTasks() {
+        String jsonIn = "{"
+                + "\"Title\": \"Todo update\","
+                + "\"Description\": \"Todo update\","
+                + "\"Tasks\": ["
+                +   "{\"ID\": 2, \"Title\": \"Task update\", \"Description\": \"Task update\"},"
+                +   "{\"Title\": \"Task string\", \"Description\": \"Task string\"}"
+                + "]}";
+
+        given()
+                .when()
+                    .accept(ContentType.JSON)
+                    .contentType(ContentType.JSON)
+                    .body(jsonIn)
+                    .patch("/odata/Todos(1)")
+                .then()
+                    .statusCode(204);
+
+        assertThat(this.todoRepository.findById(1))
+                .hasValueSatisfying(todo -> assertThat(todo.getDescription()).isEqualTo("Todo update"));
+        assertThat(this.taskRepository.findById(2))
+                .hasValueSatisfying(task -> assertThat(task.getDescription()).isEqualTo("Task update"));
+        assertThat(this.taskRepository.findAllByPredicate(task -> 1 == task.getTodoId()))
+                .extracting(Task::getId)
+                .containsExactly(1, 2, 4);
+    }
+
+    @Test
+    public void shouldRejectDeepUpdateOfForeignTask() {
+        String jsonIn = "{"
+                + "\"Title\": \"Todo update\","
+                + "\"Description\": \"Todo update\","
+                + "\"Tasks\": ["
+                +   "{\"ID\": 3, \"Title\": \"Task update\", \"Description\": \"Task update\"}"
+                + "]}";
+
+        given()
+                .when()
+                    .accept(ContentType.JSON)
+                    .contentType(ContentType.JSON)
+                    .body(jsonIn)
+                    .patch("/odata/Todos(1)")
+                .then()
+                    .statusCode(400);
+
+        assertThat(this.todoRepository.findById(1))
+                .hasValueSatisfying(todo -> assertThat(todo.getDescription()).isEqualTo("Todo string"));
+        assertThat(this.taskRepository.findById(3))
+                .hasValueSatisfying(task -> assertThat(task.getDescription()).isEqualTo("Task string"));
+    }
+}
@@ -0,0 +1,124 @@
+/**
+ * @package Showcase-OData-Quarkus
+ *
+ * @file
+ * @copyright 2024-present Christoph Kappel <christoph@unexist.dev>
+ * @version $Id$
+ *
+ * This program can be distributed under the terms of the Apache License v2.0.
+ * See the file LICENSE for details.
+ **/
+
+package dev.unexist.showcase.todo.adapter.odata.crud;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import dev.unexist.showcase.todo.adapter.TodoFixture;
+import dev.unexist.showcase.todo.adapter.odata.ODataServletBaseIT;
+import io.quarkus.test.junit.QuarkusTest;
+import io.restassured.http.ContentType;
+import org.junit.jupiter.api.Test;
+
+import static io.restassured.RestAssured.given;
+import static net.javacrumbs.jsonunit.assertj.JsonAssertions.assertThatJson;
+import static org.hamcrest.Matchers.emptyString;
+import static org.hamcrest.Matchers.equalTo;
+
+@QuarkusTest
+public class ODataServletEntityETagIT extends ODataServletBaseIT {
+
+    @Test
+    public void shouldExposeETag() {
+        String jsonOut = given()
+                .when()
+                    .accept(ContentType.JSON)
+                    .get("/odata/Todos(1)")
+                .then()
+                    .statusCode(200)
+                    .header("ETag", equalTo("\"1\""))
+                .and()
+                    .extract()
+                    .asString();
+
+        assertThatJson(jsonOut)
+                .inPath("$.['@odata.etag']")
+                    .isString()
+                    .isEqualTo("\"1\"");
+    }
+
+    @Test
+    public void shouldAnswerNotModified() {
+        given()
+                .when()
+                    .accept(ContentType.JSON)
+                    .header("If-None-Match", "\"1\"")
+                    .get("/odata/Todos(1)")
+                .then()
+                    .statusCode(304)
+                    .header("ETag", equalTo("\"1\""))
+                    .body(emptyString());
+    }
+
+    @Test
+    public void shouldUpdateWithMatchingETag() throws JsonProcessingException {
+        given()
+                .when()
+                    .accept(ContentType.JSON)
+                    .contentType(ContentType.JSON)
+                    .header("If-Match", "\"1\"")
+                    .body(TodoFixture.createEntityJSON())
+                    .put("/odata/Todos(1)")
+                .then()
+                    .statusCode(204)
+                    .header("ETag", equalTo("\"2\""));
+
+        given()
+                .when()
+                    .accept(ContentType.JSON)
+                    .header("If-None-Match", "\"1\"")
+                    .get("/odata/Todos(1)")
+                .then()
+                    .statusCode(200)
+                    .header("ETag", equalTo("\"2\""));
+    }
+
+    @Test
+    public void shouldRejectUpdateWithStaleETag() throws JsonProcessingException {
+        given()
+                .when()
+                    .accept(ContentType.JSON)
+                    .contentType(ContentType.JSON)
+                    .body(TodoFixture.createEntityJSON())
+                    .patch("/odata/Todos(1)")
+                .then()
+                    .statusCode(204);
+
+        given()
+                .when()
+                    .accept(ContentType.JSON)
+                    .contentType(ContentType.JSON)
+                    .header("If-Match", "\"1\"")
+                    .body(TodoFixture.createEntityJSON())
+                    .patch("/odata/Todos(1)")
+                .then()
+                    .statusCode(412);
+    }
+
+    @Test
+    public void shouldRejectDeleteWithStaleETag() {
+        given()
+                .when()
+                    .accept(ContentType.JSON)
+                    .header("If-Match", "\"5\"")
+                    .delete("/odata/Todos(2)")
+                .then()
+                    .statusCode(412);
+
+        given()
+                .when()
+                    .accept(ContentType.JSON)
+                    .header("If-Match", "\"1\"")
+                    .delete("/odata/Todos(2)")
+                .then()
+                    .statusCode(204);
+    }
+}
@@ -67,9 +67,12 @@ public class ODataServletEntityFindIT extends ODataServletBaseIT {
 
         final Object expectedObject = json(String.join(System.lineSeparator(),
                 "{",
+                "\"@odata.etag\": \"${json-unit.any-string}\",",
                 "\"ID\": \"${json-unit.any-number}\",",
                 "\"Title\": \"${json-unit.any-string}\",",
-                "\"Description\": \"${json-unit.any-string}\"",
+                "\"Description\": \"${json-unit.any-string}\",",
+                "\"Start\": \"${json-unit.any-string}\",",
+                "\"Due\": \"${json-unit.any-string}\"",
                 "}"));
 
         assertThatJson(jsonOut)
@@ -12,6 +12,7 @@
 package dev.unexist.showcase.todo.adapter.odata.filter;
 
 import dev.unexist.showcase.todo.adapter.odata.ODataServletBaseIT;
+import dev.unexist.showcase.todo.domain.task.TaskFactory;
 import io.quarkus.test.junit.QuarkusTest;
 import io.restassured.http.ContentType;
 import org.junit.jupiter.api.Test;
@@ -19,10 +20,16 @@ import org.junit.jupiter.api.Test;
 import static io.restassured.RestAssured.given;
 import static net.javacrumbs.jsonunit.assertj.JsonAssertions.assertThatJson;
 import static net.javacrumbs.jsonunit.assertj.JsonAssertions.json;
+import static org.hamcrest.Matchers.startsWith;
 
 @QuarkusTest
 public class ODataServletFilterBooleanIT extends ODataServletBaseIT {
 
+    private void addDoneTask() {
+        this.taskRepository.add(TaskFactory.fromData(0, 1,
+                "Task string", "Task string", true));
+    }
+
     @Test
     public void shouldFilterBoolAnd() {
         String jsonOut = given()
@@ -59,4 +66,70 @@ public class ODataServletFilterBooleanIT extends ODataServletBaseIT {
                     .isArray()
                     .isEqualTo(json("[1,2,3]"));
     }
+
+    @Test
+    public void shouldFilterBoolLiteralWithIndex() {
+        addDoneTask();
+
+        String jsonOut = given()
+                .when()
+                    .accept(ContentType.JSON)
+                    .get("/odata/Tasks?$filter=Done eq false&$count=true")
+                .then()
+                    .statusCode(200)
+                    .header("X-Query-Plan", startsWith("INDEX_SCAN[Done "))
+                .and()
+                    .extract()
+                    .asString();
+
+        assertThatJson(jsonOut)
+                .inPath("$.value..[\"ID\"]")
+                    .isArray()
+                    .isEqualTo(json("[1,2,3]"));
+
+        assertThatJson(jsonOut)
+                .isObject()
+                    .containsEntry("@odata.count", 3);
+    }
+
+    @Test
+    public void shouldFilterBoolProperty() {
+        addDoneTask();
+
+        String jsonOut = given()
+                .when()
+                    .accept(ContentType.JSON)
+                    .get("/odata/Tasks?$filter=Done")
+                .then()
+                    .statusCode(200)
+                    .header("X-Query-Plan", startsWith("INDEX_SCAN[Done "))
+                .and()
+                    .extract()
+                    .asString();
+
+        assertThatJson(jsonOut)
+                .inPath("$.value..[\"ID\"]")
+                    .isArray()
+                    .isEqualTo(json("[4]"));
+    }
+
+    @Test
+    public void shouldFilterBoolNot() {
+        addDoneTask();
+
+        String jsonOut = given()
+                .when()
+                    .accept(ContentType.JSON)
+                    .get("/odata/Tasks?$filter=not Done and TodoID eq 1")
+                .then()
+                    .statusCode(200)
+                .and()
+                    .extract()
+                    .asString();
+
+        assertThatJson(jsonOut)
+                .inPath("$.value..[\"ID\"]")
+                    .isArray()
+                    .isEqualTo(json("[1,2]"));
+    }
 }
@@ -118,7 +118,7 @@ public class ODataServletFilterComparisonIT extends ODataServletBaseIT {
         String jsonOut = given()
                 .when()
                     .accept(ContentType.JSON)
-                    .get("/odata/Todos?$filter=not(ID eq 1)")
+                    .get("/odata/Todos?$filter=not (ID eq 1)")
                 .then()
                     .statusCode(200)
                 .and()
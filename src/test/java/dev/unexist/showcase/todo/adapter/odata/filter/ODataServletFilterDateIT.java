@@ -0,0 +1,114 @@
+/**
+ * @package Showcase-OData-Quarkus
+ *
+ * @file
+ * @copyright 2024-present Christoph Kappel <christoph@unexist.dev>
+ * @version $Id$
+ *
+ * This program can be distributed under the terms of the Apache License v2.0.
+ * See the file LICENSE for details.
+ **/
+
+package dev.unexist.showcase.todo.adapter.odata.filter;
+
+import dev.unexist.showcase.todo.adapter.odata.ODataServletBaseIT;
+import dev.unexist.showcase.todo.domain.todo.DueDate;
+import dev.unexist.showcase.todo.domain.todo.Todo;
+import io.quarkus.test.junit.QuarkusTest;
+import io.restassured.http.ContentType;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static io.restassured.RestAssured.given;
+import static net.javacrumbs.jsonunit.assertj.JsonAssertions.assertThatJson;
+import static net.javacrumbs.jsonunit.assertj.JsonAssertions.json;
+import static org.hamcrest.Matchers.startsWith;
+
+@QuarkusTest
+public class ODataServletFilterDateIT extends ODataServletBaseIT {
+
+    private void addTodoDueIn(int days) {
+        Todo todo = new Todo();
+        DueDate dueDate = new DueDate();
+
+        dueDate.setStart(LocalDate.now());
+        dueDate.setDue(LocalDate.now().plusDays(days));
+
+        todo.setTitle("Todo string");
+        todo.setDescription("Todo string");
+        todo.setDueDate(dueDate);
+
+        this.todoRepository.add(todo);
+    }
+
+    @Test
+    public void shouldFilterDateLiteral() {
+        String jsonOut = given()
+                .when()
+                    .accept(ContentType.JSON)
+                    .get("/odata/Todos?$filter=Due eq 2021-05-07")
+                .then()
+                    .statusCode(200)
+                .and()
+                    .extract()
+                    .asString();
+
+        assertThatJson(jsonOut)
+                .inPath("$.value..[\"Due\"]")
+                    .isArray()
+                    .isEqualTo(json("[\"2021-05-07\",\"2021-05-07\",\"2021-05-07\"]"));
+    }
+
+    @Test
+    public void shouldFilterDateParts() {
+        addTodoDueIn(400);
+
+        String jsonOut = given()
+                .when()
+                    .accept(ContentType.JSON)
+                    .get("/odata/Todos?$filter=year(Due) eq 2021 and month(Due) eq 5 and day(Due) eq 7")
+                .then()
+                    .statusCode(200)
+                .and()
+                    .extract()
+                    .asString();
+
+        assertThatJson(jsonOut)
+                .inPath("$.value..[\"ID\"]")
+                    .isArray()
+                    .isEqualTo(json("[1,2,3]"));
+    }
+
+    @Test
+    public void shouldFilterNextWeekWithIndex() {
+        addTodoDueIn(3);
+        addTodoDueIn(30);
+
+        String jsonOut = given()
+                .when()
+                    .accept(ContentType.JSON)
+                    .get("/odata/Todos?$filter=Due ge date(now()) and Due le date(now()) add duration'P7D'")
+                .then()
+                    .statusCode(200)
+                    .header("X-Query-Plan", startsWith("INDEX_SCAN[Due "))
+                .and()
+                    .extract()
+                    .asString();
+
+        assertThatJson(jsonOut)
+                .inPath("$.value..[\"ID\"]")
+                    .isArray()
+                    .isEqualTo(json("[4]"));
+    }
+
+    @Test
+    public void shouldRejectInvalidDate() {
+        given()
+                .when()
+                    .accept(ContentType.JSON)
+                    .get("/odata/Todos?$filter=Due eq 2021-13-01")
+                .then()
+                    .statusCode(400);
+    }
+}
@@ -0,0 +1,130 @@
+/**
+ * @package Showcase-OData-Quarkus
+ *
+ * @file
+ * @copyright 2024-present Christoph Kappel <christoph@unexist.dev>
+ * @version $Id$
+ *
+ * This program can be distributed under the terms of the Apache License v2.0.
+ * See the file LICENSE for details.
+ **/
+
+package dev.unexist.showcase.todo.adapter.odata.system_query;
+
+import dev.unexist.showcase.todo.adapter.odata.ODataServletBaseIT;
+import io.quarkus.test.junit.QuarkusTest;
+import io.restassured.http.ContentType;
+import org.junit.jupiter.api.Test;
+
+import static io.restassured.RestAssured.given;
+import static net.javacrumbs.jsonunit.assertj.JsonAssertions.assertThatJson;
+import static net.javacrumbs.jsonunit.assertj.JsonAssertions.json;
+
+@QuarkusTest
+public class ODataServletApplyIT extends ODataServletBaseIT {
+
+    @Test
+    public void shouldCountGroups() {
+        String jsonOut = given()
+                .when()
+                    .accept(ContentType.JSON)
+                    .get("/odata/Tasks?$apply=groupby((TodoID),aggregate($count as Cnt))")
+                .then()
+                    .statusCode(200)
+                .and()
+                    .extract()
+                    .asString();
+
+        assertThatJson(jsonOut)
+                .isObject()
+                    .containsEntry("@odata.context", "$metadata#Tasks(TodoID,Cnt)");
+
+        assertThatJson(jsonOut)
+                .inPath("$.value")
+                    .isArray()
+                    .isEqualTo(json("[{\"TodoID\":1,\"Cnt\":2},{\"TodoID\":2,\"Cnt\":1}]"));
+    }
+
+    @Test
+    public void shouldGroupWithoutAggregate() {
+        String jsonOut = given()
+                .when()
+                    .accept(ContentType.JSON)
+                    .get("/odata/Tasks?$apply=groupby((TodoID,Done))")
+                .then()
+                    .statusCode(200)
+                .and()
+                    .extract()
+                    .asString();
+
+        assertThatJson(jsonOut)
+                .inPath("$.value")
+                    .isArray()
+                    .isEqualTo(json("[{\"TodoID\":1,\"Done\":false},{\"TodoID\":2,\"Done\":false}]"));
+    }
+
+    @Test
+    public void shouldFilterBeforeAggregate() {
+        String jsonOut = given()
+                .when()
+                    .accept(ContentType.JSON)
+                    .get("/odata/Tasks?$apply=filter(TodoID eq 1)/aggregate(ID with max as MaxId)")
+                .then()
+                    .statusCode(200)
+                .and()
+                    .extract()
+                    .asString();
+
+        assertThatJson(jsonOut)
+                .inPath("$.value")
+                    .isArray()
+                    .isEqualTo(json("[{\"MaxId\":2}]"));
+    }
+
+    @Test
+    public void shouldAggregateWithoutGroups() {
+        String jsonOut = given()
+                .when()
+                    .accept(ContentType.JSON)
+                    .get("/odata/Todos?$apply=aggregate($count as Cnt,ID with sum as Total,"
+                            + "ID with average as Avg,Due with min as First)")
+                .then()
+                    .statusCode(200)
+                .and()
+                    .extract()
+                    .asString();
+
+        assertThatJson(jsonOut)
+                .inPath("$.value")
+                    .isArray()
+                    .isEqualTo(json("[{\"Cnt\":3,\"Total\":6,\"Avg\":2.0,\"First\":\"2021-05-07\"}]"));
+    }
+
+    @Test
+    public void shouldAggregateEmptyInput() {
+        String jsonOut = given()
+                .when()
+                    .accept(ContentType.JSON)
+                    .get("/odata/Tasks?$apply=filter(TodoID eq 99)/aggregate($count as Cnt,ID with max as MaxId)")
+                .then()
+                    .statusCode(200)
+                .and()
+                    .extract()
+                    .asString();
+
+        assertThatJson(jsonOut)
+                .inPath("$.value")
+                    .isArray()
+                    .isEqualTo(json("[{\"Cnt\":0,\"MaxId\":null}]"));
+    }
+
+    @Test
+    public void shouldRejectApplyWithOtherOptions() {
+        given()
+                .when()
+                    .accept(ContentType.JSON)
+                    .get("/odata/Tasks?$apply=groupby((TodoID))&$top=1")
+                .then()
+                    .statusCode(501);
+    }
+}
@@ -0,0 +1,182 @@
+/**
+ * @package Showcase-OData-Quarkus
+ *
+ * @file
+ * @copyright 2024-present Christoph Kappel <christoph@unexist.dev>
+ * @version $Id$
+ *
+ * This program can be distributed under the terms of the Apache License v2.0.
+ * See the file LICENSE for details.
+ **/
+
+package dev.unexist.showcase.todo.adapter.odata.system_query;
+
+import dev.unexist.showcase.todo.adapter.TodoFixture;
+import dev.unexist.showcase.todo.adapter.odata.ODataServletBaseIT;
+import dev.unexist.showcase.todo.domain.todo.Todo;
+import io.quarkus.test.junit.QuarkusTest;
+import io.restassured.http.ContentType;
+import io.restassured.path.json.JsonPath;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+
+import static io.restassured.RestAssured.given;
+import static net.javacrumbs.jsonunit.assertj.JsonAssertions.assertThatJson;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+
+@QuarkusTest
+public class ODataServletDeltaIT extends ODataServletBaseIT {
+
+    @Test
+    public void shouldReturnDeltaLinkWhenTrackingChanges() {
+        String jsonOut = given()
+                .when()
+                    .accept(ContentType.JSON)
+                    .header("Prefer", "odata.track-changes")
+                    .get("/odata/Todos")
+                .then()
+                    .statusCode(200)
+                    .header("Preference-Applied", equalTo("odata.track-changes"))
+                .and()
+                    .extract()
+                    .asString();
+
+        assertThatJson(jsonOut).inPath("$.value").isArray().hasSize(3);
+        assertThatJson(jsonOut).inPath("$.['@odata.deltaLink']").isString()
+                .contains("/odata/Todos?$deltatoken=");
+    }
+
+    @Test
+    public void shouldNotTrackChangesOfFilteredQueries() {
+        String jsonOut = given()
+                .when()
+                    .accept(ContentType.JSON)
+                    .header("Prefer", "odata.track-changes")
+                    .get("/odata/Todos?$filter=ID gt 1")
+                .then()
+                    .statusCode(200)
+                    .header("Preference-Applied", nullValue())
+                .and()
+                    .extract()
+                    .asString();
+
+        assertThatJson(jsonOut).isObject().doesNotContainKey("@odata.deltaLink");
+    }
+
+    @Test
+    public void shouldReturnOnlyChangesSinceDeltaLink() {
+        String deltaLink = readDeltaLink("/odata/Todos");
+
+        /* Create, update and delete one entry each */
+        this.todoRepository.add(TodoFixture.createTodo());
+        this.todoRepository.update(1, todo -> {
+            Todo updated = new Todo(todo);
+
+            updated.setTitle("Updated string");
+
+            return updated;
+        });
+        this.todoRepository.deleteById(2);
+
+        String jsonOut = given()
+                .when()
+                    .accept(ContentType.JSON)
+                    .get(toPath(deltaLink))
+                .then()
+                    .statusCode(200)
+                .and()
+                    .extract()
+                    .asString();
+
+        assertThatJson(jsonOut).inPath("$.value").isArray().hasSize(3);
+        assertThatJson(jsonOut).inPath("$.value[0].ID").isEqualTo(4);
+        assertThatJson(jsonOut).inPath("$.value[1].ID").isEqualTo(1);
+        assertThatJson(jsonOut).inPath("$.value[1].Title").isEqualTo("Updated string");
+        assertThatJson(jsonOut).inPath("$.value[2].id").isString().endsWith("Todos(2)");
+        assertThatJson(jsonOut).inPath("$.value[2].reason").isEqualTo("deleted");
+
+        /* The new link only reports later changes */
+        String nextDeltaLink = JsonPath.from(jsonOut).getString("'@odata.deltaLink'");
+
+        assertThat(nextDeltaLink).isNotEqualTo(deltaLink);
+
+        given()
+                .when()
+                    .accept(ContentType.JSON)
+                    .get(toPath(nextDeltaLink))
+                .then()
+                    .statusCode(200)
+                    .body("value.size()", equalTo(0));
+    }
+
+    @Test
+    public void shouldSendEntriesChangedTwiceOnce() {
+        String deltaLink = readDeltaLink("/odata/Todos");
+
+        this.todoRepository.add(TodoFixture.createTodo());
+        this.todoRepository.deleteById(4);
+
+        String jsonOut = given()
+                .when()
+                    .accept(ContentType.JSON)
+                    .get(toPath(deltaLink))
+                .then()
+                    .statusCode(200)
+                .and()
+                    .extract()
+                    .asString();
+
+        assertThatJson(jsonOut).inPath("$.value").isArray().hasSize(1);
+        assertThatJson(jsonOut).inPath("$.value[0].id").isString().endsWith("Todos(4)");
+    }
+
+    @Test
+    public void shouldRejectInvalidDeltaToken() {
+        given()
+                .when()
+                    .accept(ContentType.JSON)
+                    .get("/odata/Todos?$deltatoken=abc")
+                .then()
+                    .statusCode(400);
+    }
+
+    @Test
+    public void shouldRejectExpiredDeltaToken() {
+        String deltaLink = readDeltaLink("/odata/Tasks");
+
+        /* Dropping all entries invalidates all tokens */
+        this.taskRepository.clear();
+
+        given()
+                .when()
+                    .accept(ContentType.JSON)
+                    .get(toPath(deltaLink))
+                .then()
+                    .statusCode(410)
+                    .body(containsString("expired"));
+    }
+
+    private static String readDeltaLink(String path) {
+        return given()
+                .when()
+                    .accept(ContentType.JSON)
+                    .header("Prefer", "odata.track-changes")
+                    .get(path)
+                .then()
+                    .statusCode(200)
+                .and()
+                    .extract()
+                    .jsonPath()
+                    .getString("'@odata.deltaLink'");
+    }
+
+    private static String toPath(String link) {
+        URI uri = URI.create(link);
+
+        return uri.getRawPath() + "?" + uri.getRawQuery();
+    }
+}
@@ -0,0 +1,184 @@
+/**
+ * @package Showcase-OData-Quarkus
+ *
+ * @file
+ * @copyright 2024-present Christoph Kappel <christoph@unexist.dev>
+ * @version $Id$
+ *
+ * This program can be distributed under the terms of the Apache License v2.0.
+ * See the file LICENSE for details.
+ **/
+
+package dev.unexist.showcase.todo.adapter.odata.system_query;
+
+import dev.unexist.showcase.todo.adapter.odata.ODataServletBaseIT;
+import dev.unexist.showcase.todo.adapter.odata.cache.EntityCache;
+import io.quarkus.test.junit.QuarkusTest;
+import io.restassured.http.ContentType;
+import org.junit.jupiter.api.Test;
+
+import javax.inject.Inject;
+
+import static io.restassured.RestAssured.given;
+import static net.javacrumbs.jsonunit.assertj.JsonAssertions.assertThatJson;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+
+@QuarkusTest
+public class ODataServletEntityCacheIT extends ODataServletBaseIT {
+
+    @Inject
+    EntityCache entityCache;
+
+    @Test
+    public void shouldServeRepeatedReadFromCache() {
+        String firstOut = readTodo(1);
+        long hits = this.entityCache.getStats().hitCount();
+        String secondOut = readTodo(1);
+
+        assertThat(secondOut).isEqualTo(firstOut);
+        assertThat(this.entityCache.getStats().hitCount()).isGreaterThan(hits);
+    }
+
+    @Test
+    public void shouldInvalidateOnUpdate() {
+        readTodo(1);
+
+        given()
+                .when()
+                    .contentType(ContentType.JSON)
+                    .body("{\"Title\":\"Cached\"}")
+                    .patch("/odata/Todos(1)")
+                .then()
+                    .statusCode(204);
+
+        given()
+                .when()
+                    .accept(ContentType.JSON)
+                    .get("/odata/Todos(1)")
+                .then()
+                    .statusCode(200)
+                    .body("Title", equalTo("Cached"));
+
+        /* A second update must not leak into the cached properties of the first read */
+        given()
+                .when()
+                    .contentType(ContentType.JSON)
+                    .body("{\"Title\":\"Changed\"}")
+                    .patch("/odata/Todos(2)")
+                .then()
+                    .statusCode(204);
+
+        given()
+                .when()
+                    .accept(ContentType.JSON)
+                    .get("/odata/Todos(1)")
+                .then()
+                    .statusCode(200)
+                    .body("Title", equalTo("Cached"));
+    }
+
+    @Test
+    public void shouldInvalidateOnDelete() {
+        readTodo(3);
+
+        given()
+                .when()
+                    .delete("/odata/Todos(3)")
+                .then()
+                    .statusCode(204);
+
+        given()
+                .when()
+                    .accept(ContentType.JSON)
+                    .get("/odata/Todos(3)")
+                .then()
+                    .statusCode(404);
+    }
+
+    @Test
+    public void shouldNotLeakExpandedLinks() {
+        given()
+                .when()
+                    .accept(ContentType.JSON)
+                    .get("/odata/Todos(1)?$expand=Tasks")
+                .then()
+                    .statusCode(200)
+                    .body(containsString("Tasks"));
+
+        assertThat(readTodo(1)).doesNotContain("\"Tasks\"");
+    }
+
+    @Test
+    public void shouldAssembleCollectionFromFragments() {
+        String firstOut = readCollection("/odata/Todos?$count=true");
+        long hits = this.entityCache.getFragmentCount(true);
+
+        /* Different query, so the result cache doesn't answer it */
+        String secondOut = readCollection("/odata/Todos?$count=true&$skip=0");
+
+        assertThat(secondOut).isEqualTo(firstOut);
+        assertThat(this.entityCache.getFragmentCount(true)).isEqualTo(hits + 3);
+        assertThatJson(secondOut).isObject().containsEntry("@odata.count", 3);
+        assertThatJson(secondOut).inPath("$.value[*].ID").isArray().containsExactly(1, 2, 3);
+    }
+
+    @Test
+    public void shouldKeepFragmentsPerSelect() {
+        readCollection("/odata/Todos");
+
+        String selectOut = readCollection("/odata/Todos?$select=Title");
+
+        assertThatJson(selectOut).inPath("$.value[0]").isObject()
+                .doesNotContainKey("Description");
+
+        given()
+                .when()
+                    .contentType(ContentType.JSON)
+                    .body("{\"Title\":\"Fragment\"}")
+                    .patch("/odata/Todos(2)")
+                .then()
+                    .statusCode(204);
+
+        assertThatJson(readCollection("/odata/Todos?$select=Title&$skip=1"))
+                .inPath("$.value[0].Title").isEqualTo("Fragment");
+    }
+
+    @Test
+    public void shouldExposeMetrics() {
+        readTodo(1);
+
+        given()
+                .when()
+                    .get("/q/metrics")
+                .then()
+                    .statusCode(200)
+                    .body(containsString("cache_gets_total{cache=\"odata-entities\""))
+                    .body(containsString("cache_evictions_total{cache=\"odata-entities\""));
+    }
+
+    private static String readCollection(String path) {
+        return given()
+                .when()
+                    .accept(ContentType.JSON)
+                    .get(path)
+                .then()
+                    .statusCode(200)
+                .and()
+                    .extract()
+                    .asString();
+    }
+
+    private static String readTodo(int id) {
+        return given()
+                .when()
+                    .accept(ContentType.JSON)
+                    .get("/odata/Todos(" + id + ")")
+                .then()
+                    .statusCode(200)
+                .and()
+                    .extract()
+                    .asString();
+    }
+}
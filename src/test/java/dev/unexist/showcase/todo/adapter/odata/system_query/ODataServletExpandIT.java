@@ -24,9 +24,12 @@ import static net.javacrumbs.jsonunit.assertj.JsonAssertions.json;
 public class ODataServletExpandIT extends ODataServletBaseIT {
     final Object expectedObject = json(String.join(System.lineSeparator(),
               "{",
+              "\"@odata.etag\": \"${json-unit.any-string}\",",
               "\"ID\": \"${json-unit.any-number}\",",
               "\"TodoID\": \"${json-unit.any-number}\",",
-              "\"Title\": \"${json-unit.any-string}\"",
+              "\"Title\": \"${json-unit.any-string}\",",
+              "\"Description\": \"${json-unit.any-string}\",",
+              "\"Done\": \"${json-unit.any-boolean}\"",
               "}"));
 
     @Test
@@ -0,0 +1,136 @@
+/**
+ * @package Showcase-OData-Quarkus
+ *
+ * @file
+ * @copyright 2024-present Christoph Kappel <christoph@unexist.dev>
+ * @version $Id$
+ *
+ * This program can be distributed under the terms of the Apache License v2.0.
+ * See the file LICENSE for details.
+ **/
+
+package dev.unexist.showcase.todo.adapter.odata.system_query;
+
+import dev.unexist.showcase.todo.adapter.odata.ODataServletBaseIT;
+import dev.unexist.showcase.todo.domain.todo.TodoFactory;
+import io.quarkus.test.junit.QuarkusTest;
+import io.restassured.http.ContentType;
+import org.junit.jupiter.api.Test;
+
+import static io.restassured.RestAssured.given;
+import static net.javacrumbs.jsonunit.assertj.JsonAssertions.assertThatJson;
+import static net.javacrumbs.jsonunit.assertj.JsonAssertions.json;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.startsWith;
+
+@QuarkusTest
+public class ODataServletIndexIT extends ODataServletBaseIT {
+
+    @Test
+    public void shouldUseIndexForRange() {
+        String jsonOut = given()
+                .when()
+                    .accept(ContentType.JSON)
+                    .get("/odata/Todos?$filter=ID gt 1 and ID lt 3")
+                .then()
+                    .statusCode(200)
+                    .header("X-Query-Index", equalTo("ID (1,3)"))
+                .and()
+                    .extract()
+                    .asString();
+
+        assertThatJson(jsonOut)
+                .inPath("$.value..[\"ID\"]")
+                    .isArray()
+                    .isEqualTo(json("[2]"));
+    }
+
+    @Test
+    public void shouldUseIndexForMirroredRange() {
+        String jsonOut = given()
+                .when()
+                    .accept(ContentType.JSON)
+                    .get("/odata/Todos?$filter=2 le ID and contains(Title, 'Todo')")
+                .then()
+                    .statusCode(200)
+                    .header("X-Query-Index", equalTo("ID [2,*)"))
+                .and()
+                    .extract()
+                    .asString();
+
+        assertThatJson(jsonOut)
+                .inPath("$.value..[\"ID\"]")
+                    .isArray()
+                    .isEqualTo(json("[2,3]"));
+    }
+
+    @Test
+    public void shouldUseIndexOrderForTop() {
+        String jsonOut = given()
+                .when()
+                    .accept(ContentType.JSON)
+                    .get("/odata/Todos?$orderby=ID desc&$skip=1&$top=1")
+                .then()
+                    .statusCode(200)
+                    .header("X-Query-Index", startsWith("ID (*,*) desc ordered"))
+                .and()
+                    .extract()
+                    .asString();
+
+        assertThatJson(jsonOut)
+                .inPath("$.value..[\"ID\"]")
+                    .isArray()
+                    .isEqualTo(json("[2]"));
+    }
+
+    @Test
+    public void shouldPageRangeInIdOrder() {
+        /* Titles sort the other way round than ids */
+        for (String title : new String[] { "D", "C", "B", "A" }) {
+            this.todoRepository.add(TodoFactory.fromData(0, title, title,
+                    "2021-05-07", "2021-05-07"));
+        }
+
+        String indexedOut = given()
+                .when()
+                    .accept(ContentType.JSON)
+                    .get("/odata/Todos?$filter=Title ge 'A'&$skip=1&$top=3")
+                .then()
+                    .statusCode(200)
+                    .header("X-Query-Index", startsWith("Title"))
+                .and()
+                    .extract()
+                    .asString();
+
+        String scannedOut = given()
+                .when()
+                    .accept(ContentType.JSON)
+                    .get("/odata/Todos?$filter=Title ge 'A' or ID eq 0&$skip=1&$top=3")
+                .then()
+                    .statusCode(200)
+                    .header("X-Query-Index", equalTo("none"))
+                .and()
+                    .extract()
+                    .asString();
+
+        assertThatJson(indexedOut)
+                .inPath("$.value..[\"ID\"]")
+                    .isArray()
+                    .isEqualTo(json("[2,3,4]"));
+        assertThatJson(scannedOut)
+                .inPath("$.value..[\"ID\"]")
+                    .isArray()
+                    .isEqualTo(json("[2,3,4]"));
+    }
+
+    @Test
+    public void shouldFallBackToFullScan() {
+        given()
+                .when()
+                    .accept(ContentType.JSON)
+                    .get("/odata/Todos?$filter=ID ne 1")
+                .then()
+                    .statusCode(200)
+                    .header("X-Query-Index", equalTo("none"));
+    }
+}
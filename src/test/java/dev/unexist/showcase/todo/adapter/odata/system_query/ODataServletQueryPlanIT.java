@@ -0,0 +1,72 @@
+/**
+ * @package Showcase-OData-Quarkus
+ *
+ * @file
+ * @copyright 2024-present Christoph Kappel <christoph@unexist.dev>
+ * @version $Id$
+ *
+ * This program can be distributed under the terms of the Apache License v2.0.
+ * See the file LICENSE for details.
+ **/
+
+package dev.unexist.showcase.todo.adapter.odata.system_query;
+
+import dev.unexist.showcase.todo.adapter.odata.ODataServletBaseIT;
+import io.quarkus.test.junit.QuarkusTest;
+import io.restassured.http.ContentType;
+import org.junit.jupiter.api.Test;
+
+import static io.restassured.RestAssured.given;
+import static net.javacrumbs.jsonunit.assertj.JsonAssertions.assertThatJson;
+import static net.javacrumbs.jsonunit.assertj.JsonAssertions.json;
+import static org.hamcrest.Matchers.equalTo;
+
+@QuarkusTest
+public class ODataServletQueryPlanIT extends ODataServletBaseIT {
+
+    @Test
+    public void shouldExpandAfterPaging() {
+        given()
+                .when()
+                    .accept(ContentType.JSON)
+                    .get("/odata/Todos?$orderby=ID desc&$top=1&$expand=Tasks")
+                .then()
+                    .statusCode(200)
+                    .header("X-Query-Plan",
+                            equalTo("INDEX_SCAN[ID (*,*) desc ordered; limit 1] > TOP[1] > EXPAND[Tasks] > SELECT"));
+    }
+
+    @Test
+    public void shouldSortAfterFullScan() {
+        given()
+                .when()
+                    .accept(ContentType.JSON)
+                    .get("/odata/Todos?$filter=ID ne 1&$orderby=Description")
+                .then()
+                    .statusCode(200)
+                    .header("X-Query-Plan",
+                            equalTo("SCAN[Todos] > FILTER[ID ne 1] > SORT[Description] > SELECT"));
+    }
+
+    @Test
+    public void shouldExplainPlan() {
+        String jsonOut = given()
+                .when()
+                    .accept(ContentType.JSON)
+                    .get("/odata/Todos?$filter=ID gt 1 and ID lt 3&explain=true")
+                .then()
+                    .statusCode(200)
+                .and()
+                    .extract()
+                    .asString();
+
+        assertThatJson(jsonOut)
+                .inPath("$.steps..operation")
+                    .isArray()
+                    .isEqualTo(json("[\"INDEX_SCAN\",\"SELECT\"]"));
+
+        assertThatJson(jsonOut)
+                .inPath("$.steps[0].actualRows")
+                    .isEqualTo(1);
+    }
+}
@@ -0,0 +1,111 @@
+/**
+ * @package Showcase-OData-Quarkus
+ *
+ * @file
+ * @copyright 2024-present Christoph Kappel <christoph@unexist.dev>
+ * @version $Id$
+ *
+ * This program can be distributed under the terms of the Apache License v2.0.
+ * See the file LICENSE for details.
+ **/
+
+package dev.unexist.showcase.todo.adapter.odata.system_query;
+
+import dev.unexist.showcase.todo.adapter.TaskFixture;
+import dev.unexist.showcase.todo.adapter.odata.ODataServletBaseIT;
+import dev.unexist.showcase.todo.domain.CrudRepository;
+import dev.unexist.showcase.todo.domain.task.Task;
+import io.quarkus.test.junit.QuarkusTest;
+import io.restassured.http.ContentType;
+import org.junit.jupiter.api.Test;
+
+import javax.inject.Inject;
+
+import static io.restassured.RestAssured.given;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+
+@QuarkusTest
+public class ODataServletResultCacheIT extends ODataServletBaseIT {
+
+    @Inject
+    CrudRepository<Task> taskRepository;
+
+    @Test
+    public void shouldServeRepeatedQueryFromCache() {
+        String firstOut = given()
+                .when()
+                    .accept(ContentType.JSON)
+                    .get("/odata/Todos?$filter=ID gt 1&$top=1")
+                .then()
+                    .statusCode(200)
+                    .header("X-Cache", equalTo("MISS"))
+                .and()
+                    .extract()
+                    .asString();
+
+        String secondOut = given()
+                .when()
+                    .accept(ContentType.JSON)
+                    .get("/odata/Todos?$top=1&$filter=ID gt 1")
+                .then()
+                    .statusCode(200)
+                    .header("X-Cache", equalTo("HIT"))
+                .and()
+                    .extract()
+                    .asString();
+
+        assertThat(secondOut).isEqualTo(firstOut);
+    }
+
+    @Test
+    public void shouldInvalidateExpandedQueryOnWrite() {
+        given()
+                .when()
+                    .accept(ContentType.JSON)
+                    .get("/odata/Todos?$expand=Tasks")
+                .then()
+                    .statusCode(200)
+                    .header("X-Cache", equalTo("MISS"));
+
+        this.taskRepository.add(TaskFixture.createTask(1));
+
+        given()
+                .when()
+                    .accept(ContentType.JSON)
+                    .get("/odata/Todos?$expand=Tasks")
+                .then()
+                    .statusCode(200)
+                    .header("X-Cache", equalTo("MISS"));
+
+        given()
+                .when()
+                    .accept(ContentType.JSON)
+                    .get("/odata/Todos")
+                .then()
+                    .statusCode(200)
+                    .header("X-Cache", equalTo("MISS"));
+
+        this.taskRepository.add(TaskFixture.createTask(2));
+
+        given()
+                .when()
+                    .accept(ContentType.JSON)
+                    .get("/odata/Todos")
+                .then()
+                    .statusCode(200)
+                    .header("X-Cache", equalTo("HIT"));
+    }
+
+    @Test
+    public void shouldExposeMetrics() {
+        given()
+                .when()
+                    .get("/q/metrics")
+                .then()
+                    .statusCode(200)
+                    .body(containsString("cache_gets_total{cache=\"odata-results\""))
+                    .body(containsString("cache_evictions_total{cache=\"odata-results\""));
+    }
+}
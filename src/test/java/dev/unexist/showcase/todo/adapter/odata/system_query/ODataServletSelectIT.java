@@ -54,10 +54,13 @@ public class ODataServletSelectIT extends ODataServletBaseIT {
 
         final Object expectedObject = json(String.join(System.lineSeparator(),
                 "{",
+                "\"@odata.etag\": \"${json-unit.any-string}\",",
                 "\"@odata.context\": \"${json-unit.ignore}\",",
                 "\"ID\": \"${json-unit.any-number}\",",
                 "\"Title\": \"${json-unit.any-string}\",",
-                "\"Description\": \"${json-unit.any-string}\"",
+                "\"Description\": \"${json-unit.any-string}\",",
+                "\"Start\": \"${json-unit.any-string}\",",
+                "\"Due\": \"${json-unit.any-string}\"",
                 "}"));
 
         assertThatJson(jsonOut).isEqualTo(expectedObject);
@@ -77,6 +80,7 @@ public class ODataServletSelectIT extends ODataServletBaseIT {
 
         final Object expectedObject = json(String.join(System.lineSeparator(),
                 "{",
+                "\"@odata.etag\": \"${json-unit.any-string}\",",
                 "\"ID\": \"${json-unit.any-number}\",",
                 "\"Description\": \"${json-unit.any-string}\"",
                 "}"));
@@ -102,9 +106,12 @@ public class ODataServletSelectIT extends ODataServletBaseIT {
 
         final Object expectedObject = json(String.join(System.lineSeparator(),
                 "{",
+                "\"@odata.etag\": \"${json-unit.any-string}\",",
                 "\"ID\": \"${json-unit.any-number}\",",
                 "\"Title\": \"${json-unit.any-string}\",",
-                "\"Description\": \"${json-unit.any-string}\"",
+                "\"Description\": \"${json-unit.any-string}\",",
+                "\"Start\": \"${json-unit.any-string}\",",
+                "\"Due\": \"${json-unit.any-string}\"",
                 "}"));
 
         assertThatJson(jsonOut)
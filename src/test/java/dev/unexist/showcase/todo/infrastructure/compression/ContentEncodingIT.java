@@ -0,0 +1,121 @@
+/**
+ * @package Showcase-OData-Quarkus
+ *
+ * @file
+ * @copyright 2024-present Christoph Kappel <christoph@unexist.dev>
+ * @version $Id$
+ *
+ * This program can be distributed under the terms of the Apache License v2.0.
+ * See the file LICENSE for details.
+ **/
+
+package dev.unexist.showcase.todo.infrastructure.compression;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ContentEncodingIT {
+    private static final List<ContentEncoding> SUPPORTED =
+            List.of(ContentEncoding.GZIP, ContentEncoding.DEFLATE);
+
+    @Test
+    public void shouldNegotiateByPreference() {
+        assertThat(ContentEncoding.negotiate("deflate, gzip", SUPPORTED))
+                .isEqualTo(ContentEncoding.GZIP);
+        assertThat(ContentEncoding.negotiate("deflate", SUPPORTED))
+                .isEqualTo(ContentEncoding.DEFLATE);
+        assertThat(ContentEncoding.negotiate("br", SUPPORTED))
+                .isEqualTo(ContentEncoding.IDENTITY);
+        assertThat(ContentEncoding.negotiate(null, SUPPORTED))
+                .isEqualTo(ContentEncoding.IDENTITY);
+    }
+
+    @Test
+    public void shouldNegotiateByQuality() {
+        assertThat(ContentEncoding.negotiate("gzip;q=0.5, deflate", SUPPORTED))
+                .isEqualTo(ContentEncoding.DEFLATE);
+        assertThat(ContentEncoding.negotiate("gzip;q=0, *", SUPPORTED))
+                .isEqualTo(ContentEncoding.DEFLATE);
+        assertThat(ContentEncoding.negotiate("*;q=0", SUPPORTED))
+                .isEqualTo(ContentEncoding.IDENTITY);
+    }
+
+    @Test
+    public void shouldKeepSmallBodiesUnencoded() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        AtomicInteger decisions = new AtomicInteger();
+
+        try (CompressingOutputStream compressingStream = new CompressingOutputStream(out,
+                ContentEncoding.GZIP, 6, 64, chosen -> {
+                    decisions.incrementAndGet();
+
+                    return chosen;
+                }))
+        {
+            compressingStream.write("small".getBytes(StandardCharsets.UTF_8));
+            compressingStream.finish();
+
+            assertThat(compressingStream.getUsedEncoding()).isEqualTo(ContentEncoding.IDENTITY);
+        }
+
+        assertThat(decisions.get()).isEqualTo(1);
+        assertThat(out.toString(StandardCharsets.UTF_8)).isEqualTo("small");
+    }
+
+    @Test
+    public void shouldRoundtripLargeBodies() throws Exception {
+        byte[] content = "{\"title\":\"Todo string\"},".repeat(1000)
+                .getBytes(StandardCharsets.UTF_8);
+
+        for (ContentEncoding encoding : SUPPORTED) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+            CompressingOutputStream compressingStream = new CompressingOutputStream(out,
+                    encoding, 6, 1024, chosen -> chosen);
+
+            /* Write in pieces to pass the threshold in between */
+            for (int i = 0; i < content.length; i += 500) {
+                compressingStream.write(content, i, Math.min(500, content.length - i));
+            }
+
+            compressingStream.finish();
+
+            assertThat(compressingStream.getUsedEncoding()).isEqualTo(encoding);
+            assertThat(out.size()).isLessThan(content.length / 10);
+            assertThat(decode(out.toByteArray(), encoding)).isEqualTo(content);
+        }
+    }
+
+    @Test
+    public void shouldPassVetoedBodiesThrough() throws Exception {
+        byte[] content = "x".repeat(4096).getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        CompressingOutputStream compressingStream = new CompressingOutputStream(out,
+                ContentEncoding.GZIP, 6, 1024, chosen -> ContentEncoding.IDENTITY);
+
+        compressingStream.write(content);
+        compressingStream.finish();
+
+        assertThat(out.toByteArray()).isEqualTo(content);
+    }
+
+    static byte[] decode(byte[] content, ContentEncoding encoding) throws Exception {
+        try (InputStream in = ContentEncoding.GZIP == encoding
+                ? new GZIPInputStream(new ByteArrayInputStream(content))
+                : new InflaterInputStream(new ByteArrayInputStream(content)))
+        {
+            return in.readAllBytes();
+        }
+    }
+}
@@ -0,0 +1,141 @@
+/**
+ * @package Showcase-OData-Quarkus
+ *
+ * @file
+ * @copyright 2024-present Christoph Kappel <christoph@unexist.dev>
+ * @version $Id$
+ *
+ * This program can be distributed under the terms of the Apache License v2.0.
+ * See the file LICENSE for details.
+ **/
+
+package dev.unexist.showcase.todo.infrastructure.concurrent;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ParallelScannerIT {
+    private static final int ROWS = 200_000;
+
+    private ParallelScanner scanner;
+
+    @BeforeEach
+    public void setUp() {
+        this.scanner = new ParallelScanner();
+
+        this.scanner.threads = Optional.of(8);
+        this.scanner.maxParallelism = Optional.of(3);
+        this.scanner.parallelThreshold = 1000;
+        this.scanner.chunkSize = 512;
+
+        this.scanner.init();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        this.scanner.destroy();
+    }
+
+    @Test
+    public void shouldPreserveInputOrder() {
+        List<Integer> input = IntStream.range(0, ROWS).boxed()
+                .collect(Collectors.toList());
+
+        List<Integer> result = this.scanner.filter(input, i -> 0 == i % 7);
+
+        assertThat(result).isEqualTo(input.stream()
+                .filter(i -> 0 == i % 7)
+                .collect(Collectors.toList()));
+    }
+
+    @Test
+    public void shouldCapParallelismPerRequest() {
+        List<Integer> input = IntStream.range(0, ROWS).boxed()
+                .collect(Collectors.toList());
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+
+        this.scanner.filter(input, i -> {
+            int current = running.incrementAndGet();
+
+            maxRunning.accumulateAndGet(current, Math::max);
+            running.decrementAndGet();
+
+            return true;
+        });
+
+        assertThat(maxRunning.get()).isBetween(1, 3);
+    }
+
+    @Test
+    @Timeout(value = 10, threadMode = Timeout.ThreadMode.SEPARATE_THREAD)
+    public void shouldNotWaitForBusyPool() throws Exception {
+        ParallelScanner busyScanner = new ParallelScanner();
+
+        busyScanner.threads = Optional.of(2);
+        busyScanner.maxParallelism = Optional.of(3);
+        busyScanner.parallelThreshold = 1000;
+        busyScanner.chunkSize = 512;
+
+        busyScanner.init();
+
+        List<Integer> input = IntStream.range(0, ROWS).boxed()
+                .collect(Collectors.toList());
+        CountDownLatch started = new CountDownLatch(3);
+        CountDownLatch release = new CountDownLatch(1);
+
+        /* Block both pool workers and the calling thread of another scan */
+        CompletableFuture<List<Integer>> blocked = CompletableFuture.supplyAsync(() -> {
+            try {
+                return busyScanner.filter(input, i -> {
+                    started.countDown();
+                    release.await();
+
+                    return true;
+                });
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        try {
+            started.await();
+
+            assertThat(busyScanner.filter(input, i -> 0 == i % 7))
+                    .hasSize((ROWS + 6) / 7);
+        } finally {
+            release.countDown();
+        }
+
+        assertThat(blocked.get()).hasSize(ROWS);
+
+        busyScanner.destroy();
+    }
+
+    @Test
+    public void shouldPropagateFailure() {
+        List<Integer> input = IntStream.range(0, ROWS).boxed()
+                .collect(Collectors.toList());
+
+        assertThatThrownBy(() -> this.scanner.filter(input, i -> {
+            if (150_000 == i) {
+                throw new Exception("Broken row");
+            }
+
+            return true;
+        })).hasMessage("Broken row");
+    }
+}
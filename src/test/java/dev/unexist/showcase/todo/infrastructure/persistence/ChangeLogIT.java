@@ -0,0 +1,82 @@
+/**
+ * @package Showcase-OData-Quarkus
+ *
+ * @file
+ * @copyright 2024-present Christoph Kappel <christoph@unexist.dev>
+ * @version $Id$
+ *
+ * This program can be distributed under the terms of the Apache License v2.0.
+ * See the file LICENSE for details.
+ **/
+
+package dev.unexist.showcase.todo.infrastructure.persistence;
+
+import dev.unexist.showcase.todo.domain.Change;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ChangeLogIT {
+
+    @Test
+    public void shouldReturnChangesInOrder() {
+        ChangeLog changeLog = new ChangeLog(8);
+
+        changeLog.append(1, Change.Type.CREATED);
+        changeLog.append(1, Change.Type.UPDATED);
+        changeLog.append(2, Change.Type.DELETED);
+
+        List<Change> changes = changeLog.since(1, Long.MAX_VALUE).orElseThrow();
+
+        assertThat(changes).extracting(Change::getSequence).containsExactly(2L, 3L);
+        assertThat(changes).extracting(Change::getType)
+                .containsExactly(Change.Type.UPDATED, Change.Type.DELETED);
+        assertThat(changeLog.since(3, Long.MAX_VALUE).orElseThrow()).isEmpty();
+    }
+
+    @Test
+    public void shouldStopAtGivenSequence() {
+        ChangeLog changeLog = new ChangeLog(8);
+
+        changeLog.append(1, Change.Type.CREATED);
+        changeLog.append(2, Change.Type.CREATED);
+        changeLog.append(1, Change.Type.DELETED);
+
+        assertThat(changeLog.since(0, 2).orElseThrow())
+                .extracting(Change::getSequence).containsExactly(1L, 2L);
+        assertThat(changeLog.since(2, 2).orElseThrow()).isEmpty();
+        assertThat(changeLog.since(3, 2)).isEmpty();
+    }
+
+    @Test
+    public void shouldForgetOverwrittenChanges() {
+        ChangeLog changeLog = new ChangeLog(4);
+
+        for (int id = 1; id <= 10; id++) {
+            changeLog.append(id, Change.Type.CREATED);
+        }
+
+        assertThat(changeLog.since(5, Long.MAX_VALUE)).isEmpty();
+        assertThat(changeLog.since(6, Long.MAX_VALUE).orElseThrow().stream()
+                .map(Change::getId)
+                .collect(Collectors.toList())).containsExactly(7, 8, 9, 10);
+    }
+
+    @Test
+    public void shouldRejectUnknownSequences() {
+        ChangeLog changeLog = new ChangeLog(4);
+
+        changeLog.append(1, Change.Type.CREATED);
+
+        assertThat(changeLog.since(2, Long.MAX_VALUE)).isEmpty();
+        assertThat(changeLog.since(-1, Long.MAX_VALUE)).isEmpty();
+
+        changeLog.reset();
+
+        assertThat(changeLog.since(1, Long.MAX_VALUE)).isEmpty();
+        assertThat(changeLog.since(changeLog.getSequence(), Long.MAX_VALUE)).hasValue(List.of());
+    }
+}
@@ -0,0 +1,146 @@
+/**
+ * @package Showcase-OData-Quarkus
+ *
+ * @file
+ * @copyright 2024-present Christoph Kappel <christoph@unexist.dev>
+ * @version $Id$
+ *
+ * This program can be distributed under the terms of the Apache License v2.0.
+ * See the file LICENSE for details.
+ **/
+
+package dev.unexist.showcase.todo.infrastructure.persistence;
+
+import dev.unexist.showcase.todo.infrastructure.collection.ConcurrentIntArrayMap;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.ref.Reference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Run with {@code mvn test -Pbenchmark -Dtest=IndexFootprintBenchmarkIT}
+ *
+ * Compares the retained heap of the boxed structures the repository used before with the
+ * primitive ones: rows by id with their versions, the id index and the todoId index. Each
+ * structure is built and measured on its own, so the peak stays at the largest one.
+ **/
+
+@Tag("benchmark")
+public class IndexFootprintBenchmarkIT {
+    private static final Logger LOGGER = LoggerFactory.getLogger(IndexFootprintBenchmarkIT.class);
+
+    private static final int[] RECORDS = { 1_000_000, 10_000_000 };
+    private static final int TASKS_PER_TODO = 10;
+
+    /* Rough upper bound of the boxed structures per record, to skip sizes that don't fit */
+    private static final long BOXED_BYTES_PER_RECORD = 160;
+
+    @Test
+    public void shouldUseLessMemoryThanBoxedStructures() {
+        for (int records : RECORDS) {
+            if (Runtime.getRuntime().maxMemory() < records * BOXED_BYTES_PER_RECORD * 2) {
+                LOGGER.warn("{} records: skipped, heap of {}mb is too small", records,
+                        Runtime.getRuntime().maxMemory() >> 20);
+
+                continue;
+            }
+
+            /* Payload is shared by both sides and not part of the measurement */
+            int[][] tasks = new int[records][];
+
+            for (int id = 1; id <= records; id++) {
+                tasks[id - 1] = new int[] { id, 1 + id / TASKS_PER_TODO };
+            }
+
+            long boxedRows = measure(() -> {
+                ConcurrentSkipListMap<Integer, int[]> entries = new ConcurrentSkipListMap<>();
+                ConcurrentHashMap<Integer, Long> rowVersions = new ConcurrentHashMap<>();
+
+                for (int[] task : tasks) {
+                    entries.put(task[0], task);
+                    rowVersions.put(task[0], 1L);
+                }
+
+                return new Object[] { entries, rowVersions };
+            });
+
+            long primitiveRows = measure(() -> {
+                ConcurrentIntArrayMap<ListRepositoryBase.Row<int[]>> rows =
+                        new ConcurrentIntArrayMap<>();
+
+                for (int[] task : tasks) {
+                    rows.put(task[0], new ListRepositoryBase.Row<>(task, 1L, 1L, null));
+                }
+
+                return rows;
+            });
+
+            long boxedIdIndex = measure(() -> fill(
+                    new SortedIndex<>("id", Integer.class, task -> task[0]), tasks));
+            long boxedTodoIdIndex = measure(() -> fill(
+                    new SortedIndex<>("todoId", Integer.class, task -> task[1]), tasks));
+            long primitiveTodoIdIndex = measure(() -> fill(
+                    new IntHashIndex<>("todoId", task -> task[1]), tasks));
+
+            long boxedTotal = boxedRows + boxedIdIndex + boxedTodoIdIndex;
+
+            /* The id index is just a view of the rows */
+            long primitiveTotal = primitiveRows + primitiveTodoIdIndex;
+
+            LOGGER.info("{} records: rows boxed={}mb primitive={}mb, id index boxed={}mb "
+                            + "primitive=0mb, todoId index boxed={}mb primitive={}mb, "
+                            + "total boxed={}mb primitive={}mb",
+                    records, boxedRows >> 20, primitiveRows >> 20, boxedIdIndex >> 20,
+                    boxedTodoIdIndex >> 20, primitiveTodoIdIndex >> 20,
+                    boxedTotal >> 20, primitiveTotal >> 20);
+
+            assertThat(primitiveRows).isLessThan(boxedRows);
+            assertThat(primitiveTodoIdIndex).isLessThan(boxedTodoIdIndex);
+
+            Reference.reachabilityFence(tasks);
+        }
+    }
+
+    private static SecondaryIndex<int[]> fill(SecondaryIndex<int[]> index, int[][] tasks) {
+        for (int[] task : tasks) {
+            index.put(task[0], task);
+        }
+
+        return index;
+    }
+
+    /**
+     * Measure retained heap of the structure created by the builder
+     *
+     * @param  builder  A {@link Supplier} to build the structure
+     *
+     * @return Retained bytes
+     **/
+
+    private static long measure(Supplier<Object> builder) {
+        long before = usedMemory();
+        Object retained = builder.get();
+        long retVal = usedMemory() - before;
+
+        Reference.reachabilityFence(retained);
+
+        return retVal;
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
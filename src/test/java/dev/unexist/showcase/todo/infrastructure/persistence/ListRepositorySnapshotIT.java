@@ -0,0 +1,257 @@
+/**
+ * @package Showcase-OData-Quarkus
+ *
+ * @file
+ * @copyright 2024-present Christoph Kappel <christoph@unexist.dev>
+ * @version $Id$
+ *
+ * This program can be distributed under the terms of the Apache License v2.0.
+ * See the file LICENSE for details.
+ **/
+
+package dev.unexist.showcase.todo.infrastructure.persistence;
+
+import dev.unexist.showcase.todo.domain.Change;
+import dev.unexist.showcase.todo.domain.IndexRange;
+import dev.unexist.showcase.todo.domain.todo.Todo;
+import dev.unexist.showcase.todo.domain.todo.TodoFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ListRepositorySnapshotIT {
+    private static final String DATE = "2021-05-07";
+
+    private ListUnitOfWork unitOfWork;
+    private TodoListRepository repository;
+
+    @BeforeEach
+    public void setUp() {
+        this.unitOfWork = new ListUnitOfWork();
+        this.repository = new TodoListRepository();
+
+        this.repository.unitOfWork = this.unitOfWork;
+        this.repository.indexNames = Optional.of(List.of("title"));
+        this.repository.init();
+
+        this.repository.add(createTodo("a"));
+        this.repository.add(createTodo("b"));
+        this.repository.add(createTodo("c"));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        this.unitOfWork.closeSnapshot();
+    }
+
+    @Test
+    public void shouldNotBlockWritersAndKeepSnapshotStable() throws Exception {
+        this.unitOfWork.openSnapshot();
+
+        CompletableFuture.runAsync(() -> {
+            Todo updated = createTodo("z");
+
+            updated.setId(1);
+
+            this.repository.update(updated);
+            this.repository.deleteById(2);
+            this.repository.add(createTodo("d"));
+        }).get(10, TimeUnit.SECONDS);
+
+        assertThat(this.repository.count()).isEqualTo(3);
+        assertThat(titlesOf(this.repository.getAll())).containsExactly("a", "b", "c");
+        assertThat(this.repository.findById(2)).isPresent();
+        assertThat(this.repository.findVersionById(1)).contains(1L);
+        assertThat(titlesOf(this.repository.getPage(1, 10))).containsExactly("b", "c");
+
+        /* The index already moved on, so it must not be used for the old snapshot */
+        assertThat(this.repository.findAllByIndex("title", IndexRange.exactly("b"))).isEmpty();
+
+        this.unitOfWork.closeSnapshot();
+
+        assertThat(titlesOf(this.repository.getAll())).containsExactly("z", "c", "d");
+    }
+
+    @Test
+    public void shouldReadEverySnapshotAtItsOwnVersion() throws Exception {
+        this.unitOfWork.openSnapshot();
+
+        List<String> middle = CompletableFuture.supplyAsync(() -> {
+            this.repository.update(1, todo -> createTodo("x"));
+
+            List<String> retVal = this.unitOfWork.read(() -> {
+                CompletableFuture.runAsync(() -> {
+                    this.repository.update(1, todo -> createTodo("y"));
+                    this.repository.deleteById(3);
+                }).join();
+
+                return titlesOf(this.repository.getAll());
+            });
+
+            return retVal;
+        }).get(10, TimeUnit.SECONDS);
+
+        assertThat(middle).containsExactly("x", "b", "c");
+        assertThat(titlesOf(this.repository.getAll())).containsExactly("a", "b", "c");
+        assertThat(this.repository.findById(3)).isPresent();
+
+        this.unitOfWork.closeSnapshot();
+
+        assertThat(titlesOf(this.repository.getAll())).containsExactly("y", "b");
+        assertThat(this.repository.count()).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldReadChangesUpToSnapshot() throws Exception {
+        long sequence = this.repository.getChangeSequence();
+
+        this.repository.deleteById(3);
+        this.unitOfWork.openSnapshot();
+
+        CompletableFuture.runAsync(() -> {
+            this.repository.update(1, todo -> createTodo("x"));
+            this.repository.add(createTodo("d"));
+        }).get(10, TimeUnit.SECONDS);
+
+        /* Later changes belong to later snapshots, just like the rows they changed */
+        assertThat(this.repository.getChangeSequence()).isEqualTo(sequence + 1);
+        assertThat(this.repository.findChangesSince(sequence).orElseThrow())
+                .extracting(Change::getId).containsExactly(3);
+
+        this.unitOfWork.closeSnapshot();
+
+        assertThat(this.repository.getChangeSequence()).isEqualTo(sequence + 3);
+        assertThat(this.repository.findChangesSince(sequence).orElseThrow())
+                .extracting(Change::getId).containsExactly(3, 1, 4);
+    }
+
+    @Test
+    public void shouldPruneRowVersionsOnceSnapshotsClose() throws Exception {
+        this.repository.update(1, todo -> createTodo("x"));
+
+        assertThat(this.repository.countRowVersions(1)).isEqualTo(1);
+
+        this.unitOfWork.openSnapshot();
+
+        CompletableFuture.runAsync(() -> {
+            for (int i = 0; i < 10; i++) {
+                this.repository.update(1, todo -> createTodo("y"));
+            }
+
+            this.repository.deleteById(2);
+        }).get(10, TimeUnit.SECONDS);
+
+        /* Just the latest row and the one of the snapshot are kept */
+        assertThat(this.repository.countRowVersions(1)).isEqualTo(2);
+        assertThat(this.repository.countRowVersions(2)).isEqualTo(2);
+        assertThat(this.repository.findById(2)).isPresent();
+
+        this.unitOfWork.closeSnapshot();
+
+        assertThat(this.repository.countRowVersions(1)).isEqualTo(1);
+        assertThat(this.repository.countRowVersions(2)).isZero();
+        assertThat(this.repository.findById(2)).isEmpty();
+    }
+
+    @Test
+    public void shouldSeeUnitsOfWorkAtomicallyUnderLoad() throws Exception {
+        this.unitOfWork.closeSnapshot();
+
+        AtomicBoolean isRunning = new AtomicBoolean(true);
+        AtomicInteger torn = new AtomicInteger();
+        List<CompletableFuture<Void>> workers = new ArrayList<>();
+
+        for (int i = 0; i < 2; i++) {
+            workers.add(CompletableFuture.runAsync(() -> {
+                for (int n = 0; isRunning.get(); n++) {
+                    String title = String.valueOf(n);
+
+                    this.unitOfWork.execute(() -> {
+                        this.repository.update(1, todo -> createTodo(title));
+
+                        return this.repository.update(2, todo -> createTodo(title));
+                    });
+                }
+            }));
+        }
+
+        for (int i = 0; i < 4; i++) {
+            workers.add(CompletableFuture.runAsync(() -> {
+                while (isRunning.get()) {
+                    boolean isSame = this.unitOfWork.read(() -> this.repository.findById(1)
+                            .map(Todo::getTitle)
+                            .equals(this.repository.findById(2).map(Todo::getTitle)));
+
+                    if (!isSame) {
+                        torn.incrementAndGet();
+                    }
+                }
+            }));
+        }
+
+        Thread.sleep(500);
+        isRunning.set(false);
+
+        CompletableFuture.allOf(workers.toArray(new CompletableFuture<?>[0]))
+                .get(10, TimeUnit.SECONDS);
+
+        assertThat(torn.get()).isZero();
+        assertThat(this.repository.countRowVersions(1)).isEqualTo(1);
+        assertThat(this.repository.countRowVersions(2)).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldUseIndexWhenSnapshotIsCurrent() {
+        this.unitOfWork.openSnapshot();
+
+        assertThat(this.repository.findAllByIndex("title", IndexRange.exactly("b"))
+                .map(stream -> titlesOf(stream.collect(Collectors.toList()))))
+                .contains(List.of("b"));
+    }
+
+    @Test
+    public void shouldShareSnapshotUntilNextWrite() {
+        List<Todo> first = this.repository.getAll();
+
+        assertThat(this.repository.getAll()).isSameAs(first);
+
+        this.repository.add(createTodo("d"));
+
+        assertThat(this.repository.getAll()).isNotSameAs(first).hasSize(4);
+    }
+
+    @Test
+    public void shouldSeeOwnWritesInsideOfUnitOfWork() {
+        this.unitOfWork.openSnapshot();
+
+        int count = this.unitOfWork.execute(() -> {
+            this.repository.add(createTodo("d"));
+
+            return this.repository.count();
+        });
+
+        assertThat(count).isEqualTo(4);
+        assertThat(this.repository.count()).isEqualTo(3);
+    }
+
+    private static Todo createTodo(String title) {
+        return TodoFactory.fromData(0, title, title, DATE, DATE);
+    }
+
+    private static List<String> titlesOf(List<Todo> todos) {
+        return todos.stream()
+                .map(Todo::getTitle)
+                .collect(Collectors.toList());
+    }
+}
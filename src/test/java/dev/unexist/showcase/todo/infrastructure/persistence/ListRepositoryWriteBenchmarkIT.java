@@ -0,0 +1,140 @@
+/**
+ * @package Showcase-OData-Quarkus
+ *
+ * @file
+ * @copyright 2024-present Christoph Kappel <christoph@unexist.dev>
+ * @version $Id$
+ *
+ * This program can be distributed under the terms of the Apache License v2.0.
+ * See the file LICENSE for details.
+ **/
+
+package dev.unexist.showcase.todo.infrastructure.persistence;
+
+import dev.unexist.showcase.todo.domain.todo.Todo;
+import dev.unexist.showcase.todo.domain.todo.TodoFactory;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Run with {@code mvn test -Pbenchmark -Dtest=ListRepositoryWriteBenchmarkIT}
+ *
+ * Compares updates under the per-id lock stripes with updates that take the exclusive
+ * lock of a unit of work, each with 1 to 64 threads writing to random ids.
+ **/
+
+@Tag("benchmark")
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ListRepositoryWriteBenchmarkIT {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ListRepositoryWriteBenchmarkIT.class);
+
+    private static final String DATE = "2021-05-07";
+    private static final int ENTRIES = 10_000;
+    private static final int[] THREADS = { 1, 2, 4, 8, 16, 32, 64 };
+    private static final UnaryOperator<Todo> TOUCH = Todo::new;
+
+    private ListUnitOfWork unitOfWork;
+    private TodoListRepository repository;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<Todo> todos = new ArrayList<>(ENTRIES);
+
+        this.unitOfWork = new ListUnitOfWork();
+        this.repository = new TodoListRepository();
+
+        this.repository.unitOfWork = this.unitOfWork;
+        this.repository.indexNames = Optional.of(List.of("title"));
+        this.repository.init();
+
+        for (int i = 0; i < ENTRIES; i++) {
+            todos.add(TodoFactory.fromData(0, "Todo " + i, "Todo string", DATE, DATE));
+        }
+
+        this.repository.addAll(todos);
+    }
+
+    @Benchmark
+    public boolean updateStriped() {
+        int id = 1 + ThreadLocalRandom.current().nextInt(ENTRIES);
+
+        return this.repository.update(id, TOUCH);
+    }
+
+    @Benchmark
+    public boolean updateExclusive() {
+        int id = 1 + ThreadLocalRandom.current().nextInt(ENTRIES);
+
+        return this.unitOfWork.execute(() -> this.repository.update(id, TOUCH));
+    }
+
+    @Test
+    public void shouldScaleWithThreads() throws RunnerException {
+        Map<Integer, double[]> scores = new TreeMap<>();
+
+        for (int threads : THREADS) {
+            Options options = new OptionsBuilder()
+                    .include(ListRepositoryWriteBenchmarkIT.class.getName() + "\\.")
+                    .forks(0)
+                    .threads(threads)
+                    .warmupIterations(2)
+                    .warmupTime(TimeValue.seconds(1))
+                    .measurementIterations(3)
+                    .measurementTime(TimeValue.seconds(1))
+                    .build();
+
+            double[] score = new double[2];
+
+            for (RunResult result : new Runner(options).run()) {
+                score[result.getParams().getBenchmark().endsWith("updateStriped") ? 0 : 1] =
+                        result.getPrimaryResult().getScore();
+            }
+
+            scores.put(threads, score);
+
+            LOGGER.info("{} threads: striped={} ops/ms, exclusive={} ops/ms",
+                    threads, Math.round(score[0]), Math.round(score[1]));
+        }
+
+        /* Scaling can only show up with real parallelism */
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        if (1 < cores) {
+            int threads = scores.keySet().stream()
+                    .filter(count -> count <= cores)
+                    .reduce(1, Math::max);
+
+            assertThat(scores.get(threads)[0]).isGreaterThan(scores.get(threads)[1]);
+            assertThat(scores.get(threads)[0]).isGreaterThan(scores.get(1)[0]);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/**
+ * @package Showcase-OData-Quarkus
+ *
+ * @file
+ * @copyright 2024-present Christoph Kappel <christoph@unexist.dev>
+ * @version $Id$
+ *
+ * This program can be distributed under the terms of the Apache License v2.0.
+ * See the file LICENSE for details.
+ **/
+
+package dev.unexist.showcase.todo.infrastructure.persistence;
+
+import dev.unexist.showcase.todo.domain.todo.Todo;
+import dev.unexist.showcase.todo.domain.todo.TodoFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ListRepositoryWriteIT {
+    private static final String DATE = "2021-05-07";
+    private static final int THREADS = 8;
+    private static final int UPDATES = 2000;
+
+    private ListUnitOfWork unitOfWork;
+    private TodoListRepository repository;
+
+    @BeforeEach
+    public void setUp() {
+        this.unitOfWork = new ListUnitOfWork();
+        this.repository = new TodoListRepository();
+
+        this.repository.unitOfWork = this.unitOfWork;
+        this.repository.indexNames = Optional.of(List.of("title"));
+        this.repository.init();
+
+        this.repository.add(TodoFactory.fromData(0, "0", "counter", DATE, DATE));
+        this.repository.add(TodoFactory.fromData(0, "0", "counter", DATE, DATE));
+    }
+
+    @Test
+    public void shouldNotLoseConcurrentUpdates() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+
+        try {
+            for (int i = 0; i < THREADS; i++) {
+                int id = 1 + i % 2;
+
+                futures.add(CompletableFuture.runAsync(() -> {
+                    for (int j = 0; j < UPDATES; j++) {
+                        this.repository.update(id, todo -> {
+                            Todo updated = new Todo(todo);
+
+                            updated.setTitle(String.valueOf(Integer.parseInt(todo.getTitle()) + 1));
+
+                            return updated;
+                        });
+                    }
+                }, executor));
+            }
+
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+                    .get(30, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        int expected = THREADS / 2 * UPDATES;
+
+        assertThat(this.repository.findById(1)).map(Todo::getTitle).contains(String.valueOf(expected));
+        assertThat(this.repository.findById(2)).map(Todo::getTitle).contains(String.valueOf(expected));
+        assertThat(this.repository.findVersionById(1)).contains(1L + expected);
+    }
+
+    @Test
+    public void shouldRejectStaleVersion() {
+        assertThat(this.repository.update(1, todo -> todo, 1L)).isTrue();
+        assertThat(this.repository.update(1, todo -> todo, 1L)).isFalse();
+        assertThat(this.repository.findVersionById(1)).contains(2L);
+    }
+
+    @Test
+    public void shouldRevertUpdatesOnRollback() {
+        this.unitOfWork.begin();
+
+        this.repository.update(1, todo -> {
+            Todo updated = new Todo(todo);
+
+            updated.setTitle("changed");
+
+            return updated;
+        });
+
+        this.unitOfWork.rollback();
+
+        assertThat(this.repository.findById(1)).map(Todo::getTitle).contains("0");
+        assertThat(this.repository.findVersionById(1)).contains(1L);
+    }
+}
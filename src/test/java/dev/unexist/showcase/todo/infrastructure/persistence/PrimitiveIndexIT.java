@@ -0,0 +1,93 @@
+/**
+ * @package Showcase-OData-Quarkus
+ *
+ * @file
+ * @copyright 2024-present Christoph Kappel <christoph@unexist.dev>
+ * @version $Id$
+ *
+ * This program can be distributed under the terms of the Apache License v2.0.
+ * See the file LICENSE for details.
+ **/
+
+package dev.unexist.showcase.todo.infrastructure.persistence;
+
+import dev.unexist.showcase.todo.domain.IndexRange;
+import dev.unexist.showcase.todo.infrastructure.collection.ConcurrentIntArrayMap;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PrimitiveIndexIT {
+    private static final int TODOS = 2000;
+    private static final int TASKS_PER_TODO = 5;
+
+    @Test
+    public void shouldScanHashIndexLikeSortedIndex() {
+        IntHashIndex<int[]> hashIndex = new IntHashIndex<>("todoId", task -> task[1]);
+        SortedIndex<int[]> sortedIndex = new SortedIndex<>("todoId", Integer.class, task -> task[1]);
+
+        for (int id = 1; id <= TODOS * TASKS_PER_TODO; id++) {
+            int[] task = { id, 1 + id % TODOS };
+
+            hashIndex.put(id, task);
+            sortedIndex.put(id, task);
+        }
+
+        /* Move and remove enough ids to exercise deletes within the hash maps */
+        for (int id = 1; id <= TODOS * TASKS_PER_TODO; id += 3) {
+            if (0 == id % 2) {
+                hashIndex.remove(id);
+                sortedIndex.remove(id);
+            } else {
+                int[] task = { id, 1 + id % 7 };
+
+                hashIndex.put(id, task);
+                sortedIndex.put(id, task);
+            }
+        }
+
+        List<IndexRange> ranges = List.of(
+                IndexRange.exactly(3),
+                IndexRange.exactly(3).after(3000),
+                IndexRange.exactly(TODOS + 1),
+                IndexRange.all().from(10, true).to(20, false),
+                IndexRange.all().from(1990, false).descending(true),
+                IndexRange.all().to(4, true).after(9000));
+
+        for (IndexRange range : ranges) {
+            assertThat(collect(hashIndex, range))
+                    .as(range.toString())
+                    .isEqualTo(collect(sortedIndex, range));
+        }
+
+        assertThat(hashIndex.size()).isEqualTo(sortedIndex.size());
+    }
+
+    @Test
+    public void shouldScanIdIndexInIdOrder() {
+        ConcurrentIntArrayMap<String> rows = new ConcurrentIntArrayMap<>();
+        IdIndex<String> index = new IdIndex<>("id", rows);
+
+        for (int id = 1; id <= 10_000; id++) {
+            rows.put(id, "row");
+        }
+
+        for (int id = 100; id < 9000; id++) {
+            rows.remove(id);
+        }
+
+        assertThat(collect(index, IndexRange.all().from(95, true).to(9002, false)))
+                .containsExactly(95, 96, 97, 98, 99, 9000, 9001);
+        assertThat(collect(index, IndexRange.exactly(99).after(99))).isEmpty();
+        assertThat(collect(index, IndexRange.all().to(3, true).descending(true)))
+                .containsExactly(3, 2, 1);
+        assertThat(index.size()).isEqualTo(1100);
+    }
+
+    private static List<Integer> collect(SecondaryIndex<?> index, IndexRange range) {
+        return index.scan(range).collect(Collectors.toList());
+    }
+}